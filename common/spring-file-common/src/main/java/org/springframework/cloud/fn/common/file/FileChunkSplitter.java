@@ -0,0 +1,234 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.splitter.AbstractMessageSplitter;
+import org.springframework.integration.util.CloseableIterator;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+
+/**
+ * The splitter emitting the contents of a file as a sequence of {@code byte[]} chunks of
+ * the configured size, so the memory taken by a file is bounded by the chunk size and the
+ * number of chunks in flight, not by the file size. The chunks carry the correlation and
+ * sequence headers (including the sequence size for a {@link File}, whose size is known
+ * up front) and the {@link FileUtils#LAST_CHUNK} header.
+ * <p>
+ * A {@link File} is read through a {@link FileChannel} straight into the byte array of
+ * each chunk. A stream is read ahead by one chunk to find out
+ * which chunk is the last. An empty file makes a single empty last chunk.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+final class FileChunkSplitter extends AbstractMessageSplitter {
+
+	private final int chunkSize;
+
+	FileChunkSplitter(int chunkSize) {
+		this.chunkSize = chunkSize;
+		setApplySequence(true);
+	}
+
+	@Override
+	protected Object splitMessage(Message<?> message) {
+		Object payload = message.getPayload();
+		Closeable closeableResource = StaticMessageHeaderAccessor.getCloseableResource(message);
+		try {
+			if (payload instanceof String path) {
+				payload = new File(path);
+			}
+			if (payload instanceof File file) {
+				return new FileChunkIterator(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+			}
+			else if (payload instanceof InputStream inputStream) {
+				return new StreamChunkIterator(inputStream, closeableResource);
+			}
+			throw new IllegalArgumentException(
+					"Expected a File, a file path or an InputStream, but got " + payload.getClass().getName());
+		}
+		catch (IOException ex) {
+			throw new MessageHandlingException(message, "Failed to read file", ex);
+		}
+	}
+
+	@Override
+	protected int obtainSizeIfPossible(Iterator<?> iterator) {
+		if (iterator instanceof FileChunkIterator fileChunkIterator) {
+			return fileChunkIterator.chunkCount;
+		}
+		return super.obtainSizeIfPossible(iterator);
+	}
+
+	private Message<byte[]> chunk(byte[] bytes, boolean last) {
+		return getMessageBuilderFactory().withPayload(bytes).setHeader(FileUtils.LAST_CHUNK, last).build();
+	}
+
+	private final class FileChunkIterator implements CloseableIterator<Message<byte[]>> {
+
+		private final FileChannel channel;
+
+		private final long size;
+
+		private final int chunkCount;
+
+		private long position;
+
+		private int emitted;
+
+		FileChunkIterator(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			this.chunkCount = (int) Math.max(1, (this.size + FileChunkSplitter.this.chunkSize - 1)
+					/ FileChunkSplitter.this.chunkSize);
+		}
+
+		@Override
+		public boolean hasNext() {
+			boolean hasNext = this.emitted < this.chunkCount;
+			if (!hasNext) {
+				close();
+			}
+			return hasNext;
+		}
+
+		@Override
+		public Message<byte[]> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int length = (int) Math.min(FileChunkSplitter.this.chunkSize, this.size - this.position);
+			byte[] bytes = new byte[length];
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			try {
+				while (buffer.hasRemaining()) {
+					if (this.channel.read(buffer, this.position + buffer.position()) < 0) {
+						throw new IOException("Unexpected end of file at " + (this.position + buffer.position()));
+					}
+				}
+			}
+			catch (IOException ex) {
+				close();
+				throw new UncheckedIOException(ex);
+			}
+			this.position += length;
+			this.emitted++;
+			return chunk(bytes, this.emitted == this.chunkCount);
+		}
+
+		@Override
+		public void close() {
+			try {
+				this.channel.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+
+	}
+
+	private final class StreamChunkIterator implements CloseableIterator<Message<byte[]>> {
+
+		private final InputStream inputStream;
+
+		private final Closeable closeableResource;
+
+		private byte[] next;
+
+		private boolean first = true;
+
+		private boolean closed;
+
+		StreamChunkIterator(InputStream inputStream, @Nullable Closeable closeableResource) {
+			this.inputStream = inputStream;
+			this.closeableResource = closeableResource;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.first) {
+				this.first = false;
+				this.next = read();
+				if (this.next == null) {
+					// An empty stream still makes a chunk
+					this.next = new byte[0];
+				}
+			}
+			return this.next != null;
+		}
+
+		@Override
+		public Message<byte[]> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			byte[] current = this.next;
+			this.next = (current.length < FileChunkSplitter.this.chunkSize) ? null : read();
+			return chunk(current, this.next == null);
+		}
+
+		@Nullable
+		private byte[] read() {
+			if (this.closed) {
+				return null;
+			}
+			try {
+				byte[] bytes = this.inputStream.readNBytes(FileChunkSplitter.this.chunkSize);
+				if (bytes.length < FileChunkSplitter.this.chunkSize) {
+					close();
+				}
+				return (bytes.length > 0) ? bytes : null;
+			}
+			catch (IOException ex) {
+				close();
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		@Override
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				try {
+					this.inputStream.close();
+					if (this.closeableResource != null) {
+						this.closeableResource.close();
+					}
+				}
+				catch (IOException ex) {
+					// ignore
+				}
+			}
+		}
+
+	}
+
+}
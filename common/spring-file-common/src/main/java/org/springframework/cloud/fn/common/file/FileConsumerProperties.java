@@ -20,6 +20,7 @@ import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotNull;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
 /**
@@ -34,13 +35,15 @@ public class FileConsumerProperties {
 
 	/**
 	 * The FileReadingMode to use for file reading sources. Values are 'ref' - The File
-	 * object, 'lines' - a message per line, or 'contents' - the contents as bytes.
+	 * object, 'lines' - a message per line, 'line_batches' - a message per batch of
+	 * lines, 'chunks' - a message per fixed-size chunk of bytes, or 'contents' - the
+	 * contents as bytes.
 	 */
 	private FileReadingMode mode = FileReadingMode.contents;
 
 	/**
 	 * Set to true to emit start of file/end of file marker messages before/after the
-	 * data. Only valid with FileReadingMode 'lines'.
+	 * data. Only valid with FileReadingMode 'lines' and 'line_batches'.
 	 */
 	private Boolean withMarkers = null;
 
@@ -50,6 +53,23 @@ public class FileConsumerProperties {
 	 */
 	private boolean markersJson = true;
 
+	/**
+	 * The maximum number of lines per message in the 'line_batches' mode.
+	 */
+	private int batchLines = 1000;
+
+	/**
+	 * The number of bytes after which a batch is emitted at the next line end in the
+	 * 'line_batches' mode.
+	 */
+	private DataSize batchBytes = DataSize.ofMegabytes(1);
+
+	/**
+	 * The size of the byte[] chunks in the 'chunks' mode; the last chunk of a file may be
+	 * smaller.
+	 */
+	private DataSize chunkSize = DataSize.ofMegabytes(1);
+
 	@NotNull
 	public FileReadingMode getMode() {
 		return this.mode;
@@ -75,9 +95,39 @@ public class FileConsumerProperties {
 		this.markersJson = markersJson;
 	}
 
-	@AssertTrue(message = "withMarkers can only be supplied when FileReadingMode is 'lines'")
+	public int getBatchLines() {
+		return this.batchLines;
+	}
+
+	public void setBatchLines(int batchLines) {
+		this.batchLines = batchLines;
+	}
+
+	public DataSize getBatchBytes() {
+		return this.batchBytes;
+	}
+
+	public void setBatchBytes(DataSize batchBytes) {
+		this.batchBytes = batchBytes;
+	}
+
+	public DataSize getChunkSize() {
+		return this.chunkSize;
+	}
+
+	public void setChunkSize(DataSize chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	@AssertTrue(message = "chunkSize must be between 1 byte and 2GB")
+	public boolean isChunkSizeValid() {
+		return this.chunkSize.toBytes() > 0 && this.chunkSize.toBytes() <= Integer.MAX_VALUE - 8;
+	}
+
+	@AssertTrue(message = "withMarkers can only be supplied when FileReadingMode is 'lines' or 'line_batches'")
 	public boolean isWithMarkersValid() {
-		return this.withMarkers == null || FileReadingMode.lines == this.mode;
+		return this.withMarkers == null || FileReadingMode.lines == this.mode
+				|| FileReadingMode.line_batches == this.mode;
 	}
 
 }
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.file;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.splitter.FileSplitter;
+import org.springframework.integration.splitter.AbstractMessageSplitter;
+import org.springframework.integration.support.json.JsonObjectMapper;
+import org.springframework.integration.support.json.JsonObjectMapperProvider;
+import org.springframework.integration.util.CloseableIterator;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+
+/**
+ * The splitter emitting a message per batch of lines of a file, instead of a message per
+ * line like the {@link FileSplitter}. A batch is closed when it has the configured number
+ * of lines, or when it reaches the configured number of bytes at a line end. The lines of
+ * a batch are separated by {@code \n}, and the {@code file_lineCount} header carries the
+ * number of lines in the batch.
+ * <p>
+ * A {@link File} in a charset where the line feed is a single {@code 0x0A} byte (e.g.
+ * UTF-8 or ISO-8859-1) is read through memory-mapped regions, each mapped once and
+ * walked batch by batch, decoding each batch right from the mapped bytes. Streams, and
+ * files in other charsets, are read with a {@link BufferedReader}; the batch size is then
+ * counted in characters.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+final class FileLineBatchSplitter extends AbstractMessageSplitter {
+
+	private static final int REGION_SIZE = 64 * 1024 * 1024;
+
+	private final boolean markers;
+
+	private final boolean markersJson;
+
+	private final int batchLines;
+
+	private final long batchBytes;
+
+	private final Charset charset = Charset.defaultCharset();
+
+	private final boolean lineFeedIsSingleByte = "\n".getBytes(this.charset).length == 1;
+
+	private JsonObjectMapper<?, ?> jsonObjectMapper;
+
+	FileLineBatchSplitter(boolean markers, boolean markersJson, int batchLines, long batchBytes) {
+		this.markers = markers;
+		this.markersJson = markersJson;
+		this.batchLines = (batchLines > 0) ? batchLines : Integer.MAX_VALUE;
+		this.batchBytes = (batchBytes > 0) ? batchBytes : Long.MAX_VALUE;
+		if (markers && markersJson) {
+			this.jsonObjectMapper = JsonObjectMapperProvider.newInstance();
+		}
+		setApplySequence(true);
+	}
+
+	@Override
+	protected Object splitMessage(Message<?> message) {
+		Object payload = message.getPayload();
+		String filePath;
+		BatchReader batchReader;
+		try {
+			if (payload instanceof String path) {
+				payload = new File(path);
+			}
+			if (payload instanceof File file) {
+				filePath = file.getAbsolutePath();
+				batchReader = this.lineFeedIsSingleByte ? new MappedBatchReader(file)
+						: new LineBatchReader(new InputStreamReader(new FileInputStream(file), this.charset));
+			}
+			else if (payload instanceof InputStream inputStream) {
+				filePath = streamPath(message);
+				batchReader = new LineBatchReader(new InputStreamReader(inputStream, this.charset));
+			}
+			else if (payload instanceof Reader reader) {
+				filePath = streamPath(message);
+				batchReader = new LineBatchReader(reader);
+			}
+			else {
+				throw new IllegalArgumentException("Expected a File, a file path, an InputStream or a Reader, but got "
+						+ payload.getClass().getName());
+			}
+		}
+		catch (IOException ex) {
+			throw new MessageHandlingException(message, "Failed to read file", ex);
+		}
+		return new BatchIterator(filePath, batchReader, StaticMessageHeaderAccessor.getCloseableResource(message));
+	}
+
+	private static String streamPath(Message<?> message) {
+		Object remoteDirectory = message.getHeaders().get(FileHeaders.REMOTE_DIRECTORY);
+		Object remoteFile = message.getHeaders().get(FileHeaders.REMOTE_FILE);
+		return (remoteFile != null) ? ((remoteDirectory != null) ? remoteDirectory + "/" : "") + remoteFile
+				: "__stream__";
+	}
+
+	private Object marker(String filePath, FileSplitter.FileMarker.Mark mark, long lineCount) {
+		Object marker = new FileSplitter.FileMarker(filePath, mark, lineCount);
+		if (this.jsonObjectMapper != null) {
+			try {
+				marker = this.jsonObjectMapper.toJson(marker);
+			}
+			catch (Exception ex) {
+				throw new IllegalStateException("Failed to serialize the file marker: " + marker, ex);
+			}
+		}
+		return getMessageBuilderFactory().withPayload(marker)
+			.setHeader(FileHeaders.MARKER, mark.name())
+			.setHeader(FileHeaders.LINE_COUNT, lineCount)
+			.build();
+	}
+
+	private interface BatchReader extends AutoCloseable {
+
+		/**
+		 * Read the next batch of lines.
+		 * @return the lines, or null if the end of file is reached.
+		 * @throws IOException if the file cannot be read.
+		 */
+		String nextBatch() throws IOException;
+
+		/**
+		 * The number of lines in the last read batch.
+		 * @return the number of lines.
+		 */
+		int lineCount();
+
+		@Override
+		void close() throws IOException;
+
+	}
+
+	private final class MappedBatchReader implements BatchReader {
+
+		private final FileChannel channel;
+
+		private final long size;
+
+		private long position;
+
+		private int lineCount;
+
+		private MappedByteBuffer region;
+
+		private long regionStart;
+
+		MappedBatchReader(File file) throws IOException {
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			this.size = this.channel.size();
+		}
+
+		@Override
+		public String nextBatch() throws IOException {
+			if (this.position >= this.size) {
+				return null;
+			}
+			if (this.region == null || this.position >= this.regionStart + this.region.capacity()) {
+				mapRegion();
+			}
+			while (true) {
+				int start = (int) (this.position - this.regionStart);
+				int length = this.region.capacity();
+				boolean lastRegion = this.regionStart + length == this.size;
+				int lines = 0;
+				int end = -1;
+				int lastLineEnd = start;
+				boolean carriageReturn = false;
+				for (int i = start; i < length; i++) {
+					byte b = this.region.get(i);
+					if (b == '\n') {
+						lines++;
+						lastLineEnd = i + 1;
+						if (lines >= FileLineBatchSplitter.this.batchLines
+								|| lastLineEnd - start >= FileLineBatchSplitter.this.batchBytes) {
+							end = lastLineEnd;
+							break;
+						}
+					}
+					else if (b == '\r') {
+						carriageReturn = true;
+					}
+				}
+				if (end < 0) {
+					if (!lastRegion && start > 0) {
+						// The batch runs past the region: map the next one from the batch start
+						mapRegion();
+						continue;
+					}
+					if (lastRegion || lastLineEnd == start) {
+						// The rest of the file, or a line longer than the region, goes as is
+						end = length;
+						if (lastLineEnd < length) {
+							lines++;
+						}
+					}
+					else {
+						end = lastLineEnd;
+					}
+				}
+				this.position = this.regionStart + end;
+				this.lineCount = lines;
+				int contentEnd = end;
+				if (contentEnd > start && this.region.get(contentEnd - 1) == '\n') {
+					contentEnd--;
+					if (contentEnd > start && this.region.get(contentEnd - 1) == '\r') {
+						contentEnd--;
+					}
+				}
+				String batch = FileLineBatchSplitter.this.charset.decode(this.region.slice(start, contentEnd - start))
+					.toString();
+				return carriageReturn ? batch.replace("\r\n", "\n") : batch;
+			}
+		}
+
+		private void mapRegion() throws IOException {
+			int length = (int) Math.min(this.size - this.position, REGION_SIZE);
+			this.region = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+			this.regionStart = this.position;
+		}
+
+		@Override
+		public int lineCount() {
+			return this.lineCount;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.region = null;
+			this.channel.close();
+		}
+
+	}
+
+	private final class LineBatchReader implements BatchReader {
+
+		private final BufferedReader reader;
+
+		private int lineCount;
+
+		LineBatchReader(Reader reader) {
+			this.reader = (reader instanceof BufferedReader bufferedReader) ? bufferedReader
+					: new BufferedReader(reader);
+		}
+
+		@Override
+		public String nextBatch() throws IOException {
+			StringBuilder batch = null;
+			int lines = 0;
+			String line;
+			while (lines < FileLineBatchSplitter.this.batchLines
+					&& (batch == null || batch.length() < FileLineBatchSplitter.this.batchBytes)
+					&& (line = this.reader.readLine()) != null) {
+
+				if (batch == null) {
+					batch = new StringBuilder();
+				}
+				else {
+					batch.append('\n');
+				}
+				batch.append(line);
+				lines++;
+			}
+			this.lineCount = lines;
+			return (batch != null) ? batch.toString() : null;
+		}
+
+		@Override
+		public int lineCount() {
+			return this.lineCount;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.reader.close();
+		}
+
+	}
+
+	private final class BatchIterator implements CloseableIterator<Object> {
+
+		private final String filePath;
+
+		private final BatchReader batchReader;
+
+		private final Closeable closeableResource;
+
+		private boolean startMarkerPending = FileLineBatchSplitter.this.markers;
+
+		private boolean endMarkerPending = FileLineBatchSplitter.this.markers;
+
+		private Object next;
+
+		private long lineCount;
+
+		private boolean closed;
+
+		BatchIterator(String filePath, BatchReader batchReader, @Nullable Closeable closeableResource) {
+			this.filePath = filePath;
+			this.batchReader = batchReader;
+			this.closeableResource = closeableResource;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.next == null) {
+				this.next = readNext();
+			}
+			return this.next != null;
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Object result = this.next;
+			this.next = null;
+			return result;
+		}
+
+		private Object readNext() {
+			if (this.startMarkerPending) {
+				this.startMarkerPending = false;
+				return marker(this.filePath, FileSplitter.FileMarker.Mark.START, 0);
+			}
+			if (!this.closed) {
+				try {
+					String batch = this.batchReader.nextBatch();
+					if (batch != null) {
+						int batchLineCount = this.batchReader.lineCount();
+						this.lineCount += batchLineCount;
+						return getMessageBuilderFactory().withPayload(batch)
+							.setHeader(FileHeaders.LINE_COUNT, batchLineCount)
+							.build();
+					}
+				}
+				catch (IOException ex) {
+					close();
+					throw new UncheckedIOException("Failed to read file " + this.filePath, ex);
+				}
+				close();
+			}
+			if (this.endMarkerPending) {
+				this.endMarkerPending = false;
+				return marker(this.filePath, FileSplitter.FileMarker.Mark.END, this.lineCount);
+			}
+			return null;
+		}
+
+		@Override
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				try {
+					this.batchReader.close();
+					if (this.closeableResource != null) {
+						this.closeableResource.close();
+					}
+				}
+				catch (IOException ex) {
+					// ignore
+				}
+			}
+		}
+
+	}
+
+}
@@ -35,6 +35,14 @@ public enum FileReadingMode {
 	/**
 	 * contents mode.
 	 */
-	contents;
+	contents,
+	/**
+	 * line batches mode.
+	 */
+	line_batches,
+	/**
+	 * chunks mode.
+	 */
+	chunks;
 
 }
@@ -34,6 +34,12 @@ import org.springframework.util.MimeTypeUtils;
  */
 public final class FileUtils {
 
+	/**
+	 * The header set to {@code true} on the last chunk of a file in the
+	 * {@link FileReadingMode#chunks} mode.
+	 */
+	public static final String LAST_CHUNK = "file_lastChunk";
+
 	private FileUtils() {
 
 	}
@@ -60,6 +66,12 @@ public final class FileUtils {
 				flowBuilder.enrichHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.TEXT_PLAIN_VALUE))
 					.split(new FileSplitter(true, withMarkers, fileConsumerProperties.getMarkersJson()));
 			}
+			case line_batches -> flowBuilder
+				.enrichHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.TEXT_PLAIN_VALUE))
+				.split(lineBatchSplitter(fileConsumerProperties));
+			case chunks -> flowBuilder
+				.enrichHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE))
+				.split(new FileChunkSplitter((int) fileConsumerProperties.getChunkSize().toBytes()));
 			case ref ->
 				flowBuilder.enrichHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON_VALUE));
 			default -> throw new IllegalArgumentException(
@@ -90,10 +102,22 @@ public final class FileUtils {
 				flowBuilder.enrichHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.TEXT_PLAIN_VALUE))
 					.split(new FileSplitter(true, withMarkers, fileConsumerProperties.getMarkersJson()));
 			}
+			case line_batches -> flowBuilder
+				.enrichHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.TEXT_PLAIN_VALUE))
+				.split(lineBatchSplitter(fileConsumerProperties));
+			case chunks -> flowBuilder
+				.enrichHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE))
+				.split(new FileChunkSplitter((int) fileConsumerProperties.getChunkSize().toBytes()));
 			default -> throw new IllegalArgumentException(
 					fileConsumerProperties.getMode().name() + " is not a supported file reading mode when streaming.");
 		}
 		return flowBuilder;
 	}
 
+	private static FileLineBatchSplitter lineBatchSplitter(FileConsumerProperties fileConsumerProperties) {
+		return new FileLineBatchSplitter(Boolean.TRUE.equals(fileConsumerProperties.getWithMarkers()),
+				fileConsumerProperties.getMarkersJson(), fileConsumerProperties.getBatchLines(),
+				fileConsumerProperties.getBatchBytes().toBytes());
+	}
+
 }
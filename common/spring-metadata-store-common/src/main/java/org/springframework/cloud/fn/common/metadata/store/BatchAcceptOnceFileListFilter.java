@@ -0,0 +1,171 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.springframework.integration.file.filters.ResettableFileListFilter;
+import org.springframework.integration.file.filters.ReversibleFileListFilter;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.util.Assert;
+
+/**
+ * The persistent accept-once filter checking a listing against a
+ * {@link BatchMetadataStore} with a {@link BatchMetadataStore#putAllIfAbsent} per batch
+ * of files, rather than a {@code putIfAbsent} per file. A file is accepted if its key is
+ * new, or if its last modified time has changed since it was recorded.
+ * <p>
+ * The keys and values are the same as the ones of the Spring Integration
+ * {@code AbstractPersistentAcceptOnceFileListFilter} implementations, so the filter can
+ * replace them over an existing store.
+ *
+ * @param <F> the file type.
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public class BatchAcceptOnceFileListFilter<F>
+		implements ReversibleFileListFilter<F>, ResettableFileListFilter<F>, Closeable {
+
+	private final BatchMetadataStore metadataStore;
+
+	private final String prefix;
+
+	private final Function<F, String> fileName;
+
+	private final ToLongFunction<F> modified;
+
+	private int batchSize = 1000;
+
+	/**
+	 * Create an instance.
+	 * @param metadataStore the store, adapted with {@link BatchMetadataStore#of} if needed.
+	 * @param prefix the prefix of the keys.
+	 * @param fileName the function to get the name of a file for its key.
+	 * @param modified the function to get the last modified time of a file for its value.
+	 */
+	public BatchAcceptOnceFileListFilter(ConcurrentMetadataStore metadataStore, String prefix,
+			Function<F, String> fileName, ToLongFunction<F> modified) {
+
+		Assert.notNull(metadataStore, "'metadataStore' cannot be null");
+		Assert.notNull(prefix, "'prefix' cannot be null");
+		this.metadataStore = BatchMetadataStore.of(metadataStore);
+		this.prefix = prefix;
+		this.fileName = fileName;
+		this.modified = modified;
+	}
+
+	/**
+	 * Set the maximum number of files checked against the store in a single batch.
+	 * @param batchSize the batch size; defaults to 1000.
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public List<F> filterFiles(F[] files) {
+		List<F> accepted = new ArrayList<>();
+		Map<String, F> batch = new LinkedHashMap<>();
+		for (F file : files) {
+			String key = buildKey(file);
+			if (!batch.containsKey(key)) {
+				batch.put(key, file);
+			}
+			if (batch.size() == this.batchSize) {
+				accept(batch, accepted);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			accept(batch, accepted);
+		}
+		return accepted;
+	}
+
+	private void accept(Map<String, F> batch, List<F> accepted) {
+		Map<String, String> values = new LinkedHashMap<>();
+		batch.forEach((key, file) -> values.put(key, value(file)));
+		Map<String, String> existing = this.metadataStore.putAllIfAbsent(values);
+		batch.forEach((key, file) -> {
+			String oldValue = existing.get(key);
+			if (oldValue == null) {
+				accepted.add(file);
+			}
+			else {
+				String newValue = values.get(key);
+				if (!oldValue.equals(newValue) && this.metadataStore.replace(key, oldValue, newValue)) {
+					accepted.add(file);
+				}
+			}
+		});
+	}
+
+	@Override
+	public boolean supportsSingleFileFiltering() {
+		return false;
+	}
+
+	@Override
+	public void rollback(F file, List<F> files) {
+		List<String> keys = new ArrayList<>();
+		boolean rollingBack = false;
+		for (F fileToRollback : files) {
+			if (fileToRollback.equals(file)) {
+				rollingBack = true;
+			}
+			if (rollingBack) {
+				keys.add(buildKey(fileToRollback));
+			}
+		}
+		if (!keys.isEmpty()) {
+			this.metadataStore.removeAll(keys);
+		}
+	}
+
+	@Override
+	public boolean remove(F fileToRemove) {
+		return this.metadataStore.remove(buildKey(fileToRemove)) != null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.metadataStore instanceof Closeable closeable) {
+			closeable.close();
+		}
+		else if (this.metadataStore instanceof Flushable flushable) {
+			flushable.flush();
+		}
+	}
+
+	private String buildKey(F file) {
+		return this.prefix + this.fileName.apply(file);
+	}
+
+	private String value(F file) {
+		return Long.toString(this.modified.applyAsLong(file));
+	}
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import org.springframework.integration.aws.metadata.DynamoDbMetadataStore;
+
+/**
+ * The {@link DynamoDbMetadataStore} with the batch operations: {@code BatchGetItem} for
+ * the lookups and {@code BatchWriteItem} for the puts and removals, in chunks of the
+ * DynamoDB limits. {@code BatchWriteItem} cannot be conditional, so the conditional puts of the
+ * keys not found by a batch lookup are sent as concurrent conditional {@code PutItem}
+ * requests. The unprocessed keys and items of a throttled batch request are sent again
+ * after a capped exponential backoff with full jitter, up to a maximum number of attempts.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public class BatchDynamoDbMetadataStore extends DynamoDbMetadataStore implements BatchMetadataStore {
+
+	private static final int GET_CHUNK_SIZE = 100;
+
+	private static final int WRITE_CHUNK_SIZE = 25;
+
+	private static final int MAX_ATTEMPTS = 10;
+
+	private static final long BASE_BACKOFF_MILLIS = 50;
+
+	private static final long MAX_BACKOFF_MILLIS = 5000;
+
+	private final DynamoDbAsyncClient dynamoDB;
+
+	private final String tableName;
+
+	private Integer timeToLive;
+
+	public BatchDynamoDbMetadataStore(DynamoDbAsyncClient dynamoDB, String tableName) {
+		super(dynamoDB, tableName);
+		this.dynamoDB = dynamoDB;
+		this.tableName = tableName;
+	}
+
+	@Override
+	public void setTimeToLive(int timeToLive) {
+		super.setTimeToLive(timeToLive);
+		this.timeToLive = timeToLive;
+	}
+
+	@Override
+	public Map<String, String> getAll(Collection<String> keys) {
+		Map<String, String> values = new HashMap<>();
+		for (List<String> chunk : chunks(keys, GET_CHUNK_SIZE)) {
+			List<Map<String, AttributeValue>> itemKeys = chunk.stream()
+				.map((key) -> Map.of(KEY, AttributeValue.fromS(key)))
+				.toList();
+			Map<String, KeysAndAttributes> requestItems = Map.of(this.tableName,
+					KeysAndAttributes.builder().keys(itemKeys).consistentRead(true).build());
+			int attempt = 1;
+			while (!requestItems.isEmpty()) {
+				Map<String, KeysAndAttributes> request = requestItems;
+				BatchGetItemResponse response = this.dynamoDB.batchGetItem((builder) -> builder.requestItems(request))
+					.join();
+				for (Map<String, AttributeValue> item : response.responses().getOrDefault(this.tableName, List.of())) {
+					values.put(item.get(KEY).s(), item.get(VALUE).s());
+				}
+				requestItems = response.unprocessedKeys();
+				if (!requestItems.isEmpty()) {
+					backOff(attempt++, "BatchGetItem");
+				}
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public void putAll(Map<String, String> entries) {
+		for (List<String> chunk : chunks(entries.keySet(), WRITE_CHUNK_SIZE)) {
+			batchWrite(chunk.stream()
+				.map((key) -> WriteRequest.builder()
+					.putRequest(PutRequest.builder().item(item(key, entries.get(key))).build())
+					.build())
+				.toList());
+		}
+	}
+
+	@Override
+	public Map<String, String> putAllIfAbsent(Map<String, String> entries) {
+		Map<String, String> existing = getAll(entries.keySet());
+		Map<String, CompletableFuture<Boolean>> puts = new HashMap<>();
+		entries.forEach((key, value) -> {
+			if (!existing.containsKey(key)) {
+				puts.put(key, putIfAbsentAsync(key, value));
+			}
+		});
+		puts.forEach((key, put) -> {
+			if (!put.join()) {
+				String existingValue = get(key);
+				if (existingValue != null) {
+					existing.put(key, existingValue);
+				}
+			}
+		});
+		return existing;
+	}
+
+	private Map<String, AttributeValue> item(String key, String value) {
+		Map<String, AttributeValue> item = new HashMap<>();
+		item.put(KEY, AttributeValue.fromS(key));
+		item.put(VALUE, AttributeValue.fromS(value));
+		if (this.timeToLive != null && this.timeToLive > 0) {
+			item.put(TTL, AttributeValue.fromN(String.valueOf(Instant.now().getEpochSecond() + this.timeToLive)));
+		}
+		return item;
+	}
+
+	private CompletableFuture<Boolean> putIfAbsentAsync(String key, String value) {
+		return this.dynamoDB
+			.putItem((request) -> request.tableName(this.tableName)
+				.item(item(key, value))
+				.conditionExpression("attribute_not_exists(" + KEY + ")"))
+			.thenApply((response) -> true)
+			.exceptionally((ex) -> {
+				Throwable cause = (ex instanceof CompletionException) ? ex.getCause() : ex;
+				if (cause instanceof ConditionalCheckFailedException) {
+					return false;
+				}
+				throw (ex instanceof CompletionException completionException) ? completionException
+						: new CompletionException(cause);
+			});
+	}
+
+	@Override
+	public void removeAll(Collection<String> keys) {
+		for (List<String> chunk : chunks(keys, WRITE_CHUNK_SIZE)) {
+			batchWrite(chunk.stream()
+				.map((key) -> WriteRequest.builder()
+					.deleteRequest(DeleteRequest.builder().key(Map.of(KEY, AttributeValue.fromS(key))).build())
+					.build())
+				.toList());
+		}
+	}
+
+	private void batchWrite(List<WriteRequest> writeRequests) {
+		Map<String, List<WriteRequest>> requestItems = Map.of(this.tableName, writeRequests);
+		int attempt = 1;
+		while (!requestItems.isEmpty()) {
+			Map<String, List<WriteRequest>> request = requestItems;
+			BatchWriteItemResponse response = this.dynamoDB.batchWriteItem((builder) -> builder.requestItems(request))
+				.join();
+			requestItems = response.unprocessedItems();
+			if (!requestItems.isEmpty()) {
+				backOff(attempt++, "BatchWriteItem");
+			}
+		}
+	}
+
+	/**
+	 * Wait before sending the unprocessed part of a batch request again, for a random time
+	 * up to an exponentially growing, capped delay.
+	 * @param attempt the number of attempts made so far.
+	 * @param operation the name of the batch operation.
+	 */
+	private static void backOff(int attempt, String operation) {
+		if (attempt >= MAX_ATTEMPTS) {
+			throw new IllegalStateException(
+					"The " + operation + " request still has unprocessed entries after " + attempt + " attempts");
+		}
+		long delay = Math.min(BASE_BACKOFF_MILLIS << (attempt - 1), MAX_BACKOFF_MILLIS);
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(delay + 1));
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting to retry the " + operation + " request", ex);
+		}
+	}
+
+	private static List<List<String>> chunks(Collection<String> keys, int chunkSize) {
+		List<String> list = new ArrayList<>(keys);
+		List<List<String>> chunks = new ArrayList<>();
+		for (int i = 0; i < list.size(); i += chunkSize) {
+			chunks.add(list.subList(i, Math.min(i + chunkSize, list.size())));
+		}
+		return chunks;
+	}
+
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.integration.jdbc.metadata.JdbcMetadataStore;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The {@link JdbcMetadataStore} with the batch operations: {@code IN} clauses for the
+ * lookups and removals, a JDBC batch of the updates for the puts, followed by the
+ * conditional inserts of the keys not updated, and a JDBC batch of the conditional
+ * inserts for the conditional puts. The keys are processed in chunks to keep the
+ * statements within the bind parameter limits of the databases. With a
+ * {@link JdbcTemplate} on a {@link DataSource}, each chunk of conditional inserts runs in
+ * its own transaction, so a chunk failing on a key inserted concurrently leaves no rows
+ * behind before it is resolved key by key.
+ * <p>
+ * The store is pruned by sweeping. Since the {@code METADATA_STORE} table has no write
+ * time column, with {@link #setTrackWriteTimes(boolean)} the write times of the entries
+ * are kept in a {@code METADATA_WRITE_TIME} table with the same prefix, keyed by region
+ * and key, so they are shared by all the processes using the store and survive their
+ * restarts. The entries without a write time, such as the ones written by the plain
+ * {@link JdbcMetadataStore}, are added to it by each sweep, and aged from it.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public class BatchJdbcMetadataStore extends JdbcMetadataStore implements BatchMetadataStore, PrunableMetadataStore {
+
+	private static final int CHUNK_SIZE = 500;
+
+	private final JdbcOperations jdbcOperations;
+
+	private final TransactionOperations chunkTransaction;
+
+	private String tablePrefix = DEFAULT_TABLE_PREFIX;
+
+	private String region = "DEFAULT";
+
+	private boolean trackWriteTimes;
+
+	public BatchJdbcMetadataStore(JdbcOperations jdbcOperations) {
+		super(jdbcOperations);
+		this.jdbcOperations = jdbcOperations;
+		this.chunkTransaction = chunkTransaction(jdbcOperations);
+	}
+
+	/**
+	 * Set whether to keep the write times of the entries in the
+	 * {@code METADATA_WRITE_TIME} table, which must then exist, for {@link #prune}.
+	 * @param trackWriteTimes true to track the write times; defaults to false.
+	 */
+	public void setTrackWriteTimes(boolean trackWriteTimes) {
+		this.trackWriteTimes = trackWriteTimes;
+	}
+
+	@Override
+	public void setTablePrefix(String tablePrefix) {
+		super.setTablePrefix(tablePrefix);
+		this.tablePrefix = tablePrefix;
+	}
+
+	@Override
+	public void setRegion(String region) {
+		super.setRegion(region);
+		this.region = region;
+	}
+
+	@Override
+	public void put(String key, String value) {
+		super.put(key, value);
+		written(List.of(key));
+	}
+
+	@Override
+	@Nullable
+	public String putIfAbsent(String key, String value) {
+		String existing = super.putIfAbsent(key, value);
+		if (existing == null) {
+			written(List.of(key));
+		}
+		return existing;
+	}
+
+	@Override
+	public boolean replace(String key, String oldValue, String newValue) {
+		boolean replaced = super.replace(key, oldValue, newValue);
+		if (replaced) {
+			written(List.of(key));
+		}
+		return replaced;
+	}
+
+	@Override
+	@Nullable
+	public String remove(String key) {
+		String removed = super.remove(key);
+		if (this.trackWriteTimes) {
+			delete("METADATA_WRITE_TIME", List.of(key));
+		}
+		return removed;
+	}
+
+	@Override
+	public Map<String, String> getAll(Collection<String> keys) {
+		Map<String, String> values = new HashMap<>();
+		RowCallbackHandler rowCallbackHandler = (resultSet) -> values.put(resultSet.getString(1),
+				resultSet.getString(2));
+		for (List<String> chunk : chunks(keys)) {
+			String sql = "SELECT METADATA_KEY, METADATA_VALUE FROM " + this.tablePrefix
+					+ "METADATA_STORE WHERE REGION = ? AND METADATA_KEY IN (" + placeholders(chunk.size()) + ")";
+			List<Object> parameters = new ArrayList<>(chunk.size() + 1);
+			parameters.add(this.region);
+			parameters.addAll(chunk);
+			this.jdbcOperations.query(sql, rowCallbackHandler, parameters.toArray());
+		}
+		return values;
+	}
+
+	@Override
+	public void putAll(Map<String, String> entries) {
+		String sql = "UPDATE " + this.tablePrefix + "METADATA_STORE SET METADATA_VALUE = ? "
+				+ "WHERE METADATA_KEY = ? AND REGION = ?";
+		Map<String, String> missing = new HashMap<>();
+		List<String> updated = new ArrayList<>();
+		for (List<String> chunk : chunks(entries.keySet())) {
+			int[] counts = this.jdbcOperations.batchUpdate(sql,
+					chunk.stream().map((key) -> new Object[] { entries.get(key), key, this.region }).toList());
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == 0) {
+					missing.put(chunk.get(i), entries.get(chunk.get(i)));
+				}
+				else {
+					updated.add(chunk.get(i));
+				}
+			}
+		}
+		written(updated);
+		// Inserted concurrently in the meantime: overwrite
+		putAllIfAbsent(missing).keySet().forEach((key) -> put(key, entries.get(key)));
+	}
+
+	@Override
+	public Map<String, String> putAllIfAbsent(Map<String, String> entries) {
+		Map<String, String> existing = getAll(entries.keySet());
+		String sql = "INSERT INTO " + this.tablePrefix + "METADATA_STORE(METADATA_KEY, METADATA_VALUE, REGION) "
+				+ "SELECT ?, ?, ? FROM " + this.tablePrefix + "METADATA_STORE WHERE METADATA_KEY = ? AND REGION = ? "
+				+ "HAVING COUNT(*) = 0";
+		List<String> missing = entries.keySet().stream().filter((key) -> !existing.containsKey(key)).toList();
+		for (List<String> chunk : chunks(missing)) {
+			try {
+				int[] counts = this.chunkTransaction.execute((status) -> this.jdbcOperations.batchUpdate(sql,
+						chunk.stream()
+							.map((key) -> new Object[] { key, entries.get(key), this.region, key, this.region })
+							.toList()));
+				List<String> inserted = new ArrayList<>();
+				List<String> notInserted = new ArrayList<>();
+				for (int i = 0; i < counts.length; i++) {
+					if (counts[i] == 0) {
+						notInserted.add(chunk.get(i));
+					}
+					else {
+						inserted.add(chunk.get(i));
+					}
+				}
+				written(inserted);
+				existing.putAll(getAll(notInserted));
+			}
+			catch (DuplicateKeyException ex) {
+				// Inserted concurrently, and the chunk rolled back; resolve it key by key
+				for (String key : chunk) {
+					String existingValue = putIfAbsent(key, entries.get(key));
+					if (existingValue != null) {
+						existing.put(key, existingValue);
+					}
+				}
+			}
+		}
+		return existing;
+	}
+
+	@Override
+	public void removeAll(Collection<String> keys) {
+		delete("METADATA_STORE", keys);
+		if (this.trackWriteTimes) {
+			delete("METADATA_WRITE_TIME", keys);
+		}
+	}
+
+	@Override
+	public long size() {
+		String sql = "SELECT COUNT(*) FROM " + this.tablePrefix + "METADATA_STORE WHERE REGION = ?";
+		Long count = this.jdbcOperations.queryForObject(sql, Long.class, this.region);
+		return (count != null) ? count : 0;
+	}
+
+	@Override
+	public int prune(@Nullable Duration timeToLive, int maxEntries) {
+		indexWriteTimes();
+		int evicted = 0;
+		if (timeToLive != null) {
+			long expiredBefore = System.currentTimeMillis() - timeToLive.toMillis();
+			List<String> expired = oldestKeys(expiredBefore, CHUNK_SIZE);
+			while (!expired.isEmpty()) {
+				removeAll(expired);
+				evicted += expired.size();
+				expired = oldestKeys(expiredBefore, CHUNK_SIZE);
+			}
+		}
+		if (maxEntries > 0) {
+			long excess = size() - maxEntries;
+			while (excess > 0) {
+				List<String> oldest = oldestKeys(Long.MAX_VALUE, (int) Math.min(excess, CHUNK_SIZE));
+				if (oldest.isEmpty()) {
+					break;
+				}
+				removeAll(oldest);
+				excess -= oldest.size();
+				evicted += oldest.size();
+			}
+		}
+		return evicted;
+	}
+
+	private List<String> oldestKeys(long writtenBefore, int limit) {
+		String sql = "SELECT METADATA_KEY FROM " + this.tablePrefix + "METADATA_WRITE_TIME "
+				+ "WHERE REGION = ? AND WRITTEN_AT < ? ORDER BY WRITTEN_AT";
+		return this.jdbcOperations.query((connection) -> {
+			PreparedStatement statement = connection.prepareStatement(sql);
+			statement.setString(1, this.region);
+			statement.setLong(2, writtenBefore);
+			statement.setMaxRows(limit);
+			return statement;
+		}, (resultSet, rowNum) -> resultSet.getString(1));
+	}
+
+	private void written(Collection<String> keys) {
+		if (!this.trackWriteTimes || keys.isEmpty()) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		String update = "UPDATE " + this.tablePrefix + "METADATA_WRITE_TIME SET WRITTEN_AT = ? "
+				+ "WHERE METADATA_KEY = ? AND REGION = ?";
+		String insert = "INSERT INTO " + this.tablePrefix + "METADATA_WRITE_TIME(METADATA_KEY, REGION, WRITTEN_AT) "
+				+ "SELECT ?, ?, ? FROM " + this.tablePrefix + "METADATA_WRITE_TIME WHERE METADATA_KEY = ? "
+				+ "AND REGION = ? HAVING COUNT(*) = 0";
+		for (List<String> chunk : chunks(keys)) {
+			int[] counts = this.jdbcOperations.batchUpdate(update,
+					chunk.stream().map((key) -> new Object[] { now, key, this.region }).toList());
+			List<String> missing = new ArrayList<>();
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == 0) {
+					missing.add(chunk.get(i));
+				}
+			}
+			if (!missing.isEmpty()) {
+				try {
+					this.chunkTransaction.executeWithoutResult((status) -> this.jdbcOperations.batchUpdate(insert,
+							missing.stream()
+								.map((key) -> new Object[] { key, this.region, now, key, this.region })
+								.toList()));
+				}
+				catch (DuplicateKeyException ex) {
+					// Inserted concurrently, and the chunk rolled back: the rows are there now
+					this.jdbcOperations.batchUpdate(update,
+							missing.stream().map((key) -> new Object[] { now, key, this.region }).toList());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add the entries without a write time, written with tracking off or by another
+	 * store, to the write times table, aged from now.
+	 */
+	private void indexWriteTimes() {
+		String sql = "INSERT INTO " + this.tablePrefix + "METADATA_WRITE_TIME(METADATA_KEY, REGION, WRITTEN_AT) "
+				+ "SELECT M.METADATA_KEY, M.REGION, ? FROM " + this.tablePrefix + "METADATA_STORE M "
+				+ "WHERE M.REGION = ? AND NOT EXISTS (SELECT 1 FROM " + this.tablePrefix + "METADATA_WRITE_TIME W "
+				+ "WHERE W.METADATA_KEY = M.METADATA_KEY AND W.REGION = M.REGION)";
+		try {
+			this.jdbcOperations.update(sql, System.currentTimeMillis(), this.region);
+		}
+		catch (DuplicateKeyException ex) {
+			// Written concurrently; the entries still missing are indexed by the next sweep
+		}
+	}
+
+	private void delete(String table, Collection<String> keys) {
+		for (List<String> chunk : chunks(keys)) {
+			String sql = "DELETE FROM " + this.tablePrefix + table + " WHERE REGION = ? AND METADATA_KEY IN ("
+					+ placeholders(chunk.size()) + ")";
+			List<Object> parameters = new ArrayList<>(chunk.size() + 1);
+			parameters.add(this.region);
+			parameters.addAll(chunk);
+			this.jdbcOperations.update(sql, parameters.toArray());
+		}
+	}
+
+	private static TransactionOperations chunkTransaction(JdbcOperations jdbcOperations) {
+		if (jdbcOperations instanceof JdbcTemplate jdbcTemplate && jdbcTemplate.getDataSource() != null) {
+			TransactionTemplate transactionTemplate = new TransactionTemplate(
+					new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+			// Not to mark a transaction of the caller for rollback
+			transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+			return transactionTemplate;
+		}
+		return TransactionOperations.withoutTransaction();
+	}
+
+	private static List<List<String>> chunks(Collection<String> keys) {
+		if (keys.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<String> list = new ArrayList<>(keys);
+		List<List<String>> chunks = new ArrayList<>();
+		for (int i = 0; i < list.size(); i += CHUNK_SIZE) {
+			chunks.add(list.subList(i, Math.min(i + CHUNK_SIZE, list.size())));
+		}
+		return chunks;
+	}
+
+	private static String placeholders(int count) {
+		return String.join(", ", Collections.nCopies(count, "?"));
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.lang.Nullable;
+
+/**
+ * The {@link ConcurrentMetadataStore} extension with multi-key operations, so a whole
+ * listing of remote files can be checked and recorded with a round trip per batch rather
+ * than per file. The default implementations fall back to the single-key operations; the
+ * stores auto-configured by the {@link MetadataStoreAutoConfiguration} implement them
+ * natively.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ * @see #of(ConcurrentMetadataStore)
+ */
+public interface BatchMetadataStore extends ConcurrentMetadataStore {
+
+	/**
+	 * Get the values for the keys.
+	 * @param keys the keys to look up.
+	 * @return the values of the keys present in the store.
+	 */
+	default Map<String, String> getAll(Collection<String> keys) {
+		Map<String, String> values = new HashMap<>();
+		for (String key : keys) {
+			String value = get(key);
+			if (value != null) {
+				values.put(key, value);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Put the entries, replacing the existing values of their keys.
+	 * @param entries the entries to put.
+	 */
+	default void putAll(Map<String, String> entries) {
+		entries.forEach(this::put);
+	}
+
+	/**
+	 * Atomically, per key, put the entries whose keys are not present in the store yet.
+	 * @param entries the entries to put.
+	 * @return the existing values of the keys which have not been put.
+	 */
+	default Map<String, String> putAllIfAbsent(Map<String, String> entries) {
+		Map<String, String> existing = new HashMap<>();
+		entries.forEach((key, value) -> {
+			String existingValue = putIfAbsent(key, value);
+			if (existingValue != null) {
+				existing.put(key, existingValue);
+			}
+		});
+		return existing;
+	}
+
+	/**
+	 * Remove the keys from the store.
+	 * @param keys the keys to remove.
+	 */
+	default void removeAll(Collection<String> keys) {
+		keys.forEach(this::remove);
+	}
+
+	/**
+	 * Adapt the store to the {@link BatchMetadataStore}, if it does not implement it
+	 * already.
+	 * @param metadataStore the store to adapt.
+	 * @return the batch store.
+	 */
+	static BatchMetadataStore of(ConcurrentMetadataStore metadataStore) {
+		if (metadataStore instanceof BatchMetadataStore batchMetadataStore) {
+			return batchMetadataStore;
+		}
+		return new BatchMetadataStore() {
+
+			@Override
+			public void put(String key, String value) {
+				metadataStore.put(key, value);
+			}
+
+			@Override
+			@Nullable
+			public String get(String key) {
+				return metadataStore.get(key);
+			}
+
+			@Override
+			@Nullable
+			public String remove(String key) {
+				return metadataStore.remove(key);
+			}
+
+			@Override
+			@Nullable
+			public String putIfAbsent(String key, String value) {
+				return metadataStore.putIfAbsent(key, value);
+			}
+
+			@Override
+			public boolean replace(String key, String oldValue, String newValue) {
+				return metadataStore.replace(key, oldValue, newValue);
+			}
+
+		};
+	}
+
+}
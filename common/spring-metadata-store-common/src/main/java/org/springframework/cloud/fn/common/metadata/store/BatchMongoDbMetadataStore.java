@@ -0,0 +1,212 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.Document;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.integration.mongodb.metadata.MongoDbMetadataStore;
+import org.springframework.lang.Nullable;
+
+/**
+ * The {@link MongoDbMetadataStore} with the batch operations: {@code $in} queries for
+ * the lookups and removals, and an unordered {@code bulkWrite} of upserts for the puts,
+ * with {@code $setOnInsert} for the conditional ones.
+ * <p>
+ * The documents carry their write time in the {@code writtenAt} field, so the store is
+ * pruned by queries on that indexed field, shared by all the processes using the store.
+ * The documents written by the plain {@link MongoDbMetadataStore} get the time of the
+ * first sweep of a process.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public class BatchMongoDbMetadataStore extends MongoDbMetadataStore
+		implements BatchMetadataStore, PrunableMetadataStore {
+
+	private static final String ID_FIELD = "_id";
+
+	private static final String VALUE = "value";
+
+	private static final String WRITTEN_AT = "writtenAt";
+
+	private static final int CHUNK_SIZE = 1000;
+
+	private final MongoTemplate template;
+
+	private final String collectionName;
+
+	private volatile boolean writeTimesIndexed;
+
+	public BatchMongoDbMetadataStore(MongoTemplate template, String collectionName) {
+		super(template, collectionName);
+		this.template = template;
+		this.collectionName = collectionName;
+	}
+
+	@Override
+	public void put(String key, String value) {
+		this.template.upsert(Query.query(Criteria.where(ID_FIELD).is(key)),
+				new Update().set(VALUE, value).set(WRITTEN_AT, new Date()), this.collectionName);
+	}
+
+	@Override
+	@Nullable
+	public String putIfAbsent(String key, String value) {
+		Document existing = this.template.findAndModify(Query.query(Criteria.where(ID_FIELD).is(key)),
+				new Update().setOnInsert(VALUE, value).setOnInsert(WRITTEN_AT, new Date()),
+				FindAndModifyOptions.options().upsert(true), Document.class, this.collectionName);
+		return (existing != null) ? existing.getString(VALUE) : null;
+	}
+
+	@Override
+	public boolean replace(String key, String oldValue, String newValue) {
+		Document replaced = this.template.findAndModify(
+				Query.query(Criteria.where(ID_FIELD).is(key).and(VALUE).is(oldValue)),
+				new Update().set(VALUE, newValue).set(WRITTEN_AT, new Date()), Document.class, this.collectionName);
+		return replaced != null;
+	}
+
+	@Override
+	public Map<String, String> getAll(Collection<String> keys) {
+		Map<String, String> values = new HashMap<>();
+		if (!keys.isEmpty()) {
+			Query query = Query.query(Criteria.where(ID_FIELD).in(keys));
+			for (Document document : this.template.find(query, Document.class, this.collectionName)) {
+				values.put(document.getString(ID_FIELD), document.getString(VALUE));
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public void putAll(Map<String, String> entries) {
+		if (!entries.isEmpty()) {
+			BulkOperations bulkOperations = this.template.bulkOps(BulkOperations.BulkMode.UNORDERED,
+					this.collectionName);
+			Date now = new Date();
+			entries.forEach((key, value) -> bulkOperations.upsert(Query.query(Criteria.where(ID_FIELD).is(key)),
+					new Update().set(VALUE, value).set(WRITTEN_AT, now)));
+			bulkOperations.execute();
+		}
+	}
+
+	@Override
+	public Map<String, String> putAllIfAbsent(Map<String, String> entries) {
+		if (entries.isEmpty()) {
+			return new HashMap<>();
+		}
+		List<String> keys = new ArrayList<>(entries.keySet());
+		BulkOperations bulkOperations = this.template.bulkOps(BulkOperations.BulkMode.UNORDERED,
+				this.collectionName);
+		Date now = new Date();
+		for (String key : keys) {
+			bulkOperations.upsert(Query.query(Criteria.where(ID_FIELD).is(key)),
+					new Update().setOnInsert(VALUE, entries.get(key)).setOnInsert(WRITTEN_AT, now));
+		}
+		Set<Integer> upserted = new HashSet<>();
+		try {
+			BulkWriteResult result = bulkOperations.execute();
+			result.getUpserts().stream().map(BulkWriteUpsert::getIndex).forEach(upserted::add);
+		}
+		catch (BulkOperationException ex) {
+			// Duplicate keys from the concurrent upserts: those documents exist now
+			ex.getResult().getUpserts().stream().map(BulkWriteUpsert::getIndex).forEach(upserted::add);
+		}
+		List<String> notPut = new ArrayList<>();
+		for (int i = 0; i < keys.size(); i++) {
+			if (!upserted.contains(i)) {
+				notPut.add(keys.get(i));
+			}
+		}
+		return getAll(notPut);
+	}
+
+	@Override
+	public void removeAll(Collection<String> keys) {
+		if (!keys.isEmpty()) {
+			this.template.remove(Query.query(Criteria.where(ID_FIELD).in(keys)), this.collectionName);
+		}
+	}
+
+	@Override
+	public long size() {
+		return this.template.estimatedCount(this.collectionName);
+	}
+
+	@Override
+	public int prune(@Nullable Duration timeToLive, int maxEntries) {
+		if (!this.writeTimesIndexed) {
+			indexWriteTimes();
+			this.writeTimesIndexed = true;
+		}
+		long evicted = 0;
+		if (timeToLive != null) {
+			Date expiredBefore = new Date(System.currentTimeMillis() - timeToLive.toMillis());
+			Query expired = Query.query(Criteria.where(WRITTEN_AT).lt(expiredBefore));
+			evicted += this.template.remove(expired, this.collectionName).getDeletedCount();
+		}
+		if (maxEntries > 0) {
+			long excess = this.template.count(new Query(), this.collectionName) - maxEntries;
+			while (excess > 0) {
+				Query oldest = new Query().with(Sort.by(WRITTEN_AT)).limit((int) Math.min(excess, CHUNK_SIZE));
+				oldest.fields().include(ID_FIELD);
+				List<String> keys = this.template.find(oldest, Document.class, this.collectionName)
+					.stream()
+					.map((document) -> document.getString(ID_FIELD))
+					.toList();
+				if (keys.isEmpty()) {
+					break;
+				}
+				removeAll(keys);
+				excess -= keys.size();
+				evicted += keys.size();
+			}
+		}
+		return (int) evicted;
+	}
+
+	/**
+	 * Index the write time field, and set it to now on the documents without one.
+	 */
+	private void indexWriteTimes() {
+		this.template.indexOps(this.collectionName).ensureIndex(new Index().on(WRITTEN_AT, Sort.Direction.ASC));
+		this.template.updateMulti(Query.query(Criteria.where(WRITTEN_AT).exists(false)),
+				new Update().set(WRITTEN_AT, new Date()), this.collectionName);
+	}
+
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.integration.redis.metadata.RedisMetadataStore;
+import org.springframework.lang.Nullable;
+
+/**
+ * The {@link RedisMetadataStore} with the batch operations on the hash of the entries:
+ * {@code HMGET} for the lookups, a single {@code HSET} for the puts, pipelined
+ * {@code HSETNX} commands for the conditional puts and a single {@code HDEL} for the
+ * removals. Since the fields of a hash cannot expire, the store is pruned by sweeping:
+ * with {@link #setTrackWriteTimes(boolean)}, the write times of the entries are kept in a
+ * sorted set next to the hash, under the {@code :write-times} suffix of its key, so they
+ * are shared by all the processes using the store and survive their restarts. Each write
+ * to the hash and its write time are sent in the same pipeline, or the same transaction
+ * for {@link #replace}. The entries without a write time, such as the ones written by the
+ * plain {@link RedisMetadataStore}, are added to the sorted set by the first sweep of a
+ * process, and aged from it.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public class BatchRedisMetadataStore extends RedisMetadataStore implements BatchMetadataStore, PrunableMetadataStore {
+
+	private static final int CHUNK_SIZE = 1000;
+
+	private final RedisOperations<String, ?> operations;
+
+	private final String key;
+
+	private final String writeTimesKey;
+
+	private boolean trackWriteTimes;
+
+	private volatile boolean writeTimesIndexed;
+
+	public BatchRedisMetadataStore(RedisOperations<String, ?> operations, String key) {
+		super(operations, key);
+		this.operations = operations;
+		this.key = key;
+		this.writeTimesKey = key + ":write-times";
+	}
+
+	/**
+	 * Set whether to keep the write times of the entries in the sorted set, for
+	 * {@link #prune}. Without it, each operation is a plain hash command.
+	 * @param trackWriteTimes true to track the write times; defaults to false.
+	 */
+	public void setTrackWriteTimes(boolean trackWriteTimes) {
+		this.trackWriteTimes = trackWriteTimes;
+	}
+
+	@Override
+	public void put(String key, String value) {
+		if (!this.trackWriteTimes) {
+			super.put(key, value);
+			return;
+		}
+		double now = System.currentTimeMillis();
+		pipelined((operations) -> {
+			operations.opsForHash().put(this.key, key, value);
+			operations.opsForZSet().add(this.writeTimesKey, key, now);
+		});
+	}
+
+	@Override
+	@Nullable
+	public String putIfAbsent(String key, String value) {
+		if (!this.trackWriteTimes) {
+			return super.putIfAbsent(key, value);
+		}
+		double now = System.currentTimeMillis();
+		// The write time of an existing entry is kept: ZADD NX only adds the one of a new entry
+		List<Object> results = pipelined((operations) -> {
+			operations.opsForHash().putIfAbsent(this.key, key, value);
+			operations.opsForZSet().addIfAbsent(this.writeTimesKey, key, now);
+			operations.opsForHash().get(this.key, key);
+		});
+		Object existing = results.get(2);
+		return (Boolean.TRUE.equals(results.get(0)) || existing == null) ? null : existing.toString();
+	}
+
+	@Override
+	public boolean replace(String key, String oldValue, String newValue) {
+		if (!this.trackWriteTimes) {
+			return super.replace(key, oldValue, newValue);
+		}
+		Boolean replaced = this.operations.execute(new SessionCallback<Boolean>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public <K, V> Boolean execute(RedisOperations<K, V> redisOperations) throws DataAccessException {
+				RedisOperations<String, Object> operations = (RedisOperations<String, Object>) redisOperations;
+				String hashKey = BatchRedisMetadataStore.this.key;
+				while (true) {
+					operations.watch(hashKey);
+					Object current = operations.opsForHash().get(hashKey, key);
+					if (current == null || !oldValue.equals(current.toString())) {
+						operations.unwatch();
+						return false;
+					}
+					operations.multi();
+					operations.opsForHash().put(hashKey, key, newValue);
+					operations.opsForZSet()
+						.add(BatchRedisMetadataStore.this.writeTimesKey, key, System.currentTimeMillis());
+					List<Object> results = operations.exec();
+					if (results != null && !results.isEmpty()) {
+						return true;
+					}
+					// The entry changed concurrently: check it again
+				}
+			}
+
+		});
+		return Boolean.TRUE.equals(replaced);
+	}
+
+	@Override
+	@Nullable
+	public String remove(String key) {
+		if (!this.trackWriteTimes) {
+			return super.remove(key);
+		}
+		List<Object> results = pipelined((operations) -> {
+			operations.opsForHash().get(this.key, key);
+			operations.opsForHash().delete(this.key, key);
+			operations.opsForZSet().remove(this.writeTimesKey, key);
+		});
+		Object removed = results.get(0);
+		return (removed != null) ? removed.toString() : null;
+	}
+
+	@Override
+	public Map<String, String> getAll(Collection<String> keys) {
+		Map<String, String> values = new HashMap<>();
+		if (keys.isEmpty()) {
+			return values;
+		}
+		List<Object> hashKeys = new ArrayList<>(keys);
+		List<Object> hashValues = this.operations.opsForHash().multiGet(this.key, hashKeys);
+		for (int i = 0; i < hashKeys.size(); i++) {
+			Object value = hashValues.get(i);
+			if (value != null) {
+				values.put((String) hashKeys.get(i), value.toString());
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public void putAll(Map<String, String> entries) {
+		if (entries.isEmpty()) {
+			return;
+		}
+		if (!this.trackWriteTimes) {
+			this.operations.opsForHash().putAll(this.key, entries);
+			return;
+		}
+		Set<ZSetOperations.TypedTuple<Object>> writeTimesNow = writtenNow(entries.keySet());
+		pipelined((operations) -> {
+			operations.opsForHash().putAll(this.key, entries);
+			operations.opsForZSet().add(this.writeTimesKey, writeTimesNow);
+		});
+	}
+
+	@Override
+	public Map<String, String> putAllIfAbsent(Map<String, String> entries) {
+		if (entries.isEmpty()) {
+			return new HashMap<>();
+		}
+		List<String> keys = new ArrayList<>(entries.keySet());
+		Set<ZSetOperations.TypedTuple<Object>> writeTimesNow = this.trackWriteTimes ? writtenNow(keys) : Set.of();
+		List<Object> results = pipelined((operations) -> {
+			HashOperations<String, Object, Object> hashOperations = operations.opsForHash();
+			for (String key : keys) {
+				hashOperations.putIfAbsent(this.key, key, entries.get(key));
+			}
+			if (!writeTimesNow.isEmpty()) {
+				// The write times of the existing entries are kept: ZADD NX only adds the new ones
+				operations.opsForZSet().addIfAbsent(this.writeTimesKey, writeTimesNow);
+			}
+		});
+		List<String> notPut = new ArrayList<>();
+		for (int i = 0; i < keys.size(); i++) {
+			if (!Boolean.TRUE.equals(results.get(i))) {
+				notPut.add(keys.get(i));
+			}
+		}
+		return getAll(notPut);
+	}
+
+	@Override
+	public void removeAll(Collection<String> keys) {
+		if (keys.isEmpty()) {
+			return;
+		}
+		if (!this.trackWriteTimes) {
+			this.operations.opsForHash().delete(this.key, keys.toArray());
+			return;
+		}
+		Object[] fields = keys.toArray();
+		pipelined((operations) -> {
+			operations.opsForHash().delete(this.key, fields);
+			operations.opsForZSet().remove(this.writeTimesKey, fields);
+		});
+	}
+
+	@Override
+	public long size() {
+		return this.operations.opsForHash().size(this.key);
+	}
+
+	@Override
+	public int prune(@Nullable Duration timeToLive, int maxEntries) {
+		if (!this.writeTimesIndexed) {
+			indexWriteTimes();
+			this.writeTimesIndexed = true;
+		}
+		int evicted = 0;
+		if (timeToLive != null) {
+			double expiredBefore = System.currentTimeMillis() - timeToLive.toMillis();
+			Set<Object> expired = writtenBefore(expiredBefore);
+			while (!expired.isEmpty()) {
+				evicted += evict(expired);
+				expired = writtenBefore(expiredBefore);
+			}
+		}
+		if (maxEntries > 0) {
+			Long count = writeTimes().zCard(this.writeTimesKey);
+			long excess = (count != null) ? count - maxEntries : 0;
+			while (excess > 0) {
+				Set<Object> oldest = writeTimes().range(this.writeTimesKey, 0, Math.min(excess, CHUNK_SIZE) - 1);
+				if (oldest == null || oldest.isEmpty()) {
+					break;
+				}
+				excess -= oldest.size();
+				evicted += evict(oldest);
+			}
+		}
+		return evicted;
+	}
+
+	private Set<Object> writtenBefore(double time) {
+		Set<Object> keys = writeTimes().rangeByScore(this.writeTimesKey, Double.NEGATIVE_INFINITY, time, 0,
+				CHUNK_SIZE);
+		return (keys != null) ? keys : Set.of();
+	}
+
+	private int evict(Collection<Object> keys) {
+		Object[] fields = keys.toArray();
+		pipelined((operations) -> {
+			operations.opsForHash().delete(this.key, fields);
+			operations.opsForZSet().remove(this.writeTimesKey, fields);
+		});
+		return fields.length;
+	}
+
+	private static Set<ZSetOperations.TypedTuple<Object>> writtenNow(Collection<String> keys) {
+		double now = System.currentTimeMillis();
+		Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>();
+		for (String key : keys) {
+			tuples.add(ZSetOperations.TypedTuple.of(key, now));
+		}
+		return tuples;
+	}
+
+	/**
+	 * Send the commands in a single pipeline.
+	 * @param commands the commands to send.
+	 * @return the results of the commands, in order.
+	 */
+	private List<Object> pipelined(Consumer<RedisOperations<String, Object>> commands) {
+		return this.operations.executePipelined(new SessionCallback<Object>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+				commands.accept((RedisOperations<String, Object>) operations);
+				return null;
+			}
+
+		});
+	}
+
+	/**
+	 * Add the entries without a write time to the sorted set, aged from now, scanning the
+	 * hash in chunks.
+	 */
+	private void indexWriteTimes() {
+		double now = System.currentTimeMillis();
+		Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>();
+		ScanOptions scanOptions = ScanOptions.scanOptions().count(CHUNK_SIZE).build();
+		try (Cursor<Map.Entry<Object, Object>> cursor = this.operations.opsForHash().scan(this.key, scanOptions)) {
+			while (cursor.hasNext()) {
+				tuples.add(ZSetOperations.TypedTuple.of(cursor.next().getKey(), now));
+				if (tuples.size() >= CHUNK_SIZE) {
+					writeTimes().addIfAbsent(this.writeTimesKey, tuples);
+					tuples.clear();
+				}
+			}
+		}
+		if (!tuples.isEmpty()) {
+			writeTimes().addIfAbsent(this.writeTimesKey, tuples);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private ZSetOperations<String, Object> writeTimes() {
+		return (ZSetOperations<String, Object>) this.operations.opsForZSet();
+	}
+
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * The {@link ConcurrentMetadataStore} decorator, with the {@link BatchMetadataStore}
+ * operations, keeping the recently seen entries of a
+ * remote store in a bounded local cache, and writing the {@link #put} changes behind:
+ * they are coalesced per key and flushed to the remote store in batches, by size or by
+ * interval, whichever comes first.
+ * <p>
+ * The conditional operations are always performed on the remote store, so they keep
+ * their semantics across the processes sharing it: the {@link #putIfAbsent} of a cached
+ * key is answered from the cache, but a key not known locally is written to the remote
+ * store synchronously, unless strict mode is disabled; {@link #replace} and
+ * {@link #remove} flush the pending write for the key first.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public class CachingMetadataStore implements BatchMetadataStore, DisposableBean {
+
+	private static final Log LOGGER = LogFactory.getLog(CachingMetadataStore.class);
+
+	private final ConcurrentMetadataStore delegate;
+
+	private final BatchMetadataStore batchDelegate;
+
+	private final long timeToLive;
+
+	private final int writeBehindBatchSize;
+
+	private final boolean strictPutIfAbsent;
+
+	private final Map<String, CachedValue> cache;
+
+	private final Map<String, String> pendingWrites = new ConcurrentHashMap<>();
+
+	private final Object flushLock = new Object();
+
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+	private final ScheduledExecutorService flushScheduler;
+
+	/**
+	 * Create an instance for the remote store.
+	 * @param delegate the remote store.
+	 * @param maxSize the maximum number of cached entries.
+	 * @param timeToLive the time a cached entry is trusted for.
+	 * @param writeBehindInterval the interval to flush the pending writes at.
+	 * @param writeBehindBatchSize the number of pending writes to flush them at before the
+	 * interval elapses.
+	 * @param strictPutIfAbsent whether {@link #putIfAbsent} of a key not known locally is
+	 * written to the remote store synchronously, or checked there and written behind.
+	 */
+	public CachingMetadataStore(ConcurrentMetadataStore delegate, int maxSize, Duration timeToLive,
+			Duration writeBehindInterval, int writeBehindBatchSize, boolean strictPutIfAbsent) {
+
+		this.delegate = delegate;
+		this.batchDelegate = BatchMetadataStore.of(delegate);
+		this.timeToLive = timeToLive.toMillis();
+		this.writeBehindBatchSize = writeBehindBatchSize;
+		this.strictPutIfAbsent = strictPutIfAbsent;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedValue> eldest) {
+				return size() > maxSize;
+			}
+
+		};
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("metadata-store-write-behind-");
+		threadFactory.setDaemon(true);
+		this.flushScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		long period = writeBehindInterval.toMillis();
+		this.flushScheduler.scheduleWithFixedDelay(this::flushQuietly, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the decorated remote store.
+	 * @return the remote store.
+	 */
+	public ConcurrentMetadataStore getDelegate() {
+		return this.delegate;
+	}
+
+	@Override
+	@Nullable
+	public String get(String key) {
+		Assert.notNull(key, "'key' must not be null.");
+		String value = this.pendingWrites.get(key);
+		if (value == null) {
+			value = cached(key);
+		}
+		if (value == null) {
+			value = this.delegate.get(key);
+			if (value != null) {
+				cache(key, value);
+			}
+		}
+		return value;
+	}
+
+	@Override
+	public void put(String key, String value) {
+		Assert.notNull(key, "'key' must not be null.");
+		Assert.notNull(value, "'value' must not be null.");
+		cache(key, value);
+		this.pendingWrites.put(key, value);
+		requestFlushIfFull();
+	}
+
+	@Override
+	@Nullable
+	public String putIfAbsent(String key, String value) {
+		Assert.notNull(key, "'key' must not be null.");
+		Assert.notNull(value, "'value' must not be null.");
+		String existing = this.pendingWrites.get(key);
+		if (existing == null) {
+			existing = cached(key);
+		}
+		if (existing != null) {
+			return existing;
+		}
+		if (this.strictPutIfAbsent) {
+			existing = this.delegate.putIfAbsent(key, value);
+			cache(key, (existing != null) ? existing : value);
+			return existing;
+		}
+		existing = get(key);
+		if (existing == null) {
+			put(key, value);
+		}
+		return existing;
+	}
+
+	@Override
+	public boolean replace(String key, String oldValue, String newValue) {
+		Assert.notNull(key, "'key' must not be null.");
+		Assert.notNull(oldValue, "'oldValue' must not be null.");
+		Assert.notNull(newValue, "'newValue' must not be null.");
+		flush(key);
+		boolean replaced = this.delegate.replace(key, oldValue, newValue);
+		if (replaced) {
+			cache(key, newValue);
+		}
+		else {
+			invalidate(key);
+		}
+		return replaced;
+	}
+
+	@Override
+	@Nullable
+	public String remove(String key) {
+		Assert.notNull(key, "'key' must not be null.");
+		synchronized (this.flushLock) {
+			String pending = this.pendingWrites.remove(key);
+			invalidate(key);
+			String removed = this.delegate.remove(key);
+			return (pending != null) ? pending : removed;
+		}
+	}
+
+	@Override
+	public Map<String, String> getAll(Collection<String> keys) {
+		Map<String, String> values = new HashMap<>();
+		List<String> misses = new ArrayList<>();
+		for (String key : keys) {
+			String value = this.pendingWrites.get(key);
+			if (value == null) {
+				value = cached(key);
+			}
+			if (value != null) {
+				values.put(key, value);
+			}
+			else {
+				misses.add(key);
+			}
+		}
+		if (!misses.isEmpty()) {
+			Map<String, String> loaded = this.batchDelegate.getAll(misses);
+			loaded.forEach(this::cache);
+			values.putAll(loaded);
+		}
+		return values;
+	}
+
+	@Override
+	public Map<String, String> putAllIfAbsent(Map<String, String> entries) {
+		Map<String, String> existing = new HashMap<>();
+		Map<String, String> misses = new HashMap<>();
+		entries.forEach((key, value) -> {
+			String existingValue = this.pendingWrites.get(key);
+			if (existingValue == null) {
+				existingValue = cached(key);
+			}
+			if (existingValue != null) {
+				existing.put(key, existingValue);
+			}
+			else {
+				misses.put(key, value);
+			}
+		});
+		if (misses.isEmpty()) {
+			return existing;
+		}
+		if (this.strictPutIfAbsent) {
+			Map<String, String> notPut = this.batchDelegate.putAllIfAbsent(misses);
+			misses.forEach((key, value) -> cache(key, notPut.getOrDefault(key, value)));
+			existing.putAll(notPut);
+		}
+		else {
+			Map<String, String> found = this.batchDelegate.getAll(misses.keySet());
+			found.forEach(this::cache);
+			existing.putAll(found);
+			misses.forEach((key, value) -> {
+				if (!found.containsKey(key)) {
+					put(key, value);
+				}
+			});
+		}
+		return existing;
+	}
+
+	@Override
+	public void removeAll(Collection<String> keys) {
+		synchronized (this.flushLock) {
+			for (String key : keys) {
+				this.pendingWrites.remove(key);
+				invalidate(key);
+			}
+			this.batchDelegate.removeAll(keys);
+		}
+	}
+
+	@Override
+	public void putAll(Map<String, String> entries) {
+		entries.forEach(this::cache);
+		this.pendingWrites.putAll(entries);
+		requestFlushIfFull();
+	}
+
+	/**
+	 * Write all the pending changes to the remote store, with a batch put.
+	 */
+	public void flush() {
+		synchronized (this.flushLock) {
+			Map<String, String> writes = new HashMap<>(this.pendingWrites);
+			if (writes.isEmpty()) {
+				return;
+			}
+			this.batchDelegate.putAll(writes);
+			// A newer value stays pending
+			writes.forEach(this.pendingWrites::remove);
+		}
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		this.flushScheduler.shutdownNow();
+		flush();
+		if (this.delegate instanceof DisposableBean disposableBean) {
+			disposableBean.destroy();
+		}
+	}
+
+	private void flush(String key) {
+		synchronized (this.flushLock) {
+			String value = this.pendingWrites.get(key);
+			if (value != null) {
+				this.delegate.put(key, value);
+				this.pendingWrites.remove(key, value);
+			}
+		}
+	}
+
+	private void requestFlushIfFull() {
+		// A single flush is queued for all the puts reaching the batch size meanwhile
+		if (this.pendingWrites.size() >= this.writeBehindBatchSize && this.flushRequested.compareAndSet(false, true)) {
+			this.flushScheduler.execute(this::flushQuietly);
+		}
+	}
+
+	private void flushQuietly() {
+		this.flushRequested.set(false);
+		if (this.pendingWrites.isEmpty()) {
+			return;
+		}
+		try {
+			flush();
+		}
+		catch (RuntimeException ex) {
+			LOGGER.warn("Failed to flush " + this.pendingWrites.size() + " metadata store writes; will retry", ex);
+		}
+	}
+
+	@Nullable
+	private String cached(String key) {
+		synchronized (this.cache) {
+			CachedValue cachedValue = this.cache.get(key);
+			if (cachedValue == null) {
+				return null;
+			}
+			if (cachedValue.expiresAt() < System.currentTimeMillis()) {
+				this.cache.remove(key);
+				return null;
+			}
+			return cachedValue.value();
+		}
+	}
+
+	private void cache(String key, String value) {
+		CachedValue cachedValue = new CachedValue(value, System.currentTimeMillis() + this.timeToLive);
+		synchronized (this.cache) {
+			this.cache.put(key, cachedValue);
+		}
+	}
+
+	private void invalidate(String key) {
+		synchronized (this.cache) {
+			this.cache.remove(key);
+		}
+	}
+
+	private record CachedValue(String value, long expiresAt) {
+
+	}
+
+}
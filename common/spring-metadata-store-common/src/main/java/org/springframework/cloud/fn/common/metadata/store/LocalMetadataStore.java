@@ -0,0 +1,564 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * The {@link BatchMetadataStore} persisted to the local disk: every change is
+ * appended to a log file before it is applied to the in-memory index, and the log is
+ * periodically compacted into a snapshot of the current entries. On start, the store is
+ * restored from the last snapshot and the logs written after it; a record torn by a crash
+ * is detected by its checksum and truncated, and one torn by a failed write is truncated
+ * right away.
+ * <p>
+ * Lookups are served from the in-memory index without locking; changes are serialized,
+ * so the conditional operations are atomic. The changes are written to the operating
+ * system on every operation, so they survive a crash of the process; with {@code fsync}
+ * they are also synced to the disk and survive a crash of the host.
+ * <p>
+ * The store is meant for a single process: the directory must not be shared. The write
+ * times of the entries are not persisted: when pruned, the entries restored on start are
+ * aged from the first {@link #prune} call.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public class LocalMetadataStore implements BatchMetadataStore, PrunableMetadataStore, DisposableBean {
+
+	private static final Log LOGGER = LogFactory.getLog(LocalMetadataStore.class);
+
+	private static final String SNAPSHOT_FILE = "snapshot";
+
+	private static final String LOG_FILE_PREFIX = "log-";
+
+	private static final byte PUT = 1;
+
+	private static final byte REMOVE = 2;
+
+	private final Map<String, String> index = new ConcurrentHashMap<>();
+
+	private final WriteTimeIndex writeTimes = new WriteTimeIndex();
+
+	private final Path directory;
+
+	private final boolean fsync;
+
+	private final Object writeLock = new Object();
+
+	private final Object snapshotLock = new Object();
+
+	private final ScheduledExecutorService snapshotScheduler;
+
+	private long logSequence;
+
+	private FileChannel log;
+
+	private boolean logDirty;
+
+	private boolean logTorn;
+
+	/**
+	 * Create an instance restoring the entries from the directory.
+	 * @param directory the directory for the snapshot and log files; created if missing.
+	 * @param fsync whether to sync every change to the disk.
+	 * @param snapshotInterval the interval to compact the changes into a snapshot at;
+	 * {@code null} for no periodic snapshots.
+	 */
+	public LocalMetadataStore(File directory, boolean fsync, @Nullable Duration snapshotInterval) {
+		this.directory = directory.toPath();
+		this.fsync = fsync;
+		try {
+			Files.createDirectories(this.directory);
+			restore();
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException("Failed to restore the metadata store from " + directory, ex);
+		}
+		if (snapshotInterval != null && snapshotInterval.isPositive()) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("local-metadata-store-");
+			threadFactory.setDaemon(true);
+			this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+			long period = snapshotInterval.toMillis();
+			this.snapshotScheduler.scheduleWithFixedDelay(this::snapshotQuietly, period, period,
+					TimeUnit.MILLISECONDS);
+		}
+		else {
+			this.snapshotScheduler = null;
+		}
+	}
+
+	@Override
+	@Nullable
+	public String get(String key) {
+		Assert.notNull(key, "'key' must not be null.");
+		return this.index.get(key);
+	}
+
+	@Override
+	public void put(String key, String value) {
+		Assert.notNull(key, "'key' must not be null.");
+		Assert.notNull(value, "'value' must not be null.");
+		synchronized (this.writeLock) {
+			if (!value.equals(this.index.get(key))) {
+				append(PUT, key, value);
+				this.index.put(key, value);
+			}
+			this.writeTimes.written(key);
+		}
+	}
+
+	@Override
+	@Nullable
+	public String putIfAbsent(String key, String value) {
+		Assert.notNull(key, "'key' must not be null.");
+		Assert.notNull(value, "'value' must not be null.");
+		String existing = this.index.get(key);
+		if (existing != null) {
+			return existing;
+		}
+		synchronized (this.writeLock) {
+			existing = this.index.get(key);
+			if (existing == null) {
+				append(PUT, key, value);
+				this.index.put(key, value);
+				this.writeTimes.written(key);
+			}
+			return existing;
+		}
+	}
+
+	@Override
+	public boolean replace(String key, String oldValue, String newValue) {
+		Assert.notNull(key, "'key' must not be null.");
+		Assert.notNull(oldValue, "'oldValue' must not be null.");
+		Assert.notNull(newValue, "'newValue' must not be null.");
+		synchronized (this.writeLock) {
+			if (!oldValue.equals(this.index.get(key))) {
+				return false;
+			}
+			if (!oldValue.equals(newValue)) {
+				append(PUT, key, newValue);
+				this.index.put(key, newValue);
+			}
+			this.writeTimes.written(key);
+			return true;
+		}
+	}
+
+	@Override
+	@Nullable
+	public String remove(String key) {
+		Assert.notNull(key, "'key' must not be null.");
+		if (!this.index.containsKey(key)) {
+			return null;
+		}
+		synchronized (this.writeLock) {
+			if (!this.index.containsKey(key)) {
+				return null;
+			}
+			append(REMOVE, key, null);
+			this.writeTimes.removed(key);
+			return this.index.remove(key);
+		}
+	}
+
+	@Override
+	public Map<String, String> getAll(Collection<String> keys) {
+		Map<String, String> values = new HashMap<>();
+		for (String key : keys) {
+			String value = this.index.get(key);
+			if (value != null) {
+				values.put(key, value);
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public void putAll(Map<String, String> entries) {
+		synchronized (this.writeLock) {
+			List<ByteBuffer> records = new ArrayList<>();
+			Map<String, String> changed = new HashMap<>();
+			for (Map.Entry<String, String> entry : entries.entrySet()) {
+				if (!entry.getValue().equals(this.index.get(entry.getKey()))) {
+					records.add(record(PUT, entry.getKey(), entry.getValue()));
+					changed.put(entry.getKey(), entry.getValue());
+				}
+			}
+			append(records);
+			this.index.putAll(changed);
+			this.writeTimes.written(entries.keySet());
+		}
+	}
+
+	@Override
+	public Map<String, String> putAllIfAbsent(Map<String, String> entries) {
+		Map<String, String> existing = getAll(entries.keySet());
+		if (existing.size() == entries.size()) {
+			return existing;
+		}
+		synchronized (this.writeLock) {
+			existing = getAll(entries.keySet());
+			List<ByteBuffer> records = new ArrayList<>();
+			Map<String, String> absent = new HashMap<>();
+			for (Map.Entry<String, String> entry : entries.entrySet()) {
+				if (!existing.containsKey(entry.getKey())) {
+					records.add(record(PUT, entry.getKey(), entry.getValue()));
+					absent.put(entry.getKey(), entry.getValue());
+				}
+			}
+			append(records);
+			this.index.putAll(absent);
+			this.writeTimes.written(absent.keySet());
+			return existing;
+		}
+	}
+
+	@Override
+	public void removeAll(Collection<String> keys) {
+		synchronized (this.writeLock) {
+			List<ByteBuffer> records = new ArrayList<>();
+			List<String> present = new ArrayList<>();
+			for (String key : keys) {
+				if (this.index.containsKey(key)) {
+					records.add(record(REMOVE, key, null));
+					present.add(key);
+				}
+			}
+			append(records);
+			present.forEach(this.index::remove);
+			this.writeTimes.removed(present);
+		}
+	}
+
+	@Override
+	public long size() {
+		return this.index.size();
+	}
+
+	@Override
+	public int prune(@Nullable Duration timeToLive, int maxEntries) {
+		List<String> expired = this.writeTimes.expiredKeys(this.index::keySet, timeToLive, maxEntries);
+		removeAll(expired);
+		return expired.size();
+	}
+
+	/**
+	 * Compact the changes logged since the last snapshot into a new snapshot. The changes
+	 * are logged into a new file meanwhile, so they are not blocked for the time of
+	 * writing the snapshot.
+	 * @throws IOException if the snapshot cannot be written.
+	 */
+	public void snapshot() throws IOException {
+		synchronized (this.snapshotLock) {
+			long snapshotSequence;
+			synchronized (this.writeLock) {
+				if (!this.logDirty) {
+					return;
+				}
+				snapshotSequence = this.logSequence + 1;
+				FileChannel previousLog = this.log;
+				this.log = openLog(snapshotSequence);
+				this.logSequence = snapshotSequence;
+				this.logDirty = false;
+				this.logTorn = false;
+				previousLog.close();
+			}
+			// The index may already have some changes from the new log, which is replayed
+			// over the snapshot on restore anyway
+			Path snapshotFile = this.directory.resolve(SNAPSHOT_FILE);
+			Path tempFile = this.directory.resolve(SNAPSHOT_FILE + ".tmp");
+			try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+
+				CheckedOutputStream checked = new CheckedOutputStream(
+						new BufferedOutputStream(Channels.newOutputStream(channel)), new CRC32C());
+				DataOutputStream out = new DataOutputStream(checked);
+				out.writeLong(snapshotSequence);
+				for (Map.Entry<String, String> entry : this.index.entrySet()) {
+					out.writeBoolean(true);
+					writeString(out, entry.getKey());
+					writeString(out, entry.getValue());
+				}
+				out.writeBoolean(false);
+				out.writeLong(checked.getChecksum().getValue());
+				out.flush();
+				channel.force(true);
+			}
+			Files.move(tempFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			for (long sequence : logSequences()) {
+				if (sequence < snapshotSequence) {
+					Files.deleteIfExists(logFile(sequence));
+				}
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.snapshotScheduler != null) {
+			this.snapshotScheduler.shutdown();
+		}
+		synchronized (this.writeLock) {
+			try {
+				this.log.close();
+			}
+			catch (IOException ex) {
+				LOGGER.warn("Failed to close the metadata store log", ex);
+			}
+		}
+	}
+
+	private void snapshotQuietly() {
+		try {
+			snapshot();
+		}
+		catch (IOException ex) {
+			LOGGER.error("Failed to write the metadata store snapshot to " + this.directory, ex);
+		}
+	}
+
+	private void append(byte operation, String key, @Nullable String value) {
+		append(List.of(record(operation, key, value)));
+	}
+
+	private void append(List<ByteBuffer> records) {
+		if (records.isEmpty()) {
+			return;
+		}
+		Assert.state(!this.logTorn, "The metadata store log has a torn record; it is written again after a snapshot");
+		ByteBuffer[] buffers = records.toArray(new ByteBuffer[0]);
+		ByteBuffer last = buffers[buffers.length - 1];
+		long position = -1;
+		try {
+			position = this.log.position();
+			while (last.hasRemaining()) {
+				this.log.write(buffers);
+			}
+			if (this.fsync) {
+				this.log.force(false);
+			}
+		}
+		catch (IOException ex) {
+			if (position >= 0) {
+				discardTail(position, ex);
+			}
+			throw new UncheckedIOException("Failed to write to the metadata store log", ex);
+		}
+		this.logDirty = true;
+	}
+
+	/**
+	 * Truncate the log back to the end of the last complete change, so the changes written
+	 * next are not lost behind a torn record on restore. If the log cannot be truncated, it
+	 * is not written to until the next snapshot starts a new one.
+	 * @param position the log size before the failed write.
+	 * @param failure the write failure.
+	 */
+	private void discardTail(long position, IOException failure) {
+		try {
+			this.log.truncate(position);
+		}
+		catch (IOException ex) {
+			failure.addSuppressed(ex);
+			this.logTorn = true;
+			this.logDirty = true;
+		}
+	}
+
+	private static ByteBuffer record(byte operation, String key, @Nullable String value) {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		byte[] valueBytes = (value != null) ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+		ByteBuffer record = ByteBuffer.allocate(1 + 4 + keyBytes.length + 4 + valueBytes.length + 4);
+		record.put(operation).putInt(keyBytes.length).put(keyBytes).putInt(valueBytes.length).put(valueBytes);
+		CRC32C crc = new CRC32C();
+		crc.update(record.array(), 0, record.position());
+		return record.putInt((int) crc.getValue()).flip();
+	}
+
+	private void restore() throws IOException {
+		long snapshotSequence = 0;
+		Path snapshotFile = this.directory.resolve(SNAPSHOT_FILE);
+		if (Files.exists(snapshotFile)) {
+			snapshotSequence = readSnapshot(snapshotFile);
+		}
+		List<Long> sequences = logSequences();
+		for (long sequence : sequences) {
+			if (sequence >= snapshotSequence) {
+				replayLog(logFile(sequence));
+			}
+		}
+		this.logSequence = sequences.isEmpty() ? snapshotSequence
+				: Math.max(snapshotSequence, sequences.get(sequences.size() - 1));
+		this.log = openLog(this.logSequence);
+		this.logDirty = this.log.size() > 0;
+	}
+
+	private long readSnapshot(Path snapshotFile) throws IOException {
+		try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(snapshotFile))) {
+			CheckedInputStream checked = new CheckedInputStream(inputStream, new CRC32C());
+			DataInputStream in = new DataInputStream(checked);
+			long sequence = in.readLong();
+			Map<String, String> entries = new ConcurrentHashMap<>();
+			while (in.readBoolean()) {
+				entries.put(readString(in), readString(in));
+			}
+			long checksum = checked.getChecksum().getValue();
+			if (in.readLong() != checksum) {
+				throw new IOException("The metadata store snapshot " + snapshotFile + " is corrupted");
+			}
+			this.index.putAll(entries);
+			return sequence;
+		}
+	}
+
+	private void replayLog(Path logFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			long size = channel.size();
+			long validLength = 0;
+			try {
+				while (validLength < size) {
+					byte operation = in.readByte();
+					byte[] key = readBytes(in, size - validLength);
+					byte[] value = readBytes(in, size - validLength - key.length);
+					int checksum = in.readInt();
+					CRC32C crc = new CRC32C();
+					ByteBuffer length = ByteBuffer.allocate(4);
+					crc.update(operation);
+					crc.update(length.putInt(0, key.length).array());
+					crc.update(key);
+					crc.update(length.putInt(0, value.length).array());
+					crc.update(value);
+					if ((int) crc.getValue() != checksum || (operation != PUT && operation != REMOVE)) {
+						break;
+					}
+					String keyString = new String(key, StandardCharsets.UTF_8);
+					if (operation == PUT) {
+						this.index.put(keyString, new String(value, StandardCharsets.UTF_8));
+					}
+					else {
+						this.index.remove(keyString);
+					}
+					validLength += 1 + 4 + key.length + 4 + value.length + 4;
+				}
+			}
+			catch (EOFException ex) {
+				// A torn record at the end of the log
+			}
+			if (validLength < size) {
+				LOGGER.warn("Truncating the torn tail of the metadata store log " + logFile + " at " + validLength);
+				channel.truncate(validLength);
+			}
+		}
+	}
+
+	private static byte[] readBytes(DataInputStream in, long remaining) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > remaining) {
+			throw new EOFException("Invalid record length: " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	private FileChannel openLog(long sequence) throws IOException {
+		return FileChannel.open(logFile(sequence), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+	}
+
+	private Path logFile(long sequence) {
+		return this.directory.resolve(LOG_FILE_PREFIX + sequence);
+	}
+
+	private List<Long> logSequences() throws IOException {
+		List<Long> sequences = new ArrayList<>();
+		try (Stream<Path> files = Files.list(this.directory)) {
+			files.map((file) -> file.getFileName().toString())
+				.filter((name) -> name.startsWith(LOG_FILE_PREFIX))
+				.map((name) -> parseSequence(name.substring(LOG_FILE_PREFIX.length())))
+				.filter(Objects::nonNull)
+				.sorted()
+				.forEach(sequences::add);
+		}
+		return sequences;
+	}
+
+	@Nullable
+	private static Long parseSequence(String sequence) {
+		try {
+			return Long.valueOf(sequence);
+		}
+		catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -16,7 +16,14 @@
 
 package org.springframework.cloud.fn.common.metadata.store;
 
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MaxSizePolicy;
 import com.hazelcast.core.HazelcastInstance;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import io.awspring.cloud.autoconfigure.core.AwsClientBuilderConfigurer;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
@@ -24,6 +31,7 @@ import org.apache.curator.retry.RetryForever;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -33,17 +41,15 @@ import org.springframework.boot.autoconfigure.hazelcast.HazelcastAutoConfigurati
 import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.Lifecycle;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.integration.aws.metadata.DynamoDbMetadataStore;
 import org.springframework.integration.hazelcast.metadata.HazelcastMetadataStore;
-import org.springframework.integration.jdbc.metadata.JdbcMetadataStore;
 import org.springframework.integration.metadata.ConcurrentMetadataStore;
 import org.springframework.integration.metadata.MetadataStoreListener;
 import org.springframework.integration.metadata.SimpleMetadataStore;
-import org.springframework.integration.mongodb.metadata.MongoDbMetadataStore;
-import org.springframework.integration.redis.metadata.RedisMetadataStore;
 import org.springframework.integration.zookeeper.metadata.ZookeeperMetadataStore;
 import org.springframework.jdbc.core.JdbcTemplate;
 
@@ -67,7 +73,7 @@ public class MetadataStoreAutoConfiguration {
 	@ConditionalOnProperty(prefix = "metadata.store", name = "type", havingValue = "memory", matchIfMissing = true)
 	@ConditionalOnMissingBean
 	public ConcurrentMetadataStore simpleMetadataStore() {
-		return new SimpleMetadataStore();
+		return new PrunableSimpleMetadataStore();
 	}
 
 	@ConditionalOnProperty(prefix = "metadata.store", name = "type", havingValue = "redis")
@@ -78,7 +84,10 @@ public class MetadataStoreAutoConfiguration {
 		ConcurrentMetadataStore redisMetadataStore(RedisTemplate<String, ?> redisTemplate,
 				MetadataStoreProperties metadataStoreProperties) {
 
-			return new RedisMetadataStore(redisTemplate, metadataStoreProperties.getRedis().getKey());
+			BatchRedisMetadataStore redisMetadataStore = new BatchRedisMetadataStore(redisTemplate,
+					metadataStoreProperties.getRedis().getKey());
+			redisMetadataStore.setTrackWriteTimes(metadataStoreProperties.getPrune().isEnabled());
+			return redisMetadataStore;
 		}
 
 	}
@@ -91,7 +100,7 @@ public class MetadataStoreAutoConfiguration {
 		ConcurrentMetadataStore mongoDbMetadataStore(MongoTemplate mongoTemplate,
 				MetadataStoreProperties metadataStoreProperties) {
 
-			return new MongoDbMetadataStore(mongoTemplate, metadataStoreProperties.getMongoDb().getCollection());
+			return new BatchMongoDbMetadataStore(mongoTemplate, metadataStoreProperties.getMongoDb().getCollection());
 		}
 
 	}
@@ -99,6 +108,8 @@ public class MetadataStoreAutoConfiguration {
 	@ConditionalOnProperty(prefix = "metadata.store", name = "type", havingValue = "hazelcast")
 	static class Hazelcast {
 
+		private static final String HAZELCAST_METADATA_STORE_MAP_NAME = "SpringIntegrationMetadataStore";
+
 		@Bean
 		@ConditionalOnMissingBean
 		HazelcastInstance hazelcastInstance() {
@@ -108,8 +119,24 @@ public class MetadataStoreAutoConfiguration {
 		@Bean
 		@ConditionalOnMissingBean
 		ConcurrentMetadataStore hazelcastMetadataStore(HazelcastInstance hazelcastInstance,
+				MetadataStoreProperties metadataStoreProperties,
 				ObjectProvider<MetadataStoreListener> metadataStoreListenerObjectProvider) {
 
+			MetadataStoreProperties.Prune pruneProperties = metadataStoreProperties.getPrune();
+			if (pruneProperties.isEnabled()) {
+				// The map expires and evicts the entries natively
+				MapConfig mapConfig = new MapConfig(HAZELCAST_METADATA_STORE_MAP_NAME);
+				if (pruneProperties.getTimeToLive() != null) {
+					mapConfig.setTimeToLiveSeconds((int) pruneProperties.getTimeToLive().toSeconds());
+				}
+				if (pruneProperties.getMaxEntries() > 0) {
+					mapConfig.getEvictionConfig()
+						.setEvictionPolicy(EvictionPolicy.LRU)
+						.setMaxSizePolicy(MaxSizePolicy.PER_NODE)
+						.setSize(pruneProperties.getMaxEntries());
+				}
+				hazelcastInstance.getConfig().addMapConfig(mapConfig);
+			}
 			HazelcastMetadataStore hazelcastMetadataStore = new HazelcastMetadataStore(hazelcastInstance);
 			metadataStoreListenerObjectProvider.ifAvailable(hazelcastMetadataStore::addListener);
 			return hazelcastMetadataStore;
@@ -135,7 +162,9 @@ public class MetadataStoreAutoConfiguration {
 				ObjectProvider<MetadataStoreListener> metadataStoreListenerObjectProvider) {
 
 			MetadataStoreProperties.Zookeeper zookeeperProperties = metadataStoreProperties.getZookeeper();
-			ZookeeperMetadataStore zookeeperMetadataStore = new ZookeeperMetadataStore(curatorFramework);
+			ZookeeperMetadataStore zookeeperMetadataStore = metadataStoreProperties.getPrune().isEnabled()
+					? new PrunableZookeeperMetadataStore(curatorFramework)
+					: new ZookeeperMetadataStore(curatorFramework);
 			zookeeperMetadataStore.setEncoding(zookeeperProperties.getEncoding().name());
 			zookeeperMetadataStore.setRoot(zookeeperProperties.getRoot());
 			metadataStoreListenerObjectProvider.ifAvailable(zookeeperMetadataStore::addListener);
@@ -160,7 +189,7 @@ public class MetadataStoreAutoConfiguration {
 
 			MetadataStoreProperties.DynamoDb dynamoDbProperties = metadataStoreProperties.getDynamoDb();
 
-			DynamoDbMetadataStore dynamoDbMetadataStore = new DynamoDbMetadataStore(dynamoDB,
+			DynamoDbMetadataStore dynamoDbMetadataStore = new BatchDynamoDbMetadataStore(dynamoDB,
 					dynamoDbProperties.getTable());
 
 			dynamoDbMetadataStore.setReadCapacity(dynamoDbProperties.getReadCapacity());
@@ -170,6 +199,13 @@ public class MetadataStoreAutoConfiguration {
 			if (dynamoDbProperties.getTimeToLive() != null) {
 				dynamoDbMetadataStore.setTimeToLive(dynamoDbProperties.getTimeToLive());
 			}
+			else if (metadataStoreProperties.getPrune().isEnabled()
+					&& metadataStoreProperties.getPrune().getTimeToLive() != null) {
+
+				// The table expires the entries natively
+				dynamoDbMetadataStore
+					.setTimeToLive((int) metadataStoreProperties.getPrune().getTimeToLive().toSeconds());
+			}
 
 			return dynamoDbMetadataStore;
 		}
@@ -186,13 +222,93 @@ public class MetadataStoreAutoConfiguration {
 
 			MetadataStoreProperties.Jdbc jdbcProperties = metadataStoreProperties.getJdbc();
 
-			JdbcMetadataStore jdbcMetadataStore = new JdbcMetadataStore(jdbcTemplate);
+			BatchJdbcMetadataStore jdbcMetadataStore = new BatchJdbcMetadataStore(jdbcTemplate);
 			jdbcMetadataStore.setTablePrefix(jdbcProperties.getTablePrefix());
 			jdbcMetadataStore.setRegion(jdbcProperties.getRegion());
+			jdbcMetadataStore.setTrackWriteTimes(metadataStoreProperties.getPrune().isEnabled());
 
 			return jdbcMetadataStore;
 		}
 
 	}
 
+	@ConditionalOnProperty(prefix = "metadata.store", name = "type", havingValue = "local")
+	static class Local {
+
+		@Bean
+		@ConditionalOnMissingBean
+		ConcurrentMetadataStore localMetadataStore(MetadataStoreProperties metadataStoreProperties) {
+			MetadataStoreProperties.Local localProperties = metadataStoreProperties.getLocal();
+			return new LocalMetadataStore(localProperties.getDirectory(), localProperties.isFsync(),
+					localProperties.getSnapshotInterval());
+		}
+
+	}
+
+	@ConditionalOnProperty(prefix = "metadata.store.cache", name = "enabled")
+	static class Cache {
+
+		@Bean
+		static BeanPostProcessor cachingMetadataStoreBeanPostProcessor(
+				ObjectProvider<MetadataStoreProperties> metadataStorePropertiesProvider) {
+
+			return new BeanPostProcessor() {
+
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					// The in-process stores need no cache, and the lifecycle ones must stay exposed as is
+					if (bean instanceof ConcurrentMetadataStore metadataStore && !(bean instanceof SimpleMetadataStore)
+							&& !(bean instanceof LocalMetadataStore) && !(bean instanceof CachingMetadataStore)
+							&& !(bean instanceof Lifecycle)) {
+
+						MetadataStoreProperties.Cache cacheProperties = metadataStorePropertiesProvider.getObject()
+							.getCache();
+						return new CachingMetadataStore(metadataStore, cacheProperties.getMaxSize(),
+								cacheProperties.getTimeToLive(), cacheProperties.getWriteBehindInterval(),
+								cacheProperties.getWriteBehindBatchSize(), cacheProperties.isStrictPutIfAbsent());
+					}
+					return bean;
+				}
+
+			};
+		}
+
+	}
+
+	@ConditionalOnProperty(prefix = "metadata.store.prune", name = "enabled")
+	static class Prune {
+
+		@Bean
+		MetadataStorePruner metadataStorePruner(ConcurrentMetadataStore metadataStore,
+				MetadataStoreProperties metadataStoreProperties) {
+
+			MetadataStoreProperties.Prune pruneProperties = metadataStoreProperties.getPrune();
+			return new MetadataStorePruner(metadataStore, pruneProperties.getTimeToLive(),
+					pruneProperties.getMaxEntries(), pruneProperties.getInterval());
+		}
+
+	}
+
+	@ConditionalOnProperty(prefix = "metadata.store.prune", name = "enabled")
+	@ConditionalOnClass(MeterRegistry.class)
+	static class PruneMetrics {
+
+		@Bean
+		MeterBinder metadataStorePrunerMetrics(MetadataStorePruner metadataStorePruner) {
+			return (registry) -> {
+				if (metadataStorePruner.isSweeping()) {
+					Gauge.builder("metadata.store.entries", metadataStorePruner, MetadataStorePruner::getEntryCount)
+						.description("The number of entries in the metadata store as of the last sweep")
+						.register(registry);
+					FunctionCounter
+						.builder("metadata.store.evictions", metadataStorePruner,
+								MetadataStorePruner::getEvictionCount)
+						.description("The number of entries evicted from the metadata store")
+						.register(registry);
+				}
+			};
+		}
+
+	}
+
 }
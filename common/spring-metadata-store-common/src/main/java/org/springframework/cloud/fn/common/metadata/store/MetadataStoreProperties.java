@@ -16,8 +16,10 @@
 
 package org.springframework.cloud.fn.common.metadata.store;
 
+import java.io.File;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.integration.aws.metadata.DynamoDbMetadataStore;
@@ -37,7 +39,7 @@ public class MetadataStoreProperties {
 
 	enum StoreType {
 
-		mongodb, redis, dynamodb, jdbc, zookeeper, hazelcast, memory
+		mongodb, redis, dynamodb, jdbc, zookeeper, hazelcast, memory, local
 
 	}
 
@@ -57,6 +59,12 @@ public class MetadataStoreProperties {
 
 	private final Zookeeper zookeeper = new Zookeeper();
 
+	private final Local local = new Local();
+
+	private final Cache cache = new Cache();
+
+	private final Prune prune = new Prune();
+
 	public StoreType getType() {
 		return this.type;
 	}
@@ -85,6 +93,18 @@ public class MetadataStoreProperties {
 		return this.zookeeper;
 	}
 
+	public Local getLocal() {
+		return this.local;
+	}
+
+	public Cache getCache() {
+		return this.cache;
+	}
+
+	public Prune getPrune() {
+		return this.prune;
+	}
+
 	public static class Mongo {
 
 		/**
@@ -287,4 +307,191 @@ public class MetadataStoreProperties {
 
 	}
 
+	public static class Local {
+
+		/**
+		 * The directory for the snapshot and log files of the local metadata store.
+		 */
+		private File directory = new File(System.getProperty("java.io.tmpdir"), "metadata-store");
+
+		/**
+		 * Whether to sync every change to the disk, not only write it to the operating
+		 * system.
+		 */
+		private boolean fsync;
+
+		/**
+		 * The interval to compact the logged changes into a snapshot at.
+		 */
+		private Duration snapshotInterval = Duration.ofMinutes(5);
+
+		public File getDirectory() {
+			return this.directory;
+		}
+
+		public void setDirectory(File directory) {
+			this.directory = directory;
+		}
+
+		public boolean isFsync() {
+			return this.fsync;
+		}
+
+		public void setFsync(boolean fsync) {
+			this.fsync = fsync;
+		}
+
+		public Duration getSnapshotInterval() {
+			return this.snapshotInterval;
+		}
+
+		public void setSnapshotInterval(Duration snapshotInterval) {
+			this.snapshotInterval = snapshotInterval;
+		}
+
+	}
+
+	public static class Cache {
+
+		/**
+		 * Whether to decorate a remote metadata store with a local cache and write-behind
+		 * batching.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The maximum number of entries in the local cache.
+		 */
+		private int maxSize = 100_000;
+
+		/**
+		 * The time a cached entry is trusted for before it is read from the remote store
+		 * again.
+		 */
+		private Duration timeToLive = Duration.ofMinutes(10);
+
+		/**
+		 * The interval to flush the pending writes to the remote store at.
+		 */
+		private Duration writeBehindInterval = Duration.ofSeconds(1);
+
+		/**
+		 * The number of pending writes to flush them at before the interval elapses.
+		 */
+		private int writeBehindBatchSize = 1000;
+
+		/**
+		 * Whether 'putIfAbsent' for a key not in the cache is written to the remote store
+		 * synchronously; otherwise the key is only looked up there and written behind.
+		 */
+		private boolean strictPutIfAbsent = true;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxSize() {
+			return this.maxSize;
+		}
+
+		public void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public Duration getTimeToLive() {
+			return this.timeToLive;
+		}
+
+		public void setTimeToLive(Duration timeToLive) {
+			this.timeToLive = timeToLive;
+		}
+
+		public Duration getWriteBehindInterval() {
+			return this.writeBehindInterval;
+		}
+
+		public void setWriteBehindInterval(Duration writeBehindInterval) {
+			this.writeBehindInterval = writeBehindInterval;
+		}
+
+		public int getWriteBehindBatchSize() {
+			return this.writeBehindBatchSize;
+		}
+
+		public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+			this.writeBehindBatchSize = writeBehindBatchSize;
+		}
+
+		public boolean isStrictPutIfAbsent() {
+			return this.strictPutIfAbsent;
+		}
+
+		public void setStrictPutIfAbsent(boolean strictPutIfAbsent) {
+			this.strictPutIfAbsent = strictPutIfAbsent;
+		}
+
+	}
+
+	public static class Prune {
+
+		/**
+		 * Whether to evict the entries of the metadata store by age and by number: natively
+		 * for DynamoDB and Hazelcast, by periodic sweeping for the other stores.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The time after the last write an entry is evicted at.
+		 */
+		private Duration timeToLive;
+
+		/**
+		 * The maximum number of entries; the least recently written ones are evicted
+		 * beyond it. Zero for no limit.
+		 */
+		private int maxEntries;
+
+		/**
+		 * The interval to sweep the metadata store for the entries to evict at.
+		 */
+		private Duration interval = Duration.ofMinutes(1);
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getTimeToLive() {
+			return this.timeToLive;
+		}
+
+		public void setTimeToLive(Duration timeToLive) {
+			this.timeToLive = timeToLive;
+		}
+
+		public int getMaxEntries() {
+			return this.maxEntries;
+		}
+
+		public void setMaxEntries(int maxEntries) {
+			this.maxEntries = maxEntries;
+		}
+
+		public Duration getInterval() {
+			return this.interval;
+		}
+
+		public void setInterval(Duration interval) {
+			this.interval = interval;
+		}
+
+	}
+
 }
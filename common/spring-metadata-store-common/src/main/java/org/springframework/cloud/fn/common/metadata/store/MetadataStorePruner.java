@@ -0,0 +1,153 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Periodically evicts the entries of a {@link PrunableMetadataStore} by age and by
+ * number, and keeps the number of entries and evictions for the metrics. A
+ * {@link CachingMetadataStore} is pruned through its delegate. The stores which are not
+ * a {@link PrunableMetadataStore}, like the DynamoDB and Hazelcast ones expiring the
+ * entries natively, are not swept.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public class MetadataStorePruner implements DisposableBean {
+
+	private static final Log LOGGER = LogFactory.getLog(MetadataStorePruner.class);
+
+	@Nullable
+	private final PrunableMetadataStore metadataStore;
+
+	@Nullable
+	private final Duration timeToLive;
+
+	private final int maxEntries;
+
+	@Nullable
+	private final ScheduledExecutorService scheduler;
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	private volatile long entryCount;
+
+	/**
+	 * Create an instance sweeping the store at the interval.
+	 * @param metadataStore the store to prune, if it is a {@link PrunableMetadataStore}.
+	 * @param timeToLive the time to live of the entries; {@code null} for no expiry.
+	 * @param maxEntries the maximum number of entries; {@code 0} for no limit.
+	 * @param interval the interval to sweep the store at.
+	 */
+	public MetadataStorePruner(ConcurrentMetadataStore metadataStore, @Nullable Duration timeToLive, int maxEntries,
+			Duration interval) {
+
+		Assert.notNull(metadataStore, "'metadataStore' must not be null");
+		Assert.isTrue(maxEntries >= 0, "'maxEntries' must not be negative");
+		Assert.isTrue(interval.isPositive(), "'interval' must be positive");
+		this.timeToLive = timeToLive;
+		this.maxEntries = maxEntries;
+		ConcurrentMetadataStore targetMetadataStore = metadataStore;
+		if (targetMetadataStore instanceof CachingMetadataStore cachingMetadataStore) {
+			targetMetadataStore = cachingMetadataStore.getDelegate();
+		}
+		if (!(targetMetadataStore instanceof PrunableMetadataStore prunableMetadataStore)) {
+			LOGGER.info("The " + targetMetadataStore + " is not swept: it is expected to evict the entries natively");
+			this.metadataStore = null;
+			this.scheduler = null;
+			return;
+		}
+		this.metadataStore = prunableMetadataStore;
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("metadata-store-pruner-");
+		threadFactory.setDaemon(true);
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		long period = interval.toMillis();
+		this.scheduler.scheduleWithFixedDelay(this::pruneQuietly, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return whether the store is swept by this pruner.
+	 * @return true if the store is a {@link PrunableMetadataStore}.
+	 */
+	public boolean isSweeping() {
+		return this.metadataStore != null;
+	}
+
+	/**
+	 * Evict the expired and the excess entries now.
+	 * @return the number of evicted entries.
+	 */
+	public int prune() {
+		if (this.metadataStore == null) {
+			return 0;
+		}
+		int evicted = this.metadataStore.prune(this.timeToLive, this.maxEntries);
+		this.evictionCount.addAndGet(evicted);
+		this.entryCount = this.metadataStore.size();
+		return evicted;
+	}
+
+	/**
+	 * Return the number of entries in the store as of the last sweep.
+	 * @return the number of entries.
+	 */
+	public long getEntryCount() {
+		return this.entryCount;
+	}
+
+	/**
+	 * Return the total number of entries evicted so far.
+	 * @return the number of evictions.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.get();
+	}
+
+	@Override
+	public void destroy() {
+		if (this.scheduler != null) {
+			this.scheduler.shutdownNow();
+		}
+	}
+
+	private void pruneQuietly() {
+		try {
+			int evicted = prune();
+			if (evicted > 0 && LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Evicted " + evicted + " entries from the metadata store");
+			}
+		}
+		catch (Exception ex) {
+			LOGGER.error("Failed to prune the metadata store", ex);
+		}
+	}
+
+}
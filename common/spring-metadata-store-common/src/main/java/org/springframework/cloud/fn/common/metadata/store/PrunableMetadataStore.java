@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.time.Duration;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * The metadata store which can evict its entries by age and by number, for the stores
+ * without a native expiry. The {@link MetadataStorePruner} calls it periodically.
+ * <p>
+ * The age of an entry is the time since it was last written. The stores shared by
+ * several processes keep the write times in the store itself; the others track them in
+ * process, and age the entries found in the store on the first {@link #prune} call from
+ * that call.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public interface PrunableMetadataStore {
+
+	/**
+	 * Return the number of entries in the store.
+	 * @return the number of entries.
+	 */
+	long size();
+
+	/**
+	 * Evict the entries written longer than the time to live ago and then, if the store
+	 * still has more entries than the maximum, the least recently written ones.
+	 * @param timeToLive the time to live of the entries; {@code null} for no expiry.
+	 * @param maxEntries the maximum number of entries; {@code 0} for no limit.
+	 * @return the number of evicted entries.
+	 */
+	int prune(@Nullable Duration timeToLive, int maxEntries);
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.integration.metadata.SimpleMetadataStore;
+import org.springframework.lang.Nullable;
+
+/**
+ * The in-memory {@link SimpleMetadataStore} which can be pruned by the entry age and
+ * number, so a long-running process does not accumulate the entries forever.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public class PrunableSimpleMetadataStore extends SimpleMetadataStore implements PrunableMetadataStore {
+
+	private final ConcurrentMap<String, String> metadata;
+
+	private final WriteTimeIndex writeTimes = new WriteTimeIndex();
+
+	public PrunableSimpleMetadataStore() {
+		this(new ConcurrentHashMap<>());
+	}
+
+	public PrunableSimpleMetadataStore(ConcurrentMap<String, String> metadata) {
+		super(metadata);
+		this.metadata = metadata;
+	}
+
+	@Override
+	public void put(String key, String value) {
+		super.put(key, value);
+		this.writeTimes.written(key);
+	}
+
+	@Override
+	@Nullable
+	public String putIfAbsent(String key, String value) {
+		String existing = super.putIfAbsent(key, value);
+		if (existing == null) {
+			this.writeTimes.written(key);
+		}
+		return existing;
+	}
+
+	@Override
+	public boolean replace(String key, String oldValue, String newValue) {
+		boolean replaced = super.replace(key, oldValue, newValue);
+		if (replaced) {
+			this.writeTimes.written(key);
+		}
+		return replaced;
+	}
+
+	@Override
+	@Nullable
+	public String remove(String key) {
+		this.writeTimes.removed(key);
+		return super.remove(key);
+	}
+
+	@Override
+	public long size() {
+		return this.metadata.size();
+	}
+
+	@Override
+	public int prune(@Nullable Duration timeToLive, int maxEntries) {
+		List<String> expired = this.writeTimes.expiredKeys(this.metadata::keySet, timeToLive, maxEntries);
+		expired.forEach(this::remove);
+		return expired.size();
+	}
+
+}
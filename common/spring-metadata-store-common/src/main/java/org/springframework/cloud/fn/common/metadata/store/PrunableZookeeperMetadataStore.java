@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.curator.framework.CuratorFramework;
+
+import org.springframework.integration.metadata.MetadataStoreListener;
+import org.springframework.integration.zookeeper.metadata.ZookeeperMetadataStore;
+import org.springframework.lang.Nullable;
+
+/**
+ * The {@link ZookeeperMetadataStore} which can be pruned by the entry age and number.
+ * The write times are indexed from the store events, which also cover the changes made by
+ * other processes and the entries loaded when the store is started.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public class PrunableZookeeperMetadataStore extends ZookeeperMetadataStore implements PrunableMetadataStore {
+
+	private final WriteTimeIndex writeTimes = new WriteTimeIndex();
+
+	public PrunableZookeeperMetadataStore(CuratorFramework client) {
+		super(client);
+		this.writeTimes.enable();
+		addListener(new MetadataStoreListener() {
+
+			@Override
+			public void onAdd(String key, String value) {
+				PrunableZookeeperMetadataStore.this.writeTimes.written(key);
+			}
+
+			@Override
+			public void onRemove(String key, String oldValue) {
+				PrunableZookeeperMetadataStore.this.writeTimes.removed(key);
+			}
+
+			@Override
+			public void onUpdate(String key, String newValue) {
+				PrunableZookeeperMetadataStore.this.writeTimes.written(key);
+			}
+
+		});
+	}
+
+	@Override
+	public long size() {
+		return this.writeTimes.size();
+	}
+
+	@Override
+	public int prune(@Nullable Duration timeToLive, int maxEntries) {
+		List<String> expired = this.writeTimes.expiredKeys(Collections::emptyList, timeToLive, maxEntries);
+		expired.forEach(this::remove);
+		return expired.size();
+	}
+
+}
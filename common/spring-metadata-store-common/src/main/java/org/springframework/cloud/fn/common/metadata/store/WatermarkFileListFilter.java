@@ -0,0 +1,223 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.ResettableFileListFilter;
+import org.springframework.integration.file.filters.ReversibleFileListFilter;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.util.Assert;
+
+/**
+ * The filter keeping a high-water mark of a remote directory listing in a
+ * {@link ConcurrentMetadataStore}: the latest last modified time of the files seen so
+ * far and the names of the ones modified at that time. The files below the mark are
+ * discarded in memory, and only the others are passed to the delegate filter, typically
+ * a {@link BatchAcceptOnceFileListFilter}, so a poll of a large directory with few new
+ * files costs one store lookup per new file rather than per listed file.
+ * <p>
+ * The mark assumes the files appear with increasing modified times: a file created with
+ * a time older than the mark, for example copied with the timestamp preserved, is
+ * missed. The files which are rolled back or removed lower the mark, so they are
+ * checked against the delegate again on the next poll.
+ * <p>
+ * The names at the mark are kept in a single store value, bounded to fit the column and
+ * item size limits of the stores: when too many files share the latest modified time,
+ * the names are not kept, and the files at the mark are checked against the delegate on
+ * every poll until a later file raises it.
+ *
+ * @param <F> the file type.
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public class WatermarkFileListFilter<F>
+		implements ReversibleFileListFilter<F>, ResettableFileListFilter<F>, Closeable {
+
+	private static final String SEPARATOR = "/";
+
+	/**
+	 * The maximum length of a mark value, in characters; at most 4000 bytes in UTF-8.
+	 */
+	private static final int MAX_VALUE_LENGTH = 1000;
+
+	private static final Watermark NONE = new Watermark(Long.MIN_VALUE, Set.of());
+
+	private final FileListFilter<F> delegate;
+
+	private final ConcurrentMetadataStore metadataStore;
+
+	private final String prefix;
+
+	private final Supplier<String> directory;
+
+	private final Function<F, String> fileName;
+
+	private final ToLongFunction<F> modified;
+
+	private final Map<String, Watermark> watermarks = new HashMap<>();
+
+	/**
+	 * Create an instance.
+	 * @param delegate the filter of the files at or above the mark.
+	 * @param metadataStore the store of the marks.
+	 * @param prefix the prefix of the mark keys.
+	 * @param directory the supplier of the directory being listed, the suffix of the
+	 * mark key.
+	 * @param fileName the function to get the name of a file; the names cannot contain
+	 * {@code '/'}.
+	 * @param modified the function to get the last modified time of a file.
+	 */
+	public WatermarkFileListFilter(FileListFilter<F> delegate, ConcurrentMetadataStore metadataStore, String prefix,
+			Supplier<String> directory, Function<F, String> fileName, ToLongFunction<F> modified) {
+
+		Assert.notNull(delegate, "'delegate' cannot be null");
+		Assert.notNull(metadataStore, "'metadataStore' cannot be null");
+		Assert.notNull(prefix, "'prefix' cannot be null");
+		this.delegate = delegate;
+		this.metadataStore = metadataStore;
+		this.prefix = prefix;
+		this.directory = directory;
+		this.fileName = fileName;
+		this.modified = modified;
+	}
+
+	@Override
+	public synchronized List<F> filterFiles(F[] files) {
+		String key = buildKey();
+		Watermark watermark = watermark(key);
+		List<F> candidates = new ArrayList<>();
+		long latest = watermark.modified();
+		for (F file : files) {
+			long modified = this.modified.applyAsLong(file);
+			if (modified > watermark.modified()
+					|| (modified == watermark.modified() && !watermark.names().contains(this.fileName.apply(file)))) {
+				candidates.add(file);
+				latest = Math.max(latest, modified);
+			}
+		}
+		if (candidates.isEmpty()) {
+			return new ArrayList<>();
+		}
+		List<F> accepted = this.delegate.filterFiles(candidates.toArray(Arrays.copyOf(files, 0)));
+		// The delegate has recorded all the candidates, accepted or not, so the mark can pass them
+		Set<String> names = (latest == watermark.modified()) ? new HashSet<>(watermark.names()) : new HashSet<>();
+		for (F file : candidates) {
+			if (this.modified.applyAsLong(file) == latest) {
+				names.add(this.fileName.apply(file));
+			}
+		}
+		update(key, new Watermark(latest, names));
+		return accepted;
+	}
+
+	@Override
+	public boolean supportsSingleFileFiltering() {
+		return false;
+	}
+
+	@Override
+	public synchronized void rollback(F file, List<F> files) {
+		if (this.delegate instanceof ReversibleFileListFilter<F> reversibleFilter) {
+			reversibleFilter.rollback(file, files);
+		}
+		int index = files.indexOf(file);
+		if (index >= 0) {
+			lower(files.subList(index, files.size()));
+		}
+	}
+
+	@Override
+	public synchronized boolean remove(F fileToRemove) {
+		boolean removed = this.delegate instanceof ResettableFileListFilter<F> resettableFilter
+				&& resettableFilter.remove(fileToRemove);
+		lower(List.of(fileToRemove));
+		return removed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.delegate instanceof Closeable closeable) {
+			closeable.close();
+		}
+	}
+
+	private void lower(List<F> files) {
+		String key = buildKey();
+		Watermark watermark = watermark(key);
+		Watermark lowered = watermark;
+		for (F file : files) {
+			long modified = this.modified.applyAsLong(file);
+			String name = this.fileName.apply(file);
+			if (modified < lowered.modified()) {
+				lowered = new Watermark(modified, Set.of());
+			}
+			else if (modified == lowered.modified() && lowered.names().contains(name)) {
+				Set<String> names = new HashSet<>(lowered.names());
+				names.remove(name);
+				lowered = new Watermark(modified, names);
+			}
+		}
+		if (lowered != watermark) {
+			update(key, lowered);
+		}
+	}
+
+	private Watermark watermark(String key) {
+		return this.watermarks.computeIfAbsent(key, (k) -> {
+			String value = this.metadataStore.get(k);
+			if (value == null) {
+				return NONE;
+			}
+			String[] parts = value.split(SEPARATOR);
+			return new Watermark(Long.parseLong(parts[0]), Set.of(Arrays.copyOfRange(parts, 1, parts.length)));
+		});
+	}
+
+	private void update(String key, Watermark watermark) {
+		Watermark kept = watermark;
+		String value = watermark.modified() + SEPARATOR + String.join(SEPARATOR, watermark.names());
+		if (value.length() > MAX_VALUE_LENGTH) {
+			// Too many ties to keep: the files at the mark go to the delegate
+			kept = new Watermark(watermark.modified(), Set.of());
+			value = watermark.modified() + SEPARATOR;
+		}
+		this.watermarks.put(key, kept);
+		this.metadataStore.put(key, value);
+	}
+
+	private String buildKey() {
+		return this.prefix + this.directory.get();
+	}
+
+	private record Watermark(long modified, Set<String> names) {
+
+	}
+
+}
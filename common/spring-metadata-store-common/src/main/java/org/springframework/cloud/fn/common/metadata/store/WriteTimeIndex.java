@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * The index of the times the entries of a {@link PrunableMetadataStore} were last
+ * written at. The index is disabled until the first selection of the keys to evict, so
+ * the stores which are never pruned do not pay for it; the keys existing at that moment
+ * are then aged from it.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+final class WriteTimeIndex {
+
+	private final Map<String, Long> writeTimes = new ConcurrentHashMap<>();
+
+	private volatile boolean enabled;
+
+	void enable() {
+		this.enabled = true;
+	}
+
+	void written(String key) {
+		if (this.enabled) {
+			this.writeTimes.put(key, System.currentTimeMillis());
+		}
+	}
+
+	void written(Collection<String> keys) {
+		if (this.enabled) {
+			long now = System.currentTimeMillis();
+			for (String key : keys) {
+				this.writeTimes.put(key, now);
+			}
+		}
+	}
+
+	void removed(String key) {
+		if (this.enabled) {
+			this.writeTimes.remove(key);
+		}
+	}
+
+	void removed(Collection<String> keys) {
+		if (this.enabled) {
+			keys.forEach(this.writeTimes::remove);
+		}
+	}
+
+	int size() {
+		return this.writeTimes.size();
+	}
+
+	/**
+	 * Select the keys to evict: the expired ones, and then the least recently written
+	 * ones beyond the maximum number of entries.
+	 * @param existingKeys the keys in the store, to index on the first call.
+	 * @param timeToLive the time to live; {@code null} for no expiry.
+	 * @param maxEntries the maximum number of entries; {@code 0} for no limit.
+	 * @return the keys to evict.
+	 */
+	List<String> expiredKeys(Supplier<? extends Collection<String>> existingKeys, @Nullable Duration timeToLive,
+			int maxEntries) {
+
+		long now = System.currentTimeMillis();
+		if (!this.enabled) {
+			this.enabled = true;
+			for (String key : existingKeys.get()) {
+				this.writeTimes.putIfAbsent(key, now);
+			}
+		}
+		long expiredBefore = (timeToLive != null) ? now - timeToLive.toMillis() : Long.MIN_VALUE;
+		List<String> expired = new ArrayList<>();
+		List<Map.Entry<String, Long>> live = new ArrayList<>();
+		for (Map.Entry<String, Long> entry : this.writeTimes.entrySet()) {
+			if (entry.getValue() < expiredBefore) {
+				expired.add(entry.getKey());
+			}
+			else if (maxEntries > 0) {
+				live.add(Map.entry(entry.getKey(), entry.getValue()));
+			}
+		}
+		if (maxEntries > 0 && live.size() > maxEntries) {
+			live.sort(Map.Entry.comparingByValue());
+			for (Map.Entry<String, Long> entry : live.subList(0, live.size() - maxEntries)) {
+				expired.add(entry.getKey());
+			}
+		}
+		return expired;
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.integration.metadata.SimpleMetadataStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+public class BatchAcceptOnceFileListFilterTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void filesAreAcceptedOnceUntilModified() {
+		BatchAcceptOnceFileListFilter<RemoteFile> filter = new BatchAcceptOnceFileListFilter<>(
+				new SimpleMetadataStore(), "test/", RemoteFile::name, RemoteFile::modified);
+		filter.setBatchSize(2);
+
+		RemoteFile[] files = { new RemoteFile("a", 1), new RemoteFile("b", 1), new RemoteFile("c", 1) };
+		assertThat(filter.filterFiles(files)).containsExactly(files);
+		assertThat(filter.filterFiles(files)).isEmpty();
+
+		RemoteFile modified = new RemoteFile("b", 2);
+		assertThat(filter.filterFiles(new RemoteFile[] { files[0], modified, files[2] })).containsExactly(modified);
+	}
+
+	@Test
+	void rollbackRemovesTheRemainingFiles() {
+		SimpleMetadataStore metadataStore = new SimpleMetadataStore();
+		BatchAcceptOnceFileListFilter<RemoteFile> filter = new BatchAcceptOnceFileListFilter<>(metadataStore, "test/",
+				RemoteFile::name, RemoteFile::modified);
+
+		RemoteFile[] files = { new RemoteFile("a", 1), new RemoteFile("b", 1), new RemoteFile("c", 1) };
+		List<RemoteFile> accepted = filter.filterFiles(files);
+		filter.rollback(files[1], accepted);
+
+		assertThat(metadataStore.get("test/a")).isEqualTo("1");
+		assertThat(metadataStore.get("test/b")).isNull();
+		assertThat(metadataStore.get("test/c")).isNull();
+		assertThat(filter.filterFiles(files)).containsExactly(files[1], files[2]);
+	}
+
+	@Test
+	void localMetadataStoreBatchOperations() {
+		LocalMetadataStore store = new LocalMetadataStore(this.directory.toFile(), false, null);
+		store.put("a", "1");
+
+		assertThat(store.putAllIfAbsent(Map.of("a", "2", "b", "2"))).containsExactly(Map.entry("a", "1"));
+		assertThat(store.getAll(List.of("a", "b", "c"))).containsOnly(Map.entry("a", "1"), Map.entry("b", "2"));
+		store.removeAll(List.of("a", "b"));
+		assertThat(store.getAll(List.of("a", "b"))).isEmpty();
+		store.destroy();
+
+		store = new LocalMetadataStore(this.directory.toFile(), false, null);
+		assertThat(store.get("a")).isNull();
+		assertThat(store.get("b")).isNull();
+		store.destroy();
+	}
+
+	record RemoteFile(String name, long modified) {
+
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.integration.metadata.SimpleMetadataStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Spring Cloud Team
+ */
+public class CachingMetadataStoreTests {
+
+	@Test
+	void cachedKeysAreNotLookedUpAgain() throws Exception {
+		ConcurrentMetadataStore delegate = spy(new SimpleMetadataStore());
+		CachingMetadataStore store = new CachingMetadataStore(delegate, 10, Duration.ofMinutes(1),
+				Duration.ofMinutes(1), 100, true);
+
+		assertThat(store.putIfAbsent("foo", "1")).isNull();
+		assertThat(store.putIfAbsent("foo", "2")).isEqualTo("1");
+		assertThat(store.get("foo")).isEqualTo("1");
+
+		verify(delegate, times(1)).putIfAbsent("foo", "1");
+		verify(delegate, never()).get(anyString());
+		store.destroy();
+	}
+
+	@Test
+	void putsAreCoalescedAndWrittenBehind() throws Exception {
+		ConcurrentMetadataStore delegate = spy(new SimpleMetadataStore());
+		CachingMetadataStore store = new CachingMetadataStore(delegate, 10, Duration.ofMinutes(1),
+				Duration.ofMinutes(1), 100, true);
+
+		store.put("foo", "1");
+		store.put("foo", "2");
+		assertThat(store.get("foo")).isEqualTo("2");
+		verify(delegate, never()).put(anyString(), anyString());
+
+		store.flush();
+		verify(delegate).put("foo", "2");
+		assertThat(delegate.get("foo")).isEqualTo("2");
+
+		assertThat(store.replace("foo", "2", "3")).isTrue();
+		assertThat(delegate.get("foo")).isEqualTo("3");
+		store.destroy();
+	}
+
+	@Test
+	void pendingWritesAreFlushedWithBatchPut() throws Exception {
+		BatchMetadataStore delegate = mock(BatchMetadataStore.class);
+		CachingMetadataStore store = new CachingMetadataStore(delegate, 10, Duration.ofMinutes(1),
+				Duration.ofMinutes(1), 100, true);
+
+		store.put("foo", "1");
+		store.put("bar", "2");
+		store.flush();
+
+		verify(delegate).putAll(Map.of("foo", "1", "bar", "2"));
+		verify(delegate, never()).put(anyString(), anyString());
+		store.destroy();
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+public class LocalMetadataStoreTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void conditionalOperations() {
+		LocalMetadataStore store = new LocalMetadataStore(this.directory.toFile(), false, null);
+		assertThat(store.putIfAbsent("foo", "bar")).isNull();
+		assertThat(store.putIfAbsent("foo", "baz")).isEqualTo("bar");
+		assertThat(store.replace("foo", "baz", "qux")).isFalse();
+		assertThat(store.replace("foo", "bar", "qux")).isTrue();
+		assertThat(store.get("foo")).isEqualTo("qux");
+		assertThat(store.remove("foo")).isEqualTo("qux");
+		assertThat(store.remove("foo")).isNull();
+		store.destroy();
+	}
+
+	@Test
+	void entriesAreRestoredFromSnapshotAndLog() throws IOException {
+		LocalMetadataStore store = new LocalMetadataStore(this.directory.toFile(), true, null);
+		store.put("foo", "1");
+		store.put("bar", "1");
+		store.snapshot();
+		store.put("foo", "2");
+		store.remove("bar");
+		store.put("baz", "1");
+		store.destroy();
+
+		assertThat(logFiles()).hasSize(1);
+
+		store = new LocalMetadataStore(this.directory.toFile(), true, null);
+		assertThat(store.get("foo")).isEqualTo("2");
+		assertThat(store.get("bar")).isNull();
+		assertThat(store.get("baz")).isEqualTo("1");
+		store.destroy();
+	}
+
+	@Test
+	void tornRecordIsTruncated() throws IOException {
+		LocalMetadataStore store = new LocalMetadataStore(this.directory.toFile(), false, null);
+		store.put("foo", "1");
+		store.put("bar", "1");
+		store.destroy();
+
+		Path log = logFiles()[0];
+		long size = Files.size(log);
+		try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+			channel.truncate(size - 3);
+		}
+
+		store = new LocalMetadataStore(this.directory.toFile(), false, null);
+		assertThat(store.get("foo")).isEqualTo("1");
+		assertThat(store.get("bar")).isNull();
+		store.put("bar", "2");
+		store.destroy();
+
+		store = new LocalMetadataStore(this.directory.toFile(), false, null);
+		assertThat(store.get("bar")).isEqualTo("2");
+		store.destroy();
+	}
+
+	private Path[] logFiles() throws IOException {
+		try (Stream<Path> files = Files.list(this.directory)) {
+			return files.filter((file) -> file.getFileName().toString().startsWith("log-")).toArray(Path[]::new);
+		}
+	}
+
+}
@@ -62,7 +62,8 @@ public class MetadataStoreAutoConfigurationTests {
 
 	private static final List<Class<? extends ConcurrentMetadataStore>> METADATA_STORE_CLASSES = List.of(
 			RedisMetadataStore.class, MongoDbMetadataStore.class, JdbcMetadataStore.class, ZookeeperMetadataStore.class,
-			HazelcastMetadataStore.class, DynamoDbMetadataStore.class, SimpleMetadataStore.class);
+			HazelcastMetadataStore.class, DynamoDbMetadataStore.class, SimpleMetadataStore.class,
+			LocalMetadataStore.class);
 
 	@ParameterizedTest
 	@MethodSource
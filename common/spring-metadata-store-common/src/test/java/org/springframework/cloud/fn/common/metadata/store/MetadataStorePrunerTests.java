@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.integration.metadata.SimpleMetadataStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+public class MetadataStorePrunerTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void leastRecentlyWrittenEntriesAreEvictedBeyondMaxEntries() throws InterruptedException {
+		PrunableSimpleMetadataStore metadataStore = new PrunableSimpleMetadataStore();
+		MetadataStorePruner pruner = new MetadataStorePruner(metadataStore, null, 2, Duration.ofHours(1));
+		assertThat(pruner.prune()).isZero();
+
+		metadataStore.put("a", "1");
+		Thread.sleep(5);
+		metadataStore.put("b", "1");
+		Thread.sleep(5);
+		metadataStore.put("c", "1");
+		Thread.sleep(5);
+		metadataStore.replace("a", "1", "2");
+
+		assertThat(pruner.prune()).isEqualTo(1);
+		assertThat(metadataStore.get("a")).isEqualTo("2");
+		assertThat(metadataStore.get("b")).isNull();
+		assertThat(metadataStore.get("c")).isEqualTo("1");
+		assertThat(pruner.getEntryCount()).isEqualTo(2);
+		assertThat(pruner.getEvictionCount()).isEqualTo(1);
+		pruner.destroy();
+	}
+
+	@Test
+	void expiredEntriesAreEvicted() throws InterruptedException {
+		LocalMetadataStore metadataStore = new LocalMetadataStore(this.directory.toFile(), false, null);
+		metadataStore.put("existing", "1");
+		MetadataStorePruner pruner = new MetadataStorePruner(metadataStore, Duration.ofMillis(100), 0,
+				Duration.ofHours(1));
+		assertThat(pruner.prune()).isZero();
+
+		Thread.sleep(150);
+		metadataStore.putAllIfAbsent(Map.of("new", "1"));
+
+		assertThat(pruner.prune()).isEqualTo(1);
+		assertThat(metadataStore.get("existing")).isNull();
+		assertThat(metadataStore.get("new")).isEqualTo("1");
+		pruner.destroy();
+		metadataStore.destroy();
+	}
+
+	@Test
+	void storesWithoutPruningAreNotSwept() {
+		MetadataStorePruner pruner = new MetadataStorePruner(new SimpleMetadataStore(), Duration.ofMinutes(1), 0,
+				Duration.ofHours(1));
+		assertThat(pruner.isSweeping()).isFalse();
+		assertThat(pruner.prune()).isZero();
+		pruner.destroy();
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.common.metadata.store;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.integration.metadata.SimpleMetadataStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+public class WatermarkFileListFilterTests {
+
+	private final SimpleMetadataStore metadataStore = new SimpleMetadataStore();
+
+	private final AtomicInteger delegated = new AtomicInteger();
+
+	@Test
+	void filesBelowTheMarkAreNotDelegated() {
+		WatermarkFileListFilter<RemoteFile> filter = filter();
+
+		RemoteFile[] files = { new RemoteFile("a", 1), new RemoteFile("b", 2), new RemoteFile("c", 2) };
+		assertThat(filter.filterFiles(files)).containsExactly(files);
+		assertThat(this.delegated).hasValue(3);
+		assertThat(this.metadataStore.get("mark/dir")).isIn("2/b/c", "2/c/b");
+
+		RemoteFile late = new RemoteFile("d", 2);
+		RemoteFile newer = new RemoteFile("e", 3);
+		assertThat(filter.filterFiles(new RemoteFile[] { files[0], files[1], files[2], late, newer }))
+			.containsExactly(late, newer);
+		assertThat(this.delegated).hasValue(5);
+	}
+
+	@Test
+	void theMarkIsRestoredFromTheStore() {
+		RemoteFile[] files = { new RemoteFile("a", 1), new RemoteFile("b", 2) };
+		filter().filterFiles(files);
+
+		this.delegated.set(0);
+		assertThat(filter().filterFiles(files)).isEmpty();
+		assertThat(this.delegated).hasValue(0);
+	}
+
+	@Test
+	void rollbackLowersTheMark() {
+		WatermarkFileListFilter<RemoteFile> filter = filter();
+
+		RemoteFile[] files = { new RemoteFile("b", 3), new RemoteFile("a", 1), new RemoteFile("c", 2) };
+		List<RemoteFile> accepted = filter.filterFiles(files);
+		filter.rollback(files[1], accepted);
+
+		assertThat(this.metadataStore.get("mark/dir")).isEqualTo("1/");
+		assertThat(filter.filterFiles(files)).containsExactly(files[1], files[2]);
+	}
+
+	@Test
+	void tooManyTiesAreLeftToTheDelegate() {
+		WatermarkFileListFilter<RemoteFile> filter = filter();
+
+		RemoteFile[] files = new RemoteFile[300];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = new RemoteFile("file-" + i, 5);
+		}
+		assertThat(filter.filterFiles(files)).hasSize(300);
+		assertThat(this.metadataStore.get("mark/dir")).isEqualTo("5/");
+
+		this.delegated.set(0);
+		assertThat(filter.filterFiles(files)).isEmpty();
+		assertThat(this.delegated).hasValue(300);
+	}
+
+	private WatermarkFileListFilter<RemoteFile> filter() {
+		BatchAcceptOnceFileListFilter<RemoteFile> acceptOnceFilter = new BatchAcceptOnceFileListFilter<>(
+				this.metadataStore, "test/", (file) -> {
+					this.delegated.incrementAndGet();
+					return file.name();
+				}, RemoteFile::modified);
+		return new WatermarkFileListFilter<>(acceptOnceFilter, this.metadataStore, "mark/", () -> "dir",
+				RemoteFile::name, RemoteFile::modified);
+	}
+
+	record RemoteFile(String name, long modified) {
+
+	}
+
+}
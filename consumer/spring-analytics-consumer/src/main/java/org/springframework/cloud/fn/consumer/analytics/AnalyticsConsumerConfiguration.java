@@ -16,19 +16,15 @@
 
 package org.springframework.cloud.fn.consumer.analytics;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
-import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Tags;
@@ -37,6 +33,7 @@ import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfigu
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.expression.Expression;
 import org.springframework.messaging.Message;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.ObjectUtils;
@@ -56,39 +53,52 @@ public class AnalyticsConsumerConfiguration {
 	 */
 	public static final String UNAVAILABLE_TAG = "NA";
 
-	private final Map<Meter.Id, AtomicLong> gaugeValues = new ConcurrentHashMap<>();
+	@Bean
+	MeterHandleCache analyticsMeterHandleCache(AnalyticsConsumerProperties properties, MeterRegistry meterRegistry) {
+		// All fixed tags together are passed with every meter update.
+		Tags fixedTags = this.toTags(properties.getTag().getFixed());
+		List<String> tagKeys = (properties.getTag().getExpression() != null)
+				? List.copyOf(properties.getTag().getExpression().keySet()) : List.of();
+		return new MeterHandleCache(meterRegistry, properties.getMeterType(), fixedTags, tagKeys,
+				properties.getCardinalityLimit(), properties.getAggregationWindow(), properties.getHistogramBuckets(),
+				properties.isPercentileHistogram());
+	}
 
 	@Bean
-	public Consumer<Message<?>> analyticsConsumer(AnalyticsConsumerProperties properties, MeterRegistry meterRegistry) {
+	public Consumer<Message<?>> analyticsConsumer(AnalyticsConsumerProperties properties, MeterHandleCache meters) {
+		Expression[] tagValueExpressions = meters.getTagKeys()
+			.stream()
+			.map((tagKey) -> properties.getTag().getExpression().get(tagKey))
+			.toArray(Expression[]::new);
 
 		return (message) -> {
 			CharSequence meterNameRaw = properties.getComputedNameExpression().getValue(message, CharSequence.class);
 			String meterName = StringUtils.hasText(meterNameRaw) ? meterNameRaw.toString() : "empty";
 
-			// All fixed tags together are passed with every meter update.
-			Tags fixedTags = this.toTags(properties.getTag().getFixed());
-
 			Double amount = properties.getComputedAmountExpression().getValue(message, Double.class);
 
-			Map<String, List<Tag>> allGroupedTags = new HashMap<>();
-			// Tag Expressions
-			if (properties.getTag().getExpression() != null) {
-
-				Map<String, List<Tag>> groupedTags = properties.getTag()
-					.getExpression()
-					.entrySet()
-					.stream()
-					// maps a <name, expr> pair into [<name, expr#val_1>, ... <name,
-					// expr#val_N>] Tag array.
-					.map((namedExpression) -> toList(namedExpression.getValue().getValue(message)).stream()
-						.map((tagValue) -> Tag.of(namedExpression.getKey(), tagValue))
-						.collect(Collectors.toList()))
-					.flatMap(List::stream)
-					.collect(Collectors.groupingBy(Tag::getKey, Collectors.toList()));
-				allGroupedTags.putAll(groupedTags);
+			if (tagValueExpressions.length == 0) {
+				meters.meter(meterName).accept(amount);
+				return;
 			}
 
-			recordMetrics(meterRegistry, meterName, fixedTags, allGroupedTags, amount, properties.getMeterType());
+			// A single tag expression can produce several values; every i-th value of all
+			// the expressions makes a separate meter update.
+			List<List<String>> tagValues = new ArrayList<>(tagValueExpressions.length);
+			int max = 0;
+			for (Expression tagValueExpression : tagValueExpressions) {
+				List<String> values = toList(tagValueExpression.getValue(message));
+				tagValues.add(values);
+				max = Math.max(max, values.size());
+			}
+			for (int i = 0; i < max; i++) {
+				String[] currentTagValues = new String[tagValues.size()];
+				for (int j = 0; j < currentTagValues.length; j++) {
+					List<String> values = tagValues.get(j);
+					currentTagValues[j] = (values.size() > i) ? values.get(i) : "";
+				}
+				meters.meter(meterName, currentTagValues).accept(amount);
+			}
 		};
 	}
 
@@ -138,57 +148,4 @@ public class AnalyticsConsumerConfiguration {
 		}
 	}
 
-	private void recordMetrics(MeterRegistry meterRegistry, String meterName, Tags fixedTags,
-			Map<String, List<Tag>> groupedTags, Double amount, AnalyticsConsumerProperties.MeterType meterType) {
-
-		if (!CollectionUtils.isEmpty(groupedTags)) {
-			groupedTags.values().stream().map(List::size).max(Integer::compareTo).ifPresent((max) -> {
-				for (int i = 0; i < max; i++) {
-					Tags currentTags = Tags.of(fixedTags);
-					for (Map.Entry<String, List<Tag>> e : groupedTags.entrySet()) {
-						currentTags = (e.getValue().size() > i) ? currentTags.and(e.getValue().get(i))
-								: currentTags.and(Tags.of(e.getKey(), ""));
-					}
-
-					// Update the meterName for every configured MaterRegistry.
-					record(meterRegistry, meterName, currentTags, amount, meterType);
-				}
-			});
-		}
-		else {
-			// Update the meterName for every configured MaterRegistry.
-			record(meterRegistry, meterName, fixedTags, amount, meterType);
-		}
-	}
-
-	private void record(MeterRegistry meterRegistry, String meterName, Iterable<Tag> tags, double meterAmount,
-			AnalyticsConsumerProperties.MeterType meterType) {
-
-		if (meterType == AnalyticsConsumerProperties.MeterType.gauge) {
-			Meter.Id gaugeId = new Meter.Id(meterName, Tags.of(tags), null, null, Meter.Type.GAUGE);
-			if (!this.gaugeValues.containsKey(gaugeId)) {
-				this.gaugeValues.put(gaugeId, new AtomicLong((long) meterAmount));
-			}
-			else {
-				this.gaugeValues.get(gaugeId).set((long) meterAmount);
-			}
-			if (!isMeterRegistryContainsGauge(meterRegistry, gaugeId)) {
-				meterRegistry.gauge(meterName, tags, this.gaugeValues.get(gaugeId), AtomicLong::doubleValue);
-			}
-		}
-		else if (meterType == AnalyticsConsumerProperties.MeterType.counter) {
-			meterRegistry.counter(meterName, tags).increment(meterAmount);
-		}
-		else {
-			throw new RuntimeException("Unknown meter type: " + meterType);
-		}
-	}
-
-	private static boolean isMeterRegistryContainsGauge(MeterRegistry meterRegistry, Meter.Id gaugeId) {
-		return meterRegistry.find(gaugeId.getName())
-			.gauges()
-			.stream()
-			.anyMatch((gauge) -> gauge.getId().equals(gaugeId));
-	}
-
 }
@@ -16,6 +16,9 @@
 
 package org.springframework.cloud.fn.consumer.analytics;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import jakarta.validation.constraints.AssertTrue;
@@ -50,7 +53,18 @@ public class AnalyticsConsumerProperties {
 		 * reported to a metrics backend. TIP: Never gauge something you can count with a
 		 * Counter!
 		 */
-		gauge
+		gauge,
+		/**
+		 * Uses the Micrometer Timer meter type. The amount is the duration of an event in
+		 * milliseconds. The timer reports the count, total time and maximum of the events,
+		 * and the latency percentiles from the histogram buckets.
+		 */
+		timer,
+		/**
+		 * Uses the Micrometer DistributionSummary meter type. Like the timer, but for
+		 * amounts which are not durations, e.g. payload sizes.
+		 */
+		distribution_summary
 
 	}
 
@@ -84,6 +98,34 @@ public class AnalyticsConsumerProperties {
 	 */
 	private Expression amountExpression;
 
+	/**
+	 * The maximum number of distinct tag value combinations (series) per metrics name.
+	 * The values of the computed tags beyond this limit are replaced with 'OVERFLOW', so a
+	 * high-cardinality tag expression cannot exhaust the meter registry. Non-positive
+	 * value disables the limit.
+	 */
+	private int cardinalityLimit = 10_000;
+
+	/**
+	 * The window to pre-aggregate the counter amounts in memory before incrementing the
+	 * registry counters once per window. Not set by default, meaning every message
+	 * updates the registry.
+	 */
+	private Duration aggregationWindow;
+
+	/**
+	 * The histogram bucket boundaries (service level objectives) for the 'timer' and the
+	 * 'distribution_summary' meter types; in milliseconds for the timer.
+	 */
+	private List<Double> histogramBuckets = new ArrayList<>();
+
+	/**
+	 * Whether the 'timer' and the 'distribution_summary' meter types publish the
+	 * Micrometer default percentile histogram buckets, for the monitoring system to
+	 * compute the percentiles across the instances.
+	 */
+	private boolean percentileHistogram;
+
 	/**
 	 * Fixed and computed tags to be assignee with the output metric.
 	 */
@@ -101,6 +143,38 @@ public class AnalyticsConsumerProperties {
 		this.meterType = meterType;
 	}
 
+	public int getCardinalityLimit() {
+		return this.cardinalityLimit;
+	}
+
+	public void setCardinalityLimit(int cardinalityLimit) {
+		this.cardinalityLimit = cardinalityLimit;
+	}
+
+	public Duration getAggregationWindow() {
+		return this.aggregationWindow;
+	}
+
+	public void setAggregationWindow(Duration aggregationWindow) {
+		this.aggregationWindow = aggregationWindow;
+	}
+
+	public List<Double> getHistogramBuckets() {
+		return this.histogramBuckets;
+	}
+
+	public void setHistogramBuckets(List<Double> histogramBuckets) {
+		this.histogramBuckets = histogramBuckets;
+	}
+
+	public boolean isPercentileHistogram() {
+		return this.percentileHistogram;
+	}
+
+	public void setPercentileHistogram(boolean percentileHistogram) {
+		this.percentileHistogram = percentileHistogram;
+	}
+
 	public String getName() {
 		if (this.name == null && this.nameExpression == null) {
 			return this.defaultName;
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.analytics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.DoubleConsumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * The cache of the meter handles keyed by the meter name and the tag values resolved for
+ * a message, so the registry is consulted only once per series. The number of series per
+ * meter name is limited: the messages with the tag values beyond the limit are recorded
+ * into the single overflow series, with all the computed tags set to
+ * {@link #OVERFLOW_TAG}.
+ * <p>
+ * With an aggregation window, the counter amounts are accumulated per series in striped
+ * adders and the counters are incremented once per window, off the message path. Gauges
+ * only keep the latest value anyway, and the timers and distribution summaries need
+ * every sample for their histograms, so those are updated directly.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+final class MeterHandleCache implements DisposableBean {
+
+	/**
+	 * The value of the computed tags in the series beyond the cardinality limit.
+	 */
+	static final String OVERFLOW_TAG = "OVERFLOW";
+
+	private static final double NANOS_PER_MILLI = 1_000_000;
+
+	private static final Log LOGGER = LogFactory.getLog(MeterHandleCache.class);
+
+	private final MeterRegistry meterRegistry;
+
+	private final AnalyticsConsumerProperties.MeterType meterType;
+
+	private final Tags fixedTags;
+
+	private final List<String> tagKeys;
+
+	private final int cardinalityLimit;
+
+	private final Map<SeriesKey, DoubleConsumer> meters = new ConcurrentHashMap<>();
+
+	private final Map<String, Integer> seriesCounts = new HashMap<>();
+
+	private final Map<String, DoubleConsumer> overflowMeters = new ConcurrentHashMap<>();
+
+	private final Duration aggregationWindow;
+
+	private final List<Double> histogramBuckets;
+
+	private final boolean percentileHistogram;
+
+	private final List<PendingCount> pendingCounts = new CopyOnWriteArrayList<>();
+
+	private final ScheduledExecutorService flushScheduler;
+
+	MeterHandleCache(MeterRegistry meterRegistry, AnalyticsConsumerProperties.MeterType meterType, Tags fixedTags,
+			List<String> tagKeys, int cardinalityLimit, @Nullable Duration aggregationWindow,
+			List<Double> histogramBuckets, boolean percentileHistogram) {
+
+		this.meterRegistry = meterRegistry;
+		this.meterType = meterType;
+		this.fixedTags = fixedTags;
+		this.tagKeys = tagKeys;
+		this.cardinalityLimit = cardinalityLimit;
+		this.aggregationWindow = aggregationWindow;
+		this.histogramBuckets = histogramBuckets;
+		this.percentileHistogram = percentileHistogram;
+		if (aggregationWindow != null && meterType == AnalyticsConsumerProperties.MeterType.counter) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("analytics-consumer-flush-");
+			threadFactory.setDaemon(true);
+			this.flushScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+			long period = aggregationWindow.toMillis();
+			this.flushScheduler.scheduleAtFixedRate(this::flush, period, period, TimeUnit.MILLISECONDS);
+		}
+		else {
+			this.flushScheduler = null;
+		}
+	}
+
+	List<String> getTagKeys() {
+		return this.tagKeys;
+	}
+
+	/**
+	 * Return the handle to record an amount into the meter.
+	 * @param meterName the meter name.
+	 * @param tagValues the computed tag values in the order of the tag keys.
+	 * @return the meter handle.
+	 */
+	DoubleConsumer meter(String meterName, String... tagValues) {
+		SeriesKey key = new SeriesKey(meterName, Arrays.asList(tagValues));
+		DoubleConsumer meter = this.meters.get(key);
+		if (meter == null) {
+			// Past the limit, any new tag values go to the overflow series without locking
+			meter = this.overflowMeters.get(meterName);
+			if (meter == null) {
+				meter = register(key);
+			}
+		}
+		return meter;
+	}
+
+	private synchronized DoubleConsumer register(SeriesKey key) {
+		DoubleConsumer meter = this.meters.get(key);
+		if (meter != null) {
+			return meter;
+		}
+		int seriesCount = this.seriesCounts.getOrDefault(key.name(), 0);
+		if (this.cardinalityLimit > 0 && seriesCount >= this.cardinalityLimit) {
+			SeriesKey overflowKey = new SeriesKey(key.name(),
+					Collections.nCopies(this.tagKeys.size(), OVERFLOW_TAG));
+			meter = this.meters.get(overflowKey);
+			if (meter == null) {
+				LOGGER.warn("The meter '" + key.name() + "' reached " + this.cardinalityLimit
+						+ " series; the further tag values are recorded as '" + OVERFLOW_TAG + "'");
+				meter = createMeter(overflowKey);
+				this.meters.put(overflowKey, meter);
+				this.overflowMeters.put(key.name(), meter);
+			}
+			return meter;
+		}
+		meter = createMeter(key);
+		this.meters.put(key, meter);
+		this.seriesCounts.put(key.name(), seriesCount + 1);
+		return meter;
+	}
+
+	private DoubleConsumer createMeter(SeriesKey key) {
+		Tags tags = this.fixedTags;
+		for (int i = 0; i < this.tagKeys.size(); i++) {
+			tags = tags.and(this.tagKeys.get(i), key.tagValues().get(i));
+		}
+		return switch (this.meterType) {
+			case counter -> {
+				Counter counter = this.meterRegistry.counter(key.name(), tags);
+				if (this.aggregationWindow == null) {
+					yield counter::increment;
+				}
+				PendingCount pendingCount = new PendingCount(counter, new DoubleAdder());
+				this.pendingCounts.add(pendingCount);
+				yield pendingCount.amount()::add;
+			}
+			case gauge -> {
+				AtomicLong value = new AtomicLong();
+				Gauge.builder(key.name(), value, AtomicLong::doubleValue)
+					.tags(tags)
+					.strongReference(true)
+					.register(this.meterRegistry);
+				yield (amount) -> value.set((long) amount);
+			}
+			case timer -> {
+				Timer timer = Timer.builder(key.name())
+					.tags(tags)
+					.serviceLevelObjectives(this.histogramBuckets.stream()
+						.map((bucket) -> Duration.ofNanos((long) (bucket * NANOS_PER_MILLI)))
+						.toArray(Duration[]::new))
+					.publishPercentileHistogram(this.percentileHistogram)
+					.register(this.meterRegistry);
+				yield (amount) -> timer.record((long) (amount * NANOS_PER_MILLI), TimeUnit.NANOSECONDS);
+			}
+			case distribution_summary -> DistributionSummary.builder(key.name())
+				.tags(tags)
+				.serviceLevelObjectives(this.histogramBuckets.stream().mapToDouble(Double::doubleValue).toArray())
+				.publishPercentileHistogram(this.percentileHistogram)
+				.register(this.meterRegistry)::record;
+		};
+	}
+
+	/**
+	 * Increment the counters with the amounts accumulated since the previous flush.
+	 */
+	void flush() {
+		for (PendingCount pendingCount : this.pendingCounts) {
+			double amount = pendingCount.amount().sumThenReset();
+			if (amount != 0) {
+				pendingCount.counter().increment(amount);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.flushScheduler != null) {
+			this.flushScheduler.shutdownNow();
+		}
+		flush();
+	}
+
+	private record PendingCount(Counter counter, DoubleAdder amount) {
+
+	}
+
+	private record SeriesKey(String name, List<String> tagValues) {
+
+	}
+
+}
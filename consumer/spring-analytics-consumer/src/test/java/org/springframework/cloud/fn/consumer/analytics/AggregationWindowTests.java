@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.analytics;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import io.micrometer.core.instrument.Counter;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * @author Spring Cloud Team
+ */
+@TestPropertySource(properties = { "analytics.name=windowed", "analytics.tag.expression.foo='bar'",
+		"analytics.amount-expression=payload.length()", "analytics.aggregation-window=100ms" })
+public class AggregationWindowTests extends AnalyticsConsumerParentTests {
+
+	@Test
+	void testCountersAreFlushedPerWindow() {
+		IntStream.range(0, 13).forEach((i) -> analyticsConsumer.accept(new GenericMessage<>("hello")));
+
+		Counter counter = meterRegistry.find("windowed").tag("foo", "bar").counter();
+		assertThat(counter).isNotNull();
+		await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> assertThat(counter.count()).isEqualTo(65.0));
+	}
+
+}
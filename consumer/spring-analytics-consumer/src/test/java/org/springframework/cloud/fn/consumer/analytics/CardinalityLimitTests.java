@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+@TestPropertySource(properties = { "analytics.name=counter777", "analytics.tag.expression.word=payload",
+		"analytics.tag.fixed.foo=bar", "analytics.cardinality-limit=2" })
+public class CardinalityLimitTests extends AnalyticsConsumerParentTests {
+
+	@Test
+	void testOverflowSeries() {
+		for (String word : new String[] { "one", "two", "one", "three", "four", "two" }) {
+			analyticsConsumer.accept(new GenericMessage<>(word));
+		}
+
+		assertThat(meterRegistry.find("counter777").counters()).hasSize(3);
+		assertThat(meterRegistry.find("counter777").tag("word", "one").counter().count()).isEqualTo(2.0);
+		assertThat(meterRegistry.find("counter777").tag("word", "two").counter().count()).isEqualTo(2.0);
+		assertThat(meterRegistry.find("counter777")
+			.tag("word", MeterHandleCache.OVERFLOW_TAG)
+			.tag("foo", "bar")
+			.counter()
+			.count()).isEqualTo(2.0);
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.analytics;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+@TestPropertySource(properties = { "analytics.meter-type=timer", "analytics.name=latency",
+		"analytics.amount-expression=payload", "analytics.histogram-buckets=10,100",
+		"analytics.tag.expression.foo='bar'" })
+public class TimerWithBucketsTests extends AnalyticsConsumerParentTests {
+
+	@Test
+	void testTimerSink() {
+		for (double latency : new double[] { 5, 50, 80, 500 }) {
+			analyticsConsumer.accept(new GenericMessage<>(latency));
+		}
+
+		Timer timer = meterRegistry.find("latency").tag("foo", "bar").timer();
+		assertThat(timer.count()).isEqualTo(4);
+		assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(635.0);
+		assertThat(timer.max(TimeUnit.MILLISECONDS)).isEqualTo(500.0);
+		assertThat(timer.takeSnapshot().histogramCounts()).extracting(CountAtBucket::count)
+			.containsExactly(1.0, 3.0);
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.cassandra;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+
+import org.springframework.integration.support.json.Jackson2JsonObjectMapper;
+
+/**
+ * The payload to rows conversion as it was before the {@link SchemaAwareRowMapper}: the
+ * JSON is bound into maps and every string value is checked for a date and a UUID, with
+ * the date parsing serialized on a shared format. Kept only as a baseline for the
+ * {@link RowMapperBenchmark}.
+ *
+ * @author Artem Bilan
+ * @author Thomas Risberg
+ * @author Spring Cloud Team
+ */
+class LegacyRowMapper {
+
+	private final Jackson2JsonObjectMapper jsonObjectMapper;
+
+	private final List<String> columns = new LinkedList<>();
+
+	private final ISO8601StdDateFormat dateFormat = new ISO8601StdDateFormat();
+
+	LegacyRowMapper(ObjectMapper objectMapper, List<String> columns) {
+		this.jsonObjectMapper = new Jackson2JsonObjectMapper(objectMapper);
+		this.columns.addAll(columns);
+		this.jsonObjectMapper.getObjectMapper().configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+	}
+
+	@SuppressWarnings("unchecked")
+	List<List<Object>> map(Object payload) throws Exception {
+		List<Map<String, Object>> model = this.jsonObjectMapper.fromJson(payload, List.class);
+		List<List<Object>> data = new ArrayList<>(model.size());
+		for (Map<String, Object> entity : model) {
+			List<Object> row = new ArrayList<>(this.columns.size());
+			for (String column : this.columns) {
+				Object value = entity.get(column);
+				if (value instanceof String string) {
+					if (this.dateFormat.looksLikeISO8601(string)) {
+						synchronized (this.dateFormat) {
+							value = new Date(this.dateFormat.parse(string).getTime()).toLocalDate();
+						}
+					}
+					if (isUuid(string)) {
+						value = UUID.fromString(string);
+					}
+				}
+				row.add(value);
+			}
+			data.add(row);
+		}
+		return data;
+	}
+
+	private static boolean isUuid(String uuid) {
+		if (uuid.length() == 36) {
+			String[] parts = uuid.split("-");
+			if (parts.length == 5) {
+				return (parts[0].length() == 8) && (parts[1].length() == 4) && (parts[2].length() == 4)
+						&& (parts[3].length() == 4) && (parts[4].length() == 12);
+			}
+		}
+		return false;
+	}
+
+	@SuppressWarnings("serial")
+	private static class ISO8601StdDateFormat extends StdDateFormat {
+
+		@Override
+		protected boolean looksLikeISO8601(String dateStr) {
+			return super.looksLikeISO8601(dateStr);
+		}
+
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.cassandra;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link LegacyRowMapper} with the {@link SchemaAwareRowMapper} on a JSON
+ * array of rows with UUID, text, int, date and boolean columns. Both mappers are shared
+ * by all the benchmark threads, as the transformer is shared by the ingest threads.
+ * <p>
+ * Run with {@code ./gradlew :spring-cassandra-consumer:jmh}.
+ *
+ * @author Spring Cloud Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RowMapperBenchmark {
+
+	private static final List<String> COLUMNS = List.of("isbn", "title", "author", "pages", "saleDate", "inStock");
+
+	@Param({ "legacy", "schema" })
+	public String mapper;
+
+	@Param({ "1", "100" })
+	public int rows;
+
+	private LegacyRowMapper legacyRowMapper;
+
+	private SchemaAwareRowMapper schemaAwareRowMapper;
+
+	private String payload;
+
+	@Setup
+	public void setup() throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper();
+		this.legacyRowMapper = new LegacyRowMapper(objectMapper, COLUMNS);
+		this.schemaAwareRowMapper = new SchemaAwareRowMapper(objectMapper, COLUMNS, () -> List.of(DataTypes.UUID,
+				DataTypes.TEXT, DataTypes.TEXT, DataTypes.INT, DataTypes.DATE, DataTypes.BOOLEAN));
+
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < this.rows; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"isbn\":\"")
+				.append(UUID.randomUUID())
+				.append("\",\"title\":\"Spring Cloud Data Flow Guide\",\"author\":\"SCDF Guru\",\"pages\":")
+				.append(i * 10 + 5)
+				.append(",\"saleDate\":\"")
+				.append(LocalDate.now().minusDays(i))
+				.append("\",\"inStock\":true}");
+		}
+		this.payload = json.append(']').toString();
+	}
+
+	@Benchmark
+	public List<List<Object>> map() throws Exception {
+		return "legacy".equals(this.mapper) ? this.legacyRowMapper.map(this.payload)
+				: this.schemaAwareRowMapper.map(this.payload);
+	}
+
+}
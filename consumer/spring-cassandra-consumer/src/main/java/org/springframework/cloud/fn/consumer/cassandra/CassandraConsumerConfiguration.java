@@ -16,22 +16,22 @@
 
 package org.springframework.cloud.fn.consumer.cassandra;
 
-import java.sql.Date;
-import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.StreamSupport;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
-import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
+import com.datastax.oss.driver.api.core.type.DataType;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.util.StdDateFormat;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
@@ -50,8 +50,9 @@ import org.springframework.integration.JavaUtils;
 import org.springframework.integration.cassandra.outbound.CassandraMessageHandler;
 import org.springframework.integration.dsl.IntegrationFlow;
 import org.springframework.integration.gateway.AnnotationGatewayProxyFactoryBean;
-import org.springframework.integration.support.json.Jackson2JsonObjectMapper;
 import org.springframework.integration.transformer.AbstractPayloadTransformer;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.util.StringUtils;
 
@@ -77,14 +78,17 @@ public class CassandraConsumerConfiguration {
 
 	@Bean
 	public IntegrationFlow cassandraConsumerFlow(
-			@Qualifier("cassandraMessageHandler") MessageHandler cassandraMessageHandler, ObjectMapper objectMapper) {
+			@Qualifier("cassandraMessageHandler") MessageHandler cassandraMessageHandler, ObjectMapper objectMapper,
+			ObjectProvider<CqlSession> cqlSession) {
 
 		return (flow) -> {
 			String ingestQuery = this.cassandraSinkProperties.getIngestQuery();
 			if (StringUtils.hasText(ingestQuery)) {
-				flow.transform(new PayloadToMatrixTransformer(objectMapper, ingestQuery,
-						(CassandraMessageHandler.Type.UPDATE == this.cassandraSinkProperties.getQueryType())
-								? new UpdateQueryColumnNameExtractor() : new InsertQueryColumnNameExtractor()));
+				boolean update = CassandraMessageHandler.Type.UPDATE == this.cassandraSinkProperties.getQueryType();
+				ColumnNameExtractor columnNameExtractor = update ? new UpdateQueryColumnNameExtractor()
+						: new InsertQueryColumnNameExtractor();
+				flow.transform(new PayloadToMatrixTransformer(
+						rowMapper(objectMapper, cqlSession, ingestQuery, columnNameExtractor)));
 			}
 			flow.handle(cassandraMessageHandler);
 		};
@@ -97,21 +101,7 @@ public class CassandraConsumerConfiguration {
 
 		CassandraMessageHandler cassandraMessageHandler = new CassandraMessageHandler(cassandraOperations, queryType);
 		cassandraMessageHandler.setProducesReply(true);
-		int ttl = this.cassandraSinkProperties.getTtl();
-		ConsistencyLevel consistencyLevel = this.cassandraSinkProperties.getConsistencyLevel();
-		if (consistencyLevel != null || ttl > 0) {
-
-			WriteOptions.WriteOptionsBuilder writeOptionsBuilder = switch (queryType) {
-				case INSERT -> InsertOptions.builder();
-				case UPDATE -> UpdateOptions.builder();
-				default -> WriteOptions.builder();
-			};
-
-			JavaUtils.INSTANCE.acceptIfNotNull(consistencyLevel, writeOptionsBuilder::consistencyLevel)
-				.acceptIfCondition(ttl > 0, ttl, writeOptionsBuilder::ttl);
-
-			cassandraMessageHandler.setWriteOptions(writeOptionsBuilder.build());
-		}
+		JavaUtils.INSTANCE.acceptIfNotNull(writeOptions(queryType), cassandraMessageHandler::setWriteOptions);
 
 		JavaUtils.INSTANCE
 			.acceptIfHasText(this.cassandraSinkProperties.getIngestQuery(), cassandraMessageHandler::setIngestQuery)
@@ -128,30 +118,78 @@ public class CassandraConsumerConfiguration {
 		return gatewayProxyFactoryBean;
 	}
 
-	private static boolean isUuid(String uuid) {
-		if (uuid.length() == 36) {
-			String[] parts = uuid.split("-");
-			if (parts.length == 5) {
-				return (parts[0].length() == 8) && (parts[1].length() == 4) && (parts[2].length() == 4)
-						&& (parts[3].length() == 4) && (parts[4].length() == 12);
-			}
+	/**
+	 * The non-blocking variant of the {@code cassandraConsumer}: messages are written with
+	 * at most {@code cassandra.consumer.max-in-flight-writes} writes in flight. With the
+	 * ingest query and a positive {@code cassandra.consumer.partition-batch-size}, the
+	 * rows of the incoming payloads are grouped into single-partition UNLOGGED batches.
+	 * @param cassandraConsumerFunction the gateway to the {@code cassandraConsumerFlow}.
+	 * @param cassandraOperations the operations to write partition batches with.
+	 * @param objectMapper the mapper to parse JSON payloads with.
+	 * @param cqlSession the session to resolve the ingest query bind markers with.
+	 * @return the reactive consumer function.
+	 */
+	@Bean
+	public Function<Flux<Message<?>>, Mono<Void>> cassandraReactiveConsumer(
+			CassandraConsumerFunction cassandraConsumerFunction, ReactiveCassandraOperations cassandraOperations,
+			ObjectMapper objectMapper, ObjectProvider<CqlSession> cqlSession) {
+
+		int maxInFlightWrites = this.cassandraSinkProperties.getMaxInFlightWrites();
+		String ingestQuery = this.cassandraSinkProperties.getIngestQuery();
+		if (StringUtils.hasText(ingestQuery) && this.cassandraSinkProperties.getPartitionBatchSize() > 0) {
+			CassandraMessageHandler.Type queryType = Optional.ofNullable(this.cassandraSinkProperties.getQueryType())
+				.orElse(CassandraMessageHandler.Type.INSERT);
+			ColumnNameExtractor columnNameExtractor = (CassandraMessageHandler.Type.UPDATE == queryType)
+					? new UpdateQueryColumnNameExtractor() : new InsertQueryColumnNameExtractor();
+			PayloadToMatrixTransformer transformer = new PayloadToMatrixTransformer(
+					rowMapper(objectMapper, cqlSession, ingestQuery, columnNameExtractor));
+			PartitionBatchWriter partitionBatchWriter = new PartitionBatchWriter(
+					cassandraOperations.getReactiveCqlOperations(), ingestQuery, writeOptions(queryType),
+					this.cassandraSinkProperties.getPartitionBatchSize(),
+					this.cassandraSinkProperties.getPartitionBatchTimeout(), maxInFlightWrites);
+			return (messages) -> partitionBatchWriter
+				.write(messages.concatMapIterable((message) -> transformer.transformPayload(message.getPayload())));
 		}
-		return false;
+		return (messages) -> messages.flatMap(cassandraConsumerFunction::apply, maxInFlightWrites).then();
 	}
 
-	private static class PayloadToMatrixTransformer extends AbstractPayloadTransformer<Object, List<List<Object>>> {
+	@Nullable
+	private WriteOptions writeOptions(CassandraMessageHandler.Type queryType) {
+		int ttl = this.cassandraSinkProperties.getTtl();
+		ConsistencyLevel consistencyLevel = this.cassandraSinkProperties.getConsistencyLevel();
+		if (consistencyLevel != null || ttl > 0) {
 
-		private final Jackson2JsonObjectMapper jsonObjectMapper;
+			WriteOptions.WriteOptionsBuilder writeOptionsBuilder = switch (queryType) {
+				case INSERT -> InsertOptions.builder();
+				case UPDATE -> UpdateOptions.builder();
+				default -> WriteOptions.builder();
+			};
 
-		private final List<String> columns = new LinkedList<>();
+			JavaUtils.INSTANCE.acceptIfNotNull(consistencyLevel, writeOptionsBuilder::consistencyLevel)
+				.acceptIfCondition(ttl > 0, ttl, writeOptionsBuilder::ttl);
 
-		private final ISO8601StdDateFormat dateFormat = new ISO8601StdDateFormat();
+			return writeOptionsBuilder.build();
+		}
+		return null;
+	}
+
+	private static SchemaAwareRowMapper rowMapper(ObjectMapper objectMapper, ObjectProvider<CqlSession> cqlSession,
+			String ingestQuery, ColumnNameExtractor columnNameExtractor) {
+
+		// The bind marker types are taken from the prepared statement when the first payload arrives
+		Supplier<List<DataType>> columnTypes = () -> StreamSupport
+			.stream(cqlSession.getObject().prepare(ingestQuery).getVariableDefinitions().spliterator(), false)
+			.map(ColumnDefinition::getType)
+			.toList();
+		return new SchemaAwareRowMapper(objectMapper, columnNameExtractor.extract(ingestQuery), columnTypes);
+	}
 
-		PayloadToMatrixTransformer(ObjectMapper objectMapper, String query, ColumnNameExtractor columnNameExtractor) {
-			this.jsonObjectMapper = new Jackson2JsonObjectMapper(objectMapper);
-			this.columns.addAll(columnNameExtractor.extract(query));
-			this.jsonObjectMapper.getObjectMapper()
-				.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+	private static class PayloadToMatrixTransformer extends AbstractPayloadTransformer<Object, List<List<Object>>> {
+
+		private final SchemaAwareRowMapper rowMapper;
+
+		PayloadToMatrixTransformer(SchemaAwareRowMapper rowMapper) {
+			this.rowMapper = rowMapper;
 		}
 
 		@Override
@@ -162,27 +200,7 @@ public class CassandraConsumerConfiguration {
 			}
 			else {
 				try {
-					List<Map<String, Object>> model = this.jsonObjectMapper.fromJson(payload, List.class);
-					List<List<Object>> data = new ArrayList<>(model.size());
-					for (Map<String, Object> entity : model) {
-						List<Object> row = new ArrayList<>(this.columns.size());
-						for (String column : this.columns) {
-							Object value = entity.get(column);
-							if (value instanceof String string) {
-								if (this.dateFormat.looksLikeISO8601(string)) {
-									synchronized (this.dateFormat) {
-										value = new Date(this.dateFormat.parse(string).getTime()).toLocalDate();
-									}
-								}
-								if (isUuid(string)) {
-									value = UUID.fromString(string);
-								}
-							}
-							row.add(value);
-						}
-						data.add(row);
-					}
-					return data;
+					return this.rowMapper.map(payload);
 				}
 				catch (Exception ex) {
 					throw new IllegalArgumentException("Cannot parse json into matrix", ex);
@@ -192,19 +210,6 @@ public class CassandraConsumerConfiguration {
 
 	}
 
-	/*
-	 * We need this to provide visibility to the protected method.
-	 */
-	@SuppressWarnings("serial")
-	private static class ISO8601StdDateFormat extends StdDateFormat {
-
-		@Override
-		protected boolean looksLikeISO8601(String dateStr) {
-			return super.looksLikeISO8601(dateStr);
-		}
-
-	}
-
 	interface CassandraConsumerFunction extends Function<Object, Mono<? extends WriteResult>> {
 
 	}
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.fn.consumer.cassandra;
 
+import java.time.Duration;
+
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -56,6 +58,22 @@ public class CassandraConsumerProperties {
 	 */
 	private ConsistencyLevel consistencyLevel;
 
+	/**
+	 * The maximum number of writes in flight for the reactive consumer.
+	 */
+	private int maxInFlightWrites = 16;
+
+	/**
+	 * The maximum number of ingest query rows the reactive consumer groups by partition
+	 * key into UNLOGGED batches. Non-positive value disables the batching.
+	 */
+	private int partitionBatchSize;
+
+	/**
+	 * How long the reactive consumer waits for rows to fill a partition batching window.
+	 */
+	private Duration partitionBatchTimeout = Duration.ofMillis(100);
+
 	public int getTtl() {
 		return this.ttl;
 	}
@@ -96,4 +114,28 @@ public class CassandraConsumerProperties {
 		this.consistencyLevel = consistencyLevel;
 	}
 
+	public int getMaxInFlightWrites() {
+		return this.maxInFlightWrites;
+	}
+
+	public void setMaxInFlightWrites(int maxInFlightWrites) {
+		this.maxInFlightWrites = maxInFlightWrites;
+	}
+
+	public int getPartitionBatchSize() {
+		return this.partitionBatchSize;
+	}
+
+	public void setPartitionBatchSize(int partitionBatchSize) {
+		this.partitionBatchSize = partitionBatchSize;
+	}
+
+	public Duration getPartitionBatchTimeout() {
+		return this.partitionBatchTimeout;
+	}
+
+	public void setPartitionBatchTimeout(Duration partitionBatchTimeout) {
+		this.partitionBatchTimeout = partitionBatchTimeout;
+	}
+
 }
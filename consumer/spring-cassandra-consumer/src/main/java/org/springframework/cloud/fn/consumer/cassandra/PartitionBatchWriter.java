@@ -0,0 +1,114 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.cassandra;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.data.cassandra.core.cql.QueryOptionsUtil;
+import org.springframework.data.cassandra.core.cql.ReactiveCqlOperations;
+import org.springframework.data.cassandra.core.cql.ReactiveSessionCallback;
+import org.springframework.data.cassandra.core.cql.WriteOptions;
+import org.springframework.lang.Nullable;
+
+/**
+ * Writes the rows of the ingest query with a bounded number of statements in flight.
+ * The rows arriving within the batch timeout are grouped by their partition key, so
+ * each group is sent as an {@code UNLOGGED} batch touching a single partition, and
+ * therefore a single replica set; a row alone in its partition is sent as a plain bound
+ * statement.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+final class PartitionBatchWriter {
+
+	private final ReactiveCqlOperations cqlOperations;
+
+	private final Mono<PreparedStatement> preparedStatement;
+
+	private final WriteOptions writeOptions;
+
+	private final int batchSize;
+
+	private final Duration batchTimeout;
+
+	private final int maxInFlightWrites;
+
+	PartitionBatchWriter(ReactiveCqlOperations cqlOperations, String ingestQuery, @Nullable WriteOptions writeOptions,
+			int batchSize, Duration batchTimeout, int maxInFlightWrites) {
+
+		this.cqlOperations = cqlOperations;
+		this.preparedStatement = cqlOperations
+			.execute((ReactiveSessionCallback<PreparedStatement>) (session) -> session.prepare(ingestQuery))
+			.single()
+			.cache((statement) -> Duration.ofMillis(Long.MAX_VALUE), (ex) -> Duration.ZERO, () -> Duration.ZERO);
+		this.writeOptions = writeOptions;
+		this.batchSize = batchSize;
+		this.batchTimeout = batchTimeout;
+		this.maxInFlightWrites = maxInFlightWrites;
+	}
+
+	/**
+	 * Write the rows of bind values.
+	 * @param rows the rows in the order of the ingest query bind markers.
+	 * @return the {@link Mono} completed when all the rows are written.
+	 */
+	Mono<Void> write(Flux<List<Object>> rows) {
+		return this.preparedStatement.flatMap((statement) -> rows.map((row) -> statement.bind(row.toArray()))
+			.bufferTimeout(this.batchSize, this.batchTimeout)
+			.flatMapIterable(PartitionBatchWriter::groupByPartition)
+			.flatMap(this::execute, this.maxInFlightWrites)
+			.then());
+	}
+
+	private Mono<Boolean> execute(List<BoundStatement> statements) {
+		Statement<?> statement = (statements.size() == 1) ? statements.get(0)
+				: BatchStatement.newInstance(DefaultBatchType.UNLOGGED,
+						statements.toArray(new BatchableStatement<?>[0]));
+		if (this.writeOptions != null) {
+			statement = QueryOptionsUtil.addQueryOptions(statement, this.writeOptions);
+		}
+		return this.cqlOperations.execute(statement);
+	}
+
+	private static Collection<List<BoundStatement>> groupByPartition(List<BoundStatement> statements) {
+		Map<Object, List<BoundStatement>> partitions = new LinkedHashMap<>();
+		for (BoundStatement statement : statements) {
+			ByteBuffer routingKey = statement.getRoutingKey();
+			// Without a routing key the partition is unknown: the statement goes alone
+			Object partition = (routingKey != null) ? routingKey : statement;
+			partitions.computeIfAbsent(partition, (key) -> new ArrayList<>()).add(statement);
+		}
+		return partitions.values();
+	}
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.cassandra;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import com.datastax.oss.driver.api.core.data.CqlDuration;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.protocol.internal.ProtocolConstants;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * Maps JSON payloads into the rows of bind values for the ingest query. The value
+ * converter for each bind marker is selected once from the CQL type of the bound column,
+ * and the JSON is read with a streaming parser straight into the row; fields which are
+ * not bound in the query are skipped without being materialized.
+ * <p>
+ * The instance is stateless after the column types are resolved, so it can be shared by
+ * any number of ingest threads.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+final class SchemaAwareRowMapper {
+
+	private final ObjectMapper objectMapper;
+
+	private final int columnCount;
+
+	private final Map<String, int[]> columnIndexes = new HashMap<>();
+
+	private final Supplier<ValueReader[]> valueReaders;
+
+	/**
+	 * Create an instance for the query columns.
+	 * @param objectMapper the mapper to create JSON parsers with.
+	 * @param columns the JSON field names in the order of the query bind markers.
+	 * @param columnTypes the CQL types of the query bind markers, resolved on the first
+	 * use.
+	 */
+	SchemaAwareRowMapper(ObjectMapper objectMapper, List<String> columns, Supplier<List<DataType>> columnTypes) {
+		this.objectMapper = objectMapper;
+		this.columnCount = columns.size();
+		for (int i = 0; i < columns.size(); i++) {
+			int index = i;
+			this.columnIndexes.merge(columns.get(i), new int[] { index }, (existing, added) -> {
+				int[] indexes = Arrays.copyOf(existing, existing.length + 1);
+				indexes[existing.length] = index;
+				return indexes;
+			});
+		}
+		this.valueReaders = SingletonSupplier.of(() -> {
+			List<DataType> types = columnTypes.get();
+			if (types.size() != columns.size()) {
+				throw new IllegalStateException(
+						"The query has " + types.size() + " bind markers, but columns are " + columns);
+			}
+			ValueReader[] readers = new ValueReader[types.size()];
+			for (int i = 0; i < readers.length; i++) {
+				readers[i] = valueReader(columns.get(i), types.get(i));
+			}
+			return readers;
+		});
+	}
+
+	/**
+	 * Map a JSON array of objects, or a single JSON object, into rows of bind values.
+	 * @param payload the JSON as a {@code String}, {@code byte[]}, {@link InputStream},
+	 * {@link Reader}, {@link File} or {@link JsonNode}.
+	 * @return the rows of bind values in the order of the query bind markers.
+	 * @throws IOException if the JSON cannot be read.
+	 */
+	List<List<Object>> map(Object payload) throws IOException {
+		ValueReader[] readers = this.valueReaders.get();
+		try (JsonParser parser = createParser(payload)) {
+			JsonToken token = parser.nextToken();
+			List<List<Object>> rows = new ArrayList<>();
+			if (token == JsonToken.START_OBJECT) {
+				rows.add(readRow(parser, readers));
+			}
+			else if (token == JsonToken.START_ARRAY) {
+				while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+					rows.add(readRow(parser, readers));
+				}
+				if (token != JsonToken.END_ARRAY) {
+					throw new IllegalArgumentException("Expected a JSON object for a row, but got " + token);
+				}
+			}
+			else {
+				throw new IllegalArgumentException("Expected a JSON array or object, but got " + token);
+			}
+			return rows;
+		}
+	}
+
+	private List<Object> readRow(JsonParser parser, ValueReader[] readers) throws IOException {
+		Object[] row = new Object[this.columnCount];
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			int[] indexes = this.columnIndexes.get(parser.currentName());
+			JsonToken token = parser.nextToken();
+			if (indexes == null) {
+				parser.skipChildren();
+			}
+			else {
+				Object value = (token != JsonToken.VALUE_NULL) ? readers[indexes[0]].read(parser, token) : null;
+				for (int index : indexes) {
+					row[index] = value;
+				}
+			}
+		}
+		return Arrays.asList(row);
+	}
+
+	private JsonParser createParser(Object payload) throws IOException {
+		if (payload instanceof String json) {
+			return this.objectMapper.createParser(json);
+		}
+		else if (payload instanceof byte[] json) {
+			return this.objectMapper.createParser(json);
+		}
+		else if (payload instanceof InputStream json) {
+			return this.objectMapper.createParser(json);
+		}
+		else if (payload instanceof Reader json) {
+			return this.objectMapper.createParser(json);
+		}
+		else if (payload instanceof File json) {
+			return this.objectMapper.createParser(json);
+		}
+		else if (payload instanceof JsonNode json) {
+			return this.objectMapper.treeAsTokens(json);
+		}
+		throw new IllegalArgumentException("Unsupported JSON payload type: " + payload.getClass());
+	}
+
+	private ValueReader valueReader(String column, DataType type) {
+		ValueReader reader = switch (type.getProtocolCode()) {
+			case ProtocolConstants.DataType.ASCII, ProtocolConstants.DataType.VARCHAR ->
+				(parser, token) -> token.isScalarValue() ? parser.getText()
+						: this.objectMapper.readTree(parser).toString();
+			case ProtocolConstants.DataType.BOOLEAN -> (parser, token) -> token.isBoolean() ? parser.getBooleanValue()
+					: Boolean.valueOf(parser.getText());
+			case ProtocolConstants.DataType.INT -> (parser, token) -> token.isNumeric() ? parser.getIntValue()
+					: Integer.valueOf(parser.getText());
+			case ProtocolConstants.DataType.BIGINT, ProtocolConstants.DataType.COUNTER ->
+				(parser, token) -> token.isNumeric() ? parser.getLongValue() : Long.valueOf(parser.getText());
+			case ProtocolConstants.DataType.SMALLINT -> (parser, token) -> token.isNumeric() ? parser.getShortValue()
+					: Short.valueOf(parser.getText());
+			case ProtocolConstants.DataType.TINYINT -> (parser, token) -> token.isNumeric() ? parser.getByteValue()
+					: Byte.valueOf(parser.getText());
+			case ProtocolConstants.DataType.FLOAT -> (parser, token) -> token.isNumeric() ? parser.getFloatValue()
+					: Float.valueOf(parser.getText());
+			case ProtocolConstants.DataType.DOUBLE -> (parser, token) -> token.isNumeric() ? parser.getDoubleValue()
+					: Double.valueOf(parser.getText());
+			case ProtocolConstants.DataType.DECIMAL -> (parser, token) -> token.isNumeric()
+					? parser.getDecimalValue() : new BigDecimal(parser.getText());
+			case ProtocolConstants.DataType.VARINT -> (parser, token) -> token.isNumeric()
+					? parser.getBigIntegerValue() : new BigInteger(parser.getText());
+			case ProtocolConstants.DataType.UUID, ProtocolConstants.DataType.TIMEUUID ->
+				(parser, token) -> UUID.fromString(parser.getText());
+			case ProtocolConstants.DataType.DATE -> (parser, token) -> token.isNumeric()
+					? LocalDate.ofInstant(Instant.ofEpochMilli(parser.getLongValue()), ZoneOffset.UTC)
+					: parseDate(parser.getText());
+			case ProtocolConstants.DataType.TIMESTAMP -> (parser, token) -> token.isNumeric()
+					? Instant.ofEpochMilli(parser.getLongValue()) : parseInstant(parser.getText());
+			case ProtocolConstants.DataType.TIME -> (parser, token) -> token.isNumeric()
+					? LocalTime.ofNanoOfDay(parser.getLongValue()) : LocalTime.parse(parser.getText());
+			case ProtocolConstants.DataType.DURATION -> (parser, token) -> CqlDuration.from(parser.getText());
+			case ProtocolConstants.DataType.INET -> (parser, token) -> InetAddress.getByName(parser.getText());
+			case ProtocolConstants.DataType.BLOB -> (parser, token) -> ByteBuffer.wrap(parser.getBinaryValue());
+			// Collections, tuples and user types are bound as parsed
+			default -> (parser, token) -> parser.readValueAs(Object.class);
+		};
+		return (parser, token) -> {
+			try {
+				return reader.read(parser, token);
+			}
+			catch (RuntimeException ex) {
+				throw new IllegalArgumentException(
+						"Cannot convert the value of '" + column + "' to the CQL type " + type.asCql(false, true), ex);
+			}
+		};
+	}
+
+	private static LocalDate parseDate(String value) {
+		if (value.length() == 10) {
+			return LocalDate.parse(value);
+		}
+		TemporalAccessor dateTime = DateTimeFormatter.ISO_DATE_TIME.parse(value);
+		return LocalDate.from(dateTime);
+	}
+
+	private static Instant parseInstant(String value) {
+		if (value.length() == 10) {
+			return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant();
+		}
+		TemporalAccessor dateTime = DateTimeFormatter.ISO_DATE_TIME.parse(value);
+		return dateTime.isSupported(ChronoField.OFFSET_SECONDS) ? Instant.from(dateTime)
+				: LocalDateTime.from(dateTime).toInstant(ZoneOffset.UTC);
+	}
+
+	@FunctionalInterface
+	private interface ValueReader {
+
+		Object read(JsonParser parser, JsonToken token) throws IOException;
+
+	}
+
+}
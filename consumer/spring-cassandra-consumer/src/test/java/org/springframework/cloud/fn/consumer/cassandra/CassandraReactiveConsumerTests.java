@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.cassandra;
+
+import java.util.List;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.fn.consumer.cassandra.domain.Book;
+import org.springframework.integration.support.json.Jackson2JsonObjectMapper;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+@TestPropertySource(properties = { "cassandra.cluster.init-script=init-db.cql",
+		"cassandra.consumer.ingest-query="
+				+ "insert into book (isbn, title, author, pages, saleDate, inStock) values (?, ?, ?, ?, ?, ?)",
+		"cassandra.consumer.partition-batch-size=3", "cassandra.consumer.max-in-flight-writes=2" })
+class CassandraReactiveConsumerTests extends CassandraConsumerApplicationTests {
+
+	@Autowired
+	Function<Flux<Message<?>>, Mono<Void>> cassandraReactiveConsumer;
+
+	@Test
+	void testPartitionBatches(@Autowired ObjectMapper objectMapper) throws Exception {
+		List<Book> books = getBookList(5);
+
+		Jackson2JsonObjectMapper mapper = new Jackson2JsonObjectMapper(objectMapper);
+
+		Flux<Message<?>> messages = Flux.just(new GenericMessage<>(mapper.toJson(books.subList(0, 2))),
+				new GenericMessage<>(mapper.toJson(books.get(2))),
+				new GenericMessage<>(mapper.toJson(books.subList(3, 5))));
+
+		StepVerifier.create(this.cassandraReactiveConsumer.apply(messages)).verifyComplete();
+
+		assertThat(this.cassandraTemplate.query(Book.class).count()).isEqualTo(5);
+	}
+
+}
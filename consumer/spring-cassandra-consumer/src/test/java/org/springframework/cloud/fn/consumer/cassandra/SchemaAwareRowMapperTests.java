@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.cassandra;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * @author Spring Cloud Team
+ */
+public class SchemaAwareRowMapperTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void valuesAreConvertedByColumnType() throws Exception {
+		SchemaAwareRowMapper rowMapper = new SchemaAwareRowMapper(this.objectMapper,
+				List.of("isbn", "title", "pages", "saleDate", "inStock", "updated"), () -> List.of(DataTypes.UUID,
+						DataTypes.TEXT, DataTypes.INT, DataTypes.DATE, DataTypes.BOOLEAN, DataTypes.TIMESTAMP));
+		UUID isbn = UUID.randomUUID();
+		String json = "[{\"isbn\":\"" + isbn + "\",\"title\":\"2024-01-31\",\"extra\":{\"nested\":[1,2]},"
+				+ "\"pages\":\"42\",\"saleDate\":\"2024-01-31\",\"inStock\":true,\"updated\":\"2024-01-31T10:15:30Z\"},"
+				+ "{\"isbn\":\"" + isbn + "\",\"pages\":7,\"saleDate\":null}]";
+
+		List<List<Object>> rows = rowMapper.map(json.getBytes(StandardCharsets.UTF_8));
+
+		assertThat(rows).containsExactly(
+				List.of(isbn, "2024-01-31", 42, LocalDate.of(2024, 1, 31), true,
+						Instant.parse("2024-01-31T10:15:30Z")),
+				Arrays.asList(isbn, null, 7, null, null, null));
+	}
+
+	@Test
+	void singleObjectAndRepeatedColumns() throws Exception {
+		SchemaAwareRowMapper rowMapper = new SchemaAwareRowMapper(this.objectMapper,
+				List.of("author", "isbn", "isbn"), () -> List.of(DataTypes.TEXT, DataTypes.UUID, DataTypes.UUID));
+		UUID isbn = UUID.randomUUID();
+
+		List<List<Object>> rows = rowMapper.map("{\"isbn\":\"" + isbn + "\",\"author\":\"SCDF Guru\"}");
+
+		assertThat(rows).containsExactly(List.of("SCDF Guru", isbn, isbn));
+	}
+
+	@Test
+	void invalidValueIsReportedWithColumn() {
+		SchemaAwareRowMapper rowMapper = new SchemaAwareRowMapper(this.objectMapper, List.of("isbn"),
+				() -> List.of(DataTypes.UUID));
+
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> rowMapper.map("[{\"isbn\":\"1\"}]"))
+			.withMessageContaining("'isbn'");
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.elasticsearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.messaging.Message;
+
+/**
+ * The bulk indexing pipeline keeping a bounded number of bulk requests in flight. When
+ * the limit is reached, the calling thread waits for a request to complete.
+ * <p>
+ * Items rejected by a busy cluster ({@code 429} and {@code 503} statuses) and whole
+ * requests failed with an exception are retried with an exponential backoff; only the
+ * items still failing after the retries, or failing with any other status, are reported
+ * as {@link BulkItemFailure}s.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+final class BulkIndexer {
+
+	private static final Log LOGGER = LogFactory.getLog(BulkIndexer.class);
+
+	private static final Set<Integer> RETRYABLE_STATUSES = Set.of(429, 503);
+
+	private final ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+	private final Semaphore inFlightRequests;
+
+	private final int maxRetries;
+
+	private final long retryBackoff;
+
+	BulkIndexer(ElasticsearchAsyncClient elasticsearchAsyncClient, int maxInFlightRequests, int maxRetries,
+			long retryBackoff) {
+
+		this.elasticsearchAsyncClient = elasticsearchAsyncClient;
+		this.inFlightRequests = new Semaphore(maxInFlightRequests);
+		this.maxRetries = maxRetries;
+		this.retryBackoff = retryBackoff;
+	}
+
+	/**
+	 * Index the documents with as many bulk requests as the retries require.
+	 * @param messages the messages the operations have been built from.
+	 * @param operations the bulk operations in the same order as the messages.
+	 * @return the future with the items failed permanently.
+	 */
+	CompletableFuture<List<BulkItemFailure>> index(List<Message<?>> messages, List<BulkOperation> operations) {
+		try {
+			this.inFlightRequests.acquire();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a bulk request slot", ex);
+		}
+		CompletableFuture<List<BulkItemFailure>> result = new CompletableFuture<>();
+		result.whenComplete((failures, ex) -> this.inFlightRequests.release());
+		attempt(messages, operations, 0, new ArrayList<>(), result);
+		return result;
+	}
+
+	private void attempt(List<Message<?>> messages, List<BulkOperation> operations, int retry,
+			List<BulkItemFailure> failures, CompletableFuture<List<BulkItemFailure>> result) {
+
+		CompletableFuture<BulkResponse> bulk;
+		try {
+			BulkRequest request = new BulkRequest.Builder().operations(operations).build();
+			bulk = this.elasticsearchAsyncClient.bulk(request);
+		}
+		catch (Throwable ex) {
+			// Thrown before the request is sent; the result must complete to release the slot
+			result.completeExceptionally(ex);
+			return;
+		}
+		bulk.whenComplete((response, ex) -> {
+			try {
+				List<Message<?>> retryMessages = new ArrayList<>();
+				List<BulkOperation> retryOperations = new ArrayList<>();
+				if (ex != null) {
+					if (retry < this.maxRetries) {
+						LOGGER.warn("Bulk request failed; retrying: " + ex.getMessage());
+						retryMessages.addAll(messages);
+						retryOperations.addAll(operations);
+					}
+					else {
+						for (Message<?> message : messages) {
+							failures.add(new BulkItemFailure(message, null, null, 0,
+									"Error occurred while performing bulk index operation: " + ex.getMessage()));
+						}
+					}
+				}
+				else {
+					collectFailures(response, messages, operations, retry, failures, retryMessages,
+							retryOperations);
+				}
+				if (retryMessages.isEmpty()) {
+					result.complete(failures);
+				}
+				else {
+					CompletableFuture.runAsync(
+							() -> attempt(retryMessages, retryOperations, retry + 1, failures, result),
+							CompletableFuture.delayedExecutor(this.retryBackoff << retry, TimeUnit.MILLISECONDS));
+				}
+			}
+			catch (Throwable error) {
+				result.completeExceptionally(error);
+			}
+		});
+	}
+
+	private void collectFailures(BulkResponse response, List<Message<?>> messages, List<BulkOperation> operations,
+			int retry, List<BulkItemFailure> failures, List<Message<?>> retryMessages,
+			List<BulkOperation> retryOperations) {
+
+		List<BulkResponseItem> items = response.items();
+		for (int i = 0; i < items.size(); i++) {
+			BulkResponseItem item = items.get(i);
+			if (item.error() == null) {
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.debug(String.format("Index operation [id=%s, index=%s] succeeded", item.id(),
+							item.index()));
+				}
+			}
+			else if (RETRYABLE_STATUSES.contains(item.status()) && retry < this.maxRetries) {
+				retryMessages.add(messages.get(i));
+				retryOperations.add(operations.get(i));
+			}
+			else {
+				LOGGER.error(String.format("Index operation [id=%s, index=%s] failed: %s", item.id(), item.index(),
+						item.error()));
+				failures.add(new BulkItemFailure(messages.get(i), item.id(), item.index(), item.status(),
+						item.error().toString()));
+			}
+		}
+		if (!retryMessages.isEmpty()) {
+			LOGGER.debug("Retrying " + retryMessages.size() + " rejected items out of " + items.size());
+		}
+	}
+
+	/**
+	 * The bulk item failed permanently.
+	 * @param message the message the item has been built from.
+	 * @param id the document id.
+	 * @param index the index name.
+	 * @param status the item status; {@code 0} if the whole request failed.
+	 * @param reason the error description.
+	 */
+	record BulkItemFailure(Message<?> message, String id, String index, int status, String reason) {
+
+		@Override
+		public String toString() {
+			return "[id=" + this.id + ", index=" + this.index + ", status=" + this.status + "] " + this.reason;
+		}
+
+	}
+
+}
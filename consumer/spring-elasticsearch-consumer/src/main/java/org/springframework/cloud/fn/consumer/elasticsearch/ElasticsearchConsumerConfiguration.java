@@ -17,34 +17,37 @@
 package org.springframework.cloud.fn.consumer.elasticsearch;
 
 import java.io.IOException;
-import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
 import java.util.stream.StreamSupport;
 
 import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.Time;
-import co.elastic.clients.elasticsearch.core.BulkRequest;
-import co.elastic.clients.elasticsearch.core.BulkResponse;
 import co.elastic.clients.elasticsearch.core.IndexRequest;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
-import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.elasticsearch.ElasticsearchClientAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.fn.consumer.elasticsearch.BulkIndexer.BulkItemFailure;
 import org.springframework.context.annotation.Bean;
 import org.springframework.integration.aggregator.AbstractAggregatingMessageGroupProcessor;
-import org.springframework.integration.aggregator.MessageCountReleaseStrategy;
+import org.springframework.integration.channel.MessagePublishingErrorHandler;
 import org.springframework.integration.config.AggregatorFactoryBean;
 import org.springframework.integration.dsl.IntegrationFlow;
 import org.springframework.integration.expression.ValueExpression;
@@ -54,7 +57,9 @@ import org.springframework.integration.store.MessageGroupStore;
 import org.springframework.integration.store.SimpleMessageStore;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHandlingException;
 import org.springframework.util.Assert;
+import org.springframework.util.ErrorHandler;
 import org.springframework.util.StringUtils;
 
 /**
@@ -85,8 +90,10 @@ public class ElasticsearchConsumerConfiguration {
 			ElasticsearchConsumerProperties consumerProperties) {
 
 		AggregatorFactoryBean aggregatorFactoryBean = new AggregatorFactoryBean();
-		aggregatorFactoryBean.setCorrelationStrategy((message) -> "");
-		aggregatorFactoryBean.setReleaseStrategy(new MessageCountReleaseStrategy(consumerProperties.getBatchSize()));
+		PayloadSizeReleaseStrategy releaseStrategy = new PayloadSizeReleaseStrategy((message) -> "",
+				consumerProperties.getBatchSize(), consumerProperties.getBatchBytes().toBytes());
+		aggregatorFactoryBean.setCorrelationStrategy(releaseStrategy);
+		aggregatorFactoryBean.setReleaseStrategy(releaseStrategy);
 		if (consumerProperties.getGroupTimeout() >= 0) {
 			aggregatorFactoryBean
 				.setGroupTimeoutExpression(new ValueExpression<>(consumerProperties.getGroupTimeout()));
@@ -148,29 +155,76 @@ public class ElasticsearchConsumerConfiguration {
 
 	@Bean
 	public MessageHandler indexingHandler(ElasticsearchClient elasticsearchClient,
-			ElasticsearchConsumerProperties consumerProperties) {
+			ElasticsearchConsumerProperties consumerProperties, BeanFactory beanFactory) {
+
+		BulkIndexer bulkIndexer = new BulkIndexer(new ElasticsearchAsyncClient(elasticsearchClient._transport()),
+				consumerProperties.getMaxInFlightRequests(), consumerProperties.getMaxRetries(),
+				consumerProperties.getRetryBackoff());
+		MessagePublishingErrorHandler errorHandler = new MessagePublishingErrorHandler();
+		errorHandler.setBeanFactory(beanFactory);
 
 		return (message) -> {
 			if (message.getPayload() instanceof Iterable<?> iterable) {
-				BulkRequest.Builder builder = new BulkRequest.Builder();
-				StreamSupport.stream(iterable.spliterator(), false)
+				List<Message<?>> messages = StreamSupport.stream(iterable.spliterator(), false)
 					.filter(MessageWrapper.class::isInstance)
-					.map((itemPayload) -> ((MessageWrapper) itemPayload).message())
-					.map((m) -> buildIndexRequest(m, consumerProperties))
-					.forEach((indexRequest) -> builder
-						.operations((builder1) -> builder1.index((idx) -> idx.index(indexRequest.index())
-							.id(indexRequest.id())
-							.document(indexRequest.document()))));
-
-				index(elasticsearchClient, builder.build(), consumerProperties.isAsync());
+					.<Message<?>>map((itemPayload) -> ((MessageWrapper) itemPayload).message())
+					.toList();
+				bulkIndex(bulkIndexer, messages, consumerProperties, errorHandler);
+			}
+			else if (consumerProperties.isAsync()) {
+				bulkIndex(bulkIndexer, List.of(message), consumerProperties, errorHandler);
 			}
 			else {
-				IndexRequest<?> request = buildIndexRequest(message, consumerProperties);
-				index(elasticsearchClient, request, consumerProperties.isAsync());
+				index(elasticsearchClient, buildIndexRequest(message, consumerProperties));
 			}
 		};
 	}
 
+	private void bulkIndex(BulkIndexer bulkIndexer, List<Message<?>> messages,
+			ElasticsearchConsumerProperties consumerProperties, ErrorHandler errorHandler) {
+
+		List<BulkOperation> operations = messages.stream()
+			.map((m) -> buildIndexRequest(m, consumerProperties))
+			.map((indexRequest) -> BulkOperation.of((operation) -> operation.index((idx) -> idx
+				.index(indexRequest.index())
+				.id(indexRequest.id())
+				.routing(indexRequest.routing())
+				.document(indexRequest.document()))))
+			.toList();
+
+		CompletableFuture<List<BulkItemFailure>> result = bulkIndexer.index(messages, operations);
+		if (consumerProperties.isAsync()) {
+			result.whenComplete((failures, ex) -> {
+				if (ex != null) {
+					errorHandler.handleError(
+							new IllegalStateException("Error occurred while performing bulk index operation", ex));
+				}
+				else {
+					for (BulkItemFailure failure : failures) {
+						errorHandler.handleError(new MessageHandlingException(failure.message(),
+								"Index operation failed: " + failure));
+					}
+				}
+			});
+		}
+		else {
+			List<BulkItemFailure> failures;
+			try {
+				failures = result.join();
+			}
+			catch (CompletionException ex) {
+				throw new IllegalStateException(
+						"Error occurred while performing bulk index operation: " + ex.getCause().getMessage(),
+						ex.getCause());
+			}
+			// The other messages of the batch are indexed: only the failed ones are reported
+			for (BulkItemFailure failure : failures) {
+				errorHandler.handleError(
+						new MessageHandlingException(failure.message(), "Index operation failed: " + failure));
+			}
+		}
+	}
+
 	private IndexRequest<Object> buildIndexRequest(Message<?> message,
 			ElasticsearchConsumerProperties consumerProperties) {
 
@@ -191,8 +245,12 @@ public class ElasticsearchConsumerConfiguration {
 		}
 		requestBuilder.id(id);
 
-		if (message.getPayload() instanceof String) {
-			requestBuilder.withJson(new StringReader((String) message.getPayload()));
+		// JSON is passed through to the request body as is: no parsing and serializing again
+		if (message.getPayload() instanceof String json) {
+			requestBuilder.document(BinaryData.of(json.getBytes(StandardCharsets.UTF_8), ContentType.APPLICATION_JSON));
+		}
+		else if (message.getPayload() instanceof byte[] json) {
+			requestBuilder.document(BinaryData.of(json, ContentType.APPLICATION_JSON));
 		}
 		else if (message.getPayload() instanceof Map) {
 			requestBuilder.document(message.getPayload());
@@ -208,96 +266,13 @@ public class ElasticsearchConsumerConfiguration {
 		return requestBuilder.build();
 	}
 
-	private void index(ElasticsearchClient elasticsearchClient, BulkRequest request, boolean isAsync) {
-		if (isAsync) {
-			ElasticsearchAsyncClient elasticsearchAsyncClient = new ElasticsearchAsyncClient(
-					elasticsearchClient._transport());
-			CompletableFuture<BulkResponse> responseCompletableFuture = elasticsearchAsyncClient.bulk(request);
-			responseCompletableFuture.whenComplete((bulkResponse, x) -> {
-				if (x != null) {
-					throw new IllegalStateException(
-							"Error occurred while performing bulk index operation: " + x.getMessage(), x);
-				}
-				else {
-					handleBulkResponse(bulkResponse);
-				}
-			});
-
+	private void index(ElasticsearchClient elasticsearchClient, IndexRequest<?> request) {
+		try {
+			IndexResponse response = elasticsearchClient.index(request);
+			handleResponse(response);
 		}
-		else {
-			try {
-				BulkResponse bulkResponse = elasticsearchClient.bulk(request);
-				handleBulkResponse(bulkResponse);
-			}
-			catch (IOException ex) {
-				throw new IllegalStateException(
-						"Error occurred while performing bulk index operation: " + ex.getMessage(), ex);
-			}
-		}
-	}
-
-	private void index(ElasticsearchClient elasticsearchClient, IndexRequest<?> request, boolean isAsync) {
-		if (isAsync) {
-			ElasticsearchAsyncClient elasticsearchAsyncClient = new ElasticsearchAsyncClient(
-					elasticsearchClient._transport());
-			CompletableFuture<IndexResponse> responseCompletableFuture = elasticsearchAsyncClient.index(request);
-			responseCompletableFuture.whenComplete((indexResponse, x) -> {
-				if (x != null) {
-					throw new IllegalStateException("Error occurred while indexing document: " + x.getMessage(), x);
-				}
-				else {
-					handleResponse(indexResponse);
-				}
-			});
-		}
-		else {
-			try {
-				IndexResponse response = elasticsearchClient.index(request);
-				handleResponse(response);
-			}
-			catch (IOException ex) {
-				throw new IllegalStateException("Error occurred while indexing document: " + ex.getMessage(), ex);
-			}
-		}
-	}
-
-	private void handleBulkResponse(BulkResponse response) {
-		if (LOGGER.isDebugEnabled() || response.errors()) {
-			for (BulkResponseItem itemResponse : response.items()) {
-				if (itemResponse.error() != null) {
-					if (LOGGER.isDebugEnabled()) {
-						LOGGER.debug("itemResponse.error=" + itemResponse.error());
-					}
-					LOGGER.error(String.format("Index operation [id=%s, index=%s] failed: %s", itemResponse.id(),
-							itemResponse.index(), itemResponse.error().toString()));
-				}
-				else {
-					var r = itemResponse.get();
-					if (r != null) {
-						if (LOGGER.isDebugEnabled()) {
-							LOGGER.debug("itemResponse:" + r);
-						}
-						LOGGER.debug(String.format(
-								"Index operation [id=%s, index=%s] succeeded: document [id=%s, version=%s] was written on shard %s.",
-								itemResponse.id(), itemResponse.index(), r.source().get("id"),
-								r.source().get("version"), r.source().get("shardId")));
-					}
-					else {
-						LOGGER.debug(String.format("Index operation [id=%s, index=%s] succeeded", itemResponse.id(),
-								itemResponse.index()));
-					}
-				}
-			}
-		}
-
-		if (response.errors()) {
-			String error = response.items()
-				.stream()
-				.map((bulkResponseItem) -> (bulkResponseItem.error() != null) ? bulkResponseItem.error().toString()
-						: "")
-				.reduce((errorCause, errorCause2) -> errorCause + " : " + errorCause2)
-				.orElseGet(response::toString);
-			throw new IllegalStateException("Bulk indexing operation completed with failures: " + error);
+		catch (IOException ex) {
+			throw new IllegalStateException("Error occurred while indexing document: " + ex.getMessage(), ex);
 		}
 	}
 
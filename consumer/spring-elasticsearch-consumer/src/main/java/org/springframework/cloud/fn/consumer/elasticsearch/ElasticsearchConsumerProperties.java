@@ -18,6 +18,7 @@ package org.springframework.cloud.fn.consumer.elasticsearch;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.expression.Expression;
+import org.springframework.util.unit.DataSize;
 
 /**
  * The Elasticsearch consumer configuration properties.
@@ -64,6 +65,13 @@ public class ElasticsearchConsumerProperties {
 	 */
 	int batchSize = 1;
 
+	/**
+	 * Total size of String (UTF-8 encoded) and byte[] payloads after which a batch is
+	 * released, even if it has not reached the 'batchSize' yet. Non-positive value
+	 * disables the size limit.
+	 */
+	DataSize batchBytes = DataSize.ofMegabytes(5);
+
 	/**
 	 * Timeout in milliseconds after which message group is flushed when bulk indexing is
 	 * active. It defaults to -1, meaning no automatic flush of idle message groups
@@ -71,6 +79,24 @@ public class ElasticsearchConsumerProperties {
 	 */
 	long groupTimeout = -1L;
 
+	/**
+	 * Maximum number of bulk requests in flight. When the limit is reached, the caller
+	 * waits for a request to complete.
+	 */
+	int maxInFlightRequests = 4;
+
+	/**
+	 * Maximum number of retries for the bulk items rejected with 429 or 503 statuses and
+	 * for the bulk requests failed as a whole.
+	 */
+	int maxRetries = 3;
+
+	/**
+	 * Initial backoff in milliseconds before retrying rejected bulk items. It is doubled
+	 * for every following retry.
+	 */
+	long retryBackoff = 100L;
+
 	public Expression getId() {
 		return this.id;
 	}
@@ -119,6 +145,14 @@ public class ElasticsearchConsumerProperties {
 		this.batchSize = batchSize;
 	}
 
+	public DataSize getBatchBytes() {
+		return this.batchBytes;
+	}
+
+	public void setBatchBytes(DataSize batchBytes) {
+		this.batchBytes = batchBytes;
+	}
+
 	public long getGroupTimeout() {
 		return this.groupTimeout;
 	}
@@ -127,4 +161,28 @@ public class ElasticsearchConsumerProperties {
 		this.groupTimeout = groupTimeout;
 	}
 
+	public int getMaxInFlightRequests() {
+		return this.maxInFlightRequests;
+	}
+
+	public void setMaxInFlightRequests(int maxInFlightRequests) {
+		this.maxInFlightRequests = maxInFlightRequests;
+	}
+
+	public int getMaxRetries() {
+		return this.maxRetries;
+	}
+
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public long getRetryBackoff() {
+		return this.retryBackoff;
+	}
+
+	public void setRetryBackoff(long retryBackoff) {
+		this.retryBackoff = retryBackoff;
+	}
+
 }
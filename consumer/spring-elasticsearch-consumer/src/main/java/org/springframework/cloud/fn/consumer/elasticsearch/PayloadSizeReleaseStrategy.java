@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.elasticsearch;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.integration.aggregator.CorrelationStrategy;
+import org.springframework.integration.aggregator.ReleaseStrategy;
+import org.springframework.integration.store.MessageGroup;
+import org.springframework.messaging.Message;
+
+/**
+ * The {@link ReleaseStrategy} releasing a group when it reaches the number of messages
+ * or the total size of {@code String} and {@code byte[]} payloads, whichever comes
+ * first. Other payload types count only towards the number of messages; a
+ * {@code String} counts with its UTF-8 encoded length.
+ * <p>
+ * The strategy must also be the {@link CorrelationStrategy} of the aggregator: each
+ * message is measured once when it is correlated, and the following
+ * {@link #canRelease(MessageGroup)} for the group it has been added to on the same thread
+ * adds its size to the group total, so a check costs the same regardless of the group
+ * size. A group of a single message always starts a new total, so the size of a group
+ * released on timeout is never carried over.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+class PayloadSizeReleaseStrategy implements ReleaseStrategy, CorrelationStrategy {
+
+	private final CorrelationStrategy correlationStrategy;
+
+	private final int batchSize;
+
+	private final long batchBytes;
+
+	private final Map<Object, Long> groupBytes = new ConcurrentHashMap<>();
+
+	private final ThreadLocal<Long> correlatedBytes = new ThreadLocal<>();
+
+	PayloadSizeReleaseStrategy(CorrelationStrategy correlationStrategy, int batchSize, long batchBytes) {
+		this.correlationStrategy = correlationStrategy;
+		this.batchSize = batchSize;
+		this.batchBytes = batchBytes;
+	}
+
+	@Override
+	public Object getCorrelationKey(Message<?> message) {
+		if (this.batchBytes > 0) {
+			this.correlatedBytes.set(payloadSize(message.getPayload()));
+		}
+		return this.correlationStrategy.getCorrelationKey(message);
+	}
+
+	@Override
+	public boolean canRelease(MessageGroup group) {
+		Long messageBytes = this.correlatedBytes.get();
+		this.correlatedBytes.remove();
+		int size = group.size();
+		if (size >= this.batchSize) {
+			this.groupBytes.remove(group.getGroupId());
+			return true;
+		}
+		if (this.batchBytes <= 0 || messageBytes == null) {
+			return false;
+		}
+		long bytes = messageBytes;
+		if (size > 1) {
+			bytes += this.groupBytes.getOrDefault(group.getGroupId(), 0L);
+		}
+		if (bytes >= this.batchBytes) {
+			this.groupBytes.remove(group.getGroupId());
+			return true;
+		}
+		this.groupBytes.put(group.getGroupId(), bytes);
+		return false;
+	}
+
+	private static long payloadSize(Object payload) {
+		if (payload instanceof byte[] bytes) {
+			return bytes.length;
+		}
+		else if (payload instanceof String string) {
+			return utf8Length(string);
+		}
+		return 0;
+	}
+
+	private static long utf8Length(String string) {
+		long length = 0;
+		for (int i = 0; i < string.length(); i++) {
+			char ch = string.charAt(i);
+			if (ch < 0x80) {
+				length++;
+			}
+			else if (ch < 0x800) {
+				length += 2;
+			}
+			else if (Character.isHighSurrogate(ch) && i + 1 < string.length()
+					&& Character.isLowSurrogate(string.charAt(i + 1))) {
+				length += 4;
+				i++;
+			}
+			else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+}
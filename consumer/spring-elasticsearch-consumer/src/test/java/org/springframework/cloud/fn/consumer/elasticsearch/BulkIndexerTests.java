@@ -0,0 +1,142 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.elasticsearch;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.cloud.fn.consumer.elasticsearch.BulkIndexer.BulkItemFailure;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.GenericMessage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Spring Cloud Team
+ */
+public class BulkIndexerTests {
+
+	private final List<Message<?>> messages = List.of(new GenericMessage<>("a"), new GenericMessage<>("b"));
+
+	private final List<BulkOperation> operations = List.of(operation("1"), operation("2"));
+
+	@Test
+	void onlyRejectedItemsAreRetried() throws Exception {
+		ElasticsearchAsyncClient client = mock(ElasticsearchAsyncClient.class);
+		given(client.bulk(any(BulkRequest.class))).willReturn(response(item("1", 429), item("2", 201)),
+				response(item("1", 201)));
+
+		List<BulkItemFailure> failures = new BulkIndexer(client, 1, 3, 1).index(this.messages, this.operations)
+			.get(10, TimeUnit.SECONDS);
+
+		assertThat(failures).isEmpty();
+		ArgumentCaptor<BulkRequest> requests = ArgumentCaptor.forClass(BulkRequest.class);
+		verify(client, times(2)).bulk(requests.capture());
+		assertThat(requests.getAllValues().get(1).operations()).hasSize(1);
+		assertThat(requests.getAllValues().get(1).operations().get(0).index().id()).isEqualTo("1");
+	}
+
+	@Test
+	void permanentFailuresAreReportedPerItem() throws Exception {
+		ElasticsearchAsyncClient client = mock(ElasticsearchAsyncClient.class);
+		given(client.bulk(any(BulkRequest.class))).willReturn(response(item("1", 201), item("2", 400)));
+
+		List<BulkItemFailure> failures = new BulkIndexer(client, 1, 3, 1).index(this.messages, this.operations)
+			.get(10, TimeUnit.SECONDS);
+
+		assertThat(failures).hasSize(1);
+		assertThat(failures.get(0).message()).isSameAs(this.messages.get(1));
+		assertThat(failures.get(0).status()).isEqualTo(400);
+		verify(client).bulk(any(BulkRequest.class));
+	}
+
+	@Test
+	void rejectedItemsAreReportedAfterRetriesExhausted() throws Exception {
+		ElasticsearchAsyncClient client = mock(ElasticsearchAsyncClient.class);
+		given(client.bulk(any(BulkRequest.class))).willReturn(response(item("1", 201), item("2", 503)),
+				response(item("2", 503)), response(item("2", 503)));
+
+		List<BulkItemFailure> failures = new BulkIndexer(client, 1, 2, 1).index(this.messages, this.operations)
+			.get(10, TimeUnit.SECONDS);
+
+		assertThat(failures).extracting(BulkItemFailure::id).containsExactly("2");
+		verify(client, times(3)).bulk(any(BulkRequest.class));
+	}
+
+	@Test
+	void synchronousFailureCompletesResultAndReleasesSlot() {
+		ElasticsearchAsyncClient client = mock(ElasticsearchAsyncClient.class);
+		given(client.bulk(any(BulkRequest.class))).willThrow(new IllegalStateException("client closed"));
+		BulkIndexer bulkIndexer = new BulkIndexer(client, 1, 3, 1);
+
+		for (int i = 0; i < 2; i++) {
+			assertThat(bulkIndexer.index(this.messages, this.operations)).failsWithin(10, TimeUnit.SECONDS)
+				.withThrowableOfType(ExecutionException.class)
+				.withCauseInstanceOf(IllegalStateException.class);
+		}
+	}
+
+	@Test
+	void synchronousFailureOnRetryCompletesResult() {
+		ElasticsearchAsyncClient client = mock(ElasticsearchAsyncClient.class);
+		given(client.bulk(any(BulkRequest.class))).willReturn(response(item("1", 429), item("2", 201)))
+			.willThrow(new IllegalStateException("client closed"));
+
+		assertThat(new BulkIndexer(client, 1, 3, 1).index(this.messages, this.operations))
+			.failsWithin(10, TimeUnit.SECONDS)
+			.withThrowableOfType(ExecutionException.class)
+			.withCauseInstanceOf(IllegalStateException.class);
+	}
+
+	private static BulkOperation operation(String id) {
+		return BulkOperation.of((operation) -> operation
+			.index((index) -> index.index("foo").id(id).document(Map.of("id", id))));
+	}
+
+	private static BulkResponseItem item(String id, int status) {
+		return BulkResponseItem.of((item) -> {
+			item.operationType(OperationType.Index).index("foo").id(id).status(status);
+			if (status >= 400) {
+				item.error((error) -> error.type("error_" + status).reason("status " + status));
+			}
+			return item;
+		});
+	}
+
+	private static CompletableFuture<BulkResponse> response(BulkResponseItem... items) {
+		return CompletableFuture
+			.completedFuture(BulkResponse.of((response) -> response.errors(true).took(1).items(List.of(items))));
+	}
+
+}
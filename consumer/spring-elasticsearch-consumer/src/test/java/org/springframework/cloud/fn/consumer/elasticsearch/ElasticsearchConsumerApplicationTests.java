@@ -18,8 +18,10 @@ package org.springframework.cloud.fn.consumer.elasticsearch;
 
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
@@ -41,11 +43,12 @@ import org.testcontainers.utility.DockerImageName;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.SubscribableChannel;
 import org.springframework.messaging.support.MessageBuilder;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
-import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 
 // import static org.elasticsearch.core.Strings.*;
 
@@ -181,6 +184,9 @@ public class ElasticsearchConsumerApplicationTests {
 				Consumer<Message<?>> elasticsearchConsumer = context.getBean("elasticsearchConsumer", Consumer.class);
 				ElasticsearchConsumerProperties properties = context.getBean(ElasticsearchConsumerProperties.class);
 				ElasticsearchClient elasticsearchClient = context.getBean(ElasticsearchClient.class);
+				List<Object> errors = new CopyOnWriteArrayList<>();
+				context.getBean("errorChannel", SubscribableChannel.class)
+					.subscribe((errorMessage) -> errors.add(errorMessage.getPayload()));
 
 				for (int i = 0; i < properties.getBatchSize(); i++) {
 					final GetRequest getRequest = new GetRequest.Builder().index(properties.getIndex())
@@ -223,6 +229,9 @@ public class ElasticsearchConsumerApplicationTests {
 				Consumer<Message<?>> elasticsearchConsumer = context.getBean("elasticsearchConsumer", Consumer.class);
 				ElasticsearchConsumerProperties properties = context.getBean(ElasticsearchConsumerProperties.class);
 				ElasticsearchClient elasticsearchClient = context.getBean(ElasticsearchClient.class);
+				List<Object> errors = new CopyOnWriteArrayList<>();
+				context.getBean("errorChannel", SubscribableChannel.class)
+					.subscribe((errorMessage) -> errors.add(errorMessage.getPayload()));
 
 				for (int i = 0; i < properties.getBatchSize(); i++) {
 					final GetRequest getRequest = new GetRequest.Builder().index(properties.getIndex())
@@ -246,16 +255,17 @@ public class ElasticsearchConsumerApplicationTests {
 
 					final Message<String> message = builder.build();
 
-					if (i < properties.getBatchSize() - 1) {
-						log.info("elasticsearchConsumer.accept:{}", message);
-						elasticsearchConsumer.accept(message);
-					}
-					else {
-						// last invocation
-						assertThatIllegalStateException().isThrownBy(() -> elasticsearchConsumer.accept(message))
-							.withMessageContaining("Bulk indexing operation completed with failures");
-					}
+					log.info("elasticsearchConsumer.accept:{}", message);
+					elasticsearchConsumer.accept(message);
 				}
+
+				// Only the failed message is reported, the others of the batch are indexed
+				assertThat(errors).singleElement()
+					.isInstanceOfSatisfying(MessageHandlingException.class,
+							(ex) -> assertThat(ex.getFailedMessage().getHeaders())
+								.containsEntry(ElasticsearchConsumerConfiguration.INDEX_ID_HEADER, "0"));
+				GetRequest getRequest = new GetRequest.Builder().index(properties.getIndex()).id("1").build();
+				assertThat(elasticsearchClient.get(getRequest, JsonData.class).found()).isTrue();
 			});
 	}
 
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.elasticsearch;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.integration.store.SimpleMessageGroup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.GenericMessage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+public class PayloadSizeReleaseStrategyTests {
+
+	@Test
+	void releasedByCount() {
+		PayloadSizeReleaseStrategy releaseStrategy = new PayloadSizeReleaseStrategy((message) -> "", 3, 1000);
+		SimpleMessageGroup group = new SimpleMessageGroup("");
+		assertThat(add(releaseStrategy, group, Map.of("a", 1))).isFalse();
+		assertThat(add(releaseStrategy, group, "{}")).isFalse();
+		assertThat(add(releaseStrategy, group, Map.of("a", 2))).isTrue();
+	}
+
+	@Test
+	void releasedByBytes() {
+		PayloadSizeReleaseStrategy releaseStrategy = new PayloadSizeReleaseStrategy((message) -> "", 100, 10);
+		SimpleMessageGroup group = new SimpleMessageGroup("");
+		assertThat(add(releaseStrategy, group, "{\"a\":1}")).isFalse();
+		assertThat(add(releaseStrategy, group, new byte[3])).isTrue();
+
+		SimpleMessageGroup nextGroup = new SimpleMessageGroup("");
+		assertThat(add(releaseStrategy, nextGroup, "{\"a\":1}")).isFalse();
+	}
+
+	@Test
+	void sizeStartsOverForNewGroup() {
+		PayloadSizeReleaseStrategy releaseStrategy = new PayloadSizeReleaseStrategy((message) -> "", 100, 10);
+		SimpleMessageGroup group = new SimpleMessageGroup("");
+		assertThat(add(releaseStrategy, group, "{\"a\":1}")).isFalse();
+		assertThat(add(releaseStrategy, group, "{}")).isFalse();
+
+		// the group expired on timeout and has been created again
+		SimpleMessageGroup nextGroup = new SimpleMessageGroup("");
+		assertThat(add(releaseStrategy, nextGroup, "{}")).isFalse();
+		assertThat(add(releaseStrategy, nextGroup, "{\"b\":2}")).isFalse();
+	}
+
+	@Test
+	void sizeStartsOverForSingleMessageGroups() {
+		PayloadSizeReleaseStrategy releaseStrategy = new PayloadSizeReleaseStrategy((message) -> "", 100, 10);
+		SimpleMessageGroup group = new SimpleMessageGroup("");
+		assertThat(add(releaseStrategy, group, "{\"a\":12}")).isFalse();
+
+		// the single message group expired on timeout and has been created again
+		SimpleMessageGroup nextGroup = new SimpleMessageGroup("");
+		assertThat(add(releaseStrategy, nextGroup, "{\"b\":1}")).isFalse();
+		assertThat(add(releaseStrategy, nextGroup, "{}")).isFalse();
+		assertThat(add(releaseStrategy, nextGroup, "{}")).isTrue();
+	}
+
+	@Test
+	void stringSizeIsEncodedBytes() {
+		PayloadSizeReleaseStrategy releaseStrategy = new PayloadSizeReleaseStrategy((message) -> "", 100, 10);
+		SimpleMessageGroup group = new SimpleMessageGroup("");
+		// 4 chars, but 12 bytes in UTF-8
+		assertThat(add(releaseStrategy, group, "\u20ac\u20ac\u20ac\u20ac")).isTrue();
+	}
+
+	private static boolean add(PayloadSizeReleaseStrategy releaseStrategy, SimpleMessageGroup group,
+			Object payload) {
+
+		Message<?> message = new GenericMessage<>(payload);
+		releaseStrategy.getCorrelationKey(message);
+		group.add(message);
+		return releaseStrategy.canRelease(group);
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.integration.file.DefaultFileNameGenerator;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.FileWritingMessageHandler;
+import org.springframework.integration.file.support.FileExistsMode;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+
+/**
+ * Compares the {@link FileWritingMessageHandler} in the {@code APPEND} mode, opening and
+ * closing the file for every message, with the {@link RollingFileWriter} keeping the
+ * recently written files open, on messages routed to 10k distinct files. Most of the
+ * messages go to a tenth of the files, which fits into the default open files limit.
+ * <p>
+ * Run with {@code ./gradlew :spring-file-consumer:jmh}.
+ *
+ * @author Spring Cloud Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class FileWritingBenchmark {
+
+	@Param({ "handler", "cached" })
+	public String writer;
+
+	@Param({ "10000" })
+	public int paths;
+
+	private Path directory;
+
+	private MessageHandler messageHandler;
+
+	private Message<?>[] messages;
+
+	@Setup
+	public void setup() throws Exception {
+		this.directory = Files.createTempDirectory("file-writing-benchmark");
+		DefaultFileNameGenerator fileNameGenerator = new DefaultFileNameGenerator();
+		if ("handler".equals(this.writer)) {
+			FileWritingMessageHandler handler = new FileWritingMessageHandler(this.directory.toFile());
+			handler.setFileExistsMode(FileExistsMode.APPEND);
+			handler.setExpectReply(false);
+			handler.setFileNameGenerator(fileNameGenerator);
+			handler.afterPropertiesSet();
+			this.messageHandler = handler;
+		}
+		else {
+			FileConsumerProperties properties = new FileConsumerProperties();
+			properties.setDirectory(this.directory.toFile());
+			properties.getRolling().setEnabled(true);
+			RollingFileWriter rollingFileWriter = new RollingFileWriter(properties, fileNameGenerator);
+			rollingFileWriter.afterPropertiesSet();
+			this.messageHandler = rollingFileWriter;
+		}
+		this.messages = new Message<?>[this.paths];
+		for (int i = 0; i < this.paths; i++) {
+			this.messages[i] = MessageBuilder.withPayload("a line written to the file number " + i)
+				.setHeader(FileHeaders.FILENAME, "file-" + i + ".txt")
+				.build();
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		if (this.messageHandler instanceof RollingFileWriter rollingFileWriter) {
+			rollingFileWriter.destroy();
+		}
+		try (Stream<Path> files = Files.walk(this.directory)) {
+			files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Benchmark
+	public void write() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int hotPaths = Math.max(1, this.paths / 10);
+		int index = (random.nextInt(10) < 8) ? random.nextInt(hotPaths) : random.nextInt(this.paths);
+		this.messageHandler.handleMessage(this.messages[index]);
+	}
+
+}
@@ -19,6 +19,7 @@ package org.springframework.cloud.fn.consumer.file;
 import java.util.function.Consumer;
 
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.fn.common.config.ComponentCustomizer;
 import org.springframework.context.annotation.Bean;
@@ -47,11 +48,16 @@ public class FileConsumerConfiguration {
 	}
 
 	@Bean
-	public Consumer<Message<?>> fileConsumer(FileWritingMessageHandler fileWritingMessageHandler) {
-		return fileWritingMessageHandler::handleMessage;
+	public Consumer<Message<?>> fileConsumer(@Nullable FileWritingMessageHandler fileWritingMessageHandler,
+			@Nullable RollingFileWriter rollingFileWriter) {
+
+		return (rollingFileWriter != null) ? rollingFileWriter::handleMessage
+				: fileWritingMessageHandler::handleMessage;
 	}
 
 	@Bean
+	@ConditionalOnProperty(prefix = "file.consumer.rolling", name = "enabled", havingValue = "false",
+			matchIfMissing = true)
 	public FileWritingMessageHandler fileWritingMessageHandler(FileNameGenerator fileNameGenerator,
 			@Nullable ComponentCustomizer<FileWritingMessageHandler> fileWritingMessageHandlerCustomizer) {
 
@@ -72,6 +78,12 @@ public class FileConsumerConfiguration {
 		return handler;
 	}
 
+	@Bean
+	@ConditionalOnProperty(prefix = "file.consumer.rolling", name = "enabled")
+	RollingFileWriter rollingFileWriter(FileNameGenerator fileNameGenerator) {
+		return new RollingFileWriter(this.properties, fileNameGenerator);
+	}
+
 	@Bean
 	public FileNameGenerator fileNameGenerator() {
 		DefaultFileNameGenerator fileNameGenerator = new DefaultFileNameGenerator();
@@ -17,6 +17,7 @@
 package org.springframework.cloud.fn.consumer.file;
 
 import java.io.File;
+import java.time.Duration;
 
 import jakarta.validation.constraints.AssertTrue;
 
@@ -24,6 +25,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.expression.Expression;
 import org.springframework.integration.file.support.FileExistsMode;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
 /**
@@ -81,6 +83,11 @@ public class FileConsumerProperties {
 	 */
 	private String suffix = "";
 
+	/**
+	 * Rolling file options.
+	 */
+	private final Rolling rolling = new Rolling();
+
 	public boolean isBinary() {
 		return this.binary;
 	}
@@ -150,6 +157,10 @@ public class FileConsumerProperties {
 		this.suffix = suffix;
 	}
 
+	public Rolling getRolling() {
+		return this.rolling;
+	}
+
 	@AssertTrue(message = "Exactly one of 'name' or 'nameExpression' must be set")
 	public boolean isMutuallyExclusiveNameAndNameExpression() {
 		return DEFAULT_NAME.equals(this.name) || this.nameExpression == null;
@@ -160,4 +171,128 @@ public class FileConsumerProperties {
 		return new File(DEFAULT_DIR).equals(this.directory) || this.directoryExpression == null;
 	}
 
+	public static class Rolling {
+
+		/**
+		 * Whether to write to rolling files instead of the FileWritingMessageHandler;
+		 * files are always appended to in this mode.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The size of a file on disk after which it is rolled.
+		 */
+		private DataSize maxSize;
+
+		/**
+		 * The age of a file after which it is rolled.
+		 */
+		private Duration maxAge;
+
+		/**
+		 * Whether to compress the files with gzip while writing; '.gz' is appended to
+		 * the file names.
+		 */
+		private boolean compress;
+
+		/**
+		 * The number of messages written to a file after which its buffers are flushed.
+		 */
+		private int flushMessages = 1000;
+
+		/**
+		 * The interval to flush the buffers of the files with unflushed messages at.
+		 */
+		private Duration flushInterval = Duration.ofSeconds(1);
+
+		/**
+		 * Whether to sync the files to the disk on every flush.
+		 */
+		private boolean fsync;
+
+		/**
+		 * The maximum number of files kept open between messages; the least recently
+		 * written file is closed when a new one is opened beyond this limit.
+		 */
+		private int maxOpenFiles = 1000;
+
+		/**
+		 * The time after which a file not written to is closed.
+		 */
+		private Duration idleTimeout = Duration.ofMinutes(1);
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public DataSize getMaxSize() {
+			return this.maxSize;
+		}
+
+		public void setMaxSize(DataSize maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public Duration getMaxAge() {
+			return this.maxAge;
+		}
+
+		public void setMaxAge(Duration maxAge) {
+			this.maxAge = maxAge;
+		}
+
+		public boolean isCompress() {
+			return this.compress;
+		}
+
+		public void setCompress(boolean compress) {
+			this.compress = compress;
+		}
+
+		public int getFlushMessages() {
+			return this.flushMessages;
+		}
+
+		public void setFlushMessages(int flushMessages) {
+			this.flushMessages = flushMessages;
+		}
+
+		public Duration getFlushInterval() {
+			return this.flushInterval;
+		}
+
+		public void setFlushInterval(Duration flushInterval) {
+			this.flushInterval = flushInterval;
+		}
+
+		public boolean isFsync() {
+			return this.fsync;
+		}
+
+		public void setFsync(boolean fsync) {
+			this.fsync = fsync;
+		}
+
+		public int getMaxOpenFiles() {
+			return this.maxOpenFiles;
+		}
+
+		public void setMaxOpenFiles(int maxOpenFiles) {
+			this.maxOpenFiles = maxOpenFiles;
+		}
+
+		public Duration getIdleTimeout() {
+			return this.idleTimeout;
+		}
+
+		public void setIdleTimeout(Duration idleTimeout) {
+			this.idleTimeout = idleTimeout;
+		}
+
+	}
+
 }
@@ -0,0 +1,439 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.file;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.integration.expression.ExpressionUtils;
+import org.springframework.integration.file.FileNameGenerator;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * The message handler appending the payloads to rolling files: the file a message is
+ * written to is closed and renamed with a timestamp suffix when it grows beyond the
+ * maximum size or gets older than the maximum age, and a new file is started under the
+ * original name. The files can be compressed with gzip while they are written.
+ * <p>
+ * The data is committed in groups: the buffers are flushed, and optionally synced to the
+ * disk, after the configured number of messages or when the flush interval elapses,
+ * whichever comes first, instead of after every message.
+ * <p>
+ * The files stay open between messages in a cache of the recently used files, bounded
+ * by the maximum number of open files; the least recently used file is closed when the
+ * cache is full, and the files not written to for the idle timeout are closed by the
+ * flush task. Each file has its own lock, so the writers to different files do not wait
+ * for each other; the cache itself is only locked to look the file up.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+final class RollingFileWriter extends AbstractMessageHandler implements DisposableBean {
+
+	private static final DateTimeFormatter ROLLED_FILE_TIMESTAMP = DateTimeFormatter
+		.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+	private static final String GZIP_EXTENSION = ".gz";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final FileConsumerProperties properties;
+
+	private final FileConsumerProperties.Rolling rolling;
+
+	private final FileNameGenerator fileNameGenerator;
+
+	private final Charset charset;
+
+	private final byte[] newLine;
+
+	private final Map<Path, RollingFile> files = new LinkedHashMap<>(16, 0.75f, true);
+
+	private ScheduledExecutorService flushScheduler;
+
+	private EvaluationContext evaluationContext;
+
+	RollingFileWriter(FileConsumerProperties properties, FileNameGenerator fileNameGenerator) {
+		this.properties = properties;
+		this.rolling = properties.getRolling();
+		this.fileNameGenerator = fileNameGenerator;
+		this.charset = Charset.forName(properties.getCharset());
+		this.newLine = System.lineSeparator().getBytes(this.charset);
+	}
+
+	@Override
+	protected void onInit() {
+		super.onInit();
+		this.evaluationContext = ExpressionUtils.createStandardEvaluationContext(getBeanFactory());
+		Stream.of(this.rolling.getFlushInterval(), this.rolling.getMaxAge(), this.rolling.getIdleTimeout())
+			.filter((duration) -> duration != null && duration.isPositive())
+			.min(Duration::compareTo)
+			.ifPresent((period) -> {
+				CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("file-consumer-flush-");
+				threadFactory.setDaemon(true);
+				this.flushScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+				long millis = period.toMillis();
+				this.flushScheduler.scheduleAtFixedRate(this::flushAndRoll, millis, millis, TimeUnit.MILLISECONDS);
+			});
+	}
+
+	@Override
+	protected void handleMessageInternal(Message<?> message) {
+		Path path = targetDirectory(message).toPath().resolve(this.fileNameGenerator.generateFileName(message));
+		RollingFile file = lockFile(path);
+		try {
+			if (file.isExpired()) {
+				file.roll();
+			}
+			OutputStream out = file.open();
+			write(message.getPayload(), out);
+			if (!this.properties.isBinary()) {
+				out.write(this.newLine);
+			}
+			DataSize maxSize = this.rolling.getMaxSize();
+			if (maxSize != null && file.size() >= maxSize.toBytes()) {
+				file.roll();
+			}
+			else if (++file.unflushedMessages >= this.rolling.getFlushMessages()) {
+				file.flush();
+			}
+		}
+		catch (IOException ex) {
+			evict(file);
+			throw new MessageHandlingException(message, "Failed to write to " + path, ex);
+		}
+		finally {
+			file.lock.unlock();
+		}
+	}
+
+	/**
+	 * Obtain the cached file for the path, or cache a new one evicting the least recently
+	 * used files beyond the limit, and lock it. The evicted files leave the cache only once
+	 * they are closed.
+	 * @param path the file path.
+	 * @return the locked file.
+	 */
+	private RollingFile lockFile(Path path) {
+		while (true) {
+			List<RollingFile> evicted = null;
+			RollingFile file;
+			synchronized (this.files) {
+				file = this.files.computeIfAbsent(path, RollingFile::new);
+				int excess = this.files.size() - Math.max(1, this.rolling.getMaxOpenFiles());
+				if (excess > 0) {
+					evicted = new ArrayList<>(excess);
+					Iterator<RollingFile> iterator = this.files.values().iterator();
+					while (excess-- > 0) {
+						evicted.add(iterator.next());
+					}
+				}
+			}
+			if (evicted != null) {
+				for (RollingFile evictedFile : evicted) {
+					evictedFile.lock.lock();
+					try {
+						// Cached until closed, so a write to it waits instead of opening the file again
+						evict(evictedFile);
+					}
+					finally {
+						evictedFile.lock.unlock();
+					}
+				}
+			}
+			file.lock.lock();
+			if (!file.evicted) {
+				return file;
+			}
+			// Evicted by another thread in the meantime
+			file.lock.unlock();
+		}
+	}
+
+	/**
+	 * Close the file and remove it from the cache; must be called with the file lock.
+	 * @param file the file to evict.
+	 */
+	private void evict(RollingFile file) {
+		file.close();
+		synchronized (this.files) {
+			this.files.remove(file.key, file);
+		}
+	}
+
+	private File targetDirectory(Message<?> message) {
+		Expression directoryExpression = this.properties.getDirectoryExpression();
+		if (directoryExpression == null) {
+			return this.properties.getDirectory();
+		}
+		Object directory = directoryExpression.getValue(this.evaluationContext, message);
+		return (directory instanceof File file) ? file : new File(String.valueOf(directory));
+	}
+
+	private void write(Object payload, OutputStream out) throws IOException {
+		if (payload instanceof byte[] bytes) {
+			out.write(bytes);
+		}
+		else if (payload instanceof String string) {
+			out.write(string.getBytes(this.charset));
+		}
+		else if (payload instanceof File file) {
+			Files.copy(file.toPath(), out);
+		}
+		else if (payload instanceof InputStream inputStream) {
+			try (inputStream) {
+				inputStream.transferTo(out);
+			}
+		}
+		else {
+			throw new IllegalArgumentException("Unsupported payload type [" + payload.getClass().getName()
+					+ "]. The only supported payloads are String, byte[], File and InputStream");
+		}
+	}
+
+	private void flushAndRoll() {
+		List<RollingFile> files;
+		synchronized (this.files) {
+			files = new ArrayList<>(this.files.values());
+		}
+		Duration idleTimeout = this.rolling.getIdleTimeout();
+		long idleBefore = (idleTimeout != null) ? System.currentTimeMillis() - idleTimeout.toMillis() : Long.MIN_VALUE;
+		for (RollingFile file : files) {
+			file.lock.lock();
+			try {
+				if (file.evicted) {
+					continue;
+				}
+				if (file.lastWritten < idleBefore) {
+					evict(file);
+				}
+				else if (file.isExpired()) {
+					file.roll();
+				}
+				else if (file.unflushedMessages > 0) {
+					file.flush();
+				}
+			}
+			catch (IOException ex) {
+				evict(file);
+				logger.error(ex, () -> "Failed to flush " + file.path);
+			}
+			finally {
+				file.lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.flushScheduler != null) {
+			this.flushScheduler.shutdownNow();
+		}
+		List<RollingFile> files;
+		synchronized (this.files) {
+			files = new ArrayList<>(this.files.values());
+			this.files.clear();
+		}
+		for (RollingFile file : files) {
+			file.lock.lock();
+			try {
+				file.close();
+			}
+			finally {
+				file.lock.unlock();
+			}
+		}
+	}
+
+	private final class RollingFile {
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private final Path key;
+
+		private final Path path;
+
+		private FileChannel channel;
+
+		private CountingOutputStream counter;
+
+		private OutputStream out;
+
+		private long openedAt;
+
+		private long lastWritten = System.currentTimeMillis();
+
+		private int unflushedMessages;
+
+		private boolean evicted;
+
+		RollingFile(Path path) {
+			this.key = path;
+			this.path = RollingFileWriter.this.rolling.isCompress()
+					? path.resolveSibling(path.getFileName() + GZIP_EXTENSION) : path;
+		}
+
+		OutputStream open() throws IOException {
+			this.lastWritten = System.currentTimeMillis();
+			if (this.out == null) {
+				Files.createDirectories(this.path.getParent());
+				this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.APPEND);
+				OutputStream channelStream = Channels.newOutputStream(this.channel);
+				if (RollingFileWriter.this.rolling.isCompress()) {
+					// The compressed size is known when the deflater emits its output
+					this.counter = new CountingOutputStream(channelStream, this.channel.size());
+					// Appending to an existing gzip file adds a new member, which is still valid gzip
+					this.out = new GZIPOutputStream(this.counter, BUFFER_SIZE, true);
+				}
+				else {
+					this.counter = new CountingOutputStream(new BufferedOutputStream(channelStream, BUFFER_SIZE),
+							this.channel.size());
+					this.out = this.counter;
+				}
+				this.openedAt = this.lastWritten;
+			}
+			return this.out;
+		}
+
+		long size() {
+			return this.counter.count;
+		}
+
+		boolean isExpired() {
+			Duration maxAge = RollingFileWriter.this.rolling.getMaxAge();
+			return this.out != null && maxAge != null
+					&& System.currentTimeMillis() - this.openedAt >= maxAge.toMillis();
+		}
+
+		void flush() throws IOException {
+			this.out.flush();
+			if (RollingFileWriter.this.rolling.isFsync()) {
+				this.channel.force(false);
+			}
+			this.unflushedMessages = 0;
+		}
+
+		/**
+		 * Close the file and rename it with the timestamp suffix; the next write opens a
+		 * new file under the original name.
+		 * @throws IOException if the file cannot be closed or renamed.
+		 */
+		void roll() throws IOException {
+			closeStreams();
+			String fileName = this.path.getFileName().toString();
+			String extension = "";
+			if (RollingFileWriter.this.rolling.isCompress()) {
+				fileName = fileName.substring(0, fileName.length() - GZIP_EXTENSION.length());
+				extension = GZIP_EXTENSION;
+			}
+			String rolledName = fileName + "." + ROLLED_FILE_TIMESTAMP.format(LocalDateTime.now());
+			Path rolledPath = this.path.resolveSibling(rolledName + extension);
+			for (int i = 1; Files.exists(rolledPath); i++) {
+				rolledPath = this.path.resolveSibling(rolledName + "-" + i + extension);
+			}
+			Files.move(this.path, rolledPath);
+		}
+
+		/**
+		 * Close the file for good, when it is evicted from the cache.
+		 */
+		void close() {
+			this.evicted = true;
+			try {
+				closeStreams();
+			}
+			catch (IOException ex) {
+				logger.error(ex, () -> "Failed to close " + this.path);
+			}
+		}
+
+		private void closeStreams() throws IOException {
+			if (this.out != null) {
+				try (FileChannel channel = this.channel) {
+					// Writes the gzip trailer, if any, before the file is rolled or evicted
+					this.out.close();
+					if (RollingFileWriter.this.rolling.isFsync()) {
+						channel.force(true);
+					}
+				}
+				finally {
+					this.out = null;
+					this.counter = null;
+					this.channel = null;
+					this.unflushedMessages = 0;
+				}
+			}
+		}
+
+	}
+
+	private static final class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		CountingOutputStream(OutputStream out, long count) {
+			super(out);
+			this.count = count;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.out.write(b);
+			this.count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+			this.count += len;
+		}
+
+	}
+
+}
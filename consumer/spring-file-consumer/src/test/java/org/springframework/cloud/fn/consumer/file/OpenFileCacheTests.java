@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.file;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+@TestPropertySource(properties = { "file.consumer.name-expression=headers.file_name", "file.consumer.binary=true",
+		"file.consumer.rolling.enabled=true", "file.consumer.rolling.max-open-files=2",
+		"file.consumer.rolling.flush-interval=0s" })
+public class OpenFileCacheTests extends AbstractFileConsumerTests {
+
+	@Test
+	public void leastRecentlyWrittenFileIsClosed() {
+		send("a", "first");
+		send("b", "first");
+		send("a", "second");
+		send("c", "first");
+
+		// 'b' is the least recently written file, so it is closed and flushed
+		assertThat(tempDir.resolve("b")).hasContent("first");
+		assertThat(tempDir.resolve("a")).isEmptyFile();
+		assertThat(tempDir.resolve("c")).isEmptyFile();
+	}
+
+	private void send(String fileName, String payload) {
+		fileConsumer.accept(MessageBuilder.withPayload(payload).setHeader(FileHeaders.FILENAME, fileName).build());
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+@TestPropertySource(properties = { "file.consumer.name=test", "file.consumer.suffix=txt", "file.consumer.binary=true",
+		"file.consumer.rolling.enabled=true", "file.consumer.rolling.max-size=1B",
+		"file.consumer.rolling.compress=true" })
+public class RollingFileTests extends AbstractFileConsumerTests {
+
+	@Test
+	public void filesAreRolledAndCompressed() throws Exception {
+		fileConsumer.accept(MessageBuilder.withPayload("first").build());
+		fileConsumer.accept(MessageBuilder.withPayload("second".getBytes()).build());
+
+		assertThat(tempDir.resolve("test.txt.gz")).doesNotExist();
+		List<String> contents;
+		try (Stream<Path> files = Files.list(tempDir)) {
+			contents = files.filter((file) -> file.getFileName().toString().matches("test\\.txt\\.[\\d-]+\\.gz"))
+				.map(RollingFileTests::gunzip)
+				.toList();
+		}
+		assertThat(contents).containsExactlyInAnyOrder("first", "second");
+	}
+
+	private static String gunzip(Path file) {
+		try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(file))) {
+			return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+}
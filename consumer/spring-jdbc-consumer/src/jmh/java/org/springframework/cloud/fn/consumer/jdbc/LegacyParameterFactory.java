@@ -0,0 +1,89 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelParseException;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.integration.jdbc.SqlParameterSourceFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.messaging.Message;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * The {@link SqlParameterSourceFactory} as it was before the extraction plans were
+ * introduced: all the expression variants are evaluated in order for every column of
+ * every row. Kept only as a baseline for the {@link ParameterFactoryBenchmark}.
+ *
+ * @author Eric Bottard
+ * @author Artem Bilan
+ * @author Spring Cloud Team
+ */
+class LegacyParameterFactory implements SqlParameterSourceFactory {
+
+	private static final Object NOT_SET = new Object();
+
+	private static final SpelExpressionParser EXPRESSION_PARSER = new SpelExpressionParser();
+
+	private final MultiValueMap<String, Expression> columnExpressions = new LinkedMultiValueMap<>();
+
+	private final EvaluationContext context;
+
+	LegacyParameterFactory(Map<String, String> columns, EvaluationContext context) {
+		this.context = context;
+		for (Map.Entry<String, String> entry : columns.entrySet()) {
+			String value = entry.getValue();
+			this.columnExpressions.add(entry.getKey(), EXPRESSION_PARSER.parseExpression(value));
+			if (!value.startsWith("payload")) {
+				try {
+					this.columnExpressions.add(entry.getKey(), EXPRESSION_PARSER.parseExpression("payload." + value));
+				}
+				catch (SpelParseException ex) {
+					// No fallback variant
+				}
+			}
+		}
+	}
+
+	@Override
+	public SqlParameterSource createParameterSource(Object o) {
+		Message<?> message = (Message<?>) o;
+		MapSqlParameterSource parameterSource = new MapSqlParameterSource();
+		for (Map.Entry<String, List<Expression>> entry : this.columnExpressions.entrySet()) {
+			Object value = NOT_SET;
+			for (Expression spel : entry.getValue()) {
+				try {
+					value = spel.getValue(this.context, message);
+					break;
+				}
+				catch (EvaluationException ex) {
+					// Try the next variant
+				}
+			}
+			parameterSource.addValue(entry.getKey(), (value != NOT_SET) ? value : null);
+		}
+		return parameterSource;
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.integration.jdbc.SqlParameterSourceFactory;
+import org.springframework.integration.json.JsonPropertyAccessor;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.GenericMessage;
+
+/**
+ * Compares the {@link LegacyParameterFactory} with the plan-based
+ * {@link ParameterFactory} for {@link Map}, POJO and JSON string payloads.
+ * <p>
+ * Run with {@code ./gradlew :spring-jdbc-consumer:jmh}.
+ *
+ * @author Spring Cloud Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParameterFactoryBenchmark {
+
+	private static final Map<String, String> COLUMNS = new ShorthandMapConverter()
+		.convert("id,name,city,amount,active,payload:payload.toString()");
+
+	@Param({ "map", "pojo", "json" })
+	public String payloadType;
+
+	@Param({ "legacy", "planned" })
+	public String factory;
+
+	private SqlParameterSourceFactory parameterSourceFactory;
+
+	private Message<?> message;
+
+	@Setup
+	public void setup() {
+		StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
+		evaluationContext.addPropertyAccessor(new MapAccessor());
+		evaluationContext.addPropertyAccessor(new JsonPropertyAccessor());
+		this.parameterSourceFactory = "legacy".equals(this.factory)
+				? new LegacyParameterFactory(COLUMNS, evaluationContext)
+				: new ParameterFactory(COLUMNS, evaluationContext);
+
+		Object payload = switch (this.payloadType) {
+			case "map" -> {
+				Map<String, Object> map = new LinkedHashMap<>();
+				map.put("id", 42L);
+				map.put("name", "John");
+				map.put("city", "Springfield");
+				map.put("amount", 10.5);
+				map.put("active", true);
+				yield map;
+			}
+			case "pojo" -> new Row(42L, "John", "Springfield", 10.5, true);
+			default -> "{\"id\": 42, \"name\": \"John\", \"city\": \"Springfield\", \"amount\": 10.5, \"active\": true}";
+		};
+		this.message = new GenericMessage<>(payload);
+	}
+
+	@Benchmark
+	public SqlParameterSource createParameterSource() {
+		return this.parameterSourceFactory.createParameterSource(this.message);
+	}
+
+	public static class Row {
+
+		private final long id;
+
+		private final String name;
+
+		private final String city;
+
+		private final double amount;
+
+		private final boolean active;
+
+		Row(long id, String name, String city, double amount, boolean active) {
+			this.id = id;
+			this.name = name;
+			this.city = city;
+			this.amount = amount;
+			this.active = active;
+		}
+
+		public long getId() {
+			return this.id;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public String getCity() {
+			return this.city;
+		}
+
+		public double getAmount() {
+			return this.amount;
+		}
+
+		public boolean isActive() {
+			return this.active;
+		}
+
+		@Override
+		public String toString() {
+			return this.id + ":" + this.name;
+		}
+
+	}
+
+}
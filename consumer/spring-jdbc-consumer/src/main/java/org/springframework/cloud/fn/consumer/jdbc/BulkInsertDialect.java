@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The strategy to write a released batch of rows with multi-row
+ * {@code INSERT ... VALUES (...), (...)} statements instead of a JDBC batch of
+ * single-row inserts, and to build the upsert statements for the
+ * {@code jdbc.consumer.key-columns} mode. A bean of this type overrides the
+ * {@code jdbc.consumer.dialect} property.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ * @see StandardBulkInsertDialect
+ */
+public interface BulkInsertDialect {
+
+	/**
+	 * The maximum number of bind parameters the database accepts in a single statement.
+	 * A non-positive value means multi-row statements are not supported and a batch is
+	 * written as a JDBC batch of single-row inserts.
+	 * @return the maximum number of bind parameters per statement.
+	 */
+	int getMaxParameters();
+
+	/**
+	 * The maximum number of rows to put into a single statement, regardless of the
+	 * parameters limit.
+	 * @return the maximum number of rows per statement.
+	 */
+	default int getMaxRows() {
+		return 1000;
+	}
+
+	/**
+	 * Whether multi-row statements are supported.
+	 * @return true if {@link #getMaxParameters()} is positive.
+	 */
+	default boolean supportsMultiRowInsert() {
+		return getMaxParameters() > 0;
+	}
+
+	/**
+	 * Build a multi-row insert statement with positional parameters.
+	 * @param tableName the table to insert into.
+	 * @param columns the columns to insert.
+	 * @param rows the number of rows in the statement.
+	 * @return the SQL statement.
+	 */
+	default String insert(String tableName, List<String> columns, int rows) {
+		StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableName).append('(');
+		sql.append(String.join(", ", columns)).append(") VALUES ");
+		appendValues(sql, columns.size(), rows);
+		return sql.toString();
+	}
+
+	/**
+	 * Build a multi-row upsert statement with positional parameters: a row is inserted if
+	 * there is none with the same key yet, otherwise its non-key columns are updated. The
+	 * default implementation uses the standard SQL {@code MERGE} statement.
+	 * @param tableName the table to upsert into.
+	 * @param columns the columns to insert or update.
+	 * @param keyColumns the columns identifying a row.
+	 * @param rows the number of rows in the statement.
+	 * @return the SQL statement.
+	 */
+	default String upsert(String tableName, List<String> columns, List<String> keyColumns, int rows) {
+		StringBuilder sql = new StringBuilder("MERGE INTO ").append(tableName).append(" USING (VALUES ");
+		appendValues(sql, columns.size(), rows);
+		sql.append(") AS source(").append(String.join(", ", columns)).append(") ON ");
+		for (int i = 0; i < keyColumns.size(); i++) {
+			if (i > 0) {
+				sql.append(" AND ");
+			}
+			String keyColumn = keyColumns.get(i);
+			sql.append(tableName).append('.').append(keyColumn).append(" = source.").append(keyColumn);
+		}
+		List<String> updateColumns = columns.stream().filter((column) -> !keyColumns.contains(column)).toList();
+		if (!updateColumns.isEmpty()) {
+			sql.append(" WHEN MATCHED THEN UPDATE SET ");
+			for (int i = 0; i < updateColumns.size(); i++) {
+				if (i > 0) {
+					sql.append(", ");
+				}
+				sql.append(updateColumns.get(i)).append(" = source.").append(updateColumns.get(i));
+			}
+		}
+		sql.append(" WHEN NOT MATCHED THEN INSERT (").append(String.join(", ", columns)).append(") VALUES (");
+		sql.append(columns.stream().map((column) -> "source." + column).collect(Collectors.joining(", ")));
+		return sql.append(')').toString();
+	}
+
+	/**
+	 * Append the {@code (?, ?), (?, ?)} row placeholders to the SQL statement.
+	 * @param sql the statement to append to.
+	 * @param columns the number of columns per row.
+	 * @param rows the number of rows.
+	 */
+	static void appendValues(StringBuilder sql, int columns, int rows) {
+		for (int row = 0; row < rows; row++) {
+			if (row > 0) {
+				sql.append(", ");
+			}
+			sql.append('(');
+			for (int column = 0; column < columns; column++) {
+				if (column > 0) {
+					sql.append(", ");
+				}
+				sql.append('?');
+			}
+			sql.append(')');
+		}
+	}
+
+}
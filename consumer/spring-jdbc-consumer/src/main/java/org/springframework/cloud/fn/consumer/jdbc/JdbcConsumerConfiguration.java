@@ -16,20 +16,22 @@
 
 package org.springframework.cloud.fn.consumer.jdbc;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import javax.sql.DataSource;
 
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -38,32 +40,28 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.EvaluationException;
 import org.springframework.expression.Expression;
-import org.springframework.expression.spel.SpelParseException;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.integration.aggregator.DefaultAggregatingMessageGroupProcessor;
 import org.springframework.integration.aggregator.MessageCountReleaseStrategy;
+import org.springframework.integration.channel.MessagePublishingErrorHandler;
 import org.springframework.integration.config.AggregatorFactoryBean;
 import org.springframework.integration.context.IntegrationContextUtils;
 import org.springframework.integration.dsl.IntegrationFlow;
 import org.springframework.integration.expression.ValueExpression;
 import org.springframework.integration.gateway.AnnotationGatewayProxyFactoryBean;
 import org.springframework.integration.jdbc.JdbcMessageHandler;
-import org.springframework.integration.jdbc.SqlParameterSourceFactory;
 import org.springframework.integration.store.MessageGroupStore;
 import org.springframework.integration.store.SimpleMessageStore;
 import org.springframework.integration.support.MutableMessage;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.datasource.init.DataSourceInitializer;
 import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessageHeaders;
-import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.Assert;
 import org.springframework.util.MimeTypeUtils;
-import org.springframework.util.MultiValueMap;
 
 /**
  * Auto-configuration for JDBC consumer.
@@ -80,12 +78,6 @@ import org.springframework.util.MultiValueMap;
 @EnableConfigurationProperties(JdbcConsumerProperties.class)
 public class JdbcConsumerConfiguration {
 
-	private static final Log LOGGER = LogFactory.getLog(JdbcConsumerConfiguration.class);
-
-	private static final Object NOT_SET = new Object();
-
-	private static final SpelExpressionParser EXPRESSION_PARSER = new SpelExpressionParser();
-
 	private final JdbcConsumerProperties properties;
 
 	public JdbcConsumerConfiguration(JdbcConsumerProperties properties) {
@@ -121,13 +113,29 @@ public class JdbcConsumerConfiguration {
 
 	@Bean
 	IntegrationFlow jdbcConsumerFlow(@Qualifier("aggregator") MessageHandler aggregator,
-			JdbcMessageHandler jdbcMessageHandler) {
+			JdbcMessageHandler jdbcMessageHandler, BeanFactory beanFactory,
+			@Qualifier(IntegrationContextUtils.INTEGRATION_EVALUATION_CONTEXT_BEAN_NAME) EvaluationContext evaluationContext) {
 
 		return (flow) -> {
-			if (this.properties.getBatchSize() > 1 || this.properties.getIdleTimeout() > 0) {
+			boolean aggregating = this.properties.getBatchSize() > 1 || this.properties.getIdleTimeout() > 0;
+			if (aggregating) {
 				flow.handle(aggregator);
 			}
-			flow.handle(jdbcMessageHandler);
+			if (this.properties.getWriters() > 1) {
+				MessagePublishingErrorHandler errorHandler = new MessagePublishingErrorHandler();
+				errorHandler.setBeanFactory(beanFactory);
+				ShardedBatchWriter writer = new ShardedBatchWriter(jdbcMessageHandler, errorHandler,
+						this.properties.getWriters(), this.properties.getMaxPendingBatches());
+				if (!aggregating) {
+					// No batches are released to carry the shard: shard the single messages
+					writer.setShardStrategy(ShardedBatchWriter.correlationStrategy(this.properties.getWriters(),
+							shardKey(evaluationContext)));
+				}
+				flow.handle(writer);
+			}
+			else {
+				flow.handle(jdbcMessageHandler);
+			}
 		};
 	}
 
@@ -140,20 +148,54 @@ public class JdbcConsumerConfiguration {
 	}
 
 	@Bean
-	FactoryBean<MessageHandler> aggregator(MessageGroupStore messageGroupStore) {
+	FactoryBean<MessageHandler> aggregator(MessageGroupStore messageGroupStore,
+			@Qualifier(IntegrationContextUtils.INTEGRATION_EVALUATION_CONTEXT_BEAN_NAME) EvaluationContext evaluationContext) {
+
 		AggregatorFactoryBean aggregatorFactoryBean = new AggregatorFactoryBean();
-		aggregatorFactoryBean.setCorrelationStrategy((message) -> message.getPayload().getClass().getName());
+		if (this.properties.getWriters() > 1) {
+			aggregatorFactoryBean.setCorrelationStrategy(
+					ShardedBatchWriter.correlationStrategy(this.properties.getWriters(), shardKey(evaluationContext)));
+		}
+		else {
+			aggregatorFactoryBean.setCorrelationStrategy((message) -> message.getPayload().getClass().getName());
+		}
 		aggregatorFactoryBean.setReleaseStrategy(new MessageCountReleaseStrategy(this.properties.getBatchSize()));
 		if (this.properties.getIdleTimeout() >= 0) {
 			aggregatorFactoryBean.setGroupTimeoutExpression(new ValueExpression<>(this.properties.getIdleTimeout()));
 		}
 		aggregatorFactoryBean.setMessageStore(messageGroupStore);
-		aggregatorFactoryBean.setProcessorBean(new DefaultAggregatingMessageGroupProcessor());
+		aggregatorFactoryBean.setProcessorBean((this.properties.getWriters() > 1) ? ShardedBatchWriter.batchProcessor()
+				: new DefaultAggregatingMessageGroupProcessor());
 		aggregatorFactoryBean.setExpireGroupsUponCompletion(true);
 		aggregatorFactoryBean.setSendPartialResultOnExpiry(true);
 		return aggregatorFactoryBean;
 	}
 
+	/**
+	 * The upserts are sharded by the key columns, so all the rows of a key are written in
+	 * order by the same writer and a later batch never overtakes an earlier one.
+	 */
+	@Nullable
+	private Function<Message<?>, Object> shardKey(EvaluationContext evaluationContext) {
+		List<String> keyColumns = this.properties.getKeyColumns();
+		Expression shardKeyExpression = this.properties.getShardKeyExpression();
+		if (!keyColumns.isEmpty()) {
+			Assert.isNull(shardKeyExpression, "The 'shardKeyExpression' cannot be used with 'keyColumns': "
+					+ "upserts are sharded by the key columns");
+			Map<String, String> keyColumnsMap = new LinkedHashMap<>();
+			keyColumns.forEach((column) -> keyColumnsMap.put(column, this.properties.getColumnsMap().get(column)));
+			ParameterFactory keyFactory = new ParameterFactory(keyColumnsMap, evaluationContext);
+			return (message) -> {
+				SqlParameterSource key = keyFactory.createParameterSource(message);
+				return keyColumns.stream().map(key::getValue).toList();
+			};
+		}
+		if (shardKeyExpression != null) {
+			return (message) -> shardKeyExpression.getValue(evaluationContext, message);
+		}
+		return null;
+	}
+
 	@Bean
 	MessageGroupStore messageGroupStore() {
 		SimpleMessageStore messageGroupStore = new SimpleMessageStore();
@@ -164,25 +206,18 @@ public class JdbcConsumerConfiguration {
 
 	@Bean
 	public JdbcMessageHandler jdbcMessageHandler(DataSource dataSource,
-			@Qualifier(IntegrationContextUtils.INTEGRATION_EVALUATION_CONTEXT_BEAN_NAME) EvaluationContext evaluationContext) {
+			@Qualifier(IntegrationContextUtils.INTEGRATION_EVALUATION_CONTEXT_BEAN_NAME) EvaluationContext evaluationContext,
+			ObjectProvider<BulkInsertDialect> bulkInsertDialect) {
 
-		final MultiValueMap<String, Expression> columnExpressionVariations = new LinkedMultiValueMap<>();
-		for (Map.Entry<String, String> entry : this.properties.getColumnsMap().entrySet()) {
-			String value = entry.getValue();
-			columnExpressionVariations.add(entry.getKey(), EXPRESSION_PARSER.parseExpression(value));
-			if (!value.startsWith("payload")) {
-				String qualified = "payload." + value;
-				try {
-					columnExpressionVariations.add(entry.getKey(), EXPRESSION_PARSER.parseExpression(qualified));
-				}
-				catch (SpelParseException ex) {
-					LOGGER.info("failed to parse qualified fallback expression " + qualified
-							+ "; be sure your expression uses the 'payload.' prefix where necessary");
-				}
-			}
-		}
+		ParameterFactory parameterFactory = new ParameterFactory(this.properties.getColumnsMap(), evaluationContext);
+		List<String> columns = new ArrayList<>(parameterFactory.getColumns());
+		List<String> keyColumns = this.properties.getKeyColumns();
+		Assert.isTrue(columns.containsAll(keyColumns),
+				() -> "The 'keyColumns' " + keyColumns + " must be a subset of the 'columns' " + columns);
+		MultiRowWriter multiRowWriter = new MultiRowWriter(dataSource, this.properties.getTableName(), columns,
+				keyColumns, parameterFactory, bulkInsertDialect.getIfAvailable(this.properties::getDialect));
 		JdbcMessageHandler jdbcMessageHandler = new JdbcMessageHandler(dataSource,
-				generateSql(this.properties.getTableName(), columnExpressionVariations.keySet())) {
+				generateSql(this.properties.getTableName(), parameterFactory.getColumns())) {
 
 			@Override
 			protected void handleMessageInternal(final Message<?> message) {
@@ -213,12 +248,15 @@ public class JdbcConsumerConfiguration {
 						}
 					}
 				}
-				super.handleMessageInternal(convertedMessage);
+				if (multiRowWriter.canWrite(convertedMessage)) {
+					multiRowWriter.write(convertedMessage);
+				}
+				else {
+					super.handleMessageInternal(convertedMessage);
+				}
 			}
 		};
-		SqlParameterSourceFactory parameterSourceFactory = new ParameterFactory(columnExpressionVariations,
-				evaluationContext);
-		jdbcMessageHandler.setSqlParameterSourceFactory(parameterSourceFactory);
+		jdbcMessageHandler.setSqlParameterSourceFactory(parameterFactory);
 		return jdbcMessageHandler;
 	}
 
@@ -240,42 +278,4 @@ public class JdbcConsumerConfiguration {
 		return dataSourceInitializer;
 	}
 
-	private record ParameterFactory(MultiValueMap<String, Expression> columnExpressions,
-			EvaluationContext context) implements SqlParameterSourceFactory {
-
-		@Override
-		public SqlParameterSource createParameterSource(Object o) {
-			if (!(o instanceof Message<?> message)) {
-				throw new IllegalArgumentException("Unable to handle type " + o.getClass().getName());
-			}
-			MapSqlParameterSource parameterSource = new MapSqlParameterSource();
-			for (Map.Entry<String, List<Expression>> entry : this.columnExpressions.entrySet()) {
-				String key = entry.getKey();
-				List<Expression> spels = entry.getValue();
-				Object value = NOT_SET;
-				EvaluationException lastException = null;
-				for (Expression spel : spels) {
-					try {
-						value = spel.getValue(this.context, message);
-						break;
-					}
-					catch (EvaluationException ex) {
-						lastException = ex;
-					}
-				}
-				if (value == NOT_SET) {
-					if (lastException != null) {
-						LOGGER.info("Could not find value for column '" + key + "': " + lastException.getMessage());
-					}
-					parameterSource.addValue(key, null);
-				}
-				else {
-					parameterSource.addValue(key, value);
-				}
-			}
-			return parameterSource;
-		}
-
-	}
-
 }
@@ -16,10 +16,13 @@
 
 package org.springframework.cloud.fn.consumer.jdbc;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.expression.Expression;
 
 /**
  * The configuration properties for JDBC consumer.
@@ -60,6 +63,40 @@ public class JdbcConsumerProperties {
 	 */
 	private long idleTimeout = -1L;
 
+	/**
+	 * The columns identifying a row. When set, rows are upserted according to the
+	 * 'dialect' and a released batch is first collapsed to the last row per key. With
+	 * several 'writers', the rows are sharded by these columns.
+	 */
+	private List<String> keyColumns = new ArrayList<>();
+
+	/**
+	 * Number of independent batch accumulators, the released batches of each being
+	 * written in order by its own writer thread. The 'batchSize' applies to every
+	 * accumulator. The writes happen after the message is accepted, so a failed write is
+	 * only published to the error channel.
+	 */
+	private int writers = 1;
+
+	/**
+	 * SpEL expression for the key to shard messages across the batch accumulators by.
+	 * Messages are spread round-robin if not set.
+	 */
+	private Expression shardKeyExpression;
+
+	/**
+	 * Number of released batches which may wait for the writer of their shard. When this
+	 * queue is full, the calling thread waits for the writer.
+	 */
+	private int maxPendingBatches;
+
+	/**
+	 * The dialect for multi-row inserts of a released batch. Auto-detected from the
+	 * database product name if not set; 'generic' writes a batch as a JDBC batch of
+	 * single-row inserts.
+	 */
+	private StandardBulkInsertDialect dialect;
+
 	private Map<String, String> columnsMap;
 
 	public String getTableName() {
@@ -102,6 +139,46 @@ public class JdbcConsumerProperties {
 		this.idleTimeout = idleTimeout;
 	}
 
+	public List<String> getKeyColumns() {
+		return this.keyColumns;
+	}
+
+	public void setKeyColumns(List<String> keyColumns) {
+		this.keyColumns = keyColumns;
+	}
+
+	public int getWriters() {
+		return this.writers;
+	}
+
+	public void setWriters(int writers) {
+		this.writers = writers;
+	}
+
+	public Expression getShardKeyExpression() {
+		return this.shardKeyExpression;
+	}
+
+	public void setShardKeyExpression(Expression shardKeyExpression) {
+		this.shardKeyExpression = shardKeyExpression;
+	}
+
+	public int getMaxPendingBatches() {
+		return this.maxPendingBatches;
+	}
+
+	public void setMaxPendingBatches(int maxPendingBatches) {
+		this.maxPendingBatches = maxPendingBatches;
+	}
+
+	public StandardBulkInsertDialect getDialect() {
+		return this.dialect;
+	}
+
+	public void setDialect(StandardBulkInsertDialect dialect) {
+		this.dialect = dialect;
+	}
+
 	Map<String, String> getColumnsMap() {
 		if (this.columnsMap == null) {
 			this.columnsMap = this.shorthandMapConverter.convert(this.columns);
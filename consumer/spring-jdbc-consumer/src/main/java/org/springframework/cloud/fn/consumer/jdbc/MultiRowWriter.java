@@ -0,0 +1,205 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.integration.jdbc.SqlParameterSourceFactory;
+import org.springframework.integration.support.MutableMessage;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.messaging.Message;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * Writes a released batch of rows with multi-row {@code INSERT} statements, chunked
+ * according to the {@link BulkInsertDialect} limits.
+ * <p>
+ * When key columns are provided, the rows are upserted instead and a batch is first
+ * collapsed to the last row per key. Upserts are written by this writer even if the
+ * dialect does not support multi-row statements, as a JDBC batch of single-row ones.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+class MultiRowWriter {
+
+	private static final Log LOGGER = LogFactory.getLog(MultiRowWriter.class);
+
+	private final JdbcOperations jdbcOperations;
+
+	private final String tableName;
+
+	private final List<String> columns;
+
+	private final List<String> keyColumns;
+
+	private final SqlParameterSourceFactory parameterSourceFactory;
+
+	private final Supplier<BulkInsertDialect> dialect;
+
+	private final Map<Integer, String> statements = new ConcurrentHashMap<>();
+
+	MultiRowWriter(DataSource dataSource, String tableName, List<String> columns, List<String> keyColumns,
+			SqlParameterSourceFactory parameterSourceFactory, BulkInsertDialect dialect) {
+
+		this.jdbcOperations = new JdbcTemplate(dataSource);
+		this.tableName = tableName;
+		this.columns = columns;
+		this.keyColumns = keyColumns;
+		this.parameterSourceFactory = parameterSourceFactory;
+		this.dialect = (dialect != null) ? () -> dialect : SingletonSupplier.of(() -> detectDialect(dataSource));
+	}
+
+	private static BulkInsertDialect detectDialect(DataSource dataSource) {
+		try {
+			String productName = JdbcUtils.extractDatabaseMetaData(dataSource,
+					DatabaseMetaData::getDatabaseProductName);
+			BulkInsertDialect dialect = StandardBulkInsertDialect.forDatabaseProductName(productName);
+			LOGGER.debug("Using " + dialect + " bulk insert dialect for database: " + productName);
+			return dialect;
+		}
+		catch (MetaDataAccessException ex) {
+			LOGGER.warn("Cannot detect the database product; falling back to JDBC batch inserts", ex);
+			return StandardBulkInsertDialect.GENERIC;
+		}
+	}
+
+	BulkInsertDialect getDialect() {
+		return this.dialect.get();
+	}
+
+	boolean isUpsert() {
+		return !this.keyColumns.isEmpty();
+	}
+
+	/**
+	 * Whether this writer has to handle the message instead of the plain single-row
+	 * {@code INSERT}.
+	 * @param message the message to write.
+	 * @return true for upserts and for batches if the dialect supports multi-row
+	 * statements.
+	 */
+	boolean canWrite(Message<?> message) {
+		return isUpsert() || (message.getPayload() instanceof Iterable && getDialect().supportsMultiRowInsert());
+	}
+
+	/**
+	 * Write the message payload with as few statements as the dialect limits allow.
+	 * @param message the message with a single row or a batch of rows (either messages
+	 * or plain payloads) as a payload.
+	 */
+	void write(Message<?> message) {
+		List<SqlParameterSource> rows = new ArrayList<>();
+		if (message.getPayload() instanceof Iterable<?> payloads) {
+			for (Object payload : payloads) {
+				Message<?> row = (payload instanceof Message<?> item) ? item
+						: new MutableMessage<>(payload, message.getHeaders());
+				rows.add(this.parameterSourceFactory.createParameterSource(row));
+			}
+		}
+		else {
+			rows.add(this.parameterSourceFactory.createParameterSource(message));
+		}
+		write(isUpsert() ? lastRowPerKey(rows) : rows);
+	}
+
+	private Collection<SqlParameterSource> lastRowPerKey(List<SqlParameterSource> rows) {
+		Map<List<Object>, SqlParameterSource> lastRows = new LinkedHashMap<>();
+		for (SqlParameterSource row : rows) {
+			Object[] key = new Object[this.keyColumns.size()];
+			for (int i = 0; i < key.length; i++) {
+				key[i] = row.getValue(this.keyColumns.get(i));
+			}
+			lastRows.put(Arrays.asList(key), row);
+		}
+		return lastRows.values();
+	}
+
+	private void write(Collection<SqlParameterSource> rows) {
+		BulkInsertDialect dialect = getDialect();
+		List<SqlParameterSource> rowList = new ArrayList<>(rows);
+		if (!dialect.supportsMultiRowInsert()) {
+			String sql = this.statements.computeIfAbsent(1, this::statement);
+			this.jdbcOperations.batchUpdate(sql, new BatchPreparedStatementSetter() {
+
+				@Override
+				public void setValues(PreparedStatement preparedStatement, int i) throws SQLException {
+					setRowValues(preparedStatement, 1, rowList.get(i));
+				}
+
+				@Override
+				public int getBatchSize() {
+					return rowList.size();
+				}
+
+			});
+			return;
+		}
+		int rowsPerStatement = Math.max(1,
+				Math.min(dialect.getMaxRows(), dialect.getMaxParameters() / this.columns.size()));
+		for (int from = 0; from < rowList.size(); from += rowsPerStatement) {
+			List<SqlParameterSource> chunk = rowList.subList(from,
+					Math.min(rowList.size(), from + rowsPerStatement));
+			String sql = this.statements.computeIfAbsent(chunk.size(), this::statement);
+			this.jdbcOperations.update(sql, (preparedStatement) -> {
+				int index = 1;
+				for (SqlParameterSource row : chunk) {
+					index = setRowValues(preparedStatement, index, row);
+				}
+			});
+		}
+	}
+
+	private String statement(int rows) {
+		return isUpsert() ? getDialect().upsert(this.tableName, this.columns, this.keyColumns, rows)
+				: getDialect().insert(this.tableName, this.columns, rows);
+	}
+
+	private int setRowValues(PreparedStatement preparedStatement, int startIndex, SqlParameterSource row)
+			throws SQLException {
+
+		int index = startIndex;
+		for (String column : this.columns) {
+			StatementCreatorUtils.setParameterValue(preparedStatement, index++, SqlTypeValue.TYPE_UNKNOWN,
+					row.getValue(column));
+		}
+		return index;
+	}
+
+}
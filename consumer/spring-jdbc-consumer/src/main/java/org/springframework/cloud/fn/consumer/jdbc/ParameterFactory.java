@@ -0,0 +1,290 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParseException;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.integration.jdbc.SqlParameterSourceFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.messaging.Message;
+
+/**
+ * The {@link SqlParameterSourceFactory} extracting column values from a {@link Message}
+ * according to the {@code jdbc.consumer.columns} expressions.
+ * <p>
+ * Each column expression is evaluated against the message and, if it is not already
+ * qualified, against the {@code payload.}-prefixed variant. Which variant resolves a
+ * column depends only on the message and payload types, so it is determined once per
+ * type pair and cached as an extraction plan. The plan reads simple property names
+ * straight from {@link Map} and JSON string payloads and uses compiled SpEL
+ * expressions otherwise. Only when a planned extractor cannot produce a value, the
+ * factory falls back to trying all the expression variants in order.
+ *
+ * @author Eric Bottard
+ * @author Artem Bilan
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+final class ParameterFactory implements SqlParameterSourceFactory {
+
+	private static final Log LOGGER = LogFactory.getLog(ParameterFactory.class);
+
+	private static final Object NOT_SET = new Object();
+
+	private static final Pattern PROPERTY_NAME = Pattern.compile("[A-Za-z_$][\\w$]*");
+
+	private static final SpelExpressionParser EXPRESSION_PARSER = new SpelExpressionParser();
+
+	private static final SpelExpressionParser COMPILING_EXPRESSION_PARSER = new SpelExpressionParser(
+			new SpelParserConfiguration(SpelCompilerMode.MIXED, null));
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private final Map<String, String> columns;
+
+	private final Column[] columnPlans;
+
+	private final EvaluationContext context;
+
+	private final Map<PlanKey, ColumnExtractor[]> plans = new ConcurrentHashMap<>();
+
+	ParameterFactory(Map<String, String> columns, EvaluationContext context) {
+		this.columns = columns;
+		this.context = context;
+		this.columnPlans = columns.entrySet()
+			.stream()
+			.map((entry) -> new Column(entry.getKey(), entry.getValue()))
+			.toArray(Column[]::new);
+	}
+
+	Set<String> getColumns() {
+		return this.columns.keySet();
+	}
+
+	@Override
+	public SqlParameterSource createParameterSource(Object o) {
+		if (!(o instanceof Message<?> message)) {
+			throw new IllegalArgumentException("Unable to handle type " + o.getClass().getName());
+		}
+		ColumnExtractor[] plan = this.plans.computeIfAbsent(
+				new PlanKey(message.getClass(), message.getPayload().getClass()),
+				(key) -> new ColumnExtractor[this.columnPlans.length]);
+		Row row = new Row(message);
+		MapSqlParameterSource parameterSource = new MapSqlParameterSource();
+		for (int i = 0; i < this.columnPlans.length; i++) {
+			Column column = this.columnPlans[i];
+			Object value = NOT_SET;
+			ColumnExtractor extractor = plan[i];
+			if (extractor != null) {
+				try {
+					value = extractor.extract(row);
+				}
+				catch (EvaluationException ex) {
+					// Data-dependent failure; let all the variants have their chance
+				}
+			}
+			else {
+				value = resolve(column, plan, i, message);
+			}
+			if (value == NOT_SET) {
+				value = evaluateVariants(column, message);
+			}
+			parameterSource.addValue(column.name, value);
+		}
+		return parameterSource;
+	}
+
+	/**
+	 * Determine which expression variant resolves the column for this message type and
+	 * store the respective extractor into the plan. If no variant resolves, the plan gets
+	 * an extractor repeating this resolution, so the variants are evaluated only once per
+	 * message and a later message can still install the planned extractor.
+	 * @return the value produced by the resolved variant or {@code null}.
+	 */
+	private Object resolve(Column column, ColumnExtractor[] plan, int index, Message<?> message) {
+		EvaluationException lastException = null;
+		for (int i = 0; i < column.variants.size(); i++) {
+			Object value;
+			try {
+				value = column.variants.get(i).getValue(this.context, message);
+			}
+			catch (EvaluationException ex) {
+				lastException = ex;
+				continue;
+			}
+			plan[index] = extractorFor(column, i, message.getPayload());
+			return value;
+		}
+		if (plan[index] == null) {
+			plan[index] = (row) -> resolve(column, plan, index, row.message);
+		}
+		if (lastException != null) {
+			LOGGER.info("Could not find value for column '" + column.name + "': " + lastException.getMessage());
+		}
+		return null;
+	}
+
+	private ColumnExtractor extractorFor(Column column, int variant, Object payload) {
+		String expressionString = column.expressionStrings.get(variant);
+		Expression compiled = COMPILING_EXPRESSION_PARSER.parseExpression(expressionString);
+		ColumnExtractor compiledExtractor = (row) -> compiled.getValue(this.context, row.message);
+		if (variant > 0 && column.propertyName != null) {
+			String propertyName = column.propertyName;
+			if (payload instanceof Map) {
+				return (row) -> ((Map<?, ?>) row.message.getPayload()).get(propertyName);
+			}
+			else if (payload instanceof String) {
+				return (row) -> {
+					Object value = row.jsonValue(propertyName);
+					return (value != NOT_SET) ? value : compiledExtractor.extract(row);
+				};
+			}
+		}
+		return compiledExtractor;
+	}
+
+	private Object evaluateVariants(Column column, Message<?> message) {
+		EvaluationException lastException = null;
+		for (Expression spel : column.variants) {
+			try {
+				return spel.getValue(this.context, message);
+			}
+			catch (EvaluationException ex) {
+				lastException = ex;
+			}
+		}
+		if (lastException != null) {
+			LOGGER.info("Could not find value for column '" + column.name + "': " + lastException.getMessage());
+		}
+		return null;
+	}
+
+	@FunctionalInterface
+	private interface ColumnExtractor {
+
+		Object extract(Row row);
+
+	}
+
+	private record PlanKey(Class<?> messageType, Class<?> payloadType) {
+
+	}
+
+	private static final class Column {
+
+		private final String name;
+
+		private final List<String> expressionStrings = new ArrayList<>(2);
+
+		private final List<Expression> variants = new ArrayList<>(2);
+
+		private final String propertyName;
+
+		Column(String name, String expression) {
+			this.name = name;
+			this.expressionStrings.add(expression);
+			this.variants.add(EXPRESSION_PARSER.parseExpression(expression));
+			if (!expression.startsWith("payload")) {
+				String qualified = "payload." + expression;
+				try {
+					this.variants.add(EXPRESSION_PARSER.parseExpression(qualified));
+					this.expressionStrings.add(qualified);
+				}
+				catch (SpelParseException ex) {
+					LOGGER.info("failed to parse qualified fallback expression " + qualified
+							+ "; be sure your expression uses the 'payload.' prefix where necessary");
+				}
+			}
+			this.propertyName = PROPERTY_NAME.matcher(expression).matches() ? expression : null;
+		}
+
+	}
+
+	/**
+	 * The per-message state shared between column extractors, so a JSON payload is
+	 * parsed only once for all the columns.
+	 */
+	private static final class Row {
+
+		private final Message<?> message;
+
+		private JsonNode json;
+
+		private boolean jsonParsed;
+
+		Row(Message<?> message) {
+			this.message = message;
+		}
+
+		/**
+		 * Read a top-level scalar field the same way the {@code JsonPropertyAccessor}
+		 * does.
+		 * @return the field value or {@link #NOT_SET} if the payload is not a JSON object
+		 * or the field is a container node.
+		 */
+		Object jsonValue(String name) {
+			if (!this.jsonParsed) {
+				this.jsonParsed = true;
+				try {
+					this.json = OBJECT_MAPPER.readTree((String) this.message.getPayload());
+				}
+				catch (IOException ex) {
+					// Not a JSON; the SpEL evaluation decides
+				}
+			}
+			if (!(this.json instanceof ObjectNode)) {
+				return NOT_SET;
+			}
+			JsonNode node = this.json.get(name);
+			if (node == null || node.isNull()) {
+				return null;
+			}
+			else if (node.isTextual()) {
+				return node.textValue();
+			}
+			else if (node.isNumber()) {
+				return node.numberValue();
+			}
+			else if (node.isBoolean()) {
+				return node.booleanValue();
+			}
+			return NOT_SET;
+		}
+
+	}
+
+}
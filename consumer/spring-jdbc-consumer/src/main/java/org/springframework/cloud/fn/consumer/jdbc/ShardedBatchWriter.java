@@ -0,0 +1,203 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.aggregator.CorrelationStrategy;
+import org.springframework.integration.aggregator.DefaultAggregatingMessageGroupProcessor;
+import org.springframework.integration.aggregator.MessageGroupProcessor;
+import org.springframework.integration.store.MessageGroup;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * The {@link MessageHandler} to write released batches concurrently, one writer thread
+ * per shard. The batches of a shard are written in order by the writer of that shard
+ * only. When the pending batches queue of a writer is full, the calling thread waits for
+ * it, which slows down the producer to the pace of the database.
+ * <p>
+ * The batches are written after the caller returns, so a failed write does not reach
+ * the caller: it is only reported to the {@link ErrorHandler}.
+ * <p>
+ * Also provides the {@link CorrelationStrategy} to shard incoming messages across
+ * independent aggregator groups, one group per writer, either round-robin or by a key,
+ * and the {@link MessageGroupProcessor} marking the released batches with
+ * their shard.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+final class ShardedBatchWriter implements MessageHandler, DisposableBean {
+
+	static final String SHARD_HEADER = "jdbc_consumerShard";
+
+	private static final Log LOGGER = LogFactory.getLog(ShardedBatchWriter.class);
+
+	private final MessageHandler delegate;
+
+	private final ErrorHandler errorHandler;
+
+	private final ThreadPoolExecutor[] writers;
+
+	@Nullable
+	private CorrelationStrategy shardStrategy;
+
+	ShardedBatchWriter(MessageHandler delegate, ErrorHandler errorHandler, int writers, int maxPendingBatches) {
+		this.delegate = delegate;
+		this.errorHandler = errorHandler;
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("jdbc-consumer-writer-");
+		this.writers = new ThreadPoolExecutor[writers];
+		for (int i = 0; i < writers; i++) {
+			BlockingQueue<Runnable> pendingBatches = (maxPendingBatches > 0)
+					? new ArrayBlockingQueue<>(maxPendingBatches) : new SynchronousQueue<>();
+			this.writers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, pendingBatches, threadFactory,
+					ShardedBatchWriter::waitForWriter);
+		}
+	}
+
+	/**
+	 * Set the {@link CorrelationStrategy} computing the shard of a message which comes
+	 * without the {@link #SHARD_HEADER}, i.e. when no aggregator releases batches in front
+	 * of this handler; otherwise, such a message goes to the first writer.
+	 * @param shardStrategy the shard strategy.
+	 */
+	void setShardStrategy(CorrelationStrategy shardStrategy) {
+		this.shardStrategy = shardStrategy;
+	}
+
+	@Override
+	public void handleMessage(Message<?> message) {
+		Object shard = message.getHeaders().get(SHARD_HEADER);
+		if (shard == null && this.shardStrategy != null) {
+			shard = this.shardStrategy.getCorrelationKey(message);
+		}
+		int writer = (shard != null) ? shardIndex(shard.toString()) : 0;
+		this.writers[writer].execute(() -> {
+			try {
+				this.delegate.handleMessage(message);
+			}
+			catch (Throwable ex) {
+				this.errorHandler.handleError(ex);
+			}
+		});
+	}
+
+	private int shardIndex(String shard) {
+		int index = shard.lastIndexOf('#');
+		if (index >= 0) {
+			try {
+				return Math.floorMod(Integer.parseInt(shard.substring(index + 1)), this.writers.length);
+			}
+			catch (NumberFormatException ex) {
+				// Not a shard of ours; fall back to the hash
+			}
+		}
+		return Math.floorMod(shard.hashCode(), this.writers.length);
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		for (ThreadPoolExecutor writer : this.writers) {
+			writer.shutdown();
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		boolean terminated = true;
+		for (ThreadPoolExecutor writer : this.writers) {
+			terminated &= writer.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		}
+		if (!terminated) {
+			LOGGER.warn("Not all the pending batches have been written before shutdown");
+			for (ThreadPoolExecutor writer : this.writers) {
+				writer.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Block the caller until the writer takes the batch, so the batches of a shard are
+	 * never written out of order by the calling thread.
+	 */
+	private static void waitForWriter(Runnable batch, ThreadPoolExecutor writer) {
+		if (writer.isShutdown()) {
+			throw new RejectedExecutionException("The writer is shut down");
+		}
+		try {
+			writer.getQueue().put(batch);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException("Interrupted while waiting for a writer", ex);
+		}
+	}
+
+	/**
+	 * Create a {@link MessageGroupProcessor} aggregating a group into a batch marked with
+	 * the group id in the {@link #SHARD_HEADER}.
+	 * @return the message group processor.
+	 */
+	static MessageGroupProcessor batchProcessor() {
+		return new ShardMarkingGroupProcessor();
+	}
+
+	/**
+	 * Create a {@link CorrelationStrategy} spreading messages of the same payload type
+	 * across the given number of shards.
+	 * @param shards the number of shards.
+	 * @param shardKey the function for the shard key; round-robin if null.
+	 * @return the correlation strategy.
+	 */
+	static CorrelationStrategy correlationStrategy(int shards, @Nullable Function<Message<?>, Object> shardKey) {
+		if (shardKey == null) {
+			AtomicInteger counter = new AtomicInteger();
+			return (message) -> message.getPayload().getClass().getName() + '#'
+					+ Math.floorMod(counter.getAndIncrement(), shards);
+		}
+		return (message) -> {
+			Object key = shardKey.apply(message);
+			return message.getPayload().getClass().getName() + '#'
+					+ Math.floorMod((key != null) ? key.hashCode() : 0, shards);
+		};
+	}
+
+	private static final class ShardMarkingGroupProcessor extends DefaultAggregatingMessageGroupProcessor {
+
+		@Override
+		protected Map<String, Object> aggregateHeaders(MessageGroup group) {
+			Map<String, Object> headers = super.aggregateHeaders(group);
+			headers.put(SHARD_HEADER, group.getGroupId());
+			return headers;
+		}
+
+	}
+
+}
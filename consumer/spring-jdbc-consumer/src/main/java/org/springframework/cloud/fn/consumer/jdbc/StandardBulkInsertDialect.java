@@ -0,0 +1,131 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * The out-of-the-box {@link BulkInsertDialect} implementations.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+public enum StandardBulkInsertDialect implements BulkInsertDialect {
+
+	/**
+	 * Writes a batch as a JDBC batch of single-row inserts; upserts with the standard
+	 * SQL {@code MERGE} statement.
+	 */
+	GENERIC(0),
+
+	/**
+	 * H2 has no hard limit for bind parameters, so the statement size is kept moderate
+	 * to not spend too much time for parsing. Upserts with {@code MERGE INTO ... KEY}.
+	 */
+	H2(10_000) {
+
+		@Override
+		public String upsert(String tableName, List<String> columns, List<String> keyColumns, int rows) {
+			StringBuilder sql = new StringBuilder("MERGE INTO ").append(tableName).append('(');
+			sql.append(String.join(", ", columns)).append(") KEY(").append(String.join(", ", keyColumns));
+			sql.append(") VALUES ");
+			BulkInsertDialect.appendValues(sql, columns.size(), rows);
+			return sql.toString();
+		}
+
+	},
+
+	/**
+	 * The PostgreSQL wire protocol carries the number of bind parameters as a 16-bit
+	 * integer. Upserts with {@code INSERT ... ON CONFLICT}.
+	 */
+	POSTGRESQL(Short.MAX_VALUE) {
+
+		@Override
+		public String upsert(String tableName, List<String> columns, List<String> keyColumns, int rows) {
+			StringBuilder sql = new StringBuilder(insert(tableName, columns, rows));
+			sql.append(" ON CONFLICT (").append(String.join(", ", keyColumns)).append(") DO ");
+			String updates = updateColumns(columns, keyColumns).stream()
+				.map((column) -> column + " = EXCLUDED." + column)
+				.collect(Collectors.joining(", "));
+			return sql.append(updates.isEmpty() ? "NOTHING" : "UPDATE SET " + updates).toString();
+		}
+
+	},
+
+	/**
+	 * MySQL and MariaDB prepared statements accept up to 65535 placeholders. Upserts with
+	 * {@code INSERT ... ON DUPLICATE KEY UPDATE}; the key columns must be covered by a
+	 * primary or unique key.
+	 */
+	MYSQL(65_535) {
+
+		@Override
+		public String upsert(String tableName, List<String> columns, List<String> keyColumns, int rows) {
+			List<String> updateColumns = updateColumns(columns, keyColumns);
+			if (updateColumns.isEmpty()) {
+				updateColumns = List.of(keyColumns.get(0));
+			}
+			return insert(tableName, columns, rows) + " ON DUPLICATE KEY UPDATE "
+					+ updateColumns.stream()
+						.map((column) -> column + " = VALUES(" + column + ")")
+						.collect(Collectors.joining(", "));
+		}
+
+	};
+
+	private final int maxParameters;
+
+	StandardBulkInsertDialect(int maxParameters) {
+		this.maxParameters = maxParameters;
+	}
+
+	@Override
+	public int getMaxParameters() {
+		return this.maxParameters;
+	}
+
+	private static List<String> updateColumns(List<String> columns, List<String> keyColumns) {
+		return columns.stream().filter((column) -> !keyColumns.contains(column)).toList();
+	}
+
+	/**
+	 * Select a dialect according to the
+	 * {@link java.sql.DatabaseMetaData#getDatabaseProductName()}.
+	 * @param databaseProductName the database product name.
+	 * @return the dialect for the database; {@link #GENERIC} if unknown.
+	 */
+	public static StandardBulkInsertDialect forDatabaseProductName(String databaseProductName) {
+		if (databaseProductName == null) {
+			return GENERIC;
+		}
+		String productName = databaseProductName.toLowerCase(Locale.ROOT);
+		if (productName.contains("h2")) {
+			return H2;
+		}
+		else if (productName.contains("postgres")) {
+			return POSTGRESQL;
+		}
+		else if (productName.contains("mysql") || productName.contains("mariadb")) {
+			return MYSQL;
+		}
+		return GENERIC;
+	}
+
+}
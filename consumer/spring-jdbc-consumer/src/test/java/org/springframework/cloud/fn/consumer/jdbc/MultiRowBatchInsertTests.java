@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+@TestPropertySource(properties = { "jdbc.consumer.columns=a,b", "jdbc.consumer.batchSize=7",
+		"jdbc.consumer.idleTimeout=100", "jdbc.consumer.dialect=h2" })
+public class MultiRowBatchInsertTests extends JdbcConsumerApplicationTests {
+
+	@Test
+	public void testMultiRowInsertion() {
+		int numberOfInserts = 25;
+		for (int i = 0; i < numberOfInserts; i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("a", "hello" + i);
+			if (i % 2 == 0) {
+				row.put("b", i);
+			}
+			jdbcConsumer.accept(MessageBuilder.withPayload(row).build());
+		}
+		Awaitility.await()
+			.until(() -> jdbcOperations.queryForObject("select count(*) from messages", Integer.class),
+					(value) -> value == numberOfInserts);
+		assertThat(jdbcOperations.queryForObject("select count(*) from messages where b IS NULL", Integer.class))
+			.isEqualTo(12);
+		assertThat(jdbcOperations.queryForObject("select b from messages where a = ?", String.class, "hello24"))
+			.isEqualTo("24");
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.integration.json.JsonPropertyAccessor;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.messaging.support.GenericMessage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+public class ParameterFactoryTests {
+
+	private final ParameterFactory parameterFactory;
+
+	ParameterFactoryTests() {
+		StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
+		evaluationContext.addPropertyAccessor(new MapAccessor());
+		evaluationContext.addPropertyAccessor(new JsonPropertyAccessor());
+		this.parameterFactory = new ParameterFactory(
+				new ShorthandMapConverter().convert("a,b,c: a.toUpperCase(),payload: payload.toString()"),
+				evaluationContext);
+	}
+
+	@Test
+	void planIsReusedForSameType() {
+		for (int i = 0; i < 300; i++) {
+			SqlParameterSource source = this.parameterFactory
+				.createParameterSource(new GenericMessage<>(new JdbcConsumerApplicationTests.Payload("x" + i, i)));
+			assertThat(source.getValue("a")).isEqualTo("x" + i);
+			assertThat(source.getValue("b")).isEqualTo(i);
+			assertThat(source.getValue("c")).isEqualTo("X" + i);
+			assertThat(source.getValue("payload")).isEqualTo("x" + i + i);
+		}
+	}
+
+	@Test
+	void mapPayloadMissingKeysAreNull() {
+		Map<String, Object> first = new HashMap<>();
+		first.put("a", "hello");
+		first.put("b", 42);
+		Map<String, Object> second = new HashMap<>();
+		second.put("a", "world");
+
+		SqlParameterSource source = this.parameterFactory.createParameterSource(new GenericMessage<>(first));
+		assertThat(source.getValue("a")).isEqualTo("hello");
+		assertThat(source.getValue("b")).isEqualTo(42);
+		assertThat(source.getValue("c")).isEqualTo("HELLO");
+
+		source = this.parameterFactory.createParameterSource(new GenericMessage<>(second));
+		assertThat(source.getValue("a")).isEqualTo("world");
+		assertThat(source.getValue("b")).isNull();
+		assertThat(source.getValue("c")).isEqualTo("WORLD");
+	}
+
+	@Test
+	void jsonPayloadIsReadLikeJsonPropertyAccessor() {
+		SqlParameterSource source = this.parameterFactory
+			.createParameterSource(new GenericMessage<>("{\"a\": \"hello\", \"b\": 42}"));
+		assertThat(source.getValue("a")).isEqualTo("hello");
+		assertThat(source.getValue("b")).isEqualTo(42);
+		assertThat(source.getValue("c")).isEqualTo("HELLO");
+
+		source = this.parameterFactory.createParameterSource(new GenericMessage<>("{\"a\": \"world\", \"b\": null}"));
+		assertThat(source.getValue("a")).isEqualTo("world");
+		assertThat(source.getValue("b")).isNull();
+
+		source = this.parameterFactory.createParameterSource(new GenericMessage<>("{\"b\": [1, 2]}"));
+		assertThat(source.getValue("a")).isNull();
+		assertThat(source.getValue("b")).asString().contains("1", "2");
+	}
+
+	@Test
+	void noValueWhenNoVariantResolves() {
+		for (int i = 0; i < 3; i++) {
+			SqlParameterSource source = this.parameterFactory.createParameterSource(new GenericMessage<>(i));
+			assertThat(source.getValue("a")).isNull();
+			assertThat(source.getValue("b")).isNull();
+			assertThat(source.getValue("payload")).isEqualTo(String.valueOf(i));
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.integration.support.MessageBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+public class ShardedBatchWriterTests {
+
+	@Test
+	void batchesOfShardAreWrittenInOrderByOneThread() throws Exception {
+		Map<String, List<Integer>> written = new ConcurrentHashMap<>();
+		Map<String, List<String>> threads = new ConcurrentHashMap<>();
+		List<Throwable> errors = new CopyOnWriteArrayList<>();
+		ShardedBatchWriter writer = new ShardedBatchWriter((message) -> {
+			String shard = (String) message.getHeaders().get(ShardedBatchWriter.SHARD_HEADER);
+			threads.computeIfAbsent(shard, (key) -> new CopyOnWriteArrayList<>())
+				.add(Thread.currentThread().getName());
+			written.computeIfAbsent(shard, (key) -> new CopyOnWriteArrayList<>()).add((Integer) message.getPayload());
+		}, errors::add, 2, 0);
+
+		for (int i = 0; i < 100; i++) {
+			writer.handleMessage(MessageBuilder.withPayload(i)
+				.setHeader(ShardedBatchWriter.SHARD_HEADER, "type#" + (i % 2))
+				.build());
+		}
+		writer.destroy();
+
+		assertThat(errors).isEmpty();
+		assertThat(written.get("type#0"))
+			.containsExactlyElementsOf(IntStream.range(0, 50).map((i) -> i * 2).boxed().toList());
+		assertThat(written.get("type#1"))
+			.containsExactlyElementsOf(IntStream.range(0, 50).map((i) -> i * 2 + 1).boxed().toList());
+		assertThat(threads.get("type#0")).containsOnly(threads.get("type#0").get(0))
+			.doesNotContain(Thread.currentThread().getName());
+		assertThat(threads.get("type#1")).containsOnly(threads.get("type#1").get(0))
+			.doesNotContain(Thread.currentThread().getName());
+	}
+
+	@Test
+	void messagesWithoutShardAreShardedByStrategy() throws Exception {
+		Map<Integer, List<String>> threads = new ConcurrentHashMap<>();
+		List<Throwable> errors = new CopyOnWriteArrayList<>();
+		ShardedBatchWriter writer = new ShardedBatchWriter((message) -> threads
+			.computeIfAbsent((Integer) message.getPayload() % 2, (key) -> new CopyOnWriteArrayList<>())
+			.add(Thread.currentThread().getName()), errors::add, 2, 0);
+		writer.setShardStrategy(ShardedBatchWriter.correlationStrategy(2, null));
+
+		for (int i = 0; i < 100; i++) {
+			writer.handleMessage(MessageBuilder.withPayload(i).build());
+		}
+		writer.destroy();
+
+		assertThat(errors).isEmpty();
+		assertThat(threads.get(0)).hasSize(50).containsOnly(threads.get(0).get(0));
+		assertThat(threads.get(1)).hasSize(50).containsOnly(threads.get(1).get(0));
+		assertThat(threads.get(0).get(0)).isNotEqualTo(threads.get(1).get(0));
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import java.util.List;
+
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+@TestPropertySource(properties = { "jdbc.consumer.columns=a,b", "jdbc.consumer.key-columns=a",
+		"jdbc.consumer.batchSize=2", "jdbc.consumer.idleTimeout=100", "jdbc.consumer.writers=4" })
+public class ShardedUpsertBatchTests extends JdbcConsumerApplicationTests {
+
+	@Test
+	public void testLastValuePerKeyWinsAcrossWriters() {
+		for (int i = 1; i <= 100; i++) {
+			jdbcConsumer.accept(MessageBuilder.withPayload(new Payload((i % 2 == 0) ? "even" : "odd", i)).build());
+		}
+
+		Awaitility.await()
+			.until(() -> jdbcOperations.queryForList("select b from messages where a = ? or a = ? order by a",
+					String.class, "even", "odd"), (values) -> values.equals(List.of("100", "99")));
+		assertThat(jdbcOperations.queryForObject("select count(*) from messages", Integer.class)).isEqualTo(2);
+	}
+
+}
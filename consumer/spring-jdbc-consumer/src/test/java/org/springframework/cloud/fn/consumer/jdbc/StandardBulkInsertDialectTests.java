@@ -0,0 +1,60 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+public class StandardBulkInsertDialectTests {
+
+	@Test
+	void multiRowInsertStatement() {
+		assertThat(StandardBulkInsertDialect.H2.insert("messages", List.of("a", "b"), 3))
+			.isEqualTo("INSERT INTO messages(a, b) VALUES (?, ?), (?, ?), (?, ?)");
+	}
+
+	@Test
+	void upsertStatements() {
+		assertThat(StandardBulkInsertDialect.POSTGRESQL.upsert("messages", List.of("a", "b"), List.of("a"), 2))
+			.isEqualTo("INSERT INTO messages(a, b) VALUES (?, ?), (?, ?) ON CONFLICT (a) DO UPDATE SET b = EXCLUDED.b");
+		assertThat(StandardBulkInsertDialect.MYSQL.upsert("messages", List.of("a", "b"), List.of("a"), 1))
+			.isEqualTo("INSERT INTO messages(a, b) VALUES (?, ?) ON DUPLICATE KEY UPDATE b = VALUES(b)");
+		assertThat(StandardBulkInsertDialect.H2.upsert("messages", List.of("a", "b"), List.of("a"), 1))
+			.isEqualTo("MERGE INTO messages(a, b) KEY(a) VALUES (?, ?)");
+		assertThat(StandardBulkInsertDialect.GENERIC.upsert("messages", List.of("a", "b"), List.of("a"), 1))
+			.isEqualTo("MERGE INTO messages USING (VALUES (?, ?)) AS source(a, b) ON messages.a = source.a "
+					+ "WHEN MATCHED THEN UPDATE SET b = source.b "
+					+ "WHEN NOT MATCHED THEN INSERT (a, b) VALUES (source.a, source.b)");
+	}
+
+	@Test
+	void dialectForDatabaseProductName() {
+		assertThat(StandardBulkInsertDialect.forDatabaseProductName("PostgreSQL"))
+			.isEqualTo(StandardBulkInsertDialect.POSTGRESQL);
+		assertThat(StandardBulkInsertDialect.forDatabaseProductName("MariaDB"))
+			.isEqualTo(StandardBulkInsertDialect.MYSQL);
+		assertThat(StandardBulkInsertDialect.forDatabaseProductName("HSQL Database Engine").supportsMultiRowInsert())
+			.isFalse();
+	}
+
+}
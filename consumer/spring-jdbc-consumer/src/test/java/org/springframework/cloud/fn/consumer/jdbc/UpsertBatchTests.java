@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.consumer.jdbc;
+
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+@TestPropertySource(properties = { "jdbc.consumer.columns=a,b", "jdbc.consumer.key-columns=a",
+		"jdbc.consumer.batchSize=4", "jdbc.consumer.idleTimeout=100" })
+public class UpsertBatchTests extends JdbcConsumerApplicationTests {
+
+	@Test
+	public void testUpsertCollapsesBatchToLastRowPerKey() {
+		jdbcConsumer.accept(MessageBuilder.withPayload(new Payload("hello", 1)).build());
+		jdbcConsumer.accept(MessageBuilder.withPayload(new Payload("world", 2)).build());
+		jdbcConsumer.accept(MessageBuilder.withPayload(new Payload("hello", 3)).build());
+		jdbcConsumer.accept(MessageBuilder.withPayload(new Payload("hello", 4)).build());
+
+		jdbcConsumer.accept(MessageBuilder.withPayload(new Payload("world", 5)).build());
+
+		Awaitility.await()
+			.until(() -> jdbcOperations.queryForObject("select b from messages where a = ?", String.class, "world"),
+					"5"::equals);
+		assertThat(jdbcOperations.queryForObject("select count(*) from messages", Integer.class)).isEqualTo(2);
+		assertThat(jdbcOperations.queryForObject("select b from messages where a = ?", String.class, "hello"))
+			.isEqualTo("4");
+	}
+
+}
@@ -32,6 +32,7 @@ import org.springframework.cloud.fn.common.config.ComponentCustomizer;
 import org.springframework.cloud.fn.common.file.FileConsumerProperties;
 import org.springframework.cloud.fn.common.file.FileReadingMode;
 import org.springframework.cloud.fn.common.file.FileUtils;
+import org.springframework.cloud.fn.common.metadata.store.BatchAcceptOnceFileListFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.integration.JavaUtils;
@@ -43,7 +44,6 @@ import org.springframework.integration.file.dsl.Files;
 import org.springframework.integration.file.dsl.TailAdapterSpec;
 import org.springframework.integration.file.filters.ChainFileListFilter;
 import org.springframework.integration.file.filters.FileListFilter;
-import org.springframework.integration.file.filters.FileSystemPersistentAcceptOnceFileListFilter;
 import org.springframework.integration.file.filters.RegexPatternFileListFilter;
 import org.springframework.integration.file.filters.SimplePatternFileListFilter;
 import org.springframework.integration.metadata.ConcurrentMetadataStore;
@@ -134,8 +134,8 @@ public class FileSupplierConfiguration {
 			}
 
 			if (this.fileSupplierProperties.isPreventDuplicates()) {
-				chainFilter
-					.addFilter(new FileSystemPersistentAcceptOnceFileListFilter(metadataStore, METADATA_STORE_PREFIX));
+				chainFilter.addFilter(new BatchAcceptOnceFileListFilter<>(metadataStore, METADATA_STORE_PREFIX,
+						File::getAbsolutePath, File::lastModified));
 			}
 
 			return chainFilter;
@@ -145,8 +145,20 @@ public class FileSupplierConfiguration {
 		public FileInboundChannelAdapterSpec fileMessageSource(FileListFilter<File> fileListFilter,
 				@Nullable ComponentCustomizer<FileInboundChannelAdapterSpec> fileInboundChannelAdapterSpecCustomizer) {
 
-			FileInboundChannelAdapterSpec adapterSpec = Files.inboundAdapter(this.fileSupplierProperties.getDirectory())
-				.filter(fileListFilter);
+			FileInboundChannelAdapterSpec adapterSpec;
+			if (this.fileSupplierProperties.isUseWatchService()) {
+				// The source queue would otherwise reorder the oldest-first files by path
+				adapterSpec = Files.inboundAdapter(this.fileSupplierProperties.getDirectory(),
+						WatchingDirectoryScanner.OLDEST_FIRST);
+				WatchingDirectoryScanner scanner = new WatchingDirectoryScanner(
+						this.fileSupplierProperties.getWatchQueueCapacity());
+				scanner.setFilter(fileListFilter);
+				adapterSpec.scanner(scanner);
+			}
+			else {
+				adapterSpec = Files.inboundAdapter(this.fileSupplierProperties.getDirectory());
+				adapterSpec.filter(fileListFilter);
+			}
 			if (fileInboundChannelAdapterSpecCustomizer != null) {
 				fileInboundChannelAdapterSpecCustomizer.customize(adapterSpec);
 			}
@@ -67,6 +67,18 @@ public class FileSupplierProperties {
 	 */
 	private Duration delayWhenEmpty = Duration.ofSeconds(1);
 
+	/**
+	 * Whether to find new files in the directory and its subdirectories by the
+	 * file-system watch service events instead of listing the directory on every poll.
+	 */
+	private boolean useWatchService;
+
+	/**
+	 * The maximum number of files found by the watch service and waiting to be emitted;
+	 * the oldest files are emitted first.
+	 */
+	private int watchQueueCapacity = 10000;
+
 	/**
 	 * File tailing options.
 	 */
@@ -118,6 +130,22 @@ public class FileSupplierProperties {
 		this.delayWhenEmpty = delayWhenEmpty;
 	}
 
+	public boolean isUseWatchService() {
+		return this.useWatchService;
+	}
+
+	public void setUseWatchService(boolean useWatchService) {
+		this.useWatchService = useWatchService;
+	}
+
+	public int getWatchQueueCapacity() {
+		return this.watchQueueCapacity;
+	}
+
+	public void setWatchQueueCapacity(int watchQueueCapacity) {
+		this.watchQueueCapacity = watchQueueCapacity;
+	}
+
 	public File getTail() {
 		return this.tail;
 	}
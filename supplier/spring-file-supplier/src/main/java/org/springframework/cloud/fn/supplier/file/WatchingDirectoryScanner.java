@@ -0,0 +1,254 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.context.Lifecycle;
+import org.springframework.integration.file.DefaultDirectoryScanner;
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.ResettableFileListFilter;
+
+/**
+ * The {@link org.springframework.integration.file.DirectoryScanner} driven by the
+ * file-system {@link WatchService} events for the directory and all its subdirectories,
+ * so the cost of a scan depends on the number of new files rather than on the number of
+ * files in the directory.
+ * <p>
+ * The directory tree is walked with {@link Files#newDirectoryStream(Path)} once on the
+ * first scan, and again only if events have been lost: when the watch service overflows
+ * or when the pending queue is full. The pending files are kept oldest first, and the
+ * queue is bounded by the capacity: when it is full, the newest files are dropped and
+ * picked up by the next walk. The files already emitted are expected to be rejected by
+ * an accept-once filter then. The listed files are expected to be queued by the
+ * {@link org.springframework.integration.file.FileReadingMessageSource} with the
+ * {@link #OLDEST_FIRST} comparator, so they are emitted in that order.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+class WatchingDirectoryScanner extends DefaultDirectoryScanner implements Lifecycle {
+
+	private static final Log LOGGER = LogFactory.getLog(WatchingDirectoryScanner.class);
+
+	/**
+	 * The order of the listed files: by last modified time, then by path.
+	 */
+	static final Comparator<File> OLDEST_FIRST = Comparator.comparingLong(File::lastModified)
+		.thenComparing(Comparator.naturalOrder());
+
+	private static final File[] NO_FILES = new File[0];
+
+	private final int queueCapacity;
+
+	private final TreeSet<PendingFile> pendingFiles = new TreeSet<>(
+			Comparator.comparingLong(PendingFile::lastModified).thenComparing(PendingFile::path));
+
+	private final Set<Path> pendingPaths = new HashSet<>();
+
+	private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+	private WatchService watchService;
+
+	private boolean walkRequired = true;
+
+	WatchingDirectoryScanner(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (this.watchService == null) {
+			try {
+				this.watchService = FileSystems.getDefault().newWatchService();
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException("Failed to create a WatchService", ex);
+			}
+			this.walkRequired = true;
+		}
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (this.watchService != null) {
+			try {
+				this.watchService.close();
+			}
+			catch (IOException ex) {
+				LOGGER.debug("Failed to close the WatchService", ex);
+			}
+			this.watchService = null;
+			this.watchedDirectories.clear();
+			this.pendingFiles.clear();
+			this.pendingPaths.clear();
+		}
+	}
+
+	@Override
+	public synchronized boolean isRunning() {
+		return this.watchService != null;
+	}
+
+	@Override
+	protected synchronized File[] listEligibleFiles(File directory) {
+		start();
+		Path root = directory.toPath();
+		try {
+			processEvents();
+			if (this.walkRequired && this.pendingFiles.isEmpty()) {
+				this.walkRequired = false;
+				walk(root);
+			}
+		}
+		catch (ClosedWatchServiceException ex) {
+			return NO_FILES;
+		}
+		File[] files = new File[this.pendingFiles.size()];
+		for (int i = 0; i < files.length; i++) {
+			Path path = this.pendingFiles.pollFirst().path();
+			this.pendingPaths.remove(path);
+			files[i] = path.toFile();
+		}
+		return files;
+	}
+
+	private void processEvents() {
+		WatchKey key;
+		while ((key = this.watchService.poll()) != null) {
+			Path directory = this.watchedDirectories.get(key);
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					LOGGER.debug("The WatchService overflowed; the directory is going to be walked again");
+					this.walkRequired = true;
+				}
+				else if (directory != null) {
+					Path path = directory.resolve((Path) event.context());
+					if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+						forget(path);
+					}
+					else if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+						// Files may have been created before the directory is registered
+						walk(path);
+					}
+					else {
+						offer(path);
+					}
+				}
+			}
+			if (!key.reset()) {
+				this.watchedDirectories.remove(key);
+			}
+		}
+	}
+
+	private void walk(Path root) {
+		Deque<Path> directories = new ArrayDeque<>();
+		directories.add(root);
+		Path directory;
+		while ((directory = directories.poll()) != null) {
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+				register(directory);
+				for (Path entry : entries) {
+					if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+						directories.add(entry);
+					}
+					else {
+						offer(entry);
+					}
+				}
+			}
+			catch (IOException ex) {
+				LOGGER.warn("Failed to scan the directory " + directory + ": " + ex.getMessage());
+			}
+		}
+	}
+
+	private void register(Path directory) throws IOException {
+		WatchKey key = directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_DELETE);
+		this.watchedDirectories.put(key, directory);
+	}
+
+	private void offer(Path path) {
+		if (this.pendingPaths.contains(path)) {
+			return;
+		}
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		}
+		catch (IOException ex) {
+			// Deleted in the meantime
+			return;
+		}
+		if (!attributes.isRegularFile()) {
+			return;
+		}
+		PendingFile pendingFile = new PendingFile(path, attributes.lastModifiedTime().toMillis());
+		if (this.pendingFiles.size() >= this.queueCapacity) {
+			this.walkRequired = true;
+			PendingFile newest = this.pendingFiles.last();
+			if (newest.lastModified() <= pendingFile.lastModified()) {
+				return;
+			}
+			this.pendingFiles.pollLast();
+			this.pendingPaths.remove(newest.path());
+		}
+		this.pendingFiles.add(pendingFile);
+		this.pendingPaths.add(path);
+	}
+
+	private void forget(Path path) {
+		if (this.pendingPaths.remove(path)) {
+			this.pendingFiles.removeIf((pendingFile) -> pendingFile.path().equals(path));
+		}
+		FileListFilter<File> filter = getFilter();
+		if (filter instanceof ResettableFileListFilter<File> resettableFilter) {
+			resettableFilter.remove(path.toFile());
+		}
+	}
+
+	private record PendingFile(Path path, long lastModified) {
+
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.file;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.cloud.fn.common.file.FileUtils;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+@TestPropertySource(properties = { "file.consumer.mode=chunks", "file.consumer.chunk-size=4B" })
+public class ChunksPayloadTests extends AbstractFileSupplierTests {
+
+	@Test
+	public void testChunks() throws Exception {
+		Path file = tempDir.resolve("chunks.file");
+		Files.write(file, "0123456789".getBytes());
+
+		Flux<Message<?>> messageFlux = fileSupplier.get();
+
+		StepVerifier.create(messageFlux)
+			.assertNext((message) -> {
+				assertThat(message.getPayload()).isEqualTo("0123".getBytes());
+				assertThat(message.getHeaders())
+					.containsEntry(IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER, 1)
+					.containsEntry(IntegrationMessageHeaderAccessor.SEQUENCE_SIZE, 3)
+					.containsEntry(FileUtils.LAST_CHUNK, false)
+					.containsKey(IntegrationMessageHeaderAccessor.CORRELATION_ID);
+			})
+			.assertNext((message) -> assertThat(message.getPayload()).isEqualTo("4567".getBytes()))
+			.assertNext((message) -> {
+				assertThat(message.getPayload()).isEqualTo("89".getBytes());
+				assertThat(message.getHeaders()).containsEntry(IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER, 3)
+					.containsEntry(FileUtils.LAST_CHUNK, true);
+			})
+			.thenCancel()
+			.verify();
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.file;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.splitter.FileSplitter;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+@TestPropertySource(properties = { "file.consumer.mode=line-batches", "file.consumer.batch-lines=2",
+		"file.consumer.with-markers=true", "file.consumer.markers-json=false" })
+public class LineBatchesPayloadTests extends AbstractFileSupplierTests {
+
+	@Test
+	public void testLineBatchesWithMarkers() throws Exception {
+		Path file = tempDir.resolve("batches.file");
+		Files.write(file, "first\r\nsecond\r\nthird\r\nfourth\nfifth".getBytes());
+
+		Flux<Message<?>> messageFlux = fileSupplier.get();
+
+		StepVerifier.create(messageFlux)
+			.assertNext((message) -> assertThat(message.getPayload()).isInstanceOf(FileSplitter.FileMarker.class)
+				.extracting("mark")
+				.isEqualTo(FileSplitter.FileMarker.Mark.START))
+			.assertNext((message) -> {
+				assertThat(message.getPayload()).isEqualTo("first\nsecond");
+				assertThat(message.getHeaders()).containsEntry(FileHeaders.LINE_COUNT, 2);
+			})
+			.assertNext((message) -> assertThat(message.getPayload()).isEqualTo("third\nfourth"))
+			.assertNext((message) -> {
+				assertThat(message.getPayload()).isEqualTo("fifth");
+				assertThat(message.getHeaders()).containsEntry(FileHeaders.LINE_COUNT, 1);
+			})
+			.assertNext((message) -> {
+				FileSplitter.FileMarker fileMarker = (FileSplitter.FileMarker) message.getPayload();
+				assertThat(fileMarker.getMark()).isEqualTo(FileSplitter.FileMarker.Mark.END);
+				assertThat(fileMarker.getLineCount()).isEqualTo(5);
+			})
+			.thenCancel()
+			.verify();
+	}
+
+}
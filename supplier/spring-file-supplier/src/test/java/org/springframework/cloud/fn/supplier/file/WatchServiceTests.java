@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.file;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.messaging.Message;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+@TestPropertySource(properties = { "file.supplier.use-watch-service=true", "file.supplier.delay-when-empty=100ms" })
+public class WatchServiceTests extends AbstractFileSupplierTests {
+
+	@Test
+	public void testInitialScanOldestFirstAndNewFilesInSubdirectories() throws Exception {
+		Path newer = Files.writeString(tempDir.resolve("newer.txt"), "newer");
+		// The path order is the opposite of the last modified order
+		Path older = Files.writeString(Files.createDirectories(tempDir.resolve("z/y")).resolve("older.txt"), "older");
+		Files.setLastModifiedTime(newer, FileTime.from(Instant.now().minusSeconds(10)));
+		Files.setLastModifiedTime(older, FileTime.from(Instant.now().minusSeconds(20)));
+
+		Flux<Message<?>> messageFlux = fileSupplier.get();
+
+		StepVerifier.create(messageFlux)
+			.assertNext((message) -> assertThat(message.getPayload()).isEqualTo("older".getBytes()))
+			.assertNext((message) -> assertThat(message.getPayload()).isEqualTo("newer".getBytes()))
+			.then(() -> {
+				try {
+					Files.writeString(Files.createDirectories(tempDir.resolve("c")).resolve("created.txt"), "created");
+				}
+				catch (Exception ex) {
+					throw new IllegalStateException(ex);
+				}
+			})
+			.assertNext((message) -> assertThat(message.getPayload()).isEqualTo("created".getBytes()))
+			.thenCancel()
+			.verify();
+	}
+
+}
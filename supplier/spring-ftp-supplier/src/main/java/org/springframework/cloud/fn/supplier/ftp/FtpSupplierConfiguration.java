@@ -17,6 +17,7 @@
 package org.springframework.cloud.fn.supplier.ftp;
 
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.regex.Pattern;
 
 import org.apache.commons.net.ftp.FTPFile;
@@ -36,14 +37,16 @@ import org.springframework.cloud.fn.common.file.FileConsumerProperties;
 import org.springframework.cloud.fn.common.file.FileReadingMode;
 import org.springframework.cloud.fn.common.file.FileUtils;
 import org.springframework.cloud.fn.common.ftp.FtpSessionFactoryConfiguration;
+import org.springframework.cloud.fn.common.metadata.store.BatchAcceptOnceFileListFilter;
+import org.springframework.cloud.fn.common.metadata.store.WatermarkFileListFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.integration.dsl.IntegrationFlow;
 import org.springframework.integration.file.filters.ChainFileListFilter;
+import org.springframework.integration.file.filters.FileListFilter;
 import org.springframework.integration.file.remote.session.SessionFactory;
 import org.springframework.integration.ftp.dsl.Ftp;
 import org.springframework.integration.ftp.dsl.FtpInboundChannelAdapterSpec;
-import org.springframework.integration.ftp.filters.FtpPersistentAcceptOnceFileListFilter;
 import org.springframework.integration.ftp.filters.FtpRegexPatternFileListFilter;
 import org.springframework.integration.ftp.filters.FtpSimplePatternFileListFilter;
 import org.springframework.integration.ftp.inbound.FtpInboundFileSynchronizingMessageSource;
@@ -113,7 +116,14 @@ public class FtpSupplierConfiguration {
 			chainFileListFilter.addFilter(new FtpRegexPatternFileListFilter(filenameRegex));
 		}
 
-		chainFileListFilter.addFilter(new FtpPersistentAcceptOnceFileListFilter(this.metadataStore, "ftpSource/"));
+		ToLongFunction<FTPFile> modified = (file) -> file.getTimestamp().getTimeInMillis();
+		FileListFilter<FTPFile> acceptOnceFilter = new BatchAcceptOnceFileListFilter<>(this.metadataStore,
+				"ftpSource/", FTPFile::getName, modified);
+		if (this.ftpSupplierProperties.isIncrementalListing()) {
+			acceptOnceFilter = new WatermarkFileListFilter<>(acceptOnceFilter, this.metadataStore, "ftpWatermark/",
+					this.ftpSupplierProperties::getRemoteDir, FTPFile::getName, modified);
+		}
+		chainFileListFilter.addFilter(acceptOnceFilter);
 
 		messageSourceBuilder.filter(chainFileListFilter);
 		if (ftpInboundChannelAdapterSpecCustomizer != null) {
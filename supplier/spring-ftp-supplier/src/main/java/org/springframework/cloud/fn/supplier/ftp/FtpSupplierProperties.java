@@ -83,6 +83,14 @@ public class FtpSupplierProperties {
 	 */
 	private boolean preserveTimestamp = true;
 
+	/**
+	 * Set to true to keep a high-water mark of the remote directory listing in the
+	 * metadata store, so the files modified before the latest one already seen are
+	 * discarded without a metadata store lookup. Files added later with an older modified
+	 * time are missed.
+	 */
+	private boolean incrementalListing = false;
+
 	/**
 	 * Duration of delay when no new files are detected.
 	 */
@@ -137,6 +145,14 @@ public class FtpSupplierProperties {
 		this.preserveTimestamp = preserveTimestamp;
 	}
 
+	public boolean isIncrementalListing() {
+		return this.incrementalListing;
+	}
+
+	public void setIncrementalListing(boolean incrementalListing) {
+		this.incrementalListing = incrementalListing;
+	}
+
 	@NotBlank
 	public String getRemoteDir() {
 		return this.remoteDir;
@@ -122,6 +122,17 @@ public class FtpSupplierPropertiesTests {
 		context.close();
 	}
 
+	@Test
+	public void incrementalListingCanBeEnabled() {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		TestPropertyValues.of("ftp.supplier.incrementalListing:true").applyTo(context);
+		context.register(Conf.class);
+		context.refresh();
+		FtpSupplierProperties properties = context.getBean(FtpSupplierProperties.class);
+		assertThat(properties.isIncrementalListing()).isTrue();
+		context.close();
+	}
+
 	@Configuration
 	@EnableConfigurationProperties(FtpSupplierProperties.class)
 	static class Conf {
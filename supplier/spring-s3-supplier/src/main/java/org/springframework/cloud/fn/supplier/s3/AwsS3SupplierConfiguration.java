@@ -16,36 +16,32 @@
 
 package org.springframework.cloud.fn.supplier.s3;
 
-import java.util.List;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.fn.common.aws.s3.AmazonS3Configuration;
 import org.springframework.cloud.fn.common.config.ComponentCustomizer;
 import org.springframework.cloud.fn.common.file.FileConsumerProperties;
 import org.springframework.cloud.fn.common.file.FileUtils;
+import org.springframework.cloud.fn.common.metadata.store.BatchAcceptOnceFileListFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.integration.aws.inbound.S3InboundFileSynchronizer;
 import org.springframework.integration.aws.inbound.S3InboundFileSynchronizingMessageSource;
 import org.springframework.integration.aws.support.S3SessionFactory;
-import org.springframework.integration.aws.support.filters.S3PersistentAcceptOnceFileListFilter;
 import org.springframework.integration.aws.support.filters.S3RegexPatternFileListFilter;
 import org.springframework.integration.aws.support.filters.S3SimplePatternFileListFilter;
-import org.springframework.integration.core.MessageSource;
 import org.springframework.integration.dsl.IntegrationFlow;
 import org.springframework.integration.endpoint.ReactiveMessageSourceProducer;
 import org.springframework.integration.file.filters.ChainFileListFilter;
@@ -53,7 +49,6 @@ import org.springframework.integration.metadata.ConcurrentMetadataStore;
 import org.springframework.integration.util.IntegrationReactiveUtils;
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
-import org.springframework.messaging.support.GenericMessage;
 import org.springframework.util.StringUtils;
 
 /**
@@ -86,8 +81,22 @@ public class AwsS3SupplierConfiguration {
 		this.metadataStore = metadataStore;
 	}
 
+	protected ChainFileListFilter<S3Object> fileListFilter(ConcurrentMetadataStore metadataStore) {
+		ChainFileListFilter<S3Object> chainFilter = new ChainFileListFilter<>();
+		if (StringUtils.hasText(this.awsS3SupplierProperties.getFilenamePattern())) {
+			chainFilter.addFilter(new S3SimplePatternFileListFilter(this.awsS3SupplierProperties.getFilenamePattern()));
+		}
+		else if (this.awsS3SupplierProperties.getFilenameRegex() != null) {
+			chainFilter.addFilter(new S3RegexPatternFileListFilter(this.awsS3SupplierProperties.getFilenameRegex()));
+		}
+
+		chainFilter.addFilter(new BatchAcceptOnceFileListFilter<S3Object>(metadataStore, METADATA_STORE_PREFIX,
+				S3Object::key, (file) -> file.lastModified().getEpochSecond()));
+		return chainFilter;
+	}
+
 	@Configuration
-	@ConditionalOnProperty(prefix = "s3.supplier", name = "list-only", havingValue = "false", matchIfMissing = true)
+	@ConditionalOnExpression("!${s3.supplier.list-only:false} && !${s3.supplier.stream:false}")
 	static class SynchronizingConfiguration extends AwsS3SupplierConfiguration {
 
 		@Bean
@@ -97,18 +106,7 @@ public class AwsS3SupplierConfiguration {
 
 		@Bean
 		ChainFileListFilter<S3Object> filter(ConcurrentMetadataStore metadataStore) {
-			ChainFileListFilter<S3Object> chainFilter = new ChainFileListFilter<>();
-			if (StringUtils.hasText(this.awsS3SupplierProperties.getFilenamePattern())) {
-				chainFilter
-					.addFilter(new S3SimplePatternFileListFilter(this.awsS3SupplierProperties.getFilenamePattern()));
-			}
-			else if (this.awsS3SupplierProperties.getFilenameRegex() != null) {
-				chainFilter
-					.addFilter(new S3RegexPatternFileListFilter(this.awsS3SupplierProperties.getFilenameRegex()));
-			}
-
-			chainFilter.addFilter(new S3PersistentAcceptOnceFileListFilter(metadataStore, METADATA_STORE_PREFIX));
-			return chainFilter;
+			return fileListFilter(metadataStore);
 		}
 
 		SynchronizingConfiguration(AwsS3SupplierProperties awsS3SupplierProperties,
@@ -161,6 +159,48 @@ public class AwsS3SupplierConfiguration {
 
 	}
 
+	@Configuration
+	@ConditionalOnExpression("!${s3.supplier.list-only:false} && ${s3.supplier.stream:false}")
+	static class StreamingConfiguration extends AwsS3SupplierConfiguration {
+
+		StreamingConfiguration(AwsS3SupplierProperties awsS3SupplierProperties,
+				FileConsumerProperties fileConsumerProperties, S3SessionFactory s3SessionFactory,
+				ConcurrentMetadataStore metadataStore) {
+
+			super(awsS3SupplierProperties, fileConsumerProperties, s3SessionFactory, metadataStore);
+		}
+
+		@Bean
+		Supplier<Flux<Message<?>>> s3Supplier(Publisher<Message<?>> s3SupplierFlow) {
+			return () -> Flux.from(s3SupplierFlow);
+		}
+
+		@Bean
+		ChainFileListFilter<S3Object> filter(ConcurrentMetadataStore metadataStore) {
+			return fileListFilter(metadataStore);
+		}
+
+		@Bean
+		S3RangedStreamingMessageSource s3MessageSource(S3Client amazonS3, ChainFileListFilter<S3Object> filter) {
+			S3RangedStreamingMessageSource s3MessageSource = new S3RangedStreamingMessageSource(amazonS3,
+					this.awsS3SupplierProperties.getRemoteDir(), filter);
+			s3MessageSource.setPageSize(this.awsS3SupplierProperties.getListPageSize());
+			s3MessageSource.setRangeSize((int) this.awsS3SupplierProperties.getStreamRangeSize().toBytes());
+			s3MessageSource.setRangeConcurrency(this.awsS3SupplierProperties.getStreamRangeConcurrency());
+			return s3MessageSource;
+		}
+
+		@Bean
+		Publisher<Message<Object>> s3SupplierFlow(S3RangedStreamingMessageSource s3MessageSource) {
+			return FileUtils
+				.enhanceStreamFlowForReadingMode(
+						IntegrationFlow.from(IntegrationReactiveUtils.messageSourceToFlux(s3MessageSource)),
+						this.fileConsumerProperties)
+				.toReactivePublisher(true);
+		}
+
+	}
+
 	@Configuration
 	@ConditionalOnProperty(prefix = "s3.supplier", name = "list-only", havingValue = "true")
 	static class ListOnlyConfiguration extends AwsS3SupplierConfiguration {
@@ -194,40 +234,26 @@ public class AwsS3SupplierConfiguration {
 					.matcher(summary.key())
 					.matches();
 			}
-			predicate = predicate.and((S3Object summary) -> {
-				final String key = METADATA_STORE_PREFIX + awsS3SupplierProperties.getRemoteDir() + "-" + summary.key();
-				final String lastModified = String.valueOf(summary.lastModified().toEpochMilli());
-				final String storedLastModified = this.metadataStore.get(key);
-				boolean result = !lastModified.equals(storedLastModified);
-				if (result) {
-					this.metadataStore.put(key, lastModified);
-				}
-				return result;
-			});
-
 			return predicate;
 		}
 
 		@Bean
-		ReactiveMessageSourceProducer s3ListingMessageProducer(S3Client amazonS3, ObjectMapper objectMapper,
+		S3ListingMessageSource s3ListingMessageSource(S3Client amazonS3, ObjectMapper objectMapper,
 				AwsS3SupplierProperties awsS3SupplierProperties, Predicate<S3Object> filter) {
-			return new ReactiveMessageSourceProducer((MessageSource<List<String>>) () -> {
-				List<String> summaryList = amazonS3
-					.listObjects(ListObjectsRequest.builder().bucket(awsS3SupplierProperties.getRemoteDir()).build())
-					.contents()
-					.stream()
-					.filter(filter)
-					.map((s3Object) -> {
-						try {
-							return objectMapper.writeValueAsString(s3Object.toBuilder());
-						}
-						catch (JsonProcessingException ex) {
-							throw new RuntimeException(ex);
-						}
-					})
-					.collect(Collectors.toList());
-				return summaryList.isEmpty() ? null : new GenericMessage<>(summaryList);
-			});
+
+			S3ListingMessageSource messageSource = new S3ListingMessageSource(amazonS3,
+					awsS3SupplierProperties.getRemoteDir(), this.metadataStore,
+					METADATA_STORE_PREFIX + awsS3SupplierProperties.getRemoteDir() + "-", objectMapper.getFactory());
+			messageSource.setFilter(filter);
+			messageSource.setPageSize(awsS3SupplierProperties.getListPageSize());
+			messageSource.setPrefixes(awsS3SupplierProperties.getListPrefixes(),
+					awsS3SupplierProperties.getListConcurrency());
+			return messageSource;
+		}
+
+		@Bean
+		ReactiveMessageSourceProducer s3ListingMessageProducer(S3ListingMessageSource s3ListingMessageSource) {
+			return new ReactiveMessageSourceProducer(s3ListingMessageSource);
 		}
 
 	}
@@ -17,14 +17,18 @@
 package org.springframework.cloud.fn.supplier.s3;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.hibernate.validator.constraints.Length;
+import org.hibernate.validator.constraints.Range;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
 /**
@@ -86,6 +90,39 @@ public class AwsS3SupplierProperties {
 	 */
 	private boolean listOnly = false;
 
+	/**
+	 * Set to true to stream the S3 objects straight into the file reading mode, instead
+	 * of downloading them into the local directory first.
+	 */
+	private boolean stream;
+
+	/**
+	 * The number of bytes fetched per byte-range request in the streaming mode.
+	 */
+	private DataSize streamRangeSize = DataSize.ofMegabytes(8);
+
+	/**
+	 * The maximum number of byte ranges of an object fetched in parallel in the streaming
+	 * mode.
+	 */
+	private int streamRangeConcurrency = 4;
+
+	/**
+	 * The key prefixes to shard the list-only listing by; the listings of the prefixes
+	 * are paged in parallel. The whole bucket is listed if empty.
+	 */
+	private List<String> listPrefixes = new ArrayList<>();
+
+	/**
+	 * The maximum number of key prefixes listed in parallel in the list-only mode.
+	 */
+	private int listConcurrency = 4;
+
+	/**
+	 * The maximum number of keys requested per listing page in the list-only mode.
+	 */
+	private int listPageSize = 1000;
+
 	@Length(min = 3)
 	public String getRemoteDir() {
 		return this.remoteDir;
@@ -175,4 +212,65 @@ public class AwsS3SupplierProperties {
 		this.listOnly = listOnly;
 	}
 
+	public boolean isStream() {
+		return this.stream;
+	}
+
+	public void setStream(boolean stream) {
+		this.stream = stream;
+	}
+
+	public DataSize getStreamRangeSize() {
+		return this.streamRangeSize;
+	}
+
+	public void setStreamRangeSize(DataSize streamRangeSize) {
+		this.streamRangeSize = streamRangeSize;
+	}
+
+	@Range(min = 1)
+	public int getStreamRangeConcurrency() {
+		return this.streamRangeConcurrency;
+	}
+
+	public void setStreamRangeConcurrency(int streamRangeConcurrency) {
+		this.streamRangeConcurrency = streamRangeConcurrency;
+	}
+
+	@AssertTrue(message = "streamRangeSize must be between 1 byte and 2GB")
+	public boolean isStreamRangeSizeValid() {
+		return this.streamRangeSize.toBytes() > 0 && this.streamRangeSize.toBytes() <= Integer.MAX_VALUE - 8;
+	}
+
+	@AssertTrue(message = "deleteRemoteFiles is not supported in the streaming mode")
+	public boolean isStreamValid() {
+		return !(this.stream && this.deleteRemoteFiles);
+	}
+
+	public List<String> getListPrefixes() {
+		return this.listPrefixes;
+	}
+
+	public void setListPrefixes(List<String> listPrefixes) {
+		this.listPrefixes = listPrefixes;
+	}
+
+	@Range(min = 1)
+	public int getListConcurrency() {
+		return this.listConcurrency;
+	}
+
+	public void setListConcurrency(int listConcurrency) {
+		this.listConcurrency = listConcurrency;
+	}
+
+	@Range(min = 1, max = 1000)
+	public int getListPageSize() {
+		return this.listPageSize;
+	}
+
+	public void setListPageSize(int listPageSize) {
+		this.listPageSize = listPageSize;
+	}
+
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.s3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * The {@link InputStream} over an S3 object which is fetched with concurrent byte-range
+ * {@code GetObject} requests and reassembled in order.
+ * <p>
+ * Nothing is requested until the first read; from then on up to {@code concurrency}
+ * ranges are requested ahead of the consumer, and a new range is requested as soon as the
+ * oldest one is taken for reading, so at most {@code concurrency + 1} ranges of this
+ * stream are buffered at any time. All the ranges are requested
+ * with the {@code If-Match} ETag of the listed object, so an object replaced in the
+ * middle of the stream fails the read rather than mixing the bytes of two versions.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+class RangedS3InputStream extends InputStream {
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final S3Client s3Client;
+
+	private final String bucket;
+
+	private final String key;
+
+	@Nullable
+	private final String eTag;
+
+	private final long size;
+
+	private final int rangeSize;
+
+	private final int concurrency;
+
+	private final ExecutorService executor;
+
+	private final Deque<Future<byte[]>> ranges = new ArrayDeque<>();
+
+	private long nextRange;
+
+	private boolean started;
+
+	private byte[] buffer = EMPTY;
+
+	private int bufferPosition;
+
+	private boolean closed;
+
+	RangedS3InputStream(S3Client s3Client, String bucket, String key, @Nullable String eTag, long size,
+			int rangeSize, int concurrency, ExecutorService executor) {
+
+		this.s3Client = s3Client;
+		this.bucket = bucket;
+		this.key = key;
+		this.eTag = eTag;
+		this.size = size;
+		this.rangeSize = rangeSize;
+		this.concurrency = concurrency;
+		this.executor = executor;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextBuffer()) {
+			return -1;
+		}
+		return this.buffer[this.bufferPosition++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		Objects.checkFromIndexSize(offset, length, bytes.length);
+		if (length == 0) {
+			return 0;
+		}
+		if (!nextBuffer()) {
+			return -1;
+		}
+		int count = Math.min(length, this.buffer.length - this.bufferPosition);
+		System.arraycopy(this.buffer, this.bufferPosition, bytes, offset, count);
+		this.bufferPosition += count;
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return this.buffer.length - this.bufferPosition;
+	}
+
+	@Override
+	public void close() {
+		this.closed = true;
+		this.ranges.forEach((range) -> range.cancel(true));
+		this.ranges.clear();
+		this.buffer = EMPTY;
+		this.bufferPosition = 0;
+	}
+
+	private boolean nextBuffer() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+		if (!this.started) {
+			this.started = true;
+			requestRanges();
+		}
+		while (this.bufferPosition >= this.buffer.length) {
+			Future<byte[]> range = this.ranges.poll();
+			if (range == null) {
+				return false;
+			}
+			requestRanges();
+			this.buffer = getRange(range);
+			this.bufferPosition = 0;
+		}
+		return true;
+	}
+
+	private void requestRanges() {
+		while (this.ranges.size() < this.concurrency && this.nextRange < this.size) {
+			long start = this.nextRange;
+			long end = Math.min(start + this.rangeSize, this.size) - 1;
+			this.ranges.add(this.executor.submit(() -> fetchRange(start, end)));
+			this.nextRange = end + 1;
+		}
+	}
+
+	private byte[] fetchRange(long start, long end) throws IOException {
+		GetObjectRequest request = GetObjectRequest.builder()
+			.bucket(this.bucket)
+			.key(this.key)
+			.range("bytes=" + start + "-" + end)
+			.ifMatch(this.eTag)
+			.build();
+		try (ResponseInputStream<GetObjectResponse> stream = this.s3Client.getObject(request)) {
+			byte[] bytes = stream.readAllBytes();
+			if (bytes.length != end - start + 1) {
+				throw new IOException("Expected " + (end - start + 1) + " bytes at offset " + start + " of s3://"
+						+ this.bucket + "/" + this.key + ", but got " + bytes.length);
+			}
+			return bytes;
+		}
+	}
+
+	private byte[] getRange(Future<byte[]> range) throws IOException {
+		try {
+			return range.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new InterruptedIOException("Interrupted while reading s3://" + this.bucket + "/" + this.key);
+		}
+		catch (ExecutionException ex) {
+			close();
+			throw new IOException("Failed to read s3://" + this.bucket + "/" + this.key, ex.getCause());
+		}
+	}
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.s3;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Owner;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.fn.common.metadata.store.BatchMetadataStore;
+import org.springframework.integration.core.MessageSource;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * The {@link MessageSource} for the list-only mode, emitting the JSON summaries of the
+ * S3 objects which are new or modified since they were last listed.
+ * <p>
+ * The bucket is listed with {@code ListObjectsV2}, following the continuation tokens
+ * lazily: each {@link #receive()} requests the next page only, checks its objects
+ * against the metadata store with a single batch operation and emits the summaries of
+ * the accepted ones, so the memory is bounded by the page size rather than by the size
+ * of the bucket. When key prefixes are configured, the listing is sharded by them and the
+ * next pages of all the shards are requested in parallel. A listing which ends without
+ * new objects returns {@code null} and the next {@link #receive()} starts a new one.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+class S3ListingMessageSource implements MessageSource<List<String>>, DisposableBean {
+
+	private final S3Client s3Client;
+
+	private final String bucket;
+
+	private final BatchMetadataStore metadataStore;
+
+	private final String metadataStorePrefix;
+
+	private final JsonFactory jsonFactory;
+
+	private final List<String> prefixes = new ArrayList<>();
+
+	private final List<S3ObjectPages> shards = new ArrayList<>();
+
+	private Predicate<S3Object> filter = (object) -> true;
+
+	private int pageSize = 1000;
+
+	@Nullable
+	private ExecutorService executor;
+
+	S3ListingMessageSource(S3Client s3Client, String bucket, ConcurrentMetadataStore metadataStore,
+			String metadataStorePrefix, JsonFactory jsonFactory) {
+
+		this.s3Client = s3Client;
+		this.bucket = bucket;
+		this.metadataStore = BatchMetadataStore.of(metadataStore);
+		this.metadataStorePrefix = metadataStorePrefix;
+		this.jsonFactory = jsonFactory;
+	}
+
+	/**
+	 * Set the predicate the objects must match to be emitted.
+	 * @param filter the object predicate.
+	 */
+	void setFilter(Predicate<S3Object> filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Set the maximum number of keys requested per page.
+	 * @param pageSize the page size; defaults to 1000, which is also the S3 maximum.
+	 */
+	void setPageSize(int pageSize) {
+		Assert.isTrue(pageSize > 0, "'pageSize' must be greater than 0");
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Set the key prefixes to shard the listing by; the whole bucket is listed if empty.
+	 * @param prefixes the key prefixes.
+	 * @param concurrency the maximum number of shards listed in parallel.
+	 */
+	void setPrefixes(List<String> prefixes, int concurrency) {
+		Assert.isTrue(concurrency > 0, "'concurrency' must be greater than 0");
+		this.prefixes.clear();
+		this.prefixes.addAll(prefixes);
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+		if (prefixes.size() > 1 && concurrency > 1) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("s3-listing-");
+			threadFactory.setDaemon(true);
+			this.executor = Executors.newFixedThreadPool(Math.min(concurrency, prefixes.size()), threadFactory);
+		}
+	}
+
+	@Override
+	@Nullable
+	public synchronized Message<List<String>> receive() {
+		if (this.shards.isEmpty()) {
+			if (this.prefixes.isEmpty()) {
+				this.shards.add(new S3ObjectPages(this.s3Client, this.bucket, null, this.pageSize));
+			}
+			else {
+				this.prefixes.forEach((prefix) -> this.shards
+					.add(new S3ObjectPages(this.s3Client, this.bucket, prefix, this.pageSize)));
+			}
+		}
+		try {
+			while (!this.shards.isEmpty()) {
+				List<String> summaries = accept(nextPages());
+				if (!summaries.isEmpty()) {
+					return new GenericMessage<>(summaries);
+				}
+			}
+			return null;
+		}
+		catch (RuntimeException ex) {
+			this.shards.clear();
+			throw ex;
+		}
+	}
+
+	private List<S3Object> nextPages() {
+		List<S3Object> objects = new ArrayList<>();
+		if (this.executor == null || this.shards.size() == 1) {
+			for (S3ObjectPages shard : this.shards) {
+				objects.addAll(shard.next());
+			}
+		}
+		else {
+			List<Future<List<S3Object>>> pages = new ArrayList<>(this.shards.size());
+			for (S3ObjectPages shard : this.shards) {
+				pages.add(this.executor.submit(shard::next));
+			}
+			for (Future<List<S3Object>> page : pages) {
+				objects.addAll(getPage(page, pages));
+			}
+		}
+		this.shards.removeIf((shard) -> !shard.hasNext());
+		return objects;
+	}
+
+	private List<S3Object> getPage(Future<List<S3Object>> page, List<Future<List<S3Object>>> pages) {
+		try {
+			return page.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			pages.forEach((future) -> future.cancel(true));
+			throw new MessagingException("Interrupted while listing the bucket " + this.bucket, ex);
+		}
+		catch (ExecutionException ex) {
+			pages.forEach((future) -> future.cancel(true));
+			if (ex.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new MessagingException("Failed to list the bucket " + this.bucket, ex.getCause());
+		}
+	}
+
+	private List<String> accept(List<S3Object> objects) {
+		Map<String, String> values = new LinkedHashMap<>();
+		Map<String, S3Object> candidates = new LinkedHashMap<>();
+		for (S3Object object : objects) {
+			if (this.filter.test(object)) {
+				String key = this.metadataStorePrefix + object.key();
+				values.put(key, String.valueOf(object.lastModified().toEpochMilli()));
+				candidates.put(key, object);
+			}
+		}
+		List<String> summaries = new ArrayList<>(candidates.size());
+		if (candidates.isEmpty()) {
+			return summaries;
+		}
+		Map<String, String> existing = this.metadataStore.putAllIfAbsent(values);
+		candidates.forEach((key, object) -> {
+			String value = values.get(key);
+			String oldValue = existing.get(key);
+			if (oldValue == null || (!oldValue.equals(value) && this.metadataStore.replace(key, oldValue, value))) {
+				summaries.add(toJson(object));
+			}
+		});
+		return summaries;
+	}
+
+	/**
+	 * Write the object summary with the fields the {@code S3Object.Builder} is serialized
+	 * with, without the reflection over the builder.
+	 * @param object the object to write.
+	 * @return the JSON summary.
+	 */
+	private String toJson(S3Object object) {
+		StringWriter writer = new StringWriter(256);
+		try (JsonGenerator generator = this.jsonFactory.createGenerator(writer)) {
+			generator.writeStartObject();
+			generator.writeStringField("key", object.key());
+			generator.writeStringField("lastModified",
+					(object.lastModified() != null) ? object.lastModified().toString() : null);
+			generator.writeStringField("etag", object.eTag());
+			generator.writeArrayFieldStart("checksumAlgorithm");
+			for (String algorithm : object.checksumAlgorithmAsStrings()) {
+				generator.writeString(algorithm);
+			}
+			generator.writeEndArray();
+			generator.writeFieldName("size");
+			if (object.size() != null) {
+				generator.writeNumber(object.size());
+			}
+			else {
+				generator.writeNull();
+			}
+			generator.writeStringField("storageClass", object.storageClassAsString());
+			Owner owner = object.owner();
+			if (owner != null) {
+				generator.writeObjectFieldStart("owner");
+				generator.writeStringField("displayName", owner.displayName());
+				generator.writeStringField("id", owner.id());
+				generator.writeEndObject();
+			}
+			else {
+				generator.writeNullField("owner");
+			}
+			generator.writeEndObject();
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return writer.toString();
+	}
+
+	@Override
+	public void destroy() {
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+		}
+	}
+
+}
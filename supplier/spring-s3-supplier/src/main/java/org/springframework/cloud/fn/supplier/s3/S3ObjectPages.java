@@ -0,0 +1,71 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.s3;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * The lazy iterator over the {@code ListObjectsV2} pages of a bucket, or of a key prefix
+ * in it: a page is requested only when {@link #next()} is called, following the
+ * continuation token of the previous one.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+final class S3ObjectPages implements Iterator<List<S3Object>> {
+
+	private final S3Client s3Client;
+
+	private final ListObjectsV2Request request;
+
+	@Nullable
+	private String continuationToken;
+
+	private boolean hasNext = true;
+
+	S3ObjectPages(S3Client s3Client, String bucket, @Nullable String prefix, int pageSize) {
+		this.s3Client = s3Client;
+		this.request = ListObjectsV2Request.builder().bucket(bucket).prefix(prefix).maxKeys(pageSize).build();
+	}
+
+	@Override
+	public boolean hasNext() {
+		return this.hasNext;
+	}
+
+	@Override
+	public List<S3Object> next() {
+		if (!this.hasNext) {
+			throw new NoSuchElementException();
+		}
+		ListObjectsV2Response response = this.s3Client
+			.listObjectsV2(this.request.toBuilder().continuationToken(this.continuationToken).build());
+		this.continuationToken = response.nextContinuationToken();
+		this.hasNext = Boolean.TRUE.equals(response.isTruncated()) && this.continuationToken != null;
+		return response.contents();
+	}
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.s3;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.core.MessageSource;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.ReversibleFileListFilter;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * The {@link MessageSource} for the streaming mode, emitting an {@link InputStream} per
+ * new S3 object, which reads the object straight from S3 with no local copy.
+ * <p>
+ * The remote directory is listed lazily a {@code ListObjectsV2} page at a time, and the
+ * objects of a page accepted by the filter are emitted one per {@link #receive()}. The
+ * content of each object is fetched, from its first read on, with concurrent byte-range
+ * requests by a {@link RangedS3InputStream}. The ranges of all the streams are fetched by
+ * a pool of {@code rangeConcurrency} threads, so streams read at the same time share it,
+ * while a stream which is emitted but not read yet fetches nothing. A listing which ends
+ * without new objects returns {@code null} and the next {@link #receive()} starts a new
+ * one.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+class S3RangedStreamingMessageSource implements MessageSource<InputStream>, DisposableBean {
+
+	private final S3Client s3Client;
+
+	private final String bucket;
+
+	@Nullable
+	private final String prefix;
+
+	private final FileListFilter<S3Object> filter;
+
+	private final Deque<S3Object> objects = new ArrayDeque<>();
+
+	private int pageSize = 1000;
+
+	private int rangeSize = 8 * 1024 * 1024;
+
+	private int rangeConcurrency = 4;
+
+	@Nullable
+	private S3ObjectPages pages;
+
+	@Nullable
+	private ExecutorService executor;
+
+	/**
+	 * Create an instance for the remote directory.
+	 * @param s3Client the S3 client.
+	 * @param remoteDirectory the bucket, optionally followed by a key prefix, such as
+	 * {@code bucket/some/prefix}.
+	 * @param filter the filter for the listed objects.
+	 */
+	S3RangedStreamingMessageSource(S3Client s3Client, String remoteDirectory, FileListFilter<S3Object> filter) {
+		this.s3Client = s3Client;
+		int separator = remoteDirectory.indexOf('/');
+		if (separator > 0) {
+			this.bucket = remoteDirectory.substring(0, separator);
+			String keyPrefix = StringUtils.trimTrailingCharacter(remoteDirectory.substring(separator + 1), '/');
+			this.prefix = StringUtils.hasText(keyPrefix) ? keyPrefix + "/" : null;
+		}
+		else {
+			this.bucket = remoteDirectory;
+			this.prefix = null;
+		}
+		this.filter = filter;
+	}
+
+	/**
+	 * Set the maximum number of keys requested per listing page.
+	 * @param pageSize the page size; defaults to 1000.
+	 */
+	void setPageSize(int pageSize) {
+		Assert.isTrue(pageSize > 0, "'pageSize' must be greater than 0");
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Set the number of bytes requested per range.
+	 * @param rangeSize the range size; defaults to 8MB.
+	 */
+	void setRangeSize(int rangeSize) {
+		Assert.isTrue(rangeSize > 0, "'rangeSize' must be greater than 0");
+		this.rangeSize = rangeSize;
+	}
+
+	/**
+	 * Set the maximum number of ranges of an object requested in parallel.
+	 * @param rangeConcurrency the range concurrency; defaults to 4.
+	 */
+	void setRangeConcurrency(int rangeConcurrency) {
+		Assert.isTrue(rangeConcurrency > 0, "'rangeConcurrency' must be greater than 0");
+		this.rangeConcurrency = rangeConcurrency;
+	}
+
+	@Override
+	@Nullable
+	public synchronized Message<InputStream> receive() {
+		if (this.objects.isEmpty() && this.pages == null) {
+			this.pages = new S3ObjectPages(this.s3Client, this.bucket, this.prefix, this.pageSize);
+		}
+		while (this.objects.isEmpty()) {
+			if (this.pages == null || !this.pages.hasNext()) {
+				this.pages = null;
+				return null;
+			}
+			List<S3Object> files = new ArrayList<>();
+			try {
+				for (S3Object object : this.pages.next()) {
+					if (!object.key().endsWith("/")) {
+						files.add(object);
+					}
+				}
+			}
+			catch (RuntimeException ex) {
+				this.pages = null;
+				throw ex;
+			}
+			this.objects.addAll(this.filter.filterFiles(files.toArray(new S3Object[0])));
+		}
+		S3Object object = this.objects.poll();
+		long size = (object.size() != null) ? object.size() : 0;
+		InputStream stream = new RangedS3InputStream(this.s3Client, this.bucket, object.key(), object.eTag(), size,
+				this.rangeSize, this.rangeConcurrency, obtainExecutor());
+		return MessageBuilder.withPayload(stream)
+			.setHeader(FileHeaders.REMOTE_DIRECTORY, this.bucket)
+			.setHeader(FileHeaders.REMOTE_FILE, object.key())
+			.setHeader(IntegrationMessageHeaderAccessor.CLOSEABLE_RESOURCE, stream)
+			.build();
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (!this.objects.isEmpty() && this.filter instanceof ReversibleFileListFilter<S3Object> reversible) {
+			reversible.rollback(this.objects.peek(), new ArrayList<>(this.objects));
+		}
+		this.objects.clear();
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+	}
+
+	private ExecutorService obtainExecutor() {
+		if (this.executor == null) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("s3-range-");
+			threadFactory.setDaemon(true);
+			this.executor = Executors.newFixedThreadPool(this.rangeConcurrency, threadFactory);
+		}
+		return this.executor;
+	}
+
+}
@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.fn.supplier.s3;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -23,7 +24,10 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.Period;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 
@@ -37,6 +41,8 @@ import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -51,6 +57,7 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.util.FileCopyUtils;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.mock;
 
@@ -77,6 +84,8 @@ public abstract class AbstractAwsS3SupplierMockTests {
 
 	protected static Map<S3Object, InputStream> S3_OBJECTS;
 
+	protected static Map<String, byte[]> S3_CONTENTS;
+
 	@Autowired
 	Supplier<Flux<Message<?>>> s3Supplier;
 
@@ -99,13 +108,19 @@ public abstract class AbstractAwsS3SupplierMockTests {
 		FileCopyUtils.copy("Other\nOther2".getBytes(), otherFile);
 
 		S3_OBJECTS = new HashMap<>();
+		S3_CONTENTS = new HashMap<>();
 
 		Instant instant = Instant.now().plus(Period.ofDays(1));
 
 		for (File file : f.listFiles()) {
-			S3Object s3Object = S3Object.builder().key("subdir/" + file.getName()).lastModified(instant).build();
+			S3Object s3Object = S3Object.builder()
+				.key("subdir/" + file.getName())
+				.lastModified(instant)
+				.size(file.length())
+				.build();
 
 			S3_OBJECTS.put(s3Object, new FileInputStream(file));
+			S3_CONTENTS.put(s3Object.key(), FileCopyUtils.copyToByteArray(file));
 		}
 
 		final String local = temporaryRemoteFolder.toAbsolutePath() + "/local";
@@ -142,6 +157,32 @@ public abstract class AbstractAwsS3SupplierMockTests {
 
 			willAnswer((invocation) -> listObjectsResponse).given(amazonS3).listObjects(any(ListObjectsRequest.class));
 
+			willAnswer((invocation) -> {
+				ListObjectsV2Request request = invocation.getArgument(0);
+				List<S3Object> objects = S3_OBJECTS.keySet()
+					.stream()
+					.filter((object) -> request.prefix() == null || object.key().startsWith(request.prefix()))
+					.sorted(Comparator.comparing(S3Object::key))
+					.toList();
+				int from = (request.continuationToken() != null) ? Integer.parseInt(request.continuationToken()) : 0;
+				int to = Math.min(from + request.maxKeys(), objects.size());
+				boolean truncated = to < objects.size();
+				return ListObjectsV2Response.builder()
+					.contents(objects.subList(from, to))
+					.isTruncated(truncated)
+					.nextContinuationToken(truncated ? String.valueOf(to) : null)
+					.build();
+			}).given(amazonS3).listObjectsV2(any(ListObjectsV2Request.class));
+
+			willAnswer((invocation) -> {
+				GetObjectRequest request = invocation.getArgument(0);
+				byte[] content = S3_CONTENTS.get(request.key());
+				String[] range = request.range().substring("bytes=".length()).split("-");
+				int to = Math.min(Integer.parseInt(range[1]) + 1, content.length);
+				return new ResponseInputStream<>(GetObjectResponse.builder().build(),
+						new ByteArrayInputStream(Arrays.copyOfRange(content, Integer.parseInt(range[0]), to)));
+			}).given(amazonS3).getObject(argThat((GetObjectRequest request) -> request.range() != null));
+
 			for (Map.Entry<S3Object, InputStream> s3Object : S3_OBJECTS.entrySet()) {
 				willAnswer((invocation) -> new ResponseInputStream<>(GetObjectResponse.builder().build(),
 						s3Object.getValue()))
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.s3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.integration.json.JsonPathUtils;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = { "s3.supplier.list-only=true",
+		"s3.supplier.list-prefixes=subdir/1,subdir/2,subdir/other" })
+public class AmazonS3ShardedListOnlyTests extends AbstractAwsS3SupplierMockTests {
+
+	@Test
+	public void listingIsShardedByPrefixes() {
+		Flux<Message<?>> messageFlux = s3Supplier.get();
+		Set<String> keys = new HashSet<>();
+		StepVerifier stepVerifier = StepVerifier.create(messageFlux)
+			.recordWith(ArrayList::new)
+			.expectNextCount(3)
+			.consumeRecordedWith((messages) -> messages
+				.forEach((message) -> keys.add(jsonPathKey((String) message.getPayload()))))
+			.thenCancel()
+			.verifyLater();
+		standardIntegrationFlow.start();
+		stepVerifier.verify(Duration.ofSeconds(10));
+		assertThat(keys).containsExactlyInAnyOrder("subdir/1.test", "subdir/2.test", "subdir/otherFile");
+	}
+
+	private static String jsonPathKey(String s3Object) {
+		try {
+			return JsonPathUtils.evaluate(s3Object, "$.key");
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+}
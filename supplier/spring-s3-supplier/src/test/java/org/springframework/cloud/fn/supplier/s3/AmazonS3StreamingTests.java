@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.s3;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = { "file.consumer.mode=contents", "s3.supplier.stream=true",
+		"s3.supplier.stream-range-size=2B", "s3.supplier.stream-range-concurrency=2" })
+public class AmazonS3StreamingTests extends AbstractAwsS3SupplierMockTests {
+
+	@Test
+	public void objectsAreStreamedInRanges() {
+		Flux<Message<?>> messageFlux = s3Supplier.get();
+		StepVerifier stepVerifier = StepVerifier.create(messageFlux).assertNext((message) -> {
+			assertThat(message.getHeaders()).containsEntry(FileHeaders.REMOTE_FILE, "subdir/1.test");
+			assertThat(message.getPayload()).isEqualTo("Hello".getBytes());
+		}).assertNext((message) -> {
+			assertThat(message.getHeaders()).containsEntry(FileHeaders.REMOTE_FILE, "subdir/2.test");
+			assertThat(message.getPayload()).isEqualTo("Bye".getBytes());
+		}).assertNext((message) -> {
+			assertThat(message.getHeaders()).containsEntry(FileHeaders.REMOTE_FILE, "subdir/otherFile");
+			assertThat(message.getPayload()).isEqualTo("Other\nOther2".getBytes());
+		}).thenCancel().verifyLater();
+		standardIntegrationFlow.start();
+		stepVerifier.verify(Duration.ofSeconds(10));
+	}
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.sftp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.sshd.sftp.client.SftpClient;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.common.LiteralExpression;
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.ReversibleFileListFilter;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.integration.sftp.inbound.SftpInboundFileSynchronizer;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * The {@link SftpInboundFileSynchronizer} downloading the files of a poll in parallel,
+ * each over its own session. The sessions are acquired on the polling thread, so the
+ * thread key of a rotating {@code DelegatingSessionFactory} selects the server for all
+ * of them.
+ * <p>
+ * The remote listing is sorted before the maximum fetch size is applied, the excess
+ * files and the files which fail to download are rolled back in the filter, so the
+ * accept-once semantics are the same as for the sequential synchronizer.
+ * <p>
+ * The download threads are started by the first poll and stopped when the synchronizer is
+ * closed, which happens when the channel adapter is stopped; the next poll after a
+ * restart starts them again.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+class ParallelSftpInboundFileSynchronizer extends SftpInboundFileSynchronizer {
+
+	private final SessionFactory<SftpClient.DirEntry> sessionFactory;
+
+	private final int concurrency;
+
+	@Nullable
+	private ExecutorService executor;
+
+	private Expression remoteDirectoryExpression = new LiteralExpression("/");
+
+	@Nullable
+	private FileListFilter<SftpClient.DirEntry> filter;
+
+	private boolean preserveTimestamp;
+
+	@Nullable
+	private Comparator<SftpClient.DirEntry> comparator;
+
+	ParallelSftpInboundFileSynchronizer(SessionFactory<SftpClient.DirEntry> sessionFactory, int concurrency) {
+		super(sessionFactory);
+		Assert.isTrue(concurrency > 0, "'concurrency' must be greater than 0");
+		this.sessionFactory = sessionFactory;
+		this.concurrency = concurrency;
+	}
+
+	@Override
+	public void setRemoteDirectory(String remoteDirectory) {
+		super.setRemoteDirectory(remoteDirectory);
+		this.remoteDirectoryExpression = new LiteralExpression(remoteDirectory);
+	}
+
+	@Override
+	public void setRemoteDirectoryExpression(Expression remoteDirectoryExpression) {
+		super.setRemoteDirectoryExpression(remoteDirectoryExpression);
+		this.remoteDirectoryExpression = remoteDirectoryExpression;
+	}
+
+	@Override
+	public void setFilter(@Nullable FileListFilter<SftpClient.DirEntry> filter) {
+		super.setFilter(filter);
+		this.filter = filter;
+	}
+
+	@Override
+	public void setPreserveTimestamp(boolean preserveTimestamp) {
+		super.setPreserveTimestamp(preserveTimestamp);
+		this.preserveTimestamp = preserveTimestamp;
+	}
+
+	/**
+	 * Set the order of the remote files to select up to the maximum fetch size from.
+	 * @param comparator the remote file comparator.
+	 */
+	void setComparator(@Nullable Comparator<SftpClient.DirEntry> comparator) {
+		this.comparator = comparator;
+	}
+
+	@Override
+	public void synchronizeToLocalDirectory(File localDirectory, int maxFetchSize) {
+		if (maxFetchSize == 0) {
+			return;
+		}
+		String remoteDirectory = this.remoteDirectoryExpression.getValue(String.class);
+		List<Session<SftpClient.DirEntry>> sessions = new ArrayList<>(this.concurrency);
+		try {
+			sessions.add(this.sessionFactory.getSession());
+			List<SftpClient.DirEntry> files = listFiles(sessions.get(0), remoteDirectory, maxFetchSize);
+			while (sessions.size() < Math.min(this.concurrency, files.size())) {
+				sessions.add(this.sessionFactory.getSession());
+			}
+			transfer(remoteDirectory, files, localDirectory, sessions);
+		}
+		catch (IOException ex) {
+			throw new MessagingException("Problem occurred while synchronizing '" + remoteDirectory
+					+ "' to local directory '" + localDirectory + "'", ex);
+		}
+		finally {
+			sessions.forEach(Session::close);
+		}
+	}
+
+	private List<SftpClient.DirEntry> listFiles(Session<SftpClient.DirEntry> session, String remoteDirectory,
+			int maxFetchSize) throws IOException {
+
+		SftpClient.DirEntry[] entries = session.list(remoteDirectory);
+		if (ObjectUtils.isEmpty(entries)) {
+			return List.of();
+		}
+		SftpClient.DirEntry[] remoteFiles = Arrays.stream(entries)
+			.filter(this::isFile)
+			.toArray(SftpClient.DirEntry[]::new);
+		List<SftpClient.DirEntry> accepted = (this.filter != null) ? this.filter.filterFiles(remoteFiles)
+				: Arrays.asList(remoteFiles);
+		List<SftpClient.DirEntry> files = new ArrayList<>(accepted);
+		if (this.comparator != null) {
+			files.sort(this.comparator);
+		}
+		if (maxFetchSize > 0 && files.size() > maxFetchSize) {
+			rollback(new ArrayList<>(files.subList(maxFetchSize, files.size())));
+			files = files.subList(0, maxFetchSize);
+		}
+		return files;
+	}
+
+	private void transfer(String remoteDirectory, List<SftpClient.DirEntry> files, File localDirectory,
+			List<Session<SftpClient.DirEntry>> sessions) {
+
+		BlockingQueue<Session<SftpClient.DirEntry>> idleSessions = new LinkedBlockingQueue<>(sessions);
+		List<Future<?>> transfers = new ArrayList<>(files.size());
+		ExecutorService executor = obtainExecutor();
+		for (SftpClient.DirEntry file : files) {
+			transfers.add(executor.submit(() -> {
+				Session<SftpClient.DirEntry> session = idleSessions.take();
+				try {
+					copy(remoteDirectory, file, localDirectory, session);
+					return null;
+				}
+				finally {
+					idleSessions.add(session);
+				}
+			}));
+		}
+		MessagingException failure = null;
+		for (int i = 0; i < transfers.size(); i++) {
+			try {
+				transfers.get(i).get();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				transfers.forEach((transfer) -> transfer.cancel(true));
+				rollback(new ArrayList<>(files.subList(i, files.size())));
+				throw new MessagingException("Interrupted while downloading from '" + remoteDirectory + "'", ex);
+			}
+			catch (ExecutionException ex) {
+				SftpClient.DirEntry file = files.get(i);
+				rollback(List.of(file));
+				if (failure == null) {
+					failure = new MessagingException("Failed to download '" + getFilename(file) + "' from '"
+							+ remoteDirectory + "'", ex.getCause());
+				}
+				else {
+					failure.addSuppressed(ex.getCause());
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void copy(String remoteDirectory, SftpClient.DirEntry file, File localDirectory,
+			Session<SftpClient.DirEntry> session) throws IOException {
+
+		if (copyFileToLocalDirectory(remoteDirectory, null, file, localDirectory, session) && this.preserveTimestamp) {
+			// The access time too, for the local files to be emitted in the remote order
+			SftpClient.Attributes attributes = file.getAttributes();
+			File localFile = new File(localDirectory, getFilename(file));
+			Files.getFileAttributeView(localFile.toPath(), BasicFileAttributeView.class)
+				.setTimes(attributes.getModifyTime(), attributes.getAccessTime(), null);
+		}
+	}
+
+	private void rollback(List<SftpClient.DirEntry> files) {
+		if (this.filter instanceof ReversibleFileListFilter<SftpClient.DirEntry> reversibleFilter) {
+			reversibleFilter.rollback(files.get(0), files);
+		}
+	}
+
+	private synchronized ExecutorService obtainExecutor() {
+		if (this.executor == null) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sftp-download-");
+			threadFactory.setDaemon(true);
+			this.executor = Executors.newFixedThreadPool(this.concurrency, threadFactory);
+		}
+		return this.executor;
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (this.executor != null) {
+				this.executor.shutdownNow();
+				this.executor = null;
+			}
+		}
+		super.close();
+	}
+
+}
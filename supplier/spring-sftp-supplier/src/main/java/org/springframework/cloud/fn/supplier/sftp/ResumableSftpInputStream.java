@@ -0,0 +1,320 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.sftp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.sshd.sftp.client.SftpClient;
+
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.lang.Nullable;
+
+/**
+ * The {@link InputStream} of a remote file read with ranged SFTP reads, a number of
+ * chunks ahead of the consumer, so a slow response does not stall the stream.
+ * <p>
+ * When a read fails, the stream resumes over a new session from the offset the consumer
+ * has reached, after checking that the size and modified time of the file have not
+ * changed and that the last chunk consumed reads the same again. The CRC32C of the bytes
+ * consumed is computed incrementally and reported with the transfer throughput once the
+ * file has been read to the end.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+class ResumableSftpInputStream extends InputStream {
+
+	private static final Log LOGGER = LogFactory.getLog(ResumableSftpInputStream.class);
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final String path;
+
+	private final Supplier<Session<SftpClient.DirEntry>> sessions;
+
+	private final ExecutorService executor;
+
+	private final int chunkSize;
+
+	private final int readAhead;
+
+	private final int maxResumes;
+
+	private final List<Session<SftpClient.DirEntry>> ownSessions = new ArrayList<>();
+
+	private final Deque<Future<byte[]>> chunks = new ArrayDeque<>();
+
+	private final CRC32C checksum = new CRC32C();
+
+	private final long startTime = System.nanoTime();
+
+	private SftpClient client;
+
+	@Nullable
+	private SftpClient.CloseableHandle handle;
+
+	private long size;
+
+	private long modified;
+
+	private long nextOffset;
+
+	private byte[] chunk = EMPTY;
+
+	private long chunkOffset;
+
+	private int chunkPosition;
+
+	private long position;
+
+	private int resumes;
+
+	private boolean closed;
+
+	/**
+	 * Open the remote file.
+	 * @param path the remote file path.
+	 * @param session the session to read over until a read fails; not closed by the
+	 * stream.
+	 * @param sessions the supplier of the sessions to resume over.
+	 * @param executor the executor of the chunk reads.
+	 * @param chunkSize the number of bytes of a ranged read.
+	 * @param readAhead the number of chunks read ahead.
+	 * @param maxResumes the maximum number of times to resume the transfer.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	ResumableSftpInputStream(String path, Session<SftpClient.DirEntry> session,
+			Supplier<Session<SftpClient.DirEntry>> sessions, ExecutorService executor, int chunkSize, int readAhead,
+			int maxResumes) throws IOException {
+
+		this.path = path;
+		this.sessions = sessions;
+		this.executor = executor;
+		this.chunkSize = chunkSize;
+		this.readAhead = readAhead;
+		this.maxResumes = maxResumes;
+		open(session);
+		try {
+			SftpClient.Attributes attributes = this.client.stat(this.handle);
+			this.size = attributes.getSize();
+			this.modified = attributes.getModifyTime().toMillis();
+		}
+		catch (IOException ex) {
+			closeHandle();
+			throw ex;
+		}
+		readAhead();
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+		if (this.chunkPosition == this.chunk.length && !nextChunk()) {
+			return -1;
+		}
+		int value = this.chunk[this.chunkPosition++] & 0xff;
+		this.checksum.update(value);
+		this.position++;
+		if (this.position == this.size) {
+			report();
+		}
+		return value;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+		if (length == 0) {
+			return 0;
+		}
+		if (this.chunkPosition == this.chunk.length && !nextChunk()) {
+			return -1;
+		}
+		int count = Math.min(length, this.chunk.length - this.chunkPosition);
+		System.arraycopy(this.chunk, this.chunkPosition, bytes, offset, count);
+		this.checksum.update(bytes, offset, count);
+		this.chunkPosition += count;
+		this.position += count;
+		if (this.position == this.size) {
+			report();
+		}
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return this.chunk.length - this.chunkPosition;
+	}
+
+	private boolean nextChunk() throws IOException {
+		if (this.position == this.size) {
+			return false;
+		}
+		while (true) {
+			try {
+				byte[] next = this.chunks.remove().get();
+				this.chunkOffset = this.position;
+				this.chunk = next;
+				this.chunkPosition = 0;
+				readAhead();
+				return true;
+			}
+			catch (ExecutionException ex) {
+				resume(ex.getCause());
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading '" + this.path + "'", ex);
+			}
+		}
+	}
+
+	private void readAhead() {
+		while (this.chunks.size() < this.readAhead && this.nextOffset < this.size) {
+			SftpClient client = this.client;
+			SftpClient.Handle handle = this.handle;
+			long offset = this.nextOffset;
+			int length = (int) Math.min(this.chunkSize, this.size - offset);
+			this.chunks.add(this.executor.submit(() -> readFully(client, handle, offset, length)));
+			this.nextOffset += length;
+		}
+	}
+
+	private byte[] readFully(SftpClient client, SftpClient.Handle handle, long offset, int length)
+			throws IOException {
+
+		byte[] bytes = new byte[length];
+		int count = 0;
+		while (count < length) {
+			int read = client.read(handle, offset + count, bytes, count, length - count);
+			if (read < 0) {
+				throw new IOException("Unexpected end of '" + this.path + "' at " + (offset + count) + " of "
+						+ this.size + " bytes");
+			}
+			count += read;
+		}
+		return bytes;
+	}
+
+	private void resume(Throwable failure) throws IOException {
+		Throwable cause = failure;
+		while (true) {
+			if (this.resumes == this.maxResumes) {
+				throw new IOException("Failed to read '" + this.path + "' at " + this.position + " of " + this.size
+						+ " bytes after " + this.resumes + " resumes", cause);
+			}
+			this.resumes++;
+			LOGGER.warn("Resuming '" + this.path + "' at " + this.position + " of " + this.size + " bytes", cause);
+			cancelChunks();
+			closeHandle();
+			SftpClient.Attributes attributes;
+			byte[] lastChunk;
+			try {
+				Session<SftpClient.DirEntry> session = this.sessions.get();
+				this.ownSessions.add(session);
+				open(session);
+				attributes = this.client.stat(this.handle);
+				lastChunk = (this.chunk.length > 0)
+						? readFully(this.client, this.handle, this.chunkOffset, this.chunk.length) : EMPTY;
+			}
+			catch (IOException | RuntimeException ex) {
+				cause = ex;
+				continue;
+			}
+			if (attributes.getSize() != this.size || attributes.getModifyTime().toMillis() != this.modified) {
+				throw new IOException("Cannot resume '" + this.path + "': the file has changed", cause);
+			}
+			if (!Arrays.equals(this.chunk, lastChunk)) {
+				throw new IOException(
+						"Cannot resume '" + this.path + "': the content at " + this.chunkOffset + " has changed",
+						cause);
+			}
+			this.nextOffset = this.position;
+			readAhead();
+			return;
+		}
+	}
+
+	private void open(Session<SftpClient.DirEntry> session) throws IOException {
+		this.client = (SftpClient) session.getClientInstance();
+		this.handle = this.client.open(this.path, SftpClient.OpenMode.Read);
+	}
+
+	private void report() {
+		if (LOGGER.isInfoEnabled()) {
+			long nanos = Math.max(System.nanoTime() - this.startTime, 1);
+			LOGGER.info(String.format("Read '%s': %d bytes in %d ms (%.1f KiB/s), %d resumes, CRC32C %08x", this.path,
+					this.size, nanos / 1_000_000, this.size * 1e9 / nanos / 1024, this.resumes,
+					this.checksum.getValue()));
+		}
+	}
+
+	/**
+	 * Return the CRC32C of the bytes read so far.
+	 * @return the checksum.
+	 */
+	long getChecksum() {
+		return this.checksum.getValue();
+	}
+
+	@Override
+	public void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		cancelChunks();
+		closeHandle();
+		this.ownSessions.forEach(Session::close);
+	}
+
+	private void cancelChunks() {
+		this.chunks.forEach((chunk) -> chunk.cancel(true));
+		this.chunks.clear();
+	}
+
+	private void closeHandle() {
+		SftpClient.CloseableHandle handle = this.handle;
+		this.handle = null;
+		if (handle != null) {
+			try {
+				handle.close();
+			}
+			catch (IOException ex) {
+				LOGGER.debug("Failed to close '" + this.path + "'", ex);
+			}
+		}
+	}
+
+}
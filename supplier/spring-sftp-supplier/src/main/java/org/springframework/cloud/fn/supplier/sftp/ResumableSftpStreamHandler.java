@@ -0,0 +1,115 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.sftp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.sshd.sftp.client.SftpClient;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.core.GenericHandler;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.remote.session.DelegatingSessionFactory;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * The handler replacing the {@link InputStream} of a remote file emitted by the SFTP
+ * streaming inbound adapter with a {@link ResumableSftpInputStream} over the same
+ * session. When a read fails, the stream resumes over a new session to the server the
+ * file has been listed from. A file which cannot be reopened, because it has been
+ * deleted or renamed on receive, is streamed as emitted, without resuming.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+class ResumableSftpStreamHandler implements GenericHandler<InputStream>, DisposableBean {
+
+	private static final Log LOGGER = LogFactory.getLog(ResumableSftpStreamHandler.class);
+
+	private final DelegatingSessionFactory<SftpClient.DirEntry> sessionFactory;
+
+	private final String remoteFileSeparator;
+
+	private final int chunkSize;
+
+	private final int readAhead;
+
+	private final int maxResumes;
+
+	private final ExecutorService executor;
+
+	ResumableSftpStreamHandler(DelegatingSessionFactory<SftpClient.DirEntry> sessionFactory,
+			String remoteFileSeparator, int chunkSize, int readAhead, int maxResumes) {
+
+		this.sessionFactory = sessionFactory;
+		this.remoteFileSeparator = remoteFileSeparator;
+		this.chunkSize = chunkSize;
+		this.readAhead = readAhead;
+		this.maxResumes = maxResumes;
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sftp-stream-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newCachedThreadPool(threadFactory);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object handle(InputStream payload, MessageHeaders headers) {
+		String directory = headers.get(FileHeaders.REMOTE_DIRECTORY, String.class);
+		String file = headers.get(FileHeaders.REMOTE_FILE, String.class);
+		Closeable closeableResource = headers.get(IntegrationMessageHeaderAccessor.CLOSEABLE_RESOURCE,
+				Closeable.class);
+		if (directory == null || file == null || !(closeableResource instanceof Session<?>)) {
+			return payload;
+		}
+		String path = directory.endsWith(this.remoteFileSeparator) ? directory + file
+				: directory + this.remoteFileSeparator + file;
+		Object key = headers.get(SftpSupplierRotator.SFTP_SELECTED_SERVER_PROPERTY_KEY);
+		InputStream resumableStream;
+		try {
+			resumableStream = new ResumableSftpInputStream(path, (Session<SftpClient.DirEntry>) closeableResource,
+					() -> (key != null) ? this.sessionFactory.getSession(key) : this.sessionFactory.getSession(),
+					this.executor, this.chunkSize, this.readAhead, this.maxResumes);
+		}
+		catch (IOException ex) {
+			// Deleted or renamed on receive: only the stream already open can read it
+			LOGGER.debug("Cannot reopen '" + path + "', streaming it without resuming", ex);
+			return payload;
+		}
+		try {
+			payload.close();
+		}
+		catch (IOException ex) {
+			LOGGER.debug("Failed to close the stream of '" + path + "'", ex);
+		}
+		return resumableStream;
+	}
+
+	@Override
+	public void destroy() {
+		this.executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.sftp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.sshd.sftp.client.SftpClient;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.fn.common.metadata.store.BatchMetadataStore;
+import org.springframework.http.MediaType;
+import org.springframework.integration.core.MessageSource;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.Assert;
+
+/**
+ * The {@link MessageSource} for the list-only mode, emitting the paths of the remote
+ * files which are new or modified since they were last listed.
+ * <p>
+ * The remote directory, and its subdirectories if recursive, is walked with a streaming
+ * directory read over a single session, which is returned to the session pool at the end
+ * of the walk. The entries are read a page at a time: each page is sorted, checked
+ * against the metadata store with a single batch operation and emitted one message per
+ * {@link #receive()}, so the memory is bounded by the page size rather than by the size
+ * of the directory. A walk which ends without new files returns {@code null} and the
+ * next {@link #receive()} starts a new one.
+ *
+ * @author Spring Cloud Team
+ * @since 5.0
+ */
+class SftpListingMessageSource implements MessageSource<String>, DisposableBean {
+
+	static final String FILE_MODIFIED_TIME_HEADER = "FILE_MODIFIED_TIME";
+
+	private static final Log LOGGER = LogFactory.getLog(SftpListingMessageSource.class);
+
+	private final SessionFactory<SftpClient.DirEntry> sessionFactory;
+
+	private final String remoteDirectory;
+
+	private final String remoteFileSeparator;
+
+	private final BatchMetadataStore metadataStore;
+
+	private final String metadataStorePrefix;
+
+	private final Deque<String> directories = new ArrayDeque<>();
+
+	private final Deque<Message<String>> page = new ArrayDeque<>();
+
+	@Nullable
+	private Comparator<SftpClient.DirEntry> comparator;
+
+	private Predicate<String> filter = (path) -> true;
+
+	private boolean recursive;
+
+	private int pageSize = 1000;
+
+	@Nullable
+	private Session<SftpClient.DirEntry> session;
+
+	@Nullable
+	private String directory;
+
+	@Nullable
+	private Iterator<SftpClient.DirEntry> entries;
+
+	SftpListingMessageSource(SessionFactory<SftpClient.DirEntry> sessionFactory, String remoteDirectory,
+			String remoteFileSeparator, ConcurrentMetadataStore metadataStore, String metadataStorePrefix) {
+
+		this.sessionFactory = sessionFactory;
+		this.remoteDirectory = remoteDirectory;
+		this.remoteFileSeparator = remoteFileSeparator;
+		this.metadataStore = BatchMetadataStore.of(metadataStore);
+		this.metadataStorePrefix = metadataStorePrefix;
+	}
+
+	/**
+	 * Set the order of the entries within a page.
+	 * @param comparator the entry comparator.
+	 */
+	void setComparator(@Nullable Comparator<SftpClient.DirEntry> comparator) {
+		this.comparator = comparator;
+	}
+
+	/**
+	 * Set the predicate the remote file paths must match to be emitted.
+	 * @param filter the path predicate.
+	 */
+	void setFilter(Predicate<String> filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Set to true to walk the subdirectories too.
+	 * @param recursive true to walk the subdirectories.
+	 */
+	void setRecursive(boolean recursive) {
+		this.recursive = recursive;
+	}
+
+	/**
+	 * Set the maximum number of remote files read, checked and buffered at once.
+	 * @param pageSize the page size; defaults to 1000.
+	 */
+	void setPageSize(int pageSize) {
+		Assert.isTrue(pageSize > 0, "'pageSize' must be greater than 0");
+		this.pageSize = pageSize;
+	}
+
+	@Override
+	@Nullable
+	public synchronized Message<String> receive() {
+		if (this.page.isEmpty()) {
+			try {
+				nextPage();
+			}
+			catch (IOException | RuntimeException ex) {
+				endWalk();
+				throw new MessagingException("Failed to list the remote directory '" + this.remoteDirectory + "'", ex);
+			}
+		}
+		return this.page.poll();
+	}
+
+	private void nextPage() throws IOException {
+		if (this.session == null) {
+			this.session = this.sessionFactory.getSession();
+			this.directories.add(this.remoteDirectory);
+		}
+		while (this.page.isEmpty()) {
+			List<RemoteFile> files = readPage(this.session);
+			if (files.isEmpty()) {
+				endWalk();
+				return;
+			}
+			accept(files);
+		}
+	}
+
+	private List<RemoteFile> readPage(Session<SftpClient.DirEntry> session) throws IOException {
+		List<RemoteFile> files = new ArrayList<>();
+		while (files.size() < this.pageSize) {
+			if (this.entries == null || !this.entries.hasNext()) {
+				closeEntries();
+				String nextDirectory = this.directories.poll();
+				if (nextDirectory == null) {
+					break;
+				}
+				this.directory = nextDirectory + this.remoteFileSeparator;
+				this.entries = ((SftpClient) session.getClientInstance()).readDir(nextDirectory).iterator();
+			}
+			else {
+				SftpClient.DirEntry entry = this.entries.next();
+				String name = entry.getFilename();
+				SftpClient.Attributes attributes = entry.getAttributes();
+				if (attributes.isDirectory()) {
+					if (this.recursive && !".".equals(name) && !"..".equals(name)) {
+						this.directories.add(this.directory + name);
+					}
+				}
+				else if (!attributes.isSymbolicLink() && this.filter.test(this.directory + name)) {
+					files.add(new RemoteFile(this.directory, entry));
+				}
+			}
+		}
+		return files;
+	}
+
+	private void accept(List<RemoteFile> files) {
+		if (this.comparator != null) {
+			files.sort(Comparator.comparing(RemoteFile::entry, this.comparator));
+		}
+		Map<String, String> values = new LinkedHashMap<>();
+		for (RemoteFile file : files) {
+			values.put(this.metadataStorePrefix + file.path(),
+					String.valueOf(file.entry().getAttributes().getModifyTime()));
+		}
+		Map<String, String> existing = this.metadataStore.putAllIfAbsent(values);
+		for (RemoteFile file : files) {
+			String key = this.metadataStorePrefix + file.path();
+			String value = values.get(key);
+			String oldValue = existing.get(key);
+			if (oldValue == null || (!oldValue.equals(value) && this.metadataStore.replace(key, oldValue, value))) {
+				this.page.add(MessageBuilder.withPayload(file.path())
+					.setHeader(FileHeaders.REMOTE_DIRECTORY, file.directory())
+					.setHeader(FileHeaders.REMOTE_FILE, file.entry().getFilename())
+					.setHeader(FILE_MODIFIED_TIME_HEADER, value)
+					.setHeader(MessageHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN)
+					.build());
+			}
+		}
+	}
+
+	private void closeEntries() {
+		if (this.entries instanceof Closeable closeable) {
+			try {
+				closeable.close();
+			}
+			catch (IOException ex) {
+				LOGGER.debug("Failed to close the remote directory '" + this.directory + "'", ex);
+			}
+		}
+		this.entries = null;
+	}
+
+	private void endWalk() {
+		closeEntries();
+		this.directories.clear();
+		if (this.session != null) {
+			this.session.close();
+			this.session = null;
+		}
+	}
+
+	@Override
+	public synchronized void destroy() {
+		endWalk();
+		this.page.clear();
+	}
+
+	private record RemoteFile(String directory, SftpClient.DirEntry entry) {
+
+		String path() {
+			return this.directory + this.entry.getFilename();
+		}
+
+	}
+
+}
@@ -16,12 +16,10 @@
 
 package org.springframework.cloud.fn.supplier.sftp;
 
-import java.io.IOException;
 import java.util.List;
-import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
 
 import org.apache.sshd.sftp.client.SftpClient;
 import org.reactivestreams.Publisher;
@@ -40,42 +38,34 @@ import org.springframework.cloud.fn.common.file.FileConsumerProperties;
 import org.springframework.cloud.fn.common.file.FileUtils;
 import org.springframework.cloud.fn.common.file.remote.RemoteFileDeletingAdvice;
 import org.springframework.cloud.fn.common.file.remote.RemoteFileRenamingAdvice;
+import org.springframework.cloud.fn.common.metadata.store.BatchAcceptOnceFileListFilter;
+import org.springframework.cloud.fn.common.metadata.store.WatermarkFileListFilter;
 import org.springframework.context.Lifecycle;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
-import org.springframework.http.MediaType;
 import org.springframework.integration.aop.ReceiveMessageAdvice;
-import org.springframework.integration.channel.QueueChannel;
-import org.springframework.integration.core.GenericSelector;
 import org.springframework.integration.core.MessageSource;
 import org.springframework.integration.dsl.IntegrationFlow;
 import org.springframework.integration.dsl.IntegrationFlowBuilder;
-import org.springframework.integration.endpoint.MessageProducerSupport;
 import org.springframework.integration.file.FileHeaders;
 import org.springframework.integration.file.filters.ChainFileListFilter;
 import org.springframework.integration.file.filters.FileListFilter;
 import org.springframework.integration.file.remote.gateway.AbstractRemoteFileOutboundGateway;
-import org.springframework.integration.file.remote.session.SessionFactory;
-import org.springframework.integration.handler.MessageProcessor;
 import org.springframework.integration.metadata.ConcurrentMetadataStore;
 import org.springframework.integration.sftp.dsl.Sftp;
 import org.springframework.integration.sftp.dsl.SftpInboundChannelAdapterSpec;
 import org.springframework.integration.sftp.dsl.SftpOutboundGatewaySpec;
 import org.springframework.integration.sftp.dsl.SftpStreamingInboundChannelAdapterSpec;
-import org.springframework.integration.sftp.filters.SftpPersistentAcceptOnceFileListFilter;
 import org.springframework.integration.sftp.filters.SftpRegexPatternFileListFilter;
 import org.springframework.integration.sftp.filters.SftpSimplePatternFileListFilter;
+import org.springframework.integration.sftp.inbound.SftpInboundFileSynchronizingMessageSource;
 import org.springframework.integration.sftp.session.SftpRemoteFileTemplate;
 import org.springframework.integration.util.IntegrationReactiveUtils;
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandler;
-import org.springframework.messaging.MessageHeaders;
-import org.springframework.messaging.MessagingException;
-import org.springframework.messaging.PollableChannel;
-import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
@@ -97,7 +87,7 @@ public class SftpSupplierConfiguration {
 
 	private static final String METADATA_STORE_PREFIX = "sftpSource/";
 
-	private static final String FILE_MODIFIED_TIME_HEADER = "FILE_MODIFIED_TIME";
+	private static final String WATERMARK_PREFIX = "sftpWatermark/";
 
 	@Bean
 	public Supplier<Flux<? extends Message<?>>> sftpSupplier(
@@ -139,7 +129,7 @@ public class SftpSupplierConfiguration {
 	 */
 	@Bean
 	public FileListFilter<SftpClient.DirEntry> chainFilter(SftpSupplierProperties sftpSupplierProperties,
-			ConcurrentMetadataStore metadataStore) {
+			ConcurrentMetadataStore metadataStore, @Nullable SftpSupplierRotator sftpSupplierRotator) {
 
 		ChainFileListFilter<SftpClient.DirEntry> chainFilter = new ChainFileListFilter<>();
 
@@ -150,7 +140,17 @@ public class SftpSupplierConfiguration {
 			chainFilter.addFilter(new SftpRegexPatternFileListFilter(sftpSupplierProperties.getFilenameRegex()));
 		}
 
-		chainFilter.addFilter(new SftpPersistentAcceptOnceFileListFilter(metadataStore, METADATA_STORE_PREFIX));
+		ToLongFunction<SftpClient.DirEntry> modified = (file) -> file.getAttributes().getModifyTime().toMillis();
+		FileListFilter<SftpClient.DirEntry> acceptOnceFilter = new BatchAcceptOnceFileListFilter<>(metadataStore,
+				METADATA_STORE_PREFIX, SftpClient.DirEntry::getFilename, modified);
+		if (sftpSupplierProperties.isIncrementalListing()) {
+			Supplier<String> directory = (sftpSupplierRotator != null)
+					? () -> sftpSupplierRotator.getCurrentKey() + ":" + sftpSupplierRotator.getCurrentDirectory()
+					: sftpSupplierProperties::getRemoteDir;
+			acceptOnceFilter = new WatermarkFileListFilter<>(acceptOnceFilter, metadataStore, WATERMARK_PREFIX,
+					directory, SftpClient.DirEntry::getFilename, modified);
+		}
+		chainFilter.addFilter(acceptOnceFilter);
 		return chainFilter;
 	}
 
@@ -201,15 +201,26 @@ public class SftpSupplierConfiguration {
 				.maxFetchSize(sftpSupplierProperties.getMaxFetch());
 		}
 
+		@Bean
+		ResumableSftpStreamHandler resumableSftpStreamHandler(SftpSupplierProperties sftpSupplierProperties,
+				SftpSupplierFactoryConfiguration.DelegatingFactoryWrapper wrapper) {
+
+			return new ResumableSftpStreamHandler(wrapper.getFactory(), sftpSupplierProperties.getRemoteFileSeparator(),
+					(int) sftpSupplierProperties.getStreamChunkSize().toBytes(),
+					sftpSupplierProperties.getStreamReadAhead(), sftpSupplierProperties.getStreamResumeAttempts());
+		}
+
 		@Bean
 		Publisher<Message<Object>> sftpReadingFlow(@Qualifier("sftpMessageSource") MessageSource<?> sftpMessageSource,
-				SftpSupplierProperties sftpSupplierProperties, FileConsumerProperties fileConsumerProperties) {
+				SftpSupplierProperties sftpSupplierProperties, FileConsumerProperties fileConsumerProperties,
+				ResumableSftpStreamHandler resumableSftpStreamHandler) {
 
 			return FileUtils
 				.enhanceStreamFlowForReadingMode(
 						IntegrationFlow.from(IntegrationReactiveUtils.messageSourceToFlux(sftpMessageSource)
 							.contextWrite(Context.of(IntegrationReactiveUtils.DELAY_WHEN_EMPTY_KEY,
-									sftpSupplierProperties.getDelayWhenEmpty()))),
+									sftpSupplierProperties.getDelayWhenEmpty())))
+							.handle(resumableSftpStreamHandler),
 						fileConsumerProperties)
 				.toReactivePublisher(true);
 		}
@@ -274,7 +285,8 @@ public class SftpSupplierConfiguration {
 		 * @param fileListFilter the {@link FileListFilter} to use.
 		 * @return the {code MessageSource}.
 		 */
-		@ConditionalOnExpression("environment['sftp.supplier.list-only'] != 'true'")
+		@ConditionalOnExpression("environment['sftp.supplier.list-only'] != 'true'"
+				+ " && ${sftp.supplier.download-concurrency:1} <= 1")
 		@Bean
 		SftpInboundChannelAdapterSpec targetMessageSource(SftpSupplierProperties sftpSupplierProperties,
 				SftpSupplierFactoryConfiguration.DelegatingFactoryWrapper delegatingFactoryWrapper,
@@ -310,134 +322,84 @@ public class SftpSupplierConfiguration {
 	}
 
 	/*
-	 * List only configuration
+	 * Download the files of a poll over several sessions in parallel.
 	 */
 	@Configuration(proxyBeanMethods = false)
-	@ConditionalOnProperty(prefix = "sftp.supplier", name = "list-only")
-	static class ListingOnlyConfiguration {
-
-		private final PollableChannel listingChannel = new QueueChannel();
-
-		@Bean
-		@SuppressWarnings("unchecked")
-		MessageSource<?> targetMessageSource(SftpListingMessageProducer sftpListingMessageProducer) {
-			return () -> {
-				sftpListingMessageProducer.listNames();
-				return (Message<Object>) this.listingChannel.receive();
-			};
-
-		}
+	@ConditionalOnExpression("environment['sftp.supplier.stream'] != 'true'"
+			+ " && environment['sftp.supplier.list-only'] != 'true'"
+			+ " && ${sftp.supplier.download-concurrency:1} > 1")
+	static class ParallelDownloadConfiguration {
 
 		@Bean
-		SftpListingMessageProducer sftpListingMessageProducer(SftpSupplierProperties sftpSupplierProperties,
-				SftpSupplierFactoryConfiguration.DelegatingFactoryWrapper delegatingFactoryWrapper) {
-
-			return new SftpListingMessageProducer(delegatingFactoryWrapper.getFactory(),
-					remoteDirectory(sftpSupplierProperties), sftpSupplierProperties.getRemoteFileSeparator(),
-					sftpSupplierProperties.getSortBy());
-		}
+		ParallelSftpInboundFileSynchronizer sftpInboundFileSynchronizer(SftpSupplierProperties sftpSupplierProperties,
+				SftpSupplierFactoryConfiguration.DelegatingFactoryWrapper delegatingFactoryWrapper,
+				FileListFilter<SftpClient.DirEntry> fileListFilter) {
 
-		@Bean
-		GenericSelector<String> listOnlyFilter(SftpSupplierProperties sftpSupplierProperties) {
-			Predicate<String> predicate = (s) -> true;
-			if (StringUtils.hasText(sftpSupplierProperties.getFilenamePattern())) {
-				predicate = Pattern.compile(sftpSupplierProperties.getFilenamePattern()).asPredicate();
+			ParallelSftpInboundFileSynchronizer synchronizer = new ParallelSftpInboundFileSynchronizer(
+					delegatingFactoryWrapper.getFactory(), sftpSupplierProperties.getDownloadConcurrency());
+			synchronizer.setPreserveTimestamp(sftpSupplierProperties.isPreserveTimestamp());
+			synchronizer.setDeleteRemoteFiles(sftpSupplierProperties.isDeleteRemoteFiles());
+			synchronizer.setRemoteDirectory(remoteDirectory(sftpSupplierProperties));
+			synchronizer.setRemoteFileSeparator(sftpSupplierProperties.getRemoteFileSeparator());
+			synchronizer.setTemporaryFileSuffix(sftpSupplierProperties.getTmpFileSuffix());
+			synchronizer.setMetadataStorePrefix(METADATA_STORE_PREFIX);
+			synchronizer.setFilter(fileListFilter);
+			if (sftpSupplierProperties.getSortBy() != null) {
+				synchronizer.setComparator(sftpSupplierProperties.getSortBy().comparator());
 			}
-			else if (sftpSupplierProperties.getFilenameRegex() != null) {
-				predicate = sftpSupplierProperties.getFilenameRegex().asPredicate();
-			}
-
-			return predicate::test;
+			return synchronizer;
 		}
 
+		/**
+		 * A {@link MessageSource} that synchronizes files to a local directory in
+		 * parallel. The local files are emitted in the order of the remote ones, if
+		 * sorted.
+		 * @param sftpSupplierProperties the properties.
+		 * @param sftpInboundFileSynchronizer the parallel synchronizer.
+		 * @return the {code MessageSource}.
+		 */
 		@Bean
-		IntegrationFlow listingFlow(MessageProducerSupport listingMessageProducer,
-				MessageProcessor<?> lsEntryToStringTransformer, GenericSelector<Message<?>> duplicateFilter,
-				GenericSelector<String> listOnlyFilter) {
-
-			return IntegrationFlow.from(listingMessageProducer)
-				.split()
-				.transform(lsEntryToStringTransformer)
-				.filter(duplicateFilter)
-				.filter(listOnlyFilter)
-				.channel(this.listingChannel)
-				.get();
+		SftpInboundFileSynchronizingMessageSource targetMessageSource(SftpSupplierProperties sftpSupplierProperties,
+				ParallelSftpInboundFileSynchronizer sftpInboundFileSynchronizer) {
+
+			SftpSupplierProperties.SortSpec sortBy = sftpSupplierProperties.getSortBy();
+			SftpInboundFileSynchronizingMessageSource messageSource = new SftpInboundFileSynchronizingMessageSource(
+					sftpInboundFileSynchronizer, (sortBy != null) ? sortBy.fileComparator() : null);
+			messageSource.setLocalDirectory(sftpSupplierProperties.getLocalDir());
+			messageSource.setAutoCreateLocalDirectory(sftpSupplierProperties.isAutoCreateLocalDir());
+			messageSource.setMaxFetchSize(sftpSupplierProperties.getMaxFetch());
+			return messageSource;
 		}
 
-		@Bean
-		MessageProcessor<Message<?>> lsEntryToStringTransformer() {
-			return (Message<?> message) -> {
-				SftpClient.DirEntry dirEntry = (SftpClient.DirEntry) message.getPayload();
-
-				String fileName = message.getHeaders().get(FileHeaders.REMOTE_DIRECTORY) + dirEntry.getFilename();
-
-				return MessageBuilder.withPayload(fileName)
-					.copyHeaders(message.getHeaders())
-					.setHeader(FILE_MODIFIED_TIME_HEADER, String.valueOf(dirEntry.getAttributes().getModifyTime()))
-					.setHeader(MessageHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN)
-					.build();
-			};
+	}
 
-		}
+	/*
+	 * List only configuration
+	 */
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty(prefix = "sftp.supplier", name = "list-only")
+	static class ListingOnlyConfiguration {
 
 		@Bean
-		GenericSelector<Message<?>> duplicateFilter(ConcurrentMetadataStore metadataStore) {
-			// Must be a specific type
-			return new GenericSelector<Message<?>>() {
-				@Override
-				public boolean accept(Message<?> message) {
-
-					String lastModifiedTime = (String) message.getHeaders().get(FILE_MODIFIED_TIME_HEADER);
-					String storedLastModifiedTime = metadataStore.get(METADATA_STORE_PREFIX + message.getPayload());
-
-					boolean result = !lastModifiedTime.equals(storedLastModifiedTime);
-
-					if (result) {
-						metadataStore.put(METADATA_STORE_PREFIX + message.getPayload(),
-								message.getHeaders().get(FILE_MODIFIED_TIME_HEADER).toString());
-					}
-					return result;
-				}
-			};
-		}
-
-		static class SftpListingMessageProducer extends MessageProducerSupport {
-
-			private final String remoteDirectory;
-
-			private final SessionFactory<SftpClient.DirEntry> sessionFactory;
-
-			private final String remoteFileSeparator;
-
-			private final SftpSupplierProperties.SortSpec sort;
-
-			SftpListingMessageProducer(SessionFactory<SftpClient.DirEntry> sessionFactory, String remoteDirectory,
-					String remoteFileSeparator, SftpSupplierProperties.SortSpec sort) {
+		SftpListingMessageSource targetMessageSource(SftpSupplierProperties sftpSupplierProperties,
+				SftpSupplierFactoryConfiguration.DelegatingFactoryWrapper delegatingFactoryWrapper,
+				ConcurrentMetadataStore metadataStore) {
 
-				this.sessionFactory = sessionFactory;
-				this.remoteDirectory = remoteDirectory;
-				this.remoteFileSeparator = remoteFileSeparator;
-				this.sort = sort;
+			SftpListingMessageSource messageSource = new SftpListingMessageSource(
+					delegatingFactoryWrapper.getFactory(), remoteDirectory(sftpSupplierProperties),
+					sftpSupplierProperties.getRemoteFileSeparator(), metadataStore, METADATA_STORE_PREFIX);
+			if (sftpSupplierProperties.getSortBy() != null) {
+				messageSource.setComparator(sftpSupplierProperties.getSortBy().comparator());
 			}
-
-			void listNames() {
-				Stream<SftpClient.DirEntry> stream;
-				try {
-					stream = Stream.of(this.sessionFactory.getSession().list(this.remoteDirectory))
-						.filter((x) -> !(x.getAttributes().isDirectory() || x.getAttributes().isSymbolicLink()));
-
-					if (this.sort != null) {
-						stream = stream.sorted(this.sort.comparator());
-					}
-				}
-				catch (IOException ex) {
-					throw new MessagingException(ex.getMessage(), ex);
-				}
-				sendMessage(MessageBuilder.withPayload(stream)
-					.setHeader(FileHeaders.REMOTE_DIRECTORY, this.remoteDirectory + this.remoteFileSeparator)
-					.build());
+			if (StringUtils.hasText(sftpSupplierProperties.getFilenamePattern())) {
+				messageSource.setFilter(Pattern.compile(sftpSupplierProperties.getFilenamePattern()).asPredicate());
 			}
-
+			else if (sftpSupplierProperties.getFilenameRegex() != null) {
+				messageSource.setFilter(sftpSupplierProperties.getFilenameRegex().asPredicate());
+			}
+			messageSource.setRecursive(sftpSupplierProperties.isListRecursive());
+			messageSource.setPageSize(sftpSupplierProperties.getListPageSize());
+			return messageSource;
 		}
 
 	}
@@ -92,7 +92,8 @@ public class SftpSupplierFactoryConfiguration {
 			sftpSessionFactory.setKnownHostsResource(knownHostsResource);
 		}
 
-		return new CachingSessionFactory<>(sftpSessionFactory);
+		return (factory.getPoolSize() > 0) ? new CachingSessionFactory<>(sftpSessionFactory, factory.getPoolSize())
+				: new CachingSessionFactory<>(sftpSessionFactory);
 	}
 
 	public static final class DelegatingFactoryWrapper implements DisposableBean {
@@ -17,6 +17,11 @@
 package org.springframework.cloud.fn.supplier.sftp;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -24,6 +29,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.AssertTrue;
@@ -37,6 +43,7 @@ import org.springframework.core.io.Resource;
 import org.springframework.expression.Expression;
 import org.springframework.integration.file.remote.aop.RotationPolicy;
 import org.springframework.util.Assert;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
 /**
@@ -113,11 +120,39 @@ public class SftpSupplierProperties {
 	 */
 	private boolean stream = false;
 
+	/**
+	 * The number of bytes read from the remote file with a single ranged read when
+	 * streaming.
+	 */
+	private DataSize streamChunkSize = DataSize.ofKilobytes(128);
+
+	/**
+	 * The number of chunks read ahead of the consumer when streaming.
+	 */
+	private int streamReadAhead = 4;
+
+	/**
+	 * The maximum number of times the transfer of a file is resumed after a failed read
+	 * when streaming.
+	 */
+	private int streamResumeAttempts = 3;
+
 	/**
 	 * Set to true to return file metadata without the entire payload.
 	 */
 	private boolean listOnly = false;
 
+	/**
+	 * The maximum number of remote entries read and checked against the metadata store at
+	 * once in the list-only mode; 'sortBy' orders the entries within a page.
+	 */
+	private int listPageSize = 1000;
+
+	/**
+	 * Set to true to list the files of the subdirectories too in the list-only mode.
+	 */
+	private boolean listRecursive = false;
+
 	/**
 	 * Duration of delay when no new files are detected.
 	 */
@@ -129,6 +164,21 @@ public class SftpSupplierProperties {
 	 */
 	private int maxFetch = Integer.MIN_VALUE;
 
+	/**
+	 * Set to true to keep a high-water mark of the remote directory listing in the
+	 * metadata store, so the files modified before the latest one already seen are
+	 * discarded without a metadata store lookup. Files added later with an older modified
+	 * time are missed.
+	 */
+	private boolean incrementalListing = false;
+
+	/**
+	 * The number of files downloaded in parallel per poll, each over its own session,
+	 * when not streaming or listing only. The files are still emitted in the 'sortBy'
+	 * order, if any; sorting by ATIME or MTIME then requires 'preserveTimestamp'.
+	 */
+	private int downloadConcurrency = 1;
+
 	/**
 	 * True for fair rotation of multiple servers/directories. This is false by default so
 	 * if a source has more than one entry, these will be received before the other
@@ -250,6 +300,23 @@ public class SftpSupplierProperties {
 		this.listOnly = listOnly;
 	}
 
+	@Range(min = 1)
+	public int getListPageSize() {
+		return this.listPageSize;
+	}
+
+	public void setListPageSize(int listPageSize) {
+		this.listPageSize = listPageSize;
+	}
+
+	public boolean isListRecursive() {
+		return this.listRecursive;
+	}
+
+	public void setListRecursive(boolean listRecursive) {
+		this.listRecursive = listRecursive;
+	}
+
 	public boolean isMultiSource() {
 		return this.directories != null && this.directories.length > 0;
 	}
@@ -262,6 +329,23 @@ public class SftpSupplierProperties {
 		this.maxFetch = maxFetch;
 	}
 
+	public boolean isIncrementalListing() {
+		return this.incrementalListing;
+	}
+
+	public void setIncrementalListing(boolean incrementalListing) {
+		this.incrementalListing = incrementalListing;
+	}
+
+	@Range(min = 1)
+	public int getDownloadConcurrency() {
+		return this.downloadConcurrency;
+	}
+
+	public void setDownloadConcurrency(int downloadConcurrency) {
+		this.downloadConcurrency = downloadConcurrency;
+	}
+
 	public boolean isFair() {
 		return this.fair;
 	}
@@ -294,6 +378,37 @@ public class SftpSupplierProperties {
 		this.stream = stream;
 	}
 
+	public DataSize getStreamChunkSize() {
+		return this.streamChunkSize;
+	}
+
+	public void setStreamChunkSize(DataSize streamChunkSize) {
+		this.streamChunkSize = streamChunkSize;
+	}
+
+	@Range(min = 1)
+	public int getStreamReadAhead() {
+		return this.streamReadAhead;
+	}
+
+	public void setStreamReadAhead(int streamReadAhead) {
+		this.streamReadAhead = streamReadAhead;
+	}
+
+	@Range(min = 0)
+	public int getStreamResumeAttempts() {
+		return this.streamResumeAttempts;
+	}
+
+	public void setStreamResumeAttempts(int streamResumeAttempts) {
+		this.streamResumeAttempts = streamResumeAttempts;
+	}
+
+	@AssertTrue(message = "streamChunkSize must be between 1 byte and 2GB")
+	public boolean isStreamChunkSizeValid() {
+		return this.streamChunkSize.toBytes() > 0 && this.streamChunkSize.toBytes() <= Integer.MAX_VALUE - 8;
+	}
+
 	public Factory getFactory() {
 		return this.factory;
 	}
@@ -331,6 +446,19 @@ public class SftpSupplierProperties {
 		return this.renameRemoteFilesTo == null || !this.deleteRemoteFiles;
 	}
 
+	@AssertTrue(message = "the factory poolSize must not be less than downloadConcurrency")
+	public boolean isPoolSizeValid() {
+		return Stream.concat(Stream.of(this.factory), this.factories.values().stream())
+			.allMatch((factory) -> factory.getPoolSize() == 0 || factory.getPoolSize() >= this.downloadConcurrency);
+	}
+
+	@AssertTrue(message = "preserveTimestamp must be 'true' to sort by ATIME or MTIME with a downloadConcurrency "
+			+ "greater than 1")
+	public boolean isParallelSortValid() {
+		return this.downloadConcurrency <= 1 || this.preserveTimestamp || this.sortBy == null
+				|| this.sortBy.getAttribute() == SortSpec.Attribute.FILENAME;
+	}
+
 	public static class Factory {
 
 		/**
@@ -374,6 +502,11 @@ public class SftpSupplierProperties {
 		 */
 		private Expression knownHostsExpression = null;
 
+		/**
+		 * The maximum number of sessions open to the server at once; zero for no limit.
+		 */
+		private int poolSize = 0;
+
 		@NotBlank
 		public String getHost() {
 			return this.host;
@@ -425,6 +558,15 @@ public class SftpSupplierProperties {
 			this.passPhrase = passPhrase;
 		}
 
+		@Range(min = 0)
+		public int getPoolSize() {
+			return this.poolSize;
+		}
+
+		public void setPoolSize(int poolSize) {
+			this.poolSize = poolSize;
+		}
+
 		public boolean isAllowUnknownKeys() {
 			return this.allowUnknownKeys;
 		}
@@ -521,6 +663,30 @@ public class SftpSupplierProperties {
 			return (this.dir == Dir.ASC) ? comparator : comparator.reversed();
 		}
 
+		/**
+		 * The comparator of the local copies of the remote files, consistent with
+		 * {@link #comparator()} when the timestamps are preserved.
+		 * @return the local file comparator.
+		 * @since 5.0
+		 */
+		public Comparator<File> fileComparator() {
+			Comparator<File> comparator = switch (this.attribute) {
+				case FILENAME -> Comparator.comparing(File::getName);
+				case ATIME -> Comparator.comparing(SortSpec::lastAccessTime);
+				case MTIME -> Comparator.comparingLong(File::lastModified);
+			};
+			return (this.dir == Dir.ASC) ? comparator : comparator.reversed();
+		}
+
+		private static FileTime lastAccessTime(File file) {
+			try {
+				return Files.readAttributes(file.toPath(), BasicFileAttributes.class).lastAccessTime();
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
 	}
 
 }
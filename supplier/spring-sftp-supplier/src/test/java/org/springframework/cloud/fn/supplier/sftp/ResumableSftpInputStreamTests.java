@@ -0,0 +1,79 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.fn.supplier.sftp;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+
+import org.apache.sshd.sftp.client.SftpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.fn.test.support.sftp.SftpTestSupport;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.sftp.session.DefaultSftpSessionFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Team
+ */
+public class ResumableSftpInputStreamTests extends SftpTestSupport {
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@AfterEach
+	void shutdownExecutor() {
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	void transferResumesOverANewSession() throws Exception {
+		DefaultSftpSessionFactory sessionFactory = new DefaultSftpSessionFactory();
+		sessionFactory.setHost("localhost");
+		sessionFactory.setPort(Integer.getInteger("sftp.factory.port"));
+		sessionFactory.setUser("user");
+		sessionFactory.setPassword("pass");
+		sessionFactory.setAllowUnknownKeys(true);
+		Session<SftpClient.DirEntry> session = sessionFactory.getSession();
+		AtomicInteger resumes = new AtomicInteger();
+
+		ResumableSftpInputStream stream = new ResumableSftpInputStream("sftpSource/sftpSource1.txt", session, () -> {
+			resumes.incrementAndGet();
+			return sessionFactory.getSession();
+		}, this.executor, 2, 1, 3);
+		byte[] bytes = new byte[7];
+		assertThat(stream.read(bytes, 0, 2)).isEqualTo(2);
+		session.close();
+		int count = 2;
+		int read;
+		while ((read = stream.read(bytes, count, bytes.length - count)) > 0) {
+			count += read;
+		}
+		assertThat(stream.read()).isEqualTo(-1);
+		stream.close();
+
+		assertThat(new String(bytes)).isEqualTo("source1");
+		assertThat(resumes).hasValue(1);
+		CRC32C checksum = new CRC32C();
+		checksum.update(bytes);
+		assertThat(stream.getChecksum()).isEqualTo(checksum.getValue());
+	}
+
+}
@@ -107,6 +107,28 @@ public class SftpSupplierApplicationTests extends SftpTestSupport {
 			});
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	void supplierForListOnlyRecursiveInPages() throws IOException {
+		File subDirectory = new File(getSourceRemoteDirectory(), "sub");
+		subDirectory.mkdirs();
+		Files.writeString(new File(subDirectory, "sftpSource3.txt").toPath(), "source3");
+		defaultApplicationContextRunner
+			.withPropertyValues("sftp.supplier.listOnly=true", "sftp.supplier.list-recursive=true",
+					"sftp.supplier.list-page-size=1")
+			.run((context) -> {
+				Supplier<Flux<Message<String>>> sftpSupplier = context.getBean("sftpSupplier", Supplier.class);
+				StepVerifier.create(sftpSupplier.get().map(Message::getPayload).take(3))
+					.recordWith(HashSet::new)
+					.expectNextCount(3)
+					.consumeRecordedWith((paths) -> assertThat(paths).containsExactlyInAnyOrder(
+							"sftpSource/sftpSource1.txt", "sftpSource/sftpSource2.txt",
+							"sftpSource/sub/sftpSource3.txt"))
+					.expectComplete()
+					.verify(Duration.ofSeconds(30));
+			});
+	}
+
 	@Test
 	@SuppressWarnings("unchecked")
 	void supplierForListSortedByFilenameAsc() {
@@ -192,6 +214,50 @@ public class SftpSupplierApplicationTests extends SftpTestSupport {
 			});
 	}
 
+	@Test
+	void parallelDownloadsSortedByModifiedTimeRequirePreservedTimestamps() {
+		defaultApplicationContextRunner
+			.withPropertyValues("sftp.supplier.localDir=" + getTargetLocalDirectory().getAbsolutePath(),
+					"file.consumer.mode=ref", "sftp.supplier.download-concurrency=4",
+					"sftp.supplier.sortBy.attribute=mtime", "sftp.supplier.preserve-timestamp=false")
+			.run((context) -> assertThat(context).hasFailed()
+				.getFailure()
+				.rootCause()
+				.hasMessageContaining("preserveTimestamp must be 'true'"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void supplierForFileRefWithParallelDownloads() {
+		defaultApplicationContextRunner
+			.withPropertyValues("sftp.supplier.localDir=" + getTargetLocalDirectory().getAbsolutePath(),
+					"file.consumer.mode=ref", "sftp.supplier.download-concurrency=4",
+					"sftp.supplier.sortBy.attribute=filename")
+			.run((context) -> {
+				Supplier<Flux<Message<File>>> sftpSupplier = context.getBean("sftpSupplier", Supplier.class);
+				MetadataStore metadataStore = context.getBean(MetadataStore.class);
+				assertThat(context).hasSingleBean(ParallelSftpInboundFileSynchronizer.class);
+				StepVerifier.create(sftpSupplier.get())
+					.assertNext((message) -> assertThat(message.getPayload().getName()).isEqualTo("sftpSource1.txt"))
+					.assertNext((message) -> assertThat(message.getPayload().getName()).isEqualTo("sftpSource2.txt"))
+					.thenCancel()
+					.verify(Duration.ofSeconds(30));
+
+				assertThat(metadataStore.get("sftpSource/sftpSource1.txt")).isNotNull();
+				assertThat(metadataStore.get("sftpSource/sftpSource2.txt")).isNotNull();
+
+				// As when the channel adapter is stopped and started again
+				ParallelSftpInboundFileSynchronizer synchronizer = context
+					.getBean(ParallelSftpInboundFileSynchronizer.class);
+				synchronizer.close();
+				metadataStore.remove("sftpSource/sftpSource1.txt");
+				Files.delete(Paths.get(getTargetLocalDirectory().getAbsolutePath(), "sftpSource1.txt"));
+				synchronizer.synchronizeToLocalDirectory(getTargetLocalDirectory(), -1);
+				assertThat(Files.exists(Paths.get(getTargetLocalDirectory().getAbsolutePath(), "sftpSource1.txt")))
+					.isTrue();
+			});
+	}
+
 	@Test
 	@SuppressWarnings("unchecked")
 	void deleteRemoteFiles() {